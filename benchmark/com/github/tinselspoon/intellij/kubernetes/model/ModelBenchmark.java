@@ -0,0 +1,319 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import static com.github.tinselspoon.intellij.kubernetes.model.ModelTestUtil.loadSpecs;
+import static com.github.tinselspoon.intellij.kubernetes.model.ModelTestUtil.openArchive;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import com.github.tinselspoon.intellij.kubernetes.ResourceTypeKey;
+import com.github.tinselspoon.intellij.kubernetes.config.ApiPackage;
+import com.github.tinselspoon.intellij.kubernetes.config.ConfigState;
+import com.google.gson.JsonParser;
+import com.intellij.openapi.util.io.FileUtil;
+
+/**
+ * Benchmarks of loading and querying the model.
+ * <p>
+ * These are kept apart from the unit tests as their results depend on the machine and its load, so can only be compared by a person running them one after another. Run {@link #main(String[])}
+ * with no arguments to run every benchmark, or with the names of the benchmarks to run.
+ */
+final class ModelBenchmark {
+
+    /** The resource used by the lookup benchmarks. */
+    private static final ResourceTypeKey DEPLOYMENT = new ResourceTypeKey("apps/v1beta2", "Deployment");
+
+    /** A path from a deployment to the containers of its pod template. */
+    private static final List<String> CONTAINERS_PATH = Arrays.asList("spec", "template", "spec", "containers");
+
+    /** The number of rounds of each benchmark, the first of which warm up the code being measured. */
+    private static final int ROUNDS = 5;
+
+    /** Private constructor; use {@link #main(String[])}. */
+    private ModelBenchmark() {
+    }
+
+    /**
+     * Creates a loader with both Kubernetes and OpenShift enabled at their default versions.
+     *
+     * @return the loader.
+     */
+    private static ModelLoader createModelLoader() {
+        final ConfigState configState = new ConfigState();
+        configState.setKubernetesPackage(new ApiPackage(true, null));
+        configState.setOpenshiftPackage(new ApiPackage(true, null));
+        return new ModelLoader(configState, ModelLoader::openPackage);
+    }
+
+    /**
+     * Finds the root model of a resource as lookups did before resources were indexed, by building its model ID and checking the spec of its API version.
+     *
+     * @param snapshot the snapshot to search.
+     * @param resourceTypeKey the resource.
+     * @return the root model, or {@code null} if it cannot be found.
+     */
+    private static Model findRootModelBySearch(final SchemaSnapshot snapshot, final ResourceTypeKey resourceTypeKey) {
+        String resourceApiVersion = resourceTypeKey.getApiVersion();
+        if (resourceApiVersion.indexOf('/') > -1) {
+            resourceApiVersion = resourceApiVersion.substring(resourceApiVersion.indexOf('/') + 1);
+        }
+        final String modelId = resourceApiVersion + "." + resourceTypeKey.getKind();
+        final SwaggerSpec spec = snapshot.getSpec(resourceTypeKey.getApiVersion());
+        return spec != null && spec.getModels().containsKey(modelId) ? spec.getModels().get(modelId) : null;
+    }
+
+    /**
+     * Gets the number of bytes allocated by the current thread so far, if the JVM supports measuring it.
+     *
+     * @return the number of bytes, or {@code -1} if not supported.
+     */
+    private static long getAllocatedBytes() {
+        final java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args the names of the benchmarks to run, or none to run them all.
+     * @throws IOException if a bundled archive could not be read.
+     */
+    public static void main(final String[] args) throws IOException {
+        final Map<String, Benchmark> benchmarks = new LinkedHashMap<>();
+        benchmarks.put("parse", ModelBenchmark::measureParse);
+        benchmarks.put("parallelLoad", ModelBenchmark::measureParallelLoad);
+        benchmarks.put("schemaCache", ModelBenchmark::measureSchemaCache);
+        benchmarks.put("findProperties", ModelBenchmark::measureFindProperties);
+        benchmarks.put("resourceLookup", ModelBenchmark::measureResourceLookup);
+        benchmarks.put("propertyLookup", ModelBenchmark::measurePropertyLookup);
+        for (final String name : args.length > 0 ? Arrays.asList(args) : new ArrayList<>(benchmarks.keySet())) {
+            final Benchmark benchmark = benchmarks.get(name);
+            if (benchmark == null) {
+                System.err.println("Unknown benchmark " + name + "; expected one of " + benchmarks.keySet());
+                System.exit(1);
+            }
+            System.out.println("== " + name);
+            benchmark.run();
+        }
+    }
+
+    /** Measures the throughput of {@code findProperties} as the model provider performs it, reading the published snapshot on every call. */
+    private static void measureFindProperties() {
+        final ModelLoader modelLoader = createModelLoader();
+        modelLoader.getActiveSnapshot();
+        for (int round = 0; round < ROUNDS; round++) {
+            final long startTime = System.nanoTime();
+            long count = 0;
+            long propertyCount = 0;
+            while (System.nanoTime() - startTime < 200_000_000L) {
+                final Map<String, Property> properties = modelLoader.getLoadedActiveSnapshot().findProperties(DEPLOYMENT, CONTAINERS_PATH);
+                propertyCount += properties.size();
+                count++;
+            }
+            System.out.println("findProperties: " + count * 5 + " calls/s (" + propertyCount / count + " properties)");
+        }
+    }
+
+    /** Compares the wall-clock time taken to load kubernetes-1.9 with its entries parsed sequentially and in parallel. */
+    private static void measureParallelLoad() {
+        final ForkJoinPool sequentialPool = new ForkJoinPool(1);
+        final ForkJoinPool parallelPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                long startTime = System.nanoTime();
+                loadSpecs("kubernetes-1.9", sequentialPool);
+                final long sequentialMillis = (System.nanoTime() - startTime) / 1_000_000;
+                startTime = System.nanoTime();
+                loadSpecs("kubernetes-1.9", parallelPool);
+                final long parallelMillis = (System.nanoTime() - startTime) / 1_000_000;
+                System.out.println("kubernetes-1.9 load: " + sequentialMillis + " ms sequential, " + parallelMillis + " ms on " + parallelPool.getParallelism() + " threads");
+            }
+        } finally {
+            sequentialPool.shutdown();
+            parallelPool.shutdown();
+        }
+    }
+
+    /** Compares the cost of reading kubernetes-1.9 with the streaming reader against materialising the whole of each document. */
+    private static void measureParse() throws IOException {
+        for (int round = 0; round < ROUNDS; round++) {
+            for (final boolean streaming : new boolean[] {false, true}) {
+                final long startBytes = getAllocatedBytes();
+                final long startTime = System.nanoTime();
+                readArchive("kubernetes-1.9", streaming);
+                final long elapsedMillis = (System.nanoTime() - startTime) / 1_000_000;
+                final long allocatedKiB = (getAllocatedBytes() - startBytes) / 1024;
+                System.out.println("kubernetes-1.9 " + (streaming ? "streaming reader: " : "full document tree: ") + elapsedMillis + " ms, " + allocatedKiB + " KiB allocated");
+            }
+        }
+    }
+
+    /**
+     * Looks up, 200 times over, the names given for each map.
+     *
+     * @param maps the maps.
+     * @param names the names to look up in the map at the same position.
+     * @return the time taken in nanoseconds.
+     */
+    private static long measureLookups(final List<Map<String, Property>> maps, final List<String[]> names) {
+        long found = 0;
+        final long startTime = System.nanoTime();
+        for (int round = 0; round < 200; round++) {
+            for (int i = 0; i < maps.size(); i++) {
+                final Map<String, Property> map = maps.get(i);
+                for (final String name : names.get(i)) {
+                    if (map.get(name) != null) {
+                        found++;
+                    }
+                }
+            }
+        }
+        final long nanos = System.nanoTime() - startTime;
+        if (found == 0) {
+            throw new IllegalStateException("No properties found.");
+        }
+        return nanos;
+    }
+
+    /**
+     * Compares the time taken to look up properties in the frozen property maps of kubernetes-1.9 with hash maps of the same properties. Each map is asked for each of its own names, and for
+     * eight names of other maps that it mostly does not have, as the annotators and completion do for the keys at each path.
+     */
+    private static void measurePropertyLookup() {
+        final Set<Model> models = Collections.newSetFromMap(new IdentityHashMap<>());
+        new ModelInterner().internSpecs(loadSpecs("kubernetes-1.9")).forEach(spec -> models.addAll(spec.getModels().values()));
+        final List<Map<String, Property>> frozenMaps = new ArrayList<>();
+        final List<Map<String, Property>> hashMaps = new ArrayList<>();
+        final List<String> allNames = new ArrayList<>();
+        for (final Model model : models) {
+            frozenMaps.add(model.getProperties());
+            hashMaps.add(new HashMap<>(model.getProperties()));
+            allNames.addAll(model.getProperties().keySet());
+        }
+        final List<String[]> names = new ArrayList<>();
+        for (int i = 0; i < frozenMaps.size(); i++) {
+            final List<String> mapNames = new ArrayList<>(frozenMaps.get(i).keySet());
+            for (int j = 0; j < 8; j++) {
+                mapNames.add(allNames.get((i * 8 + j) % allNames.size()));
+            }
+            // Copy the names, as the keys read from a document are not the interned instances
+            names.add(mapNames.stream().map(String::new).toArray(String[]::new));
+        }
+        for (int round = 0; round < ROUNDS; round++) {
+            final long hashNanos = measureLookups(hashMaps, names);
+            final long frozenNanos = measureLookups(frozenMaps, names);
+            System.out.println(frozenMaps.size() + " property maps: " + hashNanos / 1_000_000 + " ms in hash maps, " + frozenNanos / 1_000_000 + " ms in frozen maps");
+        }
+    }
+
+    /**
+     * Compares the time taken to find the root model of the resource for every key of a 1000-key manifest, by building the model ID and searching the spec for each key as lookups once did, and
+     * through the resource index.
+     */
+    private static void measureResourceLookup() {
+        final SchemaSnapshot snapshot = createModelLoader().getActiveSnapshot();
+        final List<ResourceTypeKey> manifestKeys = new ArrayList<>();
+        final ResourceTypeKey[] resources = {DEPLOYMENT, new ResourceTypeKey("v1", "Service"), new ResourceTypeKey("v1", "ConfigMap"), new ResourceTypeKey("v1", "DeploymentConfig")};
+        for (int i = 0; i < 1000; i++) {
+            // Copy each key, as the annotators see a new key for every element
+            final ResourceTypeKey resource = resources[i % resources.length];
+            manifestKeys.add(new ResourceTypeKey(new String(resource.getApiVersion()), new String(resource.getKind())));
+        }
+        for (int round = 0; round < ROUNDS; round++) {
+            long startTime = System.nanoTime();
+            for (int i = 0; i < 200; i++) {
+                for (final ResourceTypeKey key : manifestKeys) {
+                    findRootModelBySearch(snapshot, key);
+                }
+            }
+            final long searchNanos = (System.nanoTime() - startTime) / 200;
+            startTime = System.nanoTime();
+            for (int i = 0; i < 200; i++) {
+                for (final ResourceTypeKey key : manifestKeys) {
+                    snapshot.getResource(key).getRootModel();
+                }
+            }
+            final long indexNanos = (System.nanoTime() - startTime) / 200;
+            System.out.println("1000-key manifest: " + searchNanos / 1000 + " us by search, " + indexNanos / 1000 + " us by index");
+        }
+    }
+
+    /** Compares the time taken to parse openshift-3.6 with the time taken to read it back from a schema cache entry. */
+    private static void measureSchemaCache() throws IOException {
+        final byte[] content;
+        try (InputStream in = openArchive("openshift-3.6")) {
+            content = FileUtil.loadBytes(in);
+        }
+        final SchemaCache.Parser parser = bytes -> ModelLoader.loadSpecsFromZip(new ByteArrayInputStream(bytes));
+        for (int round = 0; round < ROUNDS; round++) {
+            final File directory = FileUtil.createTempDirectory("kubernetes-schemas", "", true);
+            try {
+                final long coldStart = System.nanoTime();
+                new SchemaCache(directory, SchemaCache.MAX_ENTRIES).open("swagger-1.2-zip", content, parser, new ModelInterner()).getAllSpecs();
+                final long coldTime = System.nanoTime() - coldStart;
+                final long warmStart = System.nanoTime();
+                new SchemaCache(directory, SchemaCache.MAX_ENTRIES).open("swagger-1.2-zip", content, parser, new ModelInterner()).getAllSpecs();
+                final long warmTime = System.nanoTime() - warmStart;
+                System.out.println("openshift-3.6 parsed: " + coldTime / 1_000_000 + " ms, read from cache: " + warmTime / 1_000_000 + " ms");
+            } finally {
+                FileUtil.delete(directory);
+            }
+        }
+    }
+
+    /**
+     * Reads every JSON entry of a bundled archive, either with a {@link SwaggerSpecReader} or by building a complete Gson tree of the document, as the previous data binding approach did.
+     *
+     * @param archiveName the name of the archive, excluding the extension.
+     * @param streaming whether to use the streaming reader.
+     * @throws IOException if the archive could not be read.
+     */
+    private static void readArchive(final String archiveName, final boolean streaming) throws IOException {
+        final SwaggerSpecReader specReader = new SwaggerSpecReader();
+        try (ZipInputStream resourceStream = new ZipInputStream(openArchive(archiveName))) {
+            ZipEntry entry;
+            while ((entry = resourceStream.getNextEntry()) != null) {
+                if (entry.getName().endsWith("json")) {
+                    final InputStreamReader reader = new InputStreamReader(resourceStream, StandardCharsets.UTF_8);
+                    if (streaming) {
+                        specReader.read(reader);
+                    } else {
+                        new JsonParser().parse(reader);
+                    }
+                }
+            }
+        }
+    }
+
+    /** A benchmark, which prints its measurements. */
+    @FunctionalInterface
+    private interface Benchmark {
+
+        /**
+         * Runs the benchmark.
+         *
+         * @throws IOException if a bundled archive could not be read.
+         */
+        void run() throws IOException;
+    }
+}
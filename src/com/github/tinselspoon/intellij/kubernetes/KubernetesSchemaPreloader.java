@@ -0,0 +1,36 @@
+package com.github.tinselspoon.intellij.kubernetes;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.github.tinselspoon.intellij.kubernetes.model.ModelProvider;
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupActivity;
+
+/**
+ * Loads the schemas for the active configuration in the background when a project is opened, so that the first completion or highlighting pass does not have to wait for them.
+ */
+public class KubernetesSchemaPreloader implements StartupActivity {
+
+    @Override
+    public void runActivity(@NotNull final Project project) {
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Loading Kubernetes schemas", false) {
+            @Override
+            public void onSuccess() {
+                // Anything highlighted while loading will have been given no annotations, so recalculate now the schemas are available
+                if (!project.isDisposed()) {
+                    DaemonCodeAnalyzer.getInstance(project).restart();
+                }
+            }
+
+            @Override
+            public void run(@NotNull final ProgressIndicator progressIndicator) {
+                progressIndicator.setIndeterminate(true);
+                ModelProvider.INSTANCE.preload();
+            }
+        });
+    }
+}
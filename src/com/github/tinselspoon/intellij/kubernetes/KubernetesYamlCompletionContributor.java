@@ -1,7 +1,8 @@
 package com.github.tinselspoon.intellij.kubernetes;
 
 import java.util.Collections;
-import java.util.Map.Entry;
+import java.util.List;
+import java.util.Map;
 
 import javax.swing.Icon;
 
@@ -20,6 +21,8 @@ import com.intellij.codeInsight.completion.CompletionParameters;
 import com.intellij.codeInsight.completion.CompletionProvider;
 import com.intellij.codeInsight.completion.CompletionResultSet;
 import com.intellij.codeInsight.completion.CompletionType;
+import com.intellij.codeInsight.completion.PrefixMatcher;
+import com.intellij.codeInsight.completion.PrioritizedLookupElement;
 import com.intellij.codeInsight.lookup.LookupElementBuilder;
 import com.intellij.icons.AllIcons.Json;
 import com.intellij.openapi.editor.Editor;
@@ -45,6 +48,26 @@ public class KubernetesYamlCompletionContributor extends CompletionContributor {
         extend(CompletionType.BASIC, PlatformPatterns.psiElement().withLanguage(YAMLLanguage.INSTANCE), new Provider());
     }
 
+    /**
+     * Adds suggestions for the properties of a model that match the prefix typed so far.
+     * <p>
+     * Rather than creating a lookup element for every property and leaving the platform to discard those that do not match, elements are only created for the names given by the {@linkplain
+     * Model#findPropertyNames(String) prefix index} of the model that the prefix matcher accepts. Typing further only narrows the matches, while deleting past the start of the prefix restarts
+     * completion, so the properties left out are reported once a prefix matches them.
+     *
+     * @param resultSet the result set to append suggestions to.
+     * @param model the model whose properties to suggest.
+     */
+    private static void addPropertySuggestions(@NotNull final CompletionResultSet resultSet, @NotNull final Model model) {
+        final PrefixMatcher prefixMatcher = resultSet.getPrefixMatcher();
+        final Map<String, Property> properties = model.getProperties();
+        for (final String propertyName : model.findPropertyNames(prefixMatcher.getPrefix())) {
+            if (prefixMatcher.prefixMatches(propertyName)) {
+                resultSet.addElement(createKeyLookupElement(propertyName, properties.get(propertyName)));
+            }
+        }
+    }
+
     /**
      * Adds suggestions for possible items to insert under the value of a given {@link YAMLKeyValue}.
      *
@@ -62,9 +85,7 @@ public class KubernetesYamlCompletionContributor extends CompletionContributor {
             resultSet.addElement(LookupElementBuilder.create("false").withBoldness(true));
         }
         if (keyModel != null) {
-            for (final Entry<String, Property> property : keyModel.getProperties().entrySet()) {
-                resultSet.addElement(createKeyLookupElement(property.getKey(), property.getValue()));
-            }
+            addPropertySuggestions(resultSet, keyModel);
         }
     }
 
@@ -163,18 +184,24 @@ public class KubernetesYamlCompletionContributor extends CompletionContributor {
                     resultSet.addElement(createKeyLookupElement("kind", false));
                 } else {
                     // If we do know the resource type, add the fields relevant to that resource
-                    modelProvider.findProperties(resourceKey, Collections.emptyList()).forEach((key, value) -> resultSet.addElement(createKeyLookupElement(key, value)));
+                    final Model rootModel = modelProvider.findModel(element, resourceKey, Collections.emptyList());
+                    if (rootModel != null) {
+                        addPropertySuggestions(resultSet, rootModel);
+                    }
                 }
             } else {
                 // The "apiVersion" and "kind" fields on the top level are special cases where we have to calculate the completion
                 if (isTopLevelMapping(keyValue)) {
                     if ("apiVersion".equals(keyValue.getKeyText())) {
-                        for (final String apiVersion : modelProvider.suggestApiVersions()) {
-                            resultSet.addElement(LookupElementBuilder.create(apiVersion).withIcon(PlatformIcons.PACKAGE_ICON));
+                        final String kind = KubernetesYamlPsiUtil.getValueText(topLevelMapping, "kind");
+                        final List<String> apiVersions = modelProvider.suggestApiVersions(element, kind);
+                        for (int i = 0; i < apiVersions.size(); i++) {
+                            // Keep the order the versions are suggested in, rather than letting the lookup sort them by name
+                            resultSet.addElement(PrioritizedLookupElement.withPriority(LookupElementBuilder.create(apiVersions.get(i)).withIcon(PlatformIcons.PACKAGE_ICON), apiVersions.size() - i));
                         }
                     } else if ("kind".equals(keyValue.getKeyText())) {
                         final String apiVersion = KubernetesYamlPsiUtil.getValueText(topLevelMapping, "apiVersion");
-                        for (final ResourceTypeKey kind : modelProvider.suggestKinds(apiVersion)) {
+                        for (final ResourceTypeKey kind : modelProvider.suggestKinds(element, apiVersion)) {
                             final String kindApiVersion = kind.getApiVersion();
                             // Add on the apiVersion
                             resultSet.addElement(LookupElementBuilder.create(kind.getKind())
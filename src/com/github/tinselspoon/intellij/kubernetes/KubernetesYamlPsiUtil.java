@@ -115,7 +115,7 @@ public final class KubernetesYamlPsiUtil {
 
         // We have iterated from the inside out, so flip this around to get it in the correct direction for the ModelProvider
         Collections.reverse(keys);
-        return modelProvider.findModel(resourceKey, keys);
+        return modelProvider.findModel(keyValue, resourceKey, keys);
     }
 
     /**
@@ -137,6 +137,6 @@ public final class KubernetesYamlPsiUtil {
 
         // We have iterated from the inside out, so flip this around to get it in the correct direction for the ModelProvider
         Collections.reverse(keys);
-        return modelProvider.findProperties(resourceKey, keys).get(keyValue.getKeyText());
+        return modelProvider.findProperties(keyValue, resourceKey, keys).get(keyValue.getKeyText());
     }
 }
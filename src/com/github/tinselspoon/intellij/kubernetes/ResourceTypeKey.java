@@ -2,13 +2,15 @@ package com.github.tinselspoon.intellij.kubernetes;
 
 import java.util.Objects;
 
+import com.github.tinselspoon.intellij.kubernetes.model.ApiVersion;
+
 /**
  * Uniquely identifies the type of a resource in a Kubernetes definition. This is accomplished by the fields "apiVersion" and "kind", which are included in every Kubernetes resource.
  */
 public class ResourceTypeKey {
 
-    /** The value of the "apiVersion" field, e.g. {@code batch/v1}. */
-    private final String apiVersion;
+    /** The value of the "apiVersion" field, e.g. {@code batch/v1}, parsed. */
+    private final ApiVersion apiVersion;
 
     /** The value of the "kind" field, e.g. {@code Job}. */
     private final String kind;
@@ -20,6 +22,16 @@ public class ResourceTypeKey {
      * @param kind the value of the "kind" field, e.g. {@code Job}.
      */
     public ResourceTypeKey(final String apiVersion, final String kind) {
+        this(ApiVersion.of(apiVersion), kind);
+    }
+
+    /**
+     * Creates a key from an API version that has already been parsed.
+     *
+     * @param apiVersion the value of the "apiVersion" field, e.g. {@code batch/v1}.
+     * @param kind the value of the "kind" field, e.g. {@code Job}.
+     */
+    public ResourceTypeKey(final ApiVersion apiVersion, final String kind) {
         this.apiVersion = apiVersion;
         this.kind = kind;
     }
@@ -42,7 +54,7 @@ public class ResourceTypeKey {
      * @return the api version.
      */
     public String getApiVersion() {
-        return apiVersion;
+        return apiVersion != null ? apiVersion.toString() : null;
     }
 
     /**
@@ -54,8 +66,18 @@ public class ResourceTypeKey {
         return kind;
     }
 
+    /**
+     * Gets the value of the "apiVersion" field, e.g. {@code batch/v1}, parsed so that it can be ordered against other API versions.
+     *
+     * @return the api version.
+     */
+    public ApiVersion getParsedApiVersion() {
+        return apiVersion;
+    }
+
     @Override
     public int hashCode() {
-        return Objects.hash(apiVersion, kind);
+        // Computed without Objects.hash, which allocates an array, as keys are hashed on every schema lookup
+        return 31 * Objects.hashCode(apiVersion) + Objects.hashCode(kind);
     }
 }
@@ -21,6 +21,12 @@ public class ConfigState implements PersistentStateComponent<ConfigState> {
     /** The configuration for OpenShift. */
     private ApiPackage openshiftPackage = new ApiPackage(false, null);
 
+    /** The name of a kubeconfig context whose cluster serves the Kubernetes specs at {@code /openapi/v2}, or {@code null} to use the bundled specs. */
+    private String kubernetesClusterContext = null;
+
+    /** The path of a local OpenAPI v2 document to use in place of the bundled Kubernetes specs, or {@code null} to use the bundled specs. */
+    private String kubernetesSpecFile = null;
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) {
@@ -30,7 +36,17 @@ public class ConfigState implements PersistentStateComponent<ConfigState> {
             return false;
         }
         final ConfigState that = (ConfigState) o;
-        return Objects.equals(kubernetesPackage, that.kubernetesPackage) && Objects.equals(openshiftPackage, that.openshiftPackage);
+        return Objects.equals(kubernetesPackage, that.kubernetesPackage) && Objects.equals(openshiftPackage, that.openshiftPackage) && Objects.equals(kubernetesSpecFile, that.kubernetesSpecFile)
+               && Objects.equals(kubernetesClusterContext, that.kubernetesClusterContext);
+    }
+
+    /**
+     * Gets the name of a kubeconfig context whose cluster serves the Kubernetes specs at {@code /openapi/v2}.
+     *
+     * @return the context name, or {@code null} to use the bundled specs.
+     */
+    public String getKubernetesClusterContext() {
+        return kubernetesClusterContext;
     }
 
     /**
@@ -42,6 +58,15 @@ public class ConfigState implements PersistentStateComponent<ConfigState> {
         return kubernetesPackage;
     }
 
+    /**
+     * Gets the path of a local OpenAPI v2 document to use in place of the bundled Kubernetes specs, such as the {@code swagger.json} served by a cluster.
+     *
+     * @return the path, or {@code null} to use the bundled specs.
+     */
+    public String getKubernetesSpecFile() {
+        return kubernetesSpecFile;
+    }
+
     /**
      * Gets the configuration for OpenShift.
      *
@@ -59,7 +84,7 @@ public class ConfigState implements PersistentStateComponent<ConfigState> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(kubernetesPackage, openshiftPackage);
+        return Objects.hash(kubernetesPackage, openshiftPackage, kubernetesSpecFile, kubernetesClusterContext);
     }
 
     @Override
@@ -67,6 +92,15 @@ public class ConfigState implements PersistentStateComponent<ConfigState> {
         XmlSerializerUtil.copyBean(configState, this);
     }
 
+    /**
+     * Sets the name of a kubeconfig context whose cluster serves the Kubernetes specs at {@code /openapi/v2}.
+     *
+     * @param kubernetesClusterContext the new context name, or {@code null} to use the bundled specs.
+     */
+    public void setKubernetesClusterContext(final String kubernetesClusterContext) {
+        this.kubernetesClusterContext = kubernetesClusterContext;
+    }
+
     /**
      * Sets the configuration for Kubernetes.
      *
@@ -76,6 +110,15 @@ public class ConfigState implements PersistentStateComponent<ConfigState> {
         this.kubernetesPackage = kubernetesPackage;
     }
 
+    /**
+     * Sets the path of a local OpenAPI v2 document to use in place of the bundled Kubernetes specs.
+     *
+     * @param kubernetesSpecFile the new path, or {@code null} to use the bundled specs.
+     */
+    public void setKubernetesSpecFile(final String kubernetesSpecFile) {
+        this.kubernetesSpecFile = kubernetesSpecFile;
+    }
+
     /**
      * Sets the configuration for OpenShift.
      *
@@ -6,15 +6,21 @@ import java.util.Optional;
 import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JComponent;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JTextField;
 
 import org.jetbrains.annotations.Nls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import com.github.tinselspoon.intellij.kubernetes.model.ModelProvider;
+import com.github.tinselspoon.intellij.kubernetes.model.SpecCatalog;
 import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory;
 import com.intellij.openapi.options.Configurable;
 import com.intellij.openapi.options.ConfigurationException;
+import com.intellij.openapi.ui.TextFieldWithBrowseButton;
 
 /**
  * Defines the configuration UI for the plugin in the IntelliJ settings window.
@@ -33,6 +39,18 @@ public class KubernetesConfigurable implements Configurable {
     /** Checkbox to enable OpenShift completion. */
     private JCheckBox enableOpenshiftCompletion;
 
+    /** Name of a kubeconfig context whose cluster serves the Kubernetes specs. */
+    private JTextField kubernetesClusterContext;
+
+    /** Label for the kubeconfig context. */
+    private JLabel kubernetesClusterContextLabel;
+
+    /** Path of a local OpenAPI v2 document to use in place of the bundled Kubernetes specs. */
+    private TextFieldWithBrowseButton kubernetesSpecFile;
+
+    /** Label for the local OpenAPI v2 document. */
+    private JLabel kubernetesSpecFileLabel;
+
     /** List of available Kubernetes versions. */
     private JComboBox<String> kubernetesVersions;
 
@@ -61,6 +79,7 @@ public class KubernetesConfigurable implements Configurable {
     @Override
     public void apply() throws ConfigurationException {
         populateConfigState(configState);
+        ModelProvider.INSTANCE.configurationChanged();
     }
 
     @Nullable
@@ -68,21 +87,12 @@ public class KubernetesConfigurable implements Configurable {
     public JComponent createComponent() {
         enableKubernetesCompletion.addActionListener(e -> updateEnabled());
         enableOpenshiftCompletion.addActionListener(e -> updateEnabled());
+        kubernetesSpecFile.addBrowseFolderListener("Kubernetes OpenAPI Spec File", "Select the swagger.json served by a cluster at /openapi/v2", null,
+                                                   FileChooserDescriptorFactory.createSingleFileNoJarsDescriptor());
         kubernetesVersions.addItem(LATEST_API_VERSION_ITEM);
-        kubernetesVersions.addItem("1.9");
-        kubernetesVersions.addItem("1.8");
-        kubernetesVersions.addItem("1.7");
-        kubernetesVersions.addItem("1.6");
-        kubernetesVersions.addItem("1.5");
-        kubernetesVersions.addItem("1.4");
-        kubernetesVersions.addItem("1.3");
-        kubernetesVersions.addItem("1.2");
+        SpecCatalog.getInstance().getVersions(SpecCatalog.KUBERNETES).forEach(kubernetesVersions::addItem);
         openshiftVersions.addItem(LATEST_API_VERSION_ITEM);
-        openshiftVersions.addItem("3.6");
-        openshiftVersions.addItem("1.5");
-        openshiftVersions.addItem("1.4");
-        openshiftVersions.addItem("1.3");
-        openshiftVersions.addItem("1.2");
+        SpecCatalog.getInstance().getVersions(SpecCatalog.OPENSHIFT).forEach(openshiftVersions::addItem);
         reset();
         return panel;
     }
@@ -117,6 +127,8 @@ public class KubernetesConfigurable implements Configurable {
         enableOpenshiftCompletion.setSelected(enableOpenshift);
         kubernetesVersions.setSelectedItem(kubernetesVersion);
         openshiftVersions.setSelectedItem(openshiftVersion);
+        kubernetesSpecFile.setText(Optional.ofNullable(configState.getKubernetesSpecFile()).orElse(""));
+        kubernetesClusterContext.setText(Optional.ofNullable(configState.getKubernetesClusterContext()).orElse(""));
         updateEnabled();
     }
 
@@ -128,11 +140,19 @@ public class KubernetesConfigurable implements Configurable {
     private void populateConfigState(final ConfigState configState) {
         configState.setKubernetesPackage(makeApiPackage(enableKubernetesCompletion, kubernetesVersions));
         configState.setOpenshiftPackage(makeApiPackage(enableOpenshiftCompletion, openshiftVersions));
+        final String specFile = kubernetesSpecFile.getText().trim();
+        configState.setKubernetesSpecFile(specFile.isEmpty() ? null : specFile);
+        final String clusterContext = kubernetesClusterContext.getText().trim();
+        configState.setKubernetesClusterContext(clusterContext.isEmpty() ? null : clusterContext);
     }
 
     /** Update the state of the UI from the checkboxes. */
     private void updateEnabled() {
         kubernetesVersions.setEnabled(enableKubernetesCompletion.isSelected());
+        kubernetesSpecFile.setEnabled(enableKubernetesCompletion.isSelected());
+        kubernetesSpecFileLabel.setEnabled(enableKubernetesCompletion.isSelected());
+        kubernetesClusterContext.setEnabled(enableKubernetesCompletion.isSelected());
+        kubernetesClusterContextLabel.setEnabled(enableKubernetesCompletion.isSelected());
         openshiftVersions.setEnabled(enableOpenshiftCompletion.isSelected());
     }
 }
@@ -11,6 +11,18 @@ class Api {
     /** Descriptions of the operations possible on this API. */
     private final List<ApiOperation> operations = new ArrayList<>();
 
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final Api that = (Api) o;
+        return operations.equals(that.operations);
+    }
+
     /**
      * Gets descriptions of the operations possible on this API.
      *
@@ -19,4 +31,9 @@ class Api {
     public List<ApiOperation> getOperations() {
         return operations;
     }
+
+    @Override
+    public int hashCode() {
+        return operations.hashCode();
+    }
 }
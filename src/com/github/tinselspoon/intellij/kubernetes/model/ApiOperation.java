@@ -1,5 +1,7 @@
 package com.github.tinselspoon.intellij.kubernetes.model;
 
+import java.util.Objects;
+
 /**
  * Defines an operation that may be invoked on an API.
  */
@@ -11,6 +13,18 @@ class ApiOperation {
     /** The type of data this API is based on. */
     private String type;
 
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final ApiOperation that = (ApiOperation) o;
+        return Objects.equals(method, that.method) && Objects.equals(type, that.type);
+    }
+
     /**
      * Gets the HTTP method required to invoke this API.
      *
@@ -29,6 +43,11 @@ class ApiOperation {
         return type;
     }
 
+    @Override
+    public int hashCode() {
+        return Objects.hash(method, type);
+    }
+
     /**
      * Sets the HTTP method required to invoke this API.
      *
@@ -0,0 +1,237 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A Kubernetes API version, such as {@code apps/v1beta2}, parsed into its group, major version and stability stage so that versions can be ordered by comparing fields rather than matching
+ * patterns.
+ * <p>
+ * The versions named by the specs are {@linkplain #intern(String) interned}, so each is parsed once however many specs and documents name it; any other version, such as one partially typed in a
+ * document being edited, is parsed on each use and never retained. Instances are equal if written the same, whether interned or not. Versions are ordered as described by
+ * {@link ApiVersionComparator}:
+ * <ul>
+ * <li>by group, the core group (with no group) first and then named groups lexicographically;</li>
+ * <li>then by major version, numerically;</li>
+ * <li>then by stage, with a stable version (no stage) after any pre-release stage, and stages such as {@code alpha} and {@code beta} lexicographically;</li>
+ * <li>then by the number of the stage, numerically, so {@code v1beta10} is after {@code v1beta2}.</li>
+ * </ul>
+ * If either version is not in the conventional format, the two are compared lexicographically.
+ */
+public final class ApiVersion implements Comparable<ApiVersion> {
+
+    /** The maximum number of API versions interned, guarding against specs that name an unreasonable number of versions. */
+    private static final int CACHE_CAPACITY = 4096;
+
+    /** The interned instance of each API version named by the specs. */
+    private static final Map<String, ApiVersion> cache = new ConcurrentHashMap<>();
+
+    /** The API version as written, e.g. {@code apps/v1beta2}. */
+    private final String text;
+
+    /** The group, e.g. {@code apps}, or an empty string for the core group. */
+    private final String group;
+
+    /** The major version, e.g. 1 for {@code v1beta2}, or -1 if the version is not in the conventional format. */
+    private final int major;
+
+    /** The stage, e.g. {@code beta} for {@code v1beta2}, or {@code null} for a stable version. */
+    private final String stage;
+
+    /** The number of the stage, e.g. 2 for {@code v1beta2}, or 0 for a stable version. */
+    private final int stageNumber;
+
+    /**
+     * Creates an API version.
+     *
+     * @param text the API version as written.
+     * @param group the group, or an empty string for the core group.
+     * @param major the major version, or -1 if the version is not in the conventional format.
+     * @param stage the stage, or {@code null} for a stable version.
+     * @param stageNumber the number of the stage, or 0 for a stable version.
+     */
+    private ApiVersion(@NotNull final String text, @NotNull final String group, final int major, @Nullable final String stage, final int stageNumber) {
+        this.text = text;
+        this.group = group;
+        this.major = major;
+        this.stage = stage;
+        this.stageNumber = stageNumber;
+    }
+
+    /**
+     * Gets whether a character is an ASCII digit.
+     *
+     * @param c the character.
+     * @return {@code true} if the character is a digit; otherwise, {@code false}.
+     */
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Gets whether a character is an ASCII letter.
+     *
+     * @param c the character.
+     * @return {@code true} if the character is a letter; otherwise, {@code false}.
+     */
+    private static boolean isLetter(final char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    /**
+     * Gets the interned instance of an API version named by the specs, parsing and interning it if it has not been seen before.
+     *
+     * @param text the API version as written, e.g. {@code apps/v1beta2}.
+     * @return the API version, or {@code null} if the {@code text} is {@code null}.
+     */
+    @Nullable
+    static ApiVersion intern(@Nullable final String text) {
+        if (text == null) {
+            return null;
+        }
+        final ApiVersion cached = cache.get(text);
+        if (cached != null) {
+            return cached;
+        }
+        final ApiVersion parsed = parse(text);
+        if (cache.size() >= CACHE_CAPACITY) {
+            return parsed;
+        }
+        final ApiVersion existing = cache.putIfAbsent(text, parsed);
+        return existing != null ? existing : parsed;
+    }
+
+    /**
+     * Gets an API version, which is the interned instance if the specs name the version, or otherwise a new instance that is not retained.
+     *
+     * @param text the API version as written, e.g. {@code apps/v1beta2}.
+     * @return the API version, or {@code null} if the {@code text} is {@code null}.
+     */
+    @Nullable
+    public static ApiVersion of(@Nullable final String text) {
+        if (text == null) {
+            return null;
+        }
+        final ApiVersion cached = cache.get(text);
+        return cached != null ? cached : parse(text);
+    }
+
+    /**
+     * Parses an API version in the conventional format: an optional group followed by a slash, then {@code v}, the major version, and optionally a stage and its number.
+     *
+     * @param text the API version as written.
+     * @return the API version, with a major version of -1 if it is not in the conventional format.
+     */
+    @NotNull
+    private static ApiVersion parse(@NotNull final String text) {
+        final int slash = text.lastIndexOf('/');
+        final String group = slash > -1 ? text.substring(0, slash) : "";
+        final ApiVersion unconventional = new ApiVersion(text, group, -1, null, 0);
+        int index = slash + 1;
+        if (slash == 0 || index >= text.length() || text.charAt(index) != 'v') {
+            return unconventional;
+        }
+        final int majorStart = ++index;
+        while (index < text.length() && isDigit(text.charAt(index))) {
+            index++;
+        }
+        final int major = parseNumber(text, majorStart, index);
+        if (major < 0 || index == text.length()) {
+            return major < 0 ? unconventional : new ApiVersion(text, group, major, null, 0);
+        }
+        final int stageStart = index;
+        while (index < text.length() && isLetter(text.charAt(index))) {
+            index++;
+        }
+        final int stageEnd = index;
+        final int stageNumber = parseNumber(text, stageEnd, text.length());
+        if (stageEnd == stageStart || stageNumber < 0) {
+            return unconventional;
+        }
+        return new ApiVersion(text, group, major, text.substring(stageStart, stageEnd), stageNumber);
+    }
+
+    /**
+     * Parses a non-negative number from part of a string.
+     *
+     * @param text the string.
+     * @param start the index of the first digit.
+     * @param end the index after the last digit.
+     * @return the number, or -1 if the part is empty, contains anything but digits or is too large for an {@code int}.
+     */
+    private static int parseNumber(@NotNull final String text, final int start, final int end) {
+        if (start == end || end - start > 9) {
+            return -1;
+        }
+        int number = 0;
+        for (int i = start; i < end; i++) {
+            final char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+
+    @Override
+    public int compareTo(@NotNull final ApiVersion other) {
+        if (this == other) {
+            return 0;
+        }
+        if (major < 0 || other.major < 0) {
+            return text.compareTo(other.text);
+        }
+        int result = group.compareTo(other.group);
+        if (result == 0) {
+            result = Integer.compare(major, other.major);
+        }
+        if (result == 0) {
+            if (stage == null || other.stage == null) {
+                // A stable version is after any pre-release version
+                result = stage == null ? (other.stage == null ? 0 : 1) : -1;
+            } else {
+                result = stage.compareTo(other.stage);
+                if (result == 0) {
+                    result = Integer.compare(stageNumber, other.stageNumber);
+                }
+            }
+        }
+        // Versions written differently but parsed the same, such as v1 and v01, are ordered consistently with equals
+        return result != 0 ? result : text.compareTo(other.text);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return this == o || o instanceof ApiVersion && text.equals(((ApiVersion) o).text);
+    }
+
+    /**
+     * Gets the group, e.g. {@code apps} in {@code apps/v1beta2}.
+     *
+     * @return the group, or an empty string for the core group.
+     */
+    @NotNull
+    public String getGroup() {
+        return group;
+    }
+
+    @Override
+    public int hashCode() {
+        return text.hashCode();
+    }
+
+    /**
+     * Gets the API version as written, e.g. {@code apps/v1beta2}.
+     *
+     * @return the API version.
+     */
+    @NotNull
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -1,6 +1,6 @@
 package com.github.tinselspoon.intellij.kubernetes.model;
 
-import com.google.gson.annotations.SerializedName;
+import java.util.Objects;
 
 /**
  * Describes the items that may appear as elements of an array property.
@@ -8,12 +8,23 @@ import com.google.gson.annotations.SerializedName;
 public class ArrayItems {
 
     /** A reference to a model ID which the items conform to. Either this property or {@link #getType() type} should be set. */
-    @SerializedName("$ref")
     private String ref;
 
     /** The type of the items. Either this property or {@link #getRef() ref} should be set. */
     private FieldType type;
 
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final ArrayItems that = (ArrayItems) o;
+        return Objects.equals(ref, that.ref) && type == that.type;
+    }
+
     /**
      * Gets a reference to a model ID which the items conform to. Either this property or {@link #getType() type} should be set.
      *
@@ -32,6 +43,11 @@ public class ArrayItems {
         return type;
     }
 
+    @Override
+    public int hashCode() {
+        return Objects.hash(ref, type);
+    }
+
     /**
      * Sets a reference to a model ID which the items conform to. Either this property or {@link #getType() type} should be set.
      *
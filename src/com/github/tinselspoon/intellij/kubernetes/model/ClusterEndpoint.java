@@ -0,0 +1,333 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+/**
+ * The address of a cluster's API server and the credentials with which to connect to it, as given by a kubeconfig context.
+ * <p>
+ * The kubeconfig is read through {@code kubectl config view --flatten}, which merges the files named by {@code KUBECONFIG} exactly as {@code kubectl} itself would, inlines the certificates
+ * they refer to by path, which may be relative to the file naming them, and reports the result as JSON. Bearer tokens and basic authentication are supported; client certificates are not.
+ */
+final class ClusterEndpoint {
+
+    /** How long to wait for {@code kubectl} to report the kubeconfig, in seconds. */
+    private static final long KUBECTL_TIMEOUT_SECONDS = 10;
+
+    /** The URL of the API server, such as {@code https://192.168.99.100:8443}. */
+    private final String server;
+
+    /** The value of the {@code Authorization} header to send, or {@code null} to send none. */
+    private final String authorization;
+
+    /** The socket factory trusting the cluster's certificate authority, or {@code null} to use the default trust store. */
+    private final SSLSocketFactory socketFactory;
+
+    /** Whether the server certificate is not verified at all, as requested by {@code insecure-skip-tls-verify}. */
+    private final boolean insecure;
+
+    /**
+     * Creates an endpoint.
+     *
+     * @param server the URL of the API server.
+     * @param authorization the value of the {@code Authorization} header to send, or {@code null} to send none.
+     * @param socketFactory the socket factory trusting the cluster's certificate authority, or {@code null} to use the default trust store.
+     * @param insecure whether the server certificate is not verified at all.
+     */
+    ClusterEndpoint(@NotNull final String server, @Nullable final String authorization, @Nullable final SSLSocketFactory socketFactory, final boolean insecure) {
+        this.server = server.endsWith("/") ? server.substring(0, server.length() - 1) : server;
+        this.authorization = authorization;
+        this.socketFactory = socketFactory;
+        this.insecure = insecure;
+    }
+
+    /**
+     * Creates a socket factory that trusts the given certificate authorities, or every certificate if none are given.
+     *
+     * @param certificateAuthority PEM encoded certificates, or {@code null} to trust every certificate.
+     * @return the socket factory.
+     * @throws IOException if the certificates could not be read.
+     */
+    @NotNull
+    private static SSLSocketFactory createSocketFactory(@Nullable final byte[] certificateAuthority) throws IOException {
+        try {
+            final TrustManager[] trustManagers;
+            if (certificateAuthority == null) {
+                trustManagers = new TrustManager[] {new TrustAllManager()};
+            } else {
+                final KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+                keyStore.load(null, null);
+                int index = 0;
+                for (final Certificate certificate : CertificateFactory.getInstance("X.509").generateCertificates(new ByteArrayInputStream(certificateAuthority))) {
+                    keyStore.setCertificateEntry("ca-" + index++, certificate);
+                }
+                final TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+                trustManagerFactory.init(keyStore);
+                trustManagers = trustManagerFactory.getTrustManagers();
+            }
+            final SSLContext context = SSLContext.getInstance("TLS");
+            context.init(null, trustManagers, null);
+            return context.getSocketFactory();
+        } catch (final GeneralSecurityException e) {
+            throw new IOException("Unable to read the cluster certificate authority.", e);
+        }
+    }
+
+    /**
+     * Finds a member of a named entry within one of the lists of a kubeconfig, such as the {@code cluster} of the entry of {@code clusters} with the given name.
+     *
+     * @param config the kubeconfig.
+     * @param listName the name of the list.
+     * @param name the name of the entry.
+     * @param memberName the name of the member of the entry holding its details.
+     * @return the member, or {@code null} if there is no such entry.
+     */
+    @Nullable
+    private static JsonObject findNamed(@NotNull final JsonObject config, @NotNull final String listName, @Nullable final String name, @NotNull final String memberName) {
+        final JsonElement list = config.get(listName);
+        if (name != null && list instanceof JsonArray) {
+            for (final JsonElement entry : (JsonArray) list) {
+                if (entry.isJsonObject() && name.equals(getString(entry.getAsJsonObject(), "name"))) {
+                    final JsonElement member = entry.getAsJsonObject().get(memberName);
+                    return member instanceof JsonObject ? (JsonObject) member : null;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the endpoint of a context from the kubeconfig reported by {@code kubectl}.
+     *
+     * @param context the name of the context.
+     * @return the endpoint.
+     * @throws IOException if {@code kubectl} could not be run, did not finish in time or the context is not defined.
+     */
+    @NotNull
+    static ClusterEndpoint forContext(@NotNull final String context) throws IOException {
+        final byte[] output = runCommand(Arrays.asList("kubectl", "config", "view", "--raw", "--flatten", "--output=json"), KUBECTL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(output), StandardCharsets.UTF_8)) {
+            return fromKubeConfig(reader, context);
+        }
+    }
+
+    /**
+     * Reads the endpoint of a context from a kubeconfig in JSON form.
+     *
+     * @param reader the reader supplying the kubeconfig; it is not closed.
+     * @param context the name of the context, or {@code null} for the current context of the kubeconfig.
+     * @return the endpoint.
+     * @throws IOException if the kubeconfig could not be read or does not define the context.
+     */
+    @NotNull
+    static ClusterEndpoint fromKubeConfig(@NotNull final Reader reader, @Nullable final String context) throws IOException {
+        final JsonObject config;
+        try {
+            final JsonElement element = new JsonParser().parse(reader);
+            if (!element.isJsonObject()) {
+                throw new IOException("The kubeconfig is not an object.");
+            }
+            config = element.getAsJsonObject();
+        } catch (final JsonParseException e) {
+            throw new IOException("Unable to parse the kubeconfig.", e);
+        }
+        final String contextName = context != null ? context : getString(config, "current-context");
+        final JsonObject contextDetails = findNamed(config, "contexts", contextName, "context");
+        if (contextDetails == null) {
+            throw new IOException("The kubeconfig does not define the context " + contextName + ".");
+        }
+        final JsonObject cluster = findNamed(config, "clusters", getString(contextDetails, "cluster"), "cluster");
+        final String server = cluster == null ? null : getString(cluster, "server");
+        if (server == null) {
+            throw new IOException("The kubeconfig does not define a server for the context " + contextName + ".");
+        }
+
+        String authorization = null;
+        final JsonObject user = findNamed(config, "users", getString(contextDetails, "user"), "user");
+        if (user != null) {
+            final String token = getString(user, "token");
+            final String username = getString(user, "username");
+            if (token != null) {
+                authorization = "Bearer " + token;
+            } else if (username != null) {
+                final String credentials = username + ":" + (getString(user, "password") != null ? getString(user, "password") : "");
+                authorization = "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        final boolean insecure = cluster.has("insecure-skip-tls-verify") && cluster.get("insecure-skip-tls-verify").getAsBoolean();
+        SSLSocketFactory socketFactory = null;
+        if (insecure) {
+            socketFactory = createSocketFactory(null);
+        } else if (getString(cluster, "certificate-authority-data") != null) {
+            socketFactory = createSocketFactory(Base64.getDecoder().decode(getString(cluster, "certificate-authority-data")));
+        } else if (getString(cluster, "certificate-authority") != null) {
+            socketFactory = createSocketFactory(Files.readAllBytes(new File(getString(cluster, "certificate-authority")).toPath()));
+        }
+        return new ClusterEndpoint(server, authorization, socketFactory, insecure);
+    }
+
+    /**
+     * Gets a string member of an object.
+     *
+     * @param object the object.
+     * @param name the name of the member.
+     * @return the string, or {@code null} if the member is absent or not a string.
+     */
+    @Nullable
+    private static String getString(@NotNull final JsonObject object, @NotNull final String name) {
+        final JsonElement element = object.get(name);
+        return element != null && element.isJsonPrimitive() ? element.getAsString() : null;
+    }
+
+    /**
+     * Reads a stream to its end.
+     *
+     * @param in the stream; it is closed.
+     * @return the content of the stream.
+     * @throws IOException if the stream could not be read.
+     */
+    @NotNull
+    private static byte[] readFully(@NotNull final InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+            return content.toByteArray();
+        }
+    }
+
+    /**
+     * Runs a command and collects its standard output. The output is read on another thread, so that the command is stopped once the timeout elapses even if it never closes its output.
+     *
+     * @param command the command and its arguments.
+     * @param timeout how long to wait for the command to finish.
+     * @param unit the unit of the {@code timeout}.
+     * @return the standard output of the command.
+     * @throws IOException if the command could not be run, its output could not be read or it did not finish in time.
+     */
+    @NotNull
+    static byte[] runCommand(@NotNull final List<String> command, final long timeout, @NotNull final TimeUnit unit) throws IOException {
+        final Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        try {
+            process.getOutputStream().close();
+            final FutureTask<byte[]> output = new FutureTask<>(() -> readFully(process.getInputStream()));
+            final Thread outputReader = new Thread(output, command.get(0) + " output reader");
+            outputReader.setDaemon(true);
+            outputReader.start();
+            final long deadline = System.nanoTime() + unit.toNanos(timeout);
+            if (!process.waitFor(timeout, unit)) {
+                throw new IOException("Timed out waiting for " + command.get(0) + ".");
+            }
+            // The output is closed when the command exits, unless a process it started still holds it open
+            return output.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (final ExecutionException e) {
+            throw new IOException("Unable to read the output of " + command.get(0) + ".", e.getCause());
+        } catch (final TimeoutException e) {
+            throw new IOException("Timed out waiting for " + command.get(0) + ".", e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for " + command.get(0) + ".", e);
+        } finally {
+            process.destroyForcibly();
+        }
+    }
+
+    /**
+     * Applies the credentials and trust settings of the endpoint to a connection to it.
+     *
+     * @param connection the connection, which has not yet been connected.
+     */
+    void configure(@NotNull final HttpURLConnection connection) {
+        if (authorization != null) {
+            connection.setRequestProperty("Authorization", authorization);
+        }
+        if (connection instanceof HttpsURLConnection) {
+            final HttpsURLConnection httpsConnection = (HttpsURLConnection) connection;
+            if (socketFactory != null) {
+                httpsConnection.setSSLSocketFactory(socketFactory);
+            }
+            if (insecure) {
+                httpsConnection.setHostnameVerifier((hostname, session) -> true);
+            }
+        }
+    }
+
+    /**
+     * Gets the value of the {@code Authorization} header sent to the endpoint.
+     *
+     * @return the header value, or {@code null} if none is sent.
+     */
+    @Nullable
+    String getAuthorization() {
+        return authorization;
+    }
+
+    /**
+     * Gets the URL of the API server.
+     *
+     * @return the URL, without a trailing slash.
+     */
+    @NotNull
+    String getServer() {
+        return server;
+    }
+
+    /** Trust manager that accepts every certificate, used only when the kubeconfig asks for verification to be skipped. */
+    private static final class TrustAllManager implements X509TrustManager {
+
+        @Override
+        public void checkClientTrusted(final X509Certificate[] chain, final String authType) {
+            // trust everything
+        }
+
+        @Override
+        public void checkServerTrusted(final X509Certificate[] chain, final String authType) {
+            // trust everything
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+    }
+}
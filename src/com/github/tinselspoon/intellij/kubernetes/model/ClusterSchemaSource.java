@@ -0,0 +1,251 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.intellij.openapi.application.PathManager;
+
+/**
+ * Source of the specs served by a live cluster at {@code /openapi/v2}, which include the cluster's aggregated APIs and custom resources as well as the built-in Kubernetes resources of its version.
+ * <p>
+ * The most recently downloaded document for each server is kept on disk along with its {@code ETag}, so that a later download is a conditional request that the server can answer with {@code 304
+ * Not Modified}, and so that the specs remain available when the cluster cannot be reached. Parsed specs are held by the {@link SchemaCache}, so an unchanged document is not parsed again. The
+ * document last opened for each server is remembered, so that a package can be {@linkplain #hasChanged(ClusterEndpoint) revalidated} cheaply once it has been opened.
+ * <p>
+ * Downloading blocks for as long as the server takes to respond, so this must not be used on the event dispatch thread; the {@link ModelProvider} only opens packages in the background.
+ */
+final class ClusterSchemaSource {
+
+    /** The path at which the API server serves its OpenAPI v2 document. */
+    static final String OPENAPI_PATH = "/openapi/v2";
+
+    /** How long to wait to connect to the API server, in milliseconds. */
+    private static final int CONNECT_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(10);
+
+    /** How long to wait for the API server to send data, in milliseconds. */
+    private static final int READ_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(60);
+
+    /** The extension of a downloaded document. */
+    private static final String DOCUMENT_EXTENSION = ".json";
+
+    /** The extension of the file holding the {@code ETag} of a downloaded document. */
+    private static final String ETAG_EXTENSION = ".etag";
+
+    /** The logger. */
+    private static final Logger logger = LoggerFactory.getLogger(ClusterSchemaSource.class);
+
+    /** Singleton instance, created on first use. */
+    private static ClusterSchemaSource instance;
+
+    /** The directory holding downloaded documents. */
+    private final File directory;
+
+    /** The cache of parsed schemas. */
+    private final SchemaCache schemaCache;
+
+    /** The {@linkplain SchemaCache#getKey(String, byte[]) key} of the document last opened for each server, keyed by the URL of the server. */
+    private final Map<String, String> openedDocumentKeys = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a source.
+     *
+     * @param directory the directory holding downloaded documents; it is created when first written to.
+     * @param schemaCache the cache of parsed schemas.
+     */
+    ClusterSchemaSource(@NotNull final File directory, @NotNull final SchemaCache schemaCache) {
+        this.directory = directory;
+        this.schemaCache = schemaCache;
+    }
+
+    /**
+     * Gets the singleton instance, which keeps its files within the IDE system directory.
+     *
+     * @return the cluster schema source.
+     */
+    @NotNull
+    static synchronized ClusterSchemaSource getInstance() {
+        if (instance == null) {
+            instance = new ClusterSchemaSource(new File(PathManager.getSystemPath(), "kubernetes-clusters"), SchemaCache.getInstance());
+        }
+        return instance;
+    }
+
+    /**
+     * Reads the whole of a stream.
+     *
+     * @param in the stream; it is not closed.
+     * @return the content.
+     * @throws IOException if the stream could not be read.
+     */
+    @NotNull
+    private static byte[] readFully(@NotNull final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[64 * 1024];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Reads a file if it exists.
+     *
+     * @param file the file.
+     * @return the content, or {@code null} if the file does not exist or could not be read.
+     */
+    @Nullable
+    private static byte[] readIfExists(@NotNull final File file) {
+        try {
+            return Files.readAllBytes(file.toPath());
+        } catch (final NoSuchFileException e) {
+            return null;
+        } catch (final IOException e) {
+            logger.warn("Unable to read {}.", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Downloads the OpenAPI document of a server, unless the copy already held is current, and records the result.
+     *
+     * @param endpoint the server.
+     * @return the current document, the last document downloaded if the server could not be reached, or {@code null} if the server could not be reached and no document has been downloaded before.
+     */
+    @Nullable
+    byte[] fetch(@NotNull final ClusterEndpoint endpoint) {
+        final String key = SchemaCache.getKey("cluster", endpoint.getServer().getBytes(StandardCharsets.UTF_8));
+        final File documentFile = new File(directory, key + DOCUMENT_EXTENSION);
+        final File etagFile = new File(directory, key + ETAG_EXTENSION);
+        final byte[] document = readIfExists(documentFile);
+        final byte[] etag = document == null ? null : readIfExists(etagFile);
+        try {
+            final HttpURLConnection connection = (HttpURLConnection) new URL(endpoint.getServer() + OPENAPI_PATH).openConnection();
+            try {
+                connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+                connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+                connection.setRequestProperty("Accept", "application/json");
+                connection.setRequestProperty("Accept-Encoding", "gzip");
+                if (etag != null) {
+                    connection.setRequestProperty("If-None-Match", new String(etag, StandardCharsets.UTF_8));
+                }
+                endpoint.configure(connection);
+
+                final int responseCode = connection.getResponseCode();
+                if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && document != null) {
+                    logger.info("OpenAPI spec of {} is unchanged.", endpoint.getServer());
+                    return document;
+                }
+                if (responseCode != HttpURLConnection.HTTP_OK) {
+                    throw new IOException("Server responded " + responseCode + " " + connection.getResponseMessage() + ".");
+                }
+                final byte[] content;
+                try (InputStream in = "gzip".equalsIgnoreCase(connection.getContentEncoding()) ? new GZIPInputStream(connection.getInputStream()) : connection.getInputStream()) {
+                    content = readFully(in);
+                }
+                logger.info("Downloaded OpenAPI spec of {} ({} KiB).", endpoint.getServer(), content.length / 1024);
+                save(documentFile, etagFile, content, connection.getHeaderField("ETag"));
+                return content;
+            } finally {
+                connection.disconnect();
+            }
+        } catch (final IOException e) {
+            if (document != null) {
+                logger.warn("Unable to download OpenAPI spec of {}; using the copy downloaded previously.", endpoint.getServer(), e);
+            } else {
+                logger.warn("Unable to download OpenAPI spec of {}.", endpoint.getServer(), e);
+            }
+            return document;
+        }
+    }
+
+    /**
+     * Determines whether the document served by a server differs from the one it was last {@linkplain #open(ClusterEndpoint, ModelInterner) opened} with. The server is asked conditionally, so an
+     * unchanged document is not downloaded again.
+     *
+     * @param endpoint the server.
+     * @return {@code true} if the server now serves a different document, or a document has been downloaded but never opened; {@code false} if the document is unchanged or the server could not
+     * be reached.
+     */
+    boolean hasChanged(@NotNull final ClusterEndpoint endpoint) {
+        final byte[] document = fetch(endpoint);
+        return document != null && !SchemaCache.getKey(OpenApiSpecReader.CACHE_KIND, document).equals(openedDocumentKeys.get(endpoint.getServer()));
+    }
+
+    /**
+     * Opens the package of specs served by a server, downloading them if they have changed.
+     *
+     * @param endpoint the server.
+     * @param modelInterner table used to share models that are identical to those of a version already loaded.
+     * @return the package, or {@code null} if the server could not be reached and no specs have been downloaded from it before, or the document could not be parsed.
+     */
+    @Nullable
+    SpecPackage open(@NotNull final ClusterEndpoint endpoint, @NotNull final ModelInterner modelInterner) {
+        final byte[] document = fetch(endpoint);
+        if (document == null) {
+            return null;
+        }
+        openedDocumentKeys.put(endpoint.getServer(), SchemaCache.getKey(OpenApiSpecReader.CACHE_KIND, document));
+        try {
+            return schemaCache.open(OpenApiSpecReader.CACHE_KIND, document, OpenApiSpecReader::read, modelInterner);
+        } catch (final IOException | IllegalStateException e) {
+            logger.warn("Unable to parse OpenAPI spec of {}.", endpoint.getServer(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Records a downloaded document and its {@code ETag}. The document is written under a temporary name and then moved into place, so that a reader never sees a partially written document.
+     *
+     * @param documentFile the file to hold the document.
+     * @param etagFile the file to hold the {@code ETag}.
+     * @param document the document.
+     * @param etag the {@code ETag} sent with the document, or {@code null} if none was sent.
+     */
+    private void save(@NotNull final File documentFile, @NotNull final File etagFile, @NotNull final byte[] document, @Nullable final String etag) {
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+                throw new IOException("Unable to create directory " + directory + ".");
+            }
+            // Remove the old tag first so that it can never be paired with a newer document
+            Files.deleteIfExists(etagFile.toPath());
+            final File tempFile = File.createTempFile(documentFile.getName(), ".tmp", directory);
+            try {
+                try (OutputStream out = Files.newOutputStream(tempFile.toPath())) {
+                    out.write(document);
+                }
+                try {
+                    Files.move(tempFile.toPath(), documentFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                } catch (final AtomicMoveNotSupportedException e) {
+                    Files.move(tempFile.toPath(), documentFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tempFile.toPath());
+            }
+            if (etag != null) {
+                Files.write(etagFile.toPath(), etag.getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (final IOException e) {
+            logger.warn("Unable to save OpenAPI spec to {}.", documentFile, e);
+        }
+    }
+}
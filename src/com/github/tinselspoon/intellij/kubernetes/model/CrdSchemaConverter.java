@@ -0,0 +1,247 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.github.tinselspoon.intellij.kubernetes.ResourceTypeKey;
+
+/**
+ * Converts the {@code openAPIV3Schema} validation schema of a {@code CustomResourceDefinition} into the same {@link SwaggerSpec} structures as the built-in specs, so that custom resources can be
+ * completed and checked like any other resource.
+ * <p>
+ * The definition is given as the tree of maps, lists and strings of the YAML document declaring it. Each object schema with properties becomes a {@link Model}; the root model of the kind is
+ * identified as {@code <version>.<kind>}, as for built-in resources, and nested object schemas are identified by the path of properties leading to them, such as {@code v1.CronTab.spec}.
+ */
+final class CrdSchemaConverter {
+
+    /** The kind of a resource that defines a custom resource. */
+    static final String CRD_KIND = "CustomResourceDefinition";
+
+    /** The extension marking a property that may hold either an integer or a string. */
+    private static final String INT_OR_STRING_EXTENSION = "x-kubernetes-int-or-string";
+
+    /** Static class private constructor. */
+    private CrdSchemaConverter() {
+        // no construction
+    }
+
+    /**
+     * Adds a property common to all resources to a root model, unless the schema already declares it.
+     *
+     * @param root the root model.
+     * @param name the name of the property.
+     * @param type the type of the property.
+     */
+    private static void addImplicitProperty(@NotNull final Model root, @NotNull final String name, @NotNull final FieldType type) {
+        if (!root.getProperties().containsKey(name)) {
+            final Property property = new Property();
+            property.setType(type);
+            root.getProperties().put(name, property);
+        }
+    }
+
+    /**
+     * Converts an object schema into a model and adds it to a spec, along with models for each of the object schemas nested within it.
+     *
+     * @param spec the spec to add the models to.
+     * @param descriptionTable the table to add descriptions through.
+     * @param id the ID of the model.
+     * @param schema the object schema.
+     * @return the model.
+     */
+    @NotNull
+    private static Model addModel(@NotNull final SwaggerSpec spec, @NotNull final DescriptionStore.Table descriptionTable, @NotNull final String id, @NotNull final Map<?, ?> schema) {
+        final Model model = new Model();
+        model.setId(id);
+        model.setDescription(descriptionTable, descriptionTable.add(getString(schema, "description")));
+        final Object required = schema.get("required");
+        if (required instanceof List) {
+            for (final Object name : (List<?>) required) {
+                if (name instanceof String) {
+                    model.getRequiredProperties().add((String) name);
+                }
+            }
+        }
+        spec.getModels().put(id, model);
+
+        final Map<?, ?> properties = getMap(schema, "properties");
+        if (properties != null) {
+            for (final Map.Entry<?, ?> entry : properties.entrySet()) {
+                if (entry.getKey() instanceof String && entry.getValue() instanceof Map) {
+                    final String name = (String) entry.getKey();
+                    model.getProperties().put(name, toProperty(spec, descriptionTable, id + "." + name, (Map<?, ?>) entry.getValue()));
+                }
+            }
+        }
+        return model;
+    }
+
+    /**
+     * Converts a custom resource definition into a spec for each version of the resource it defines.
+     *
+     * @param crd the top-level mapping of the document declaring the definition.
+     * @return a map of the resource of each version to its spec, empty if the document is not a custom resource definition or does not name its group and kind.
+     */
+    @NotNull
+    static Map<ResourceTypeKey, SwaggerSpec> convert(@NotNull final Map<?, ?> crd) {
+        final Map<?, ?> spec = getMap(crd, "spec");
+        final String group = getString(spec, "group");
+        final String kind = getString(getMap(spec, "names"), "kind");
+        if (!CRD_KIND.equals(getString(crd, "kind")) || group == null || kind == null) {
+            return Collections.emptyMap();
+        }
+
+        // Schemas are declared once for all versions (apiextensions.k8s.io/v1beta1) or for each version individually (apiextensions.k8s.io/v1)
+        final Map<?, ?> sharedSchema = getMap(getMap(spec, "validation"), "openAPIV3Schema");
+        final Map<String, Map<?, ?>> versionSchemas = new LinkedHashMap<>();
+        final String singleVersion = getString(spec, "version");
+        if (singleVersion != null) {
+            versionSchemas.put(singleVersion, sharedSchema);
+        }
+        final Object versions = spec == null ? null : spec.get("versions");
+        if (versions instanceof List) {
+            for (final Object version : (List<?>) versions) {
+                final String name = version instanceof Map ? getString((Map<?, ?>) version, "name") : null;
+                if (name != null) {
+                    final Map<?, ?> versionSchema = getMap(getMap((Map<?, ?>) version, "schema"), "openAPIV3Schema");
+                    versionSchemas.put(name, versionSchema != null ? versionSchema : sharedSchema);
+                }
+            }
+        }
+
+        final Map<ResourceTypeKey, SwaggerSpec> specs = new LinkedHashMap<>();
+        final DescriptionStore.Table descriptionTable = DescriptionStore.getInstance().newTable();
+        versionSchemas.forEach((version, schema) -> {
+            final String apiVersion = group + "/" + version;
+            final String rootId = version + "." + kind;
+            final SwaggerSpec versionSpec = new SwaggerSpec();
+            versionSpec.setApiVersion(apiVersion);
+            final Model root = addModel(versionSpec, descriptionTable, rootId, schema != null ? schema : Collections.emptyMap());
+            addImplicitProperty(root, "apiVersion", FieldType.STRING);
+            addImplicitProperty(root, "kind", FieldType.STRING);
+            addImplicitProperty(root, "metadata", FieldType.OBJECT);
+
+            final ApiOperation operation = new ApiOperation();
+            operation.setMethod("POST");
+            operation.setType(rootId);
+            final Api api = new Api();
+            api.getOperations().add(operation);
+            versionSpec.getApis().add(api);
+            freeze(versionSpec);
+            specs.put(new ResourceTypeKey(apiVersion, kind), versionSpec);
+        });
+        return specs;
+    }
+
+    /**
+     * Freezes the models of a spec converted from a custom resource definition, which are not interned along with the models of the bundled specs, so that they are read-only and their property
+     * names are indexed for completion like those of any other model.
+     *
+     * @param spec the spec, which is modified in place.
+     * @return the same spec.
+     */
+    @NotNull
+    static SwaggerSpec freeze(@NotNull final SwaggerSpec spec) {
+        spec.getModels().values().forEach(model -> model.freeze(UnaryOperator.identity(), UnaryOperator.identity()));
+        return spec;
+    }
+
+    /**
+     * Gets a mapping held by a key within a mapping.
+     *
+     * @param map the mapping to search, may be {@code null}.
+     * @param key the key.
+     * @return the mapping, or {@code null} if the key is absent or does not hold a mapping.
+     */
+    @Nullable
+    private static Map<?, ?> getMap(@Nullable final Map<?, ?> map, @NotNull final String key) {
+        final Object value = map == null ? null : map.get(key);
+        return value instanceof Map ? (Map<?, ?>) value : null;
+    }
+
+    /**
+     * Gets a string held by a key within a mapping.
+     *
+     * @param map the mapping to search, may be {@code null}.
+     * @param key the key.
+     * @return the string, or {@code null} if the key is absent or does not hold a string.
+     */
+    @Nullable
+    private static String getString(@Nullable final Map<?, ?> map, @NotNull final String key) {
+        final Object value = map == null ? null : map.get(key);
+        return value instanceof String ? (String) value : null;
+    }
+
+    /**
+     * Determines whether a schema describes an object with declared properties, which is converted into a model of its own.
+     *
+     * @param schema the schema.
+     * @return {@code true} if the schema has properties; otherwise, {@code false}.
+     */
+    private static boolean hasProperties(@NotNull final Map<?, ?> schema) {
+        final Map<?, ?> properties = getMap(schema, "properties");
+        return properties != null && !properties.isEmpty();
+    }
+
+    /**
+     * Reads the {@link FieldType} of a schema.
+     *
+     * @param schema the schema.
+     * @return the field type, or {@code null} if the schema does not restrict the type or the type is not recognised.
+     */
+    @Nullable
+    private static FieldType toFieldType(@NotNull final Map<?, ?> schema) {
+        final Object intOrString = schema.get(INT_OR_STRING_EXTENSION);
+        if (Boolean.TRUE.equals(intOrString) || "true".equals(intOrString)) {
+            return null;
+        }
+        final String name = getString(schema, "type");
+        if (name != null) {
+            for (final FieldType fieldType : FieldType.values()) {
+                if (fieldType.toString().equals(name)) {
+                    return fieldType;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Converts the schema of a property into a {@link Property}, adding a model to the spec for the property or its array items if they are objects with declared properties.
+     *
+     * @param spec the spec to add models to.
+     * @param descriptionTable the table to add descriptions through.
+     * @param id the ID to give a model for the property.
+     * @param schema the schema of the property.
+     * @return the property.
+     */
+    @NotNull
+    private static Property toProperty(@NotNull final SwaggerSpec spec, @NotNull final DescriptionStore.Table descriptionTable, @NotNull final String id, @NotNull final Map<?, ?> schema) {
+        final Property property = new Property();
+        property.setDescription(descriptionTable, descriptionTable.add(getString(schema, "description")));
+        if (hasProperties(schema)) {
+            property.setRef(addModel(spec, descriptionTable, id, schema).getId());
+            return property;
+        }
+        final FieldType type = toFieldType(schema);
+        property.setType(type);
+        final Map<?, ?> itemsSchema = getMap(schema, "items");
+        if (type == FieldType.ARRAY && itemsSchema != null) {
+            final ArrayItems items = new ArrayItems();
+            if (hasProperties(itemsSchema)) {
+                items.setRef(addModel(spec, descriptionTable, id, itemsSchema).getId());
+            } else {
+                items.setType(toFieldType(itemsSchema));
+            }
+            property.setItems(items);
+        }
+        return property;
+    }
+
+}
@@ -0,0 +1,342 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.yaml.YAMLFileType;
+import org.jetbrains.yaml.psi.YAMLDocument;
+import org.jetbrains.yaml.psi.YAMLFile;
+import org.jetbrains.yaml.psi.YAMLKeyValue;
+import org.jetbrains.yaml.psi.YAMLMapping;
+import org.jetbrains.yaml.psi.YAMLScalar;
+import org.jetbrains.yaml.psi.YAMLSequence;
+import org.jetbrains.yaml.psi.YAMLSequenceItem;
+
+import com.github.tinselspoon.intellij.kubernetes.KubernetesYamlFileType;
+import com.github.tinselspoon.intellij.kubernetes.ResourceTypeKey;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.util.indexing.DataIndexer;
+import com.intellij.util.indexing.DefaultFileTypeSpecificInputFilter;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.FileBasedIndexExtension;
+import com.intellij.util.indexing.FileContent;
+import com.intellij.util.indexing.ID;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.IOUtil;
+import com.intellij.util.io.KeyDescriptor;
+
+/**
+ * Index of the {@code CustomResourceDefinition} resources declared in the YAML files of a project, mapping each custom resource to the spec {@linkplain CrdSchemaConverter converted} from its
+ * schema.
+ * <p>
+ * The platform maintains the index incrementally: when a file changes, only that file is indexed again and only its entries are replaced. Files that do not mention {@value
+ * CrdSchemaConverter#CRD_KIND} are skipped without being parsed.
+ * <p>
+ * Reading a spec from the index decodes and links it afresh, so the {@linkplain ResourceSchema schema} of each custom resource is kept for the project until a definition or the project
+ * structure changes, and shares a {@link PathCache} with the other custom resources of the project. Definitions are tracked by the {@link DefinitionTracker}, which changes only when a file
+ * holding definitions is indexed again or deleted, so that editing other files does not discard the schemas.
+ */
+public class CustomResourceIndex extends FileBasedIndexExtension<ResourceTypeKey, SwaggerSpec> {
+
+    /** The ID of the index. */
+    static final ID<ResourceTypeKey, SwaggerSpec> NAME = ID.create("kubernetes.customResources");
+
+    /**
+     * The version of the indexer and of the layout of the keys; must be incremented whenever either changes. The values are stored as snapshots, so their layout is versioned by {@link
+     * SpecSnapshotReader#FORMAT_VERSION}, which {@link #getVersion()} combines with this.
+     */
+    private static final int VERSION = 1;
+
+    /** The maximum number of nodes held by the path cache of the custom resources of a project. */
+    private static final int PATH_CACHE_CAPACITY = 5_000;
+
+    /** The key of the schemas of the custom resources of a project, kept as user data of the project. */
+    private static final Key<CachedValue<CachedSchemas>> SCHEMAS_KEY = Key.create("kubernetes.customResourceSchemas");
+
+    /** Tracks changes to the definitions held by the index, across all projects. */
+    private static final DefinitionTracker DEFINITION_TRACKER = new DefinitionTracker();
+
+    /**
+     * Gets the schemas of the custom resources of a project that have been looked up since a definition or the project structure last changed.
+     *
+     * @param project the project.
+     * @return the cached schemas.
+     */
+    @NotNull
+    private static CachedSchemas getCachedSchemas(@NotNull final Project project) {
+        // The index is only brought up to date when it is queried, so do so first; a definition that was edited is then indexed again, which discards the cached schemas
+        FileBasedIndex.getInstance().ensureUpToDate(NAME, project, GlobalSearchScope.projectScope(project));
+        return CachedValuesManager.getManager(project).getCachedValue(project, SCHEMAS_KEY, () -> CachedValueProvider.Result
+                .create(new CachedSchemas(), DEFINITION_TRACKER, ProjectRootManager.getInstance(project)), false);
+    }
+
+    /**
+     * Gets the schema of a custom resource defined in a project. The schema is kept until a definition or the project structure changes, so that the spec is read from the index and linked once
+     * for all the lookups made while a file is highlighted or completed.
+     *
+     * @param project the project.
+     * @param resourceTypeKey the custom resource.
+     * @return the schema, or {@code null} if no definition of the resource was found, or the index is not available because the project is being indexed.
+     */
+    @Nullable
+    static ResourceSchema getResource(@NotNull final Project project, @NotNull final ResourceTypeKey resourceTypeKey) {
+        if (DumbService.isDumb(project)) {
+            return null;
+        }
+        final CachedSchemas cachedSchemas = getCachedSchemas(project);
+        final Optional<ResourceSchema> cached = cachedSchemas.schemas.get(resourceTypeKey);
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+        final ResourceSchema schema = ResourceSchema.find(getSpec(project, resourceTypeKey), resourceTypeKey, cachedSchemas.pathCache);
+        // Another thread may have found the schema at the same time; either is correct, but keep the first so that its cached paths are used
+        final Optional<ResourceSchema> existing = cachedSchemas.schemas.putIfAbsent(resourceTypeKey, Optional.ofNullable(schema));
+        return existing != null ? existing.orElse(null) : schema;
+    }
+
+    /**
+     * Gets the spec of a custom resource defined in a project.
+     *
+     * @param project the project.
+     * @param resourceTypeKey the custom resource.
+     * @return the spec, or {@code null} if no definition of the resource was found, or the index is not available because the project is being indexed.
+     */
+    @Nullable
+    private static SwaggerSpec getSpec(@NotNull final Project project, @NotNull final ResourceTypeKey resourceTypeKey) {
+        if (DumbService.isDumb(project)) {
+            return null;
+        }
+        final List<SwaggerSpec> specs = FileBasedIndex.getInstance().getValues(NAME, resourceTypeKey, GlobalSearchScope.projectScope(project));
+        return specs.isEmpty() ? null : specs.get(0);
+    }
+
+    /**
+     * Gets the custom resources defined in a project. The resources are found once and then kept along with the schemas, until a definition or the project structure changes, as completion asks
+     * for them on every invocation.
+     *
+     * @param project the project.
+     * @return the resources, which must not be modified; empty if the index is not available because the project is being indexed.
+     */
+    @NotNull
+    static Set<ResourceTypeKey> getResourceKeys(@NotNull final Project project) {
+        if (DumbService.isDumb(project)) {
+            return Collections.emptySet();
+        }
+        final CachedSchemas cachedSchemas = getCachedSchemas(project);
+        Set<ResourceTypeKey> keys = cachedSchemas.resourceKeys;
+        if (keys == null) {
+            final FileBasedIndex fileBasedIndex = FileBasedIndex.getInstance();
+            final GlobalSearchScope scope = GlobalSearchScope.projectScope(project);
+            final Set<ResourceTypeKey> foundKeys = new HashSet<>();
+            // The set of all keys may include some that are no longer held by any file, so check each one
+            for (final ResourceTypeKey key : fileBasedIndex.getAllKeys(NAME, project)) {
+                if (!fileBasedIndex.getContainingFiles(NAME, key, scope).isEmpty()) {
+                    foundKeys.add(key);
+                }
+            }
+            // Another thread may have found the keys at the same time, but both will have found the same keys
+            keys = Collections.unmodifiableSet(foundKeys);
+            cachedSchemas.resourceKeys = keys;
+        }
+        return keys;
+    }
+
+    /**
+     * Converts a YAML value into the tree of maps, lists and strings expected by {@link CrdSchemaConverter}.
+     *
+     * @param element the YAML value.
+     * @return the converted value, or {@code null} if the element is not a mapping, sequence or scalar.
+     */
+    @Nullable
+    private static Object toObject(@Nullable final PsiElement element) {
+        if (element instanceof YAMLMapping) {
+            final Map<String, Object> map = new LinkedHashMap<>();
+            for (final YAMLKeyValue keyValue : ((YAMLMapping) element).getKeyValues()) {
+                map.put(keyValue.getKeyText(), toObject(keyValue.getValue()));
+            }
+            return map;
+        } else if (element instanceof YAMLSequence) {
+            final List<Object> list = new ArrayList<>();
+            for (final YAMLSequenceItem item : ((YAMLSequence) element).getItems()) {
+                list.add(toObject(item.getValue()));
+            }
+            return list;
+        } else if (element instanceof YAMLScalar) {
+            return ((YAMLScalar) element).getTextValue();
+        }
+        return null;
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return new DefaultFileTypeSpecificInputFilter(KubernetesYamlFileType.INSTANCE, YAMLFileType.YML);
+    }
+
+    @NotNull
+    @Override
+    public DataIndexer<ResourceTypeKey, SwaggerSpec, FileContent> getIndexer() {
+        return inputData -> {
+            if (!StringUtil.contains(inputData.getContentAsText(), CrdSchemaConverter.CRD_KIND)) {
+                DEFINITION_TRACKER.indexed(inputData.getFile(), false);
+                return Collections.emptyMap();
+            }
+            final PsiFile file = inputData.getPsiFile();
+            final Map<ResourceTypeKey, SwaggerSpec> specs = new HashMap<>();
+            if (file instanceof YAMLFile) {
+                for (final YAMLDocument document : ((YAMLFile) file).getDocuments()) {
+                    final Object topLevelValue = toObject(document.getTopLevelValue());
+                    if (topLevelValue instanceof Map) {
+                        CrdSchemaConverter.convert((Map<?, ?>) topLevelValue).forEach(specs::putIfAbsent);
+                    }
+                }
+            }
+            DEFINITION_TRACKER.indexed(inputData.getFile(), !specs.isEmpty());
+            return specs;
+        };
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<ResourceTypeKey> getKeyDescriptor() {
+        return new KeyDescriptor<ResourceTypeKey>() {
+            @Override
+            public int getHashCode(final ResourceTypeKey value) {
+                return value.hashCode();
+            }
+
+            @Override
+            public boolean isEqual(final ResourceTypeKey val1, final ResourceTypeKey val2) {
+                return val1.equals(val2);
+            }
+
+            @Override
+            public ResourceTypeKey read(@NotNull final DataInput in) throws IOException {
+                return new ResourceTypeKey(IOUtil.readUTF(in), IOUtil.readUTF(in));
+            }
+
+            @Override
+            public void save(@NotNull final DataOutput out, final ResourceTypeKey value) throws IOException {
+                IOUtil.writeUTF(out, value.getApiVersion());
+                IOUtil.writeUTF(out, value.getKind());
+            }
+        };
+    }
+
+    @NotNull
+    @Override
+    public ID<ResourceTypeKey, SwaggerSpec> getName() {
+        return NAME;
+    }
+
+    @NotNull
+    @Override
+    public DataExternalizer<SwaggerSpec> getValueExternalizer() {
+        // Specs are stored in the same snapshot format as the bundled specs
+        return new DataExternalizer<SwaggerSpec>() {
+            @Override
+            public SwaggerSpec read(@NotNull final DataInput in) throws IOException {
+                final byte[] snapshot = new byte[in.readInt()];
+                in.readFully(snapshot);
+                return CrdSchemaConverter.freeze(SpecSnapshotReader.read(new ByteArrayInputStream(snapshot)).get(0));
+            }
+
+            @Override
+            public void save(@NotNull final DataOutput out, final SwaggerSpec value) throws IOException {
+                final ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+                SpecSnapshotWriter.write(Collections.singletonList(value), snapshot);
+                out.writeInt(snapshot.size());
+                out.write(snapshot.toByteArray());
+            }
+        };
+    }
+
+    @Override
+    public int getVersion() {
+        // Rebuild the index when either the indexer or the snapshot format changes
+        return VERSION * 1000 + SpecSnapshotReader.FORMAT_VERSION;
+    }
+
+    /** The schemas of the custom resources of a project that have been looked up since a definition or the project structure last changed. */
+    private static final class CachedSchemas {
+
+        /** The cache of paths within the custom resources. */
+        private final PathCache pathCache = new PathCache(PATH_CACHE_CAPACITY);
+
+        /** The schema of each custom resource looked up, or an empty value if the resource is not defined. */
+        private final Map<ResourceTypeKey, Optional<ResourceSchema>> schemas = new ConcurrentHashMap<>();
+
+        /** The custom resources defined in the project, or {@code null} if they have not been found yet. */
+        private volatile Set<ResourceTypeKey> resourceKeys;
+    }
+
+    /**
+     * Tracks changes to the definitions held by the index. The count changes whenever a file that holds definitions, or held them when last indexed, is indexed again, and whenever such a file is
+     * deleted; edits to other files leave it unchanged.
+     */
+    private static final class DefinitionTracker implements ModificationTracker {
+
+        /** The number of changes seen so far. */
+        private final AtomicLong modificationCount = new AtomicLong();
+
+        /** The files that held definitions when last indexed. */
+        private final Set<VirtualFile> definitionFiles = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public long getModificationCount() {
+            // The index drops the entries of a deleted file without indexing it again
+            if (definitionFiles.removeIf(file -> !file.isValid())) {
+                modificationCount.incrementAndGet();
+            }
+            return modificationCount.get();
+        }
+
+        /**
+         * Records that a file has been indexed.
+         *
+         * @param file the file.
+         * @param hasDefinitions whether the file holds any definitions.
+         */
+        void indexed(@NotNull final VirtualFile file, final boolean hasDefinitions) {
+            if (hasDefinitions) {
+                definitionFiles.add(file);
+                modificationCount.incrementAndGet();
+            } else if (definitionFiles.remove(file)) {
+                modificationCount.incrementAndGet();
+            }
+        }
+    }
+}
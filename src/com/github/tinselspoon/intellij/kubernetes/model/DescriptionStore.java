@@ -0,0 +1,582 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.intellij.openapi.util.io.FileUtil;
+
+import gnu.trove.TLongIntHashMap;
+
+/**
+ * File-backed store for the descriptions of models and properties.
+ * <p>
+ * Descriptions make up most of the size of a spec, but are only needed when documentation is shown. Rather than keeping them on the heap, each description is appended to a temporary file and
+ * the {@link Model} or {@link Property} holds only its ID, which indexes the position of the description within the file. Identical descriptions are stored once and share an ID, so models loaded
+ * from different specs can still be compared by their description IDs.
+ * <p>
+ * Descriptions are added through a {@link Table}, one for each source of models such as a spec being parsed or an open snapshot, and each model and property holds the table its description was
+ * added through. A description is kept for as long as any table that added it is reachable; once every such table has been garbage collected, for example because the specs loaded from a snapshot
+ * were evicted, its ID is reused and the space it took up in the file is reclaimed when the file is next compacted. The file is compacted once the descriptions released outweigh those in use.
+ * <p>
+ * Specs are parsed in parallel, so the store is safe for concurrent use without serializing the parsers on file I/O. The table used to find identical descriptions is divided into stripes by
+ * hash, each with its own lock, and a stripe is only held long enough to look up a hash or to append a new description. Appended descriptions are gathered in a buffer that is written to the file
+ * when full, and descriptions already in the file are read holding only a shared lock, which is held exclusively while the file is compacted.
+ */
+final class DescriptionStore {
+
+    /** ID representing the absence of a description. */
+    static final int NO_DESCRIPTION = -1;
+
+    /** Singleton instance. */
+    private static final DescriptionStore INSTANCE = new DescriptionStore();
+
+    /** The size of released descriptions, in bytes, above which the file is compacted if they also outweigh the descriptions in use. */
+    private static final long COMPACTION_THRESHOLD = 1024 * 1024;
+
+    /** The number of IDs for which space is allocated initially. */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** The number of stripes of the table of hashes, a power of two. */
+    private static final int STRIPE_COUNT = 16;
+
+    /** The size of the buffer in which appended descriptions are gathered before being written to the file, in bytes. */
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    /** Maps of the hash of each description's content to its ID, used to avoid storing the same description twice; each stripe is guarded by its own monitor. */
+    private final TLongIntHashMap[] idsByHash = new TLongIntHashMap[STRIPE_COUNT];
+
+    /** Lock held while reading descriptions from the file, and held exclusively while the file is compacted. Must be acquired before the {@link #writeLock}. */
+    private final ReadWriteLock fileLock = new ReentrantReadWriteLock();
+
+    /** Queue to which the reference to each table is added once the table is no longer reachable. */
+    private final ReferenceQueue<Table> releasedTables = new ReferenceQueue<>();
+
+    /** The references to the tables that are still reachable, held so that the references themselves are not collected before they are queued. */
+    private final Set<TableReference> tableReferences = ConcurrentHashMap.newKeySet();
+
+    /** Lock guarding the write buffer, the sizes, the per-ID arrays, the free IDs and the creation of the backing file. Must be acquired after a stripe. */
+    private final Object writeLock = new Object();
+
+    /** Descriptions appended since the buffer was last written to the file, each as its UTF-8 bytes. */
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+
+    /** The channel used for reading and writing the backing file, or {@code null} if nothing has been written yet. */
+    private volatile FileChannel channel;
+
+    /** The backing file, or {@code null} if nothing has been written yet. */
+    private File file;
+
+    /** IDs that are no longer in use and may be given to new descriptions; the first {@link #freeIdCount} elements are valid. */
+    private int[] freeIds = new int[INITIAL_CAPACITY];
+
+    /** The number of valid elements of {@link #freeIds}. */
+    private int freeIdCount;
+
+    /** The hash of the description with each ID. */
+    private long[] hashes = new long[INITIAL_CAPACITY];
+
+    /** The number of IDs that have been allocated, i.e. the ID given to the next description if there are no free IDs. */
+    private int idCount;
+
+    /** The length in bytes of the description with each ID. */
+    private int[] lengths = new int[INITIAL_CAPACITY];
+
+    /** The position within the store of the description with each ID. */
+    private long[] positions = new long[INITIAL_CAPACITY];
+
+    /** The number of times each ID has been added through a table that is still reachable; an ID whose count is zero is free. */
+    private int[] referenceCounts = new int[INITIAL_CAPACITY];
+
+    /** The total length of the descriptions that have been released but are still in the file. */
+    private long releasedSize;
+
+    /** The size of the store including the write buffer, i.e. the position of the next description to be appended. */
+    private long size;
+
+    /** The size of the backing file, i.e. the position of the first description still in the write buffer. */
+    private long writtenSize;
+
+    /** Singleton private constructor. */
+    private DescriptionStore() {
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            idsByHash[i] = new TLongIntHashMap();
+        }
+    }
+
+    /**
+     * Gets the singleton instance.
+     *
+     * @return the description store.
+     */
+    @NotNull
+    static DescriptionStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Computes a 64-bit FNV-1a hash of the given bytes.
+     *
+     * @param bytes the bytes to hash.
+     * @return the hash.
+     */
+    private static long hash(@NotNull final byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (final byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Reads a buffer's worth of bytes from a file.
+     *
+     * @param fileChannel the channel for the file.
+     * @param buffer the buffer to fill.
+     * @param position the position in the file to read from.
+     * @throws IOException if the file could not be read.
+     */
+    private static void readFully(@NotNull final FileChannel fileChannel, @NotNull final ByteBuffer buffer, final long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (fileChannel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of description store.");
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Stores a description, if an identical one is not already stored, and takes a reference to it.
+     *
+     * @param bytes the UTF-8 bytes of the description.
+     * @return the ID of the description.
+     * @throws IOException if the file could not be read or written.
+     */
+    private int acquire(@NotNull final byte[] bytes) throws IOException {
+        final long hash = hash(bytes);
+        final TLongIntHashMap stripe = getStripe(hash);
+        final int existingId;
+        synchronized (stripe) {
+            if (!stripe.containsKey(hash)) {
+                // Appending while the stripe is held means a description added by several threads at once is still stored once
+                final int id = append(bytes, hash);
+                stripe.put(hash, id);
+                return id;
+            }
+            existingId = stripe.get(hash);
+            // Taking the reference while the stripe is held stops the description being released before it is compared
+            synchronized (writeLock) {
+                referenceCounts[existingId]++;
+            }
+        }
+        if (Arrays.equals(bytes, readBytes(existingId))) {
+            return existingId;
+        }
+        // A different description with the same hash is stored separately, leaving the first as the one found by the hash
+        release(existingId);
+        return append(bytes, hash);
+    }
+
+    /**
+     * Allocates an ID, reusing a free one if possible, and grows the per-ID arrays if required. The caller must hold the {@link #writeLock}.
+     *
+     * @return the new ID.
+     */
+    private int allocateId() {
+        if (freeIdCount > 0) {
+            return freeIds[--freeIdCount];
+        }
+        if (idCount == positions.length) {
+            final int capacity = idCount * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+            referenceCounts = Arrays.copyOf(referenceCounts, capacity);
+        }
+        return idCount++;
+    }
+
+    /**
+     * Appends a description to the store with a single reference, writing the write buffer to the file first if the description does not fit in it.
+     *
+     * @param bytes the UTF-8 bytes of the description.
+     * @param hash the hash of the description.
+     * @return the ID of the description.
+     * @throws IOException if the file could not be written.
+     */
+    private int append(@NotNull final byte[] bytes, final long hash) throws IOException {
+        synchronized (writeLock) {
+            final long position = size;
+            if (writeBuffer.remaining() < bytes.length) {
+                flush();
+            }
+            if (bytes.length > writeBuffer.capacity()) {
+                writeFully(ByteBuffer.wrap(bytes), position);
+                writtenSize += bytes.length;
+            } else {
+                writeBuffer.put(bytes);
+            }
+            size += bytes.length;
+
+            final int id = allocateId();
+            hashes[id] = hash;
+            lengths[id] = bytes.length;
+            positions[id] = position;
+            referenceCounts[id] = 1;
+            return id;
+        }
+    }
+
+    /**
+     * Compacts the file if the descriptions that have been released outweigh those still in use, by copying the descriptions in use to a new file.
+     *
+     * @throws IOException if the file could not be read or written.
+     */
+    private void compactIfRequired() throws IOException {
+        fileLock.writeLock().lock();
+        try {
+            synchronized (writeLock) {
+                if (!isCompactionRequired()) {
+                    return;
+                }
+                flush();
+                final FileChannel oldChannel = channel;
+                final File oldFile = file;
+                channel = null;
+                file = null;
+                long newSize = 0;
+                for (int id = 0; id < idCount; id++) {
+                    if (referenceCounts[id] > 0) {
+                        final ByteBuffer content = ByteBuffer.allocate(lengths[id]);
+                        readFully(oldChannel, content, positions[id]);
+                        writeFully(content, newSize);
+                        positions[id] = newSize;
+                        newSize += lengths[id];
+                    }
+                }
+                size = newSize;
+                writtenSize = newSize;
+                releasedSize = 0;
+                oldChannel.close();
+                FileUtil.delete(oldFile);
+            }
+        } finally {
+            fileLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the contents of the write buffer to the end of the file and empties the buffer. The caller must hold the {@link #writeLock}.
+     *
+     * @throws IOException if the file could not be written.
+     */
+    private void flush() throws IOException {
+        writeBuffer.flip();
+        final int length = writeBuffer.remaining();
+        writeFully(writeBuffer, writtenSize);
+        writtenSize += length;
+        writeBuffer.clear();
+    }
+
+    /**
+     * Gets a stored description.
+     *
+     * @param id the ID of the description, as returned by {@link Table#add(String)}; the table must still be reachable.
+     * @return the description, or {@code null} if {@code id} is {@link #NO_DESCRIPTION}.
+     */
+    @Nullable
+    String get(final int id) {
+        if (id == NO_DESCRIPTION) {
+            return null;
+        }
+        try {
+            return new String(readBytes(id), StandardCharsets.UTF_8);
+        } catch (final IOException e) {
+            throw new RuntimeException("Error reading from description store.", e);
+        }
+    }
+
+    /**
+     * Gets the channel for the backing file, creating the file if necessary. The caller must hold the {@link #writeLock}.
+     *
+     * @return the channel.
+     * @throws IOException if the file could not be created.
+     */
+    @NotNull
+    private FileChannel getChannel() throws IOException {
+        if (channel == null) {
+            file = FileUtil.createTempFile("kubernetes-descriptions", ".bin", true);
+            channel = new RandomAccessFile(file, "rw").getChannel();
+        }
+        return channel;
+    }
+
+    /**
+     * Gets the number of descriptions currently stored.
+     *
+     * @return the number of descriptions in use.
+     */
+    int getDescriptionCount() {
+        synchronized (writeLock) {
+            return idCount - freeIdCount;
+        }
+    }
+
+    /**
+     * Gets the number of reachable tables through which a description has been added.
+     *
+     * @param id the ID of the description.
+     * @return the number of references to the description, or zero if it has been released.
+     */
+    int getReferenceCount(final int id) {
+        synchronized (writeLock) {
+            return referenceCounts[id];
+        }
+    }
+
+    /**
+     * Gets the size of the store, including descriptions that have been released but not yet compacted away.
+     *
+     * @return the size in bytes.
+     */
+    long getSize() {
+        synchronized (writeLock) {
+            return size;
+        }
+    }
+
+    /**
+     * Gets the stripe of the table of hashes that holds a hash.
+     *
+     * @param hash the hash of a description.
+     * @return the stripe.
+     */
+    @NotNull
+    private TLongIntHashMap getStripe(final long hash) {
+        return idsByHash[(int) (hash ^ (hash >>> 32)) & (STRIPE_COUNT - 1)];
+    }
+
+    /**
+     * Determines whether the released descriptions outweigh those in use by enough to be worth compacting the file. The caller must hold the {@link #writeLock}.
+     *
+     * @return {@code true} if the file should be compacted.
+     */
+    private boolean isCompactionRequired() {
+        return releasedSize > COMPACTION_THRESHOLD && releasedSize > size - releasedSize;
+    }
+
+    /**
+     * Creates a table through which descriptions can be added, first releasing the descriptions of any tables that are no longer reachable.
+     *
+     * @return the new table.
+     */
+    @NotNull
+    Table newTable() {
+        releaseUnreachableTables();
+        return new Table(this);
+    }
+
+    /**
+     * Reads the bytes of a stored description, from the write buffer if it has not been written to the file yet.
+     *
+     * @param id the ID of the description, which must be referenced.
+     * @return the UTF-8 bytes of the description.
+     * @throws IOException if the file could not be read.
+     */
+    @NotNull
+    private byte[] readBytes(final int id) throws IOException {
+        fileLock.readLock().lock();
+        try {
+            final long position;
+            final byte[] content;
+            synchronized (writeLock) {
+                position = positions[id];
+                content = new byte[lengths[id]];
+                if (position >= writtenSize) {
+                    System.arraycopy(writeBuffer.array(), (int) (position - writtenSize), content, 0, content.length);
+                    return content;
+                }
+            }
+            // Descriptions in the file only move while it is compacted, which the shared lock prevents
+            readFully(channel, ByteBuffer.wrap(content), position);
+            return content;
+        } finally {
+            fileLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Drops a reference to a description, freeing its ID if it was the last.
+     *
+     * @param id the ID of the description.
+     */
+    private void release(final int id) {
+        final long hash;
+        synchronized (writeLock) {
+            hash = hashes[id];
+        }
+        final TLongIntHashMap stripe = getStripe(hash);
+        synchronized (stripe) {
+            synchronized (writeLock) {
+                if (--referenceCounts[id] > 0) {
+                    return;
+                }
+                releasedSize += lengths[id];
+                if (freeIdCount == freeIds.length) {
+                    freeIds = Arrays.copyOf(freeIds, freeIdCount * 2);
+                }
+                freeIds[freeIdCount++] = id;
+            }
+            // A description stored separately because of a hash collision is not the one found by the hash
+            if (stripe.containsKey(hash) && stripe.get(hash) == id) {
+                stripe.remove(hash);
+            }
+        }
+    }
+
+    /** Releases the descriptions added through tables that are no longer reachable, and compacts the file if enough space has been released. */
+    void releaseUnreachableTables() {
+        TableReference reference = (TableReference) releasedTables.poll();
+        if (reference == null) {
+            return;
+        }
+        while (reference != null) {
+            tableReferences.remove(reference);
+            for (final int id : reference.getIds()) {
+                release(id);
+            }
+            reference = (TableReference) releasedTables.poll();
+        }
+        final boolean compactionRequired;
+        synchronized (writeLock) {
+            compactionRequired = isCompactionRequired();
+        }
+        if (compactionRequired) {
+            try {
+                compactIfRequired();
+            } catch (final IOException e) {
+                throw new RuntimeException("Error compacting description store.", e);
+            }
+        }
+    }
+
+    /**
+     * Writes the contents of a buffer to the backing file. The caller must hold the {@link #writeLock}.
+     *
+     * @param buffer the buffer to write.
+     * @param position the position in the file to write to.
+     * @throws IOException if the file could not be written.
+     */
+    private void writeFully(@NotNull final ByteBuffer buffer, final long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            getChannel().write(buffer, position + buffer.position());
+        }
+    }
+
+    /**
+     * The descriptions added by one source of models, which keeps them in the store for as long as it is reachable. Models and properties hold the table their description was added through.
+     * Tables may be used by several threads at once.
+     */
+    static final class Table {
+
+        /** The store the table adds descriptions to. */
+        private final DescriptionStore store;
+
+        /** The reference through which the store learns that the table is no longer reachable, which records the IDs the table has added. */
+        private final TableReference reference;
+
+        /**
+         * Creates a new table.
+         *
+         * @param store the store to add descriptions to.
+         */
+        private Table(@NotNull final DescriptionStore store) {
+            this.store = store;
+            reference = new TableReference(this, store.releasedTables);
+            store.tableReferences.add(reference);
+        }
+
+        /**
+         * Stores a description, if an identical one is not already stored, and keeps it for as long as this table is reachable.
+         *
+         * @param description the description to store, may be {@code null}.
+         * @return the ID of the description, or {@link #NO_DESCRIPTION} if {@code description} was {@code null}.
+         */
+        int add(@Nullable final String description) {
+            return description == null ? NO_DESCRIPTION : addEncoded(description.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Stores a description given as UTF-8 encoded bytes, if an identical one is not already stored, and keeps it for as long as this table is reachable.
+         *
+         * @param bytes the encoded description to store.
+         * @return the ID of the description.
+         */
+        int addEncoded(@NotNull final byte[] bytes) {
+            final int id;
+            try {
+                id = store.acquire(bytes);
+            } catch (final IOException e) {
+                throw new RuntimeException("Error writing to description store.", e);
+            }
+            reference.addId(id);
+            return id;
+        }
+    }
+
+    /** Weak reference to a {@link Table}, recording the IDs added through it so that they can be released once it has been collected. */
+    private static final class TableReference extends WeakReference<Table> {
+
+        /** The IDs added through the table, once for each time they were added; the first {@link #idCount} elements are valid. Guarded by the monitor of this reference. */
+        private int[] ids = new int[16];
+
+        /** The number of valid elements of {@link #ids}. */
+        private int idCount;
+
+        /**
+         * Creates a reference to a table.
+         *
+         * @param table the table.
+         * @param queue the queue to add the reference to once the table is no longer reachable.
+         */
+        private TableReference(@NotNull final Table table, @NotNull final ReferenceQueue<Table> queue) {
+            super(table, queue);
+        }
+
+        /**
+         * Records an ID added through the table.
+         *
+         * @param id the ID.
+         */
+        private synchronized void addId(final int id) {
+            if (idCount == ids.length) {
+                ids = Arrays.copyOf(ids, idCount * 2);
+            }
+            ids[idCount++] = id;
+        }
+
+        /**
+         * Gets the IDs added through the table.
+         *
+         * @return the IDs, once for each time they were added.
+         */
+        @NotNull
+        private synchronized int[] getIds() {
+            return Arrays.copyOf(ids, idCount);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileCopyEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.psi.PsiFile;
+import com.intellij.util.PathUtil;
+
+/**
+ * Resolves the Kubernetes version that applies to a file within a project, from a {@value #MARKER_FILE_NAME} file in the directory of the file or the nearest ancestor directory that has one, up
+ * to the content root of the file. This allows, for example, each module of a project to be validated against the version of the cluster it is deployed to. Files with no marker, and files outside
+ * the content of the project, use the configured version.
+ * <p>
+ * The version is resolved once per directory and cached until a marker file that may apply to a resolved directory changes, or a resolved directory or one of its ancestors within the project is
+ * deleted, moved or renamed, so that annotators do not search for markers on every call and unrelated file system changes do not discard the cache. Each directory resolved to a version
+ * holds a reference to the {@linkplain ModelLoader.SharedSnapshot shared snapshot} of that version, released when the cache is discarded, so that a version no longer chosen by any directory of any
+ * open project is eventually evicted.
+ */
+public class KubernetesVersionResolver implements Disposable {
+
+    /** The name of the file that selects the Kubernetes version for the directory containing it and its subdirectories. */
+    static final String MARKER_FILE_NAME = ".kubernetes-version";
+
+    /** The logger. */
+    private static final Logger logger = LoggerFactory.getLogger(KubernetesVersionResolver.class);
+
+    /**
+     * The shared snapshot chosen for each directory resolved so far, or empty if the directory uses the configured version. It is read without locking, so is replaced rather than cleared when
+     * invalidated, and only added to while holding the monitor of this resolver.
+     */
+    private volatile Map<VirtualFile, Optional<ModelLoader.SharedSnapshot>> directorySnapshots = new ConcurrentHashMap<>();
+
+    /** The loader from which shared snapshots are acquired. */
+    private final ModelLoader modelLoader;
+
+    /** The project. */
+    private final Project project;
+
+    /**
+     * Creates a resolver for a project, discarding its cache whenever a marker file, or a directory of the project that contains a directory already resolved, changes.
+     *
+     * @param project the project.
+     */
+    public KubernetesVersionResolver(@NotNull final Project project) {
+        this.project = project;
+        this.modelLoader = ModelProvider.INSTANCE.getModelLoader();
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            /** Whether the events being applied may change the version resolved for a directory. */
+            private boolean affected;
+
+            @Override
+            public void after(@NotNull final List<? extends VFileEvent> events) {
+                if (affected) {
+                    affected = false;
+                    invalidate();
+                    DaemonCodeAnalyzer.getInstance(project).restart();
+                }
+            }
+
+            @Override
+            public void before(@NotNull final List<? extends VFileEvent> events) {
+                // Deleted, moved and renamed files can only be located before the change is applied
+                affected = events.stream().anyMatch(KubernetesVersionResolver.this::affectsResolution);
+            }
+        });
+    }
+
+    /**
+     * Gets the resolver for a project.
+     *
+     * @param project the project.
+     * @return the resolver.
+     */
+    @NotNull
+    static KubernetesVersionResolver getInstance(@NotNull final Project project) {
+        return ServiceManager.getService(project, KubernetesVersionResolver.class);
+    }
+
+    /**
+     * Reads the version from a marker file: the first line that is neither blank nor a {@code #} comment, with any leading {@code v} and any patch number removed, so that {@code v1.7.4} selects
+     * {@code 1.7}.
+     *
+     * @param marker the marker file.
+     * @return the version, or {@code null} if the file does not name one or could not be read.
+     */
+    @Nullable
+    private static String readVersion(@NotNull final VirtualFile marker) {
+        final String content;
+        try {
+            content = VfsUtilCore.loadText(marker);
+        } catch (final IOException e) {
+            logger.warn("Unable to read Kubernetes version from {}.", marker.getPath(), e);
+            return null;
+        }
+        for (final String line : content.split("\\R")) {
+            String version = line.trim();
+            if (version.isEmpty() || version.startsWith("#")) {
+                continue;
+            }
+            if (version.startsWith("v")) {
+                version = version.substring(1);
+            }
+            final String[] parts = version.split("\\.");
+            return parts.length > 2 ? parts[0] + "." + parts[1] : version;
+        }
+        return null;
+    }
+
+    /**
+     * Determines, before it is applied, whether a file system change may change the version resolved for a directory: that is, a change to a marker file in a directory already resolved or one of
+     * its ancestors, or the deletion, move or renaming of such a directory within the content of the project.
+     *
+     * @param event the change.
+     * @return {@code true} if the change may affect a directory already resolved; otherwise, {@code false}.
+     */
+    private boolean affectsResolution(@NotNull final VFileEvent event) {
+        if (directorySnapshots.isEmpty()) {
+            return false;
+        }
+        final VirtualFile file = event.getFile();
+        if (event instanceof VFileMoveEvent && MARKER_FILE_NAME.equals(file.getName())) {
+            return isResolvedWithin(PathUtil.getParentPath(event.getPath())) || isResolvedWithin(((VFileMoveEvent) event).getNewParent().getPath());
+        }
+        if (event instanceof VFileCopyEvent) {
+            return MARKER_FILE_NAME.equals(((VFileCopyEvent) event).getNewChildName()) && isResolvedWithin(((VFileCopyEvent) event).getNewParent().getPath());
+        }
+        final boolean renamed = event instanceof VFilePropertyChangeEvent && VirtualFile.PROP_NAME.equals(((VFilePropertyChangeEvent) event).getPropertyName());
+        if (PathUtil.getFileName(event.getPath()).equals(MARKER_FILE_NAME) || renamed && MARKER_FILE_NAME.equals(((VFilePropertyChangeEvent) event).getNewValue())) {
+            return isResolvedWithin(PathUtil.getParentPath(event.getPath()));
+        }
+        return (renamed || event instanceof VFileMoveEvent || event instanceof VFileDeleteEvent) && file != null && file.isDirectory()
+               && ProjectRootManager.getInstance(project).getFileIndex().isInContent(file) && isResolvedWithin(file.getPath());
+    }
+
+    @Override
+    public void dispose() {
+        invalidate();
+    }
+
+    /**
+     * Gets the shared snapshot of the Kubernetes version chosen for a file.
+     *
+     * @param file the file.
+     * @return the shared snapshot, or {@code null} if the file uses the configured version.
+     */
+    @Nullable
+    ModelLoader.SharedSnapshot getSnapshot(@NotNull final PsiFile file) {
+        final VirtualFile virtualFile = file.getOriginalFile().getVirtualFile();
+        final VirtualFile directory = virtualFile != null ? virtualFile.getParent() : null;
+        if (directory == null) {
+            return null;
+        }
+        final Optional<ModelLoader.SharedSnapshot> snapshot = directorySnapshots.get(directory);
+        return snapshot != null ? snapshot.orElse(null) : resolve(directory);
+    }
+
+    /** Discards the version resolved for every directory, releasing the shared snapshots they hold. */
+    synchronized void invalidate() {
+        final Map<VirtualFile, Optional<ModelLoader.SharedSnapshot>> releasedSnapshots = directorySnapshots;
+        // Publish the empty map before releasing, so that no lookup is answered with a snapshot once it has been released
+        directorySnapshots = new ConcurrentHashMap<>();
+        releasedSnapshots.values().forEach(snapshot -> snapshot.ifPresent(modelLoader::releaseSnapshot));
+        ModelProvider.INSTANCE.scheduleEviction();
+    }
+
+    /**
+     * Determines whether the version has been resolved for a directory or any directory beneath it.
+     *
+     * @param directoryPath the path of the directory.
+     * @return {@code true} if such a directory has been resolved; otherwise, {@code false}.
+     */
+    private boolean isResolvedWithin(@NotNull final String directoryPath) {
+        return directorySnapshots.keySet().stream().anyMatch(directory -> FileUtil.isAncestor(directoryPath, directory.getPath(), false));
+    }
+
+    /**
+     * Resolves the version for a directory from the nearest marker file within its content root, caching the result.
+     *
+     * @param directory the directory.
+     * @return the shared snapshot of the version, or {@code null} if the directory uses the configured version.
+     */
+    @Nullable
+    private synchronized ModelLoader.SharedSnapshot resolve(@NotNull final VirtualFile directory) {
+        if (project.isDisposed()) {
+            return null;
+        }
+        Optional<ModelLoader.SharedSnapshot> snapshot = directorySnapshots.get(directory);
+        if (snapshot == null) {
+            String version = null;
+            // Markers above the content root belong to whatever happens to contain the project, not to the project itself
+            final VirtualFile contentRoot = ProjectRootManager.getInstance(project).getFileIndex().getContentRootForFile(directory);
+            for (VirtualFile candidate = contentRoot != null ? directory : null; candidate != null; candidate = candidate.equals(contentRoot) ? null : candidate.getParent()) {
+                final VirtualFile marker = candidate.findChild(MARKER_FILE_NAME);
+                if (marker != null && !marker.isDirectory()) {
+                    // A marker that names no version still stops the search, so that a subdirectory can opt back into the configured version
+                    version = readVersion(marker);
+                    break;
+                }
+            }
+            snapshot = Optional.ofNullable(version).map(modelLoader::acquireSnapshot);
+            directorySnapshots.put(directory, snapshot);
+        }
+        return snapshot.orElse(null);
+    }
+}
@@ -1,28 +1,82 @@
 package com.github.tinselspoon.intellij.kubernetes.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
 
-import com.google.gson.annotations.SerializedName;
+import org.jetbrains.annotations.NotNull;
 
 /**
  * Schema definition of a model. A model can be used to describe possible child properties.
  */
 public class Model {
-    /** An explanation of this model. */
-    private String description;
+    /** The ID of an explanation of this model within the {@link DescriptionStore}. */
+    private int descriptionId = DescriptionStore.NO_DESCRIPTION;
+
+    /** The table through which the description was added, which keeps it in the {@link DescriptionStore}; {@code null} if there is no description. */
+    private DescriptionStore.Table descriptionTable;
 
     /** A unique identifier for this model within the definition file. */
     private String id;
 
-    /** A map of property names to property specifications that may be given within this model. */
-    private final Map<String, Property> properties = new HashMap<>();
+    /** A map of property names to property specifications that may be given within this model; a {@link PropertyMap} once the model is frozen. */
+    private Map<String, Property> properties = new HashMap<>();
+
+    /** A list of property names which must be present in an instance of this model; read-only once the model is frozen. */
+    private List<String> requiredProperties = new ArrayList<>();
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final Model that = (Model) o;
+        return descriptionId == that.descriptionId && Objects.equals(id, that.id) && properties.equals(that.properties) && requiredProperties.equals(that.requiredProperties);
+    }
 
-    /** A list of property names which must be present in an instance of this model. */
-    @SerializedName("required")
-    private final List<String> requiredProperties = new ArrayList<>();
+    /**
+     * Finds the names of the properties of this model that a completion prefix may match, so that lookup elements need only be created for those names.
+     *
+     * @param prefix the prefix typed so far.
+     * @return the names having a word, such as {@code Port} in {@code containerPort}, starting with the first character of the prefix ignoring case, or every name if the prefix is empty; the
+     * completion matcher makes the final choice between them.
+     */
+    @NotNull
+    public List<String> findPropertyNames(@NotNull final String prefix) {
+        final PropertyNameIndex index = properties instanceof PropertyMap ? ((PropertyMap) properties).getNameIndex() : new PropertyNameIndex(properties.keySet());
+        return index.findCandidates(prefix);
+    }
+
+    /**
+     * Replaces the properties and required properties of this model with compact read-only copies, interning their names and properties. This is done as the model is {@linkplain ModelInterner
+     * interned}, after which it is never modified; freezing a model that is already frozen has no effect.
+     *
+     * @param nameInterner the function giving the canonical instance of a property name.
+     * @param propertyInterner the function giving the canonical instance of a property.
+     */
+    void freeze(@NotNull final UnaryOperator<String> nameInterner, @NotNull final UnaryOperator<Property> propertyInterner) {
+        if (properties instanceof PropertyMap) {
+            return;
+        }
+        properties = PropertyMap.copyOf(properties, nameInterner, propertyInterner);
+        if (requiredProperties.isEmpty()) {
+            requiredProperties = Collections.emptyList();
+        } else if (requiredProperties.size() == 1) {
+            requiredProperties = Collections.singletonList(nameInterner.apply(requiredProperties.get(0)));
+        } else {
+            final List<String> names = Arrays.asList(requiredProperties.toArray(new String[requiredProperties.size()]));
+            names.replaceAll(nameInterner);
+            requiredProperties = Collections.unmodifiableList(names);
+        }
+    }
 
     /**
      * Gets an explanation of this model.
@@ -30,7 +84,16 @@ public class Model {
      * @return the description.
      */
     public String getDescription() {
-        return description;
+        return DescriptionStore.getInstance().get(descriptionId);
+    }
+
+    /**
+     * Gets the ID of the description within the {@link DescriptionStore}.
+     *
+     * @return the description ID, or {@link DescriptionStore#NO_DESCRIPTION} if there is no description.
+     */
+    int getDescriptionId() {
+        return descriptionId;
     }
 
     /**
@@ -43,7 +106,7 @@ public class Model {
     }
 
     /**
-     * Gets a map of property names to property specifications that may be given within this model.
+     * Gets a map of property names to property specifications that may be given within this model. The map is read-only once the model has been loaded.
      *
      * @return the properties.
      */
@@ -52,7 +115,7 @@ public class Model {
     }
 
     /**
-     * Gets a list of property names which must be present in an instance of this model.
+     * Gets a list of property names which must be present in an instance of this model. The list is read-only once the model has been loaded.
      *
      * @return the required properties.
      */
@@ -60,13 +123,34 @@ public class Model {
         return requiredProperties;
     }
 
+    @Override
+    public int hashCode() {
+        return Objects.hash(descriptionId, id, properties, requiredProperties);
+    }
+
     /**
      * Sets an explanation of this model.
      *
      * @param description the new description.
      */
     public void setDescription(final String description) {
-        this.description = description;
+        if (description == null) {
+            setDescription(null, DescriptionStore.NO_DESCRIPTION);
+        } else {
+            final DescriptionStore.Table table = DescriptionStore.getInstance().newTable();
+            setDescription(table, table.add(description));
+        }
+    }
+
+    /**
+     * Sets the description of this model to one already added to the {@link DescriptionStore}.
+     *
+     * @param descriptionTable the table the description was added through; may be {@code null} if there is no description.
+     * @param descriptionId the ID of the description, or {@link DescriptionStore#NO_DESCRIPTION} for none.
+     */
+    void setDescription(final DescriptionStore.Table descriptionTable, final int descriptionId) {
+        this.descriptionTable = descriptionTable;
+        this.descriptionId = descriptionId;
     }
 
     /**
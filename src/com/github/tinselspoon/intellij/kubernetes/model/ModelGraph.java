@@ -0,0 +1,115 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The models of a spec with every {@linkplain Property#getRef() reference} resolved, so that navigating from a property to the model it refers to is a pointer lookup rather than a search of the spec
+ * by model ID.
+ * <p>
+ * The references are resolved once when the spec is loaded into a {@link SchemaSnapshot}. They are held here rather than on the properties themselves because {@linkplain ModelInterner interned}
+ * properties are shared between the specs of different versions, in which the same reference may resolve to different models. A reference that does not resolve to any model of the spec is
+ * reported when the graph is built.
+ */
+final class ModelGraph {
+
+    /** The logger. */
+    private static final Logger logger = LoggerFactory.getLogger(ModelGraph.class);
+
+    /** The model referred to by each property with a reference, either directly or through its array items, keyed by the identity of the property. */
+    private final Map<Property, Model> targets;
+
+    /** The references that did not resolve to a model of the spec. */
+    private final Set<String> danglingRefs;
+
+    /**
+     * Creates a graph.
+     *
+     * @param targets the model referred to by each property with a reference, keyed by the identity of the property.
+     * @param danglingRefs the references that did not resolve to a model of the spec.
+     */
+    private ModelGraph(@NotNull final Map<Property, Model> targets, @NotNull final Set<String> danglingRefs) {
+        this.targets = targets;
+        this.danglingRefs = Collections.unmodifiableSet(danglingRefs);
+    }
+
+    /**
+     * Resolves the references of every property of every model in a spec, logging a warning listing any that do not resolve.
+     * <p>
+     * A reference is resolved to the model of that key within the spec or, failing that, the model with that {@linkplain Model#getId() ID}.
+     *
+     * @param spec the spec.
+     * @return the graph.
+     */
+    @NotNull
+    static ModelGraph link(@NotNull final SwaggerSpec spec) {
+        final Map<String, Model> modelsById = new HashMap<>();
+        spec.getModels().values().forEach(model -> modelsById.putIfAbsent(model.getId(), model));
+        final Map<Property, Model> targets = new IdentityHashMap<>();
+        final Set<String> danglingRefs = new TreeSet<>();
+        for (final Model model : spec.getModels().values()) {
+            for (final Property property : model.getProperties().values()) {
+                final String ref = getRef(property);
+                if (ref == null || targets.containsKey(property)) {
+                    continue;
+                }
+                final Model target = spec.getModels().getOrDefault(ref, modelsById.get(ref));
+                if (target != null) {
+                    targets.put(property, target);
+                } else {
+                    danglingRefs.add(ref);
+                }
+            }
+        }
+        if (!danglingRefs.isEmpty()) {
+            logger.warn("Unresolved references in spec for {}: {}.", spec.getApiVersion(), danglingRefs);
+        }
+        return new ModelGraph(targets, danglingRefs);
+    }
+
+    /**
+     * Gets the reference of a property: its own, or that of its array items.
+     *
+     * @param property the property.
+     * @return the model ID referred to, or {@code null} if the property has no reference.
+     */
+    @Nullable
+    private static String getRef(@NotNull final Property property) {
+        if (property.getRef() != null) {
+            return property.getRef();
+        } else if (property.getType() == FieldType.ARRAY && property.getItems() != null) {
+            return property.getItems().getRef();
+        }
+        return null;
+    }
+
+    /**
+     * Gets the references that did not resolve to a model of the spec.
+     *
+     * @return the model IDs referred to, in alphabetical order.
+     */
+    @NotNull
+    Set<String> getDanglingRefs() {
+        return danglingRefs;
+    }
+
+    /**
+     * Gets the model that a property refers to, either directly or, for an array, through its items.
+     *
+     * @param property the property, which must be one of the properties of a model of the spec.
+     * @return the model, or {@code null} if the property has no reference or its reference did not resolve.
+     */
+    @Nullable
+    Model getTarget(@NotNull final Property property) {
+        return targets.get(property);
+    }
+}
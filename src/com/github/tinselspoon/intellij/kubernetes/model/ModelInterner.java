@@ -0,0 +1,92 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Hash-consing table that canonicalises structurally identical {@link Model}, {@link Property} and {@link ArrayItems} instances, and property names.
+ * <p>
+ * Many models, such as {@code v1.ObjectMeta}, are identical between versions of a package. Interning the specs of each version as it is loaded means that such models are held once however many
+ * versions are cached, so the cost of each further version is roughly the size of its differences. Canonical instances are only weakly referenced by the table, so they are released once no loaded
+ * spec uses them any more.
+ * <p>
+ * Interned instances are shared between specs and must not be modified once interned.
+ */
+final class ModelInterner {
+
+    /** Map of each canonical instance to a weak reference to itself. */
+    private final Map<Object, WeakReference<Object>> canonicalInstances = new WeakHashMap<>();
+
+    /**
+     * Gets the canonical instance equal to the given value, making the value canonical if there is none yet.
+     *
+     * @param value the value to intern.
+     * @param <T> the type of the value.
+     * @return the canonical instance.
+     */
+    @NotNull
+    @SuppressWarnings("unchecked")
+    private synchronized <T> T intern(@NotNull final T value) {
+        final WeakReference<Object> reference = canonicalInstances.get(value);
+        final Object canonical = reference == null ? null : reference.get();
+        if (canonical != null) {
+            return (T) canonical;
+        }
+        canonicalInstances.put(value, new WeakReference<>(value));
+        return value;
+    }
+
+    /**
+     * Replaces every model in the given spec, and the properties and array items within them, with their canonical instances.
+     *
+     * @param spec the spec to intern, which is modified in place.
+     * @return the same spec.
+     */
+    @NotNull
+    SwaggerSpec internSpec(@NotNull final SwaggerSpec spec) {
+        spec.getModels().replaceAll((key, model) -> internModel(model));
+        return spec;
+    }
+
+    /**
+     * Replaces every model in the given specs, and the properties and array items within them, with their canonical instances.
+     *
+     * @param specs the specs to intern, which are modified in place.
+     * @return the same list of specs.
+     */
+    @NotNull
+    List<SwaggerSpec> internSpecs(@NotNull final List<SwaggerSpec> specs) {
+        specs.forEach(this::internSpec);
+        return specs;
+    }
+
+    /**
+     * Gets the canonical instance of a model, first {@linkplain Model#freeze freezing} it with its property names and properties interned.
+     *
+     * @param model the model to intern.
+     * @return the canonical model.
+     */
+    @NotNull
+    private Model internModel(@NotNull final Model model) {
+        model.freeze(this::intern, this::internProperty);
+        return intern(model);
+    }
+
+    /**
+     * Gets the canonical instance of a property, interning its array items first.
+     *
+     * @param property the property to intern.
+     * @return the canonical property.
+     */
+    @NotNull
+    private Property internProperty(@NotNull final Property property) {
+        if (property.getItems() != null) {
+            property.setItems(intern(property.getItems()));
+        }
+        return intern(property);
+    }
+}
@@ -1,116 +1,690 @@
 package com.github.tinselspoon.intellij.kubernetes.model;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.github.tinselspoon.intellij.kubernetes.config.ApiPackage;
 import com.github.tinselspoon.intellij.kubernetes.config.ConfigState;
 import com.intellij.openapi.components.ServiceManager;
-import com.intellij.util.ReflectionUtil;
+import com.intellij.openapi.util.io.FileUtil;
 
 /**
  * Responsible for loading a set of Swagger definitions corresponding to the active configuration.
  */
 class ModelLoader {
 
-    /** The version of Kubernetes specs to include if no version is specified. */
-    private static final String DEFAULT_KUBERNETES_VERSION = "1.9";
+    /** Prefix of the resource name given to a local OpenAPI v2 document, which is followed by the modification time and length of the document and then its path, each separated by a colon. */
+    static final String SPEC_FILE_PREFIX = "file:";
 
-    /** The version of OpenShift specs to include if no version is specified. */
-    private static final String DEFAULT_OPENSHIFT_VERSION = "3.6";
+    /** Prefix of the resource name given to the specs served by a cluster, which is followed by the name of the kubeconfig context of the cluster. */
+    static final String CLUSTER_PREFIX = "cluster:";
 
-    /** Cached specs that have already been parsed from a zip file. */
-    private final Map<String, List<SwaggerSpec>> cachedSpecs = new HashMap<>();
+    /** How often the packages of the active configuration are revalidated against their source, in milliseconds. */
+    static final long REFRESH_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    /** How long a version that is no longer part of the active configuration is kept before being evicted, in milliseconds. */
+    static final long EVICTION_GRACE_PERIOD_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /** Approximate size in bytes of a model, excluding its properties: the object itself plus its frozen property map and required property list. */
+    private static final int MODEL_SIZE_ESTIMATE = 104;
+
+    /** Approximate size in bytes of a property: the object itself, its slots within a model's frozen property map and any array items. */
+    private static final int PROPERTY_SIZE_ESTIMATE = 60;
+
+    /** Approximate size in bytes of a spec, excluding its models. */
+    private static final int SPEC_SIZE_ESTIMATE = 96;
+
+    /** The logger. */
+    private static final Logger logger = LoggerFactory.getLogger(ModelLoader.class);
+
+    /** Pool used to parse the entries of spec archives in parallel. It is bounded so that loading specs leaves a core free for the rest of the IDE. */
+    private static final ForkJoinPool PARSE_POOL = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+    /**
+     * Packages that have been opened, or are being opened, from a snapshot or zip file, keyed by resource name. Packages are opened in the background as well as on demand from several threads, so
+     * each opening is represented by a future that concurrent callers wait on, ensuring a resource is only ever opened once at a time. An opening that fails is removed so that it can be retried.
+     */
+    private final Map<String, CompletableFuture<SpecPackage>> cachedPackages = new ConcurrentHashMap<>();
+
+    /** The time at which each cached resource stopped being part of the active configuration, used to decide when it may be evicted. */
+    private final Map<String, Long> lastActiveTimes = new ConcurrentHashMap<>();
+
+    /** Lock held while publishing or discarding the {@linkplain #activeSnapshot active snapshot}, so that a snapshot built for an outdated configuration is never published. */
+    private final Object snapshotLock = new Object();
+
+    /** The snapshot of the active configuration, or {@code null} if it has not been built since the configuration last changed. */
+    private volatile SchemaSnapshot activeSnapshot;
+
+    /** The number of times packages of the active configuration have been {@linkplain #refreshActivePackages() refreshed}, so that a snapshot built from a replaced package is never published; only changed while holding the {@link #snapshotLock}. */
+    private volatile int refreshCount;
+
+    /** Snapshots of the Kubernetes versions chosen for particular directories in place of the configured one, keyed by resource names; guarded by the {@link #snapshotLock}. */
+    private final Map<List<String>, SharedSnapshot> sharedSnapshots = new HashMap<>();
+
+    /** Table used to share identical models between the specs of different versions. */
+    private final ModelInterner modelInterner = new ModelInterner();
 
     /** The current configuration. */
-    private final ConfigState configState = ServiceManager.getService(ConfigState.class);
+    private final ConfigState configState;
+
+    /** Function that opens the package for a resource name, without caching, given the table with which to share models. */
+    private final BiFunction<String, ModelInterner, SpecPackage> packageSource;
+
+    /** Predicate that determines whether the package opened for a resource name is out of date with its source. */
+    private final Predicate<String> stalePackages;
+
+    /** Creates a loader for the bundled specs, as directed by the application configuration. */
+    ModelLoader() {
+        this(ServiceManager.getService(ConfigState.class), ModelLoader::openPackage, ModelLoader::isPackageStale);
+    }
 
     /**
-     * Gets a list of all active specifications, as directed by the active configuration.
+     * Creates a loader whose packages never go out of date.
      *
-     * @return the active specs.
+     * @param configState the configuration determining which specs are active.
+     * @param packageSource function that opens the package for a resource name, given the table with which to share models.
      */
-    @NotNull
-    List<SwaggerSpec> getActiveSpecs() {
-        final Class<?> callerClass = ReflectionUtil.getGrandCallerClass();
-        assert callerClass != null;
-        final ClassLoader classLoader = callerClass.getClassLoader();
-        final List<SwaggerSpec> activeSpecs = new ArrayList<>();
-        activeSpecs.addAll(getSpecsFromApiPackage(classLoader, configState.getKubernetesPackage(), "kubernetes", DEFAULT_KUBERNETES_VERSION));
-        activeSpecs.addAll(getSpecsFromApiPackage(classLoader, configState.getOpenshiftPackage(), "openshift", DEFAULT_OPENSHIFT_VERSION));
-        return activeSpecs;
+    ModelLoader(@NotNull final ConfigState configState, @NotNull final BiFunction<String, ModelInterner, SpecPackage> packageSource) {
+        this(configState, packageSource, resourceName -> false);
+    }
+
+    /**
+     * Creates a loader.
+     *
+     * @param configState the configuration determining which specs are active.
+     * @param packageSource function that opens the package for a resource name, given the table with which to share models.
+     * @param stalePackages predicate that determines whether the package opened for a resource name is out of date with its source.
+     */
+    ModelLoader(@NotNull final ConfigState configState, @NotNull final BiFunction<String, ModelInterner, SpecPackage> packageSource, @NotNull final Predicate<String> stalePackages) {
+        this.configState = configState;
+        this.packageSource = packageSource;
+        this.stalePackages = stalePackages;
     }
 
     /**
-     * Gets specs that are part of the specified {@link ApiPackage}.
+     * Gets the name of the resources holding the specs for an {@link ApiPackage}, as listed by the {@link SpecCatalog}.
      *
-     * @param classLoader the class loader to use when loading resources.
      * @param apiPackage the package to load.
-     * @param prefix the prefix to use for the zip file.
-     * @param defaultVersion the version to use if the {@code apiPackage} does not specify one.
-     * @return a list of specs loaded using the package, may be empty if the package is not enabled or version did not exist.
+     * @param packageName the name of the package within the catalog.
+     * @return the path to the spec resources excluding the file extension, or {@code null} if the package is not enabled or not bundled.
      */
-    @NotNull
-    private List<SwaggerSpec> getSpecsFromApiPackage(final ClassLoader classLoader, final ApiPackage apiPackage, final String prefix, final String defaultVersion) {
+    @Nullable
+    private static String getResourceName(final ApiPackage apiPackage, final String packageName) {
         if (apiPackage.getEnabled()) {
-            final String version = Optional.ofNullable(apiPackage.getVersion()).orElse(defaultVersion);
-            final String pattern = "com/github/tinselspoon/intellij/kubernetes/%s-%s.zip";
-            return loadSpecFromZipWithCache(String.format(pattern, prefix, version), classLoader);
+            final SpecCatalog catalog = SpecCatalog.getInstance();
+            SpecCatalog.Entry entry = catalog.find(packageName, apiPackage.getVersion());
+            if (entry == null) {
+                // A version chosen with an earlier release of the plugin may no longer be bundled
+                logger.warn("Version {} of {} is not bundled; using the default version instead.", apiPackage.getVersion(), packageName);
+                entry = catalog.find(packageName, null);
+            }
+            return entry != null ? entry.getResourceName() : null;
         }
-        return Collections.emptyList();
+        return null;
     }
 
     /**
-     * Load specs from a zip file, using a cached value if possible.
+     * Gets the local OpenAPI v2 document named by a resource name.
      *
-     * @param resourceName the path to the zip file resource.
-     * @param classLoader the class loader to use when loading resources.
-     * @return a list of specs, may be empty if the version did not exist.
+     * @param resourceName the resource name, as given by {@link #getSpecFileResourceName(File)}.
+     * @return the document.
      */
     @NotNull
-    private List<SwaggerSpec> loadSpecFromZipWithCache(final String resourceName, final ClassLoader classLoader) {
-        return cachedSpecs.computeIfAbsent(resourceName, k -> loadSpecsFromZip(k, classLoader));
+    private static File getSpecFile(@NotNull final String resourceName) {
+        final int lengthStart = resourceName.indexOf(':', SPEC_FILE_PREFIX.length()) + 1;
+        return new File(resourceName.substring(resourceName.indexOf(':', lengthStart) + 1));
     }
 
     /**
-     * Load specs from a zip file.
+     * Gets the resource name of a local OpenAPI v2 document as it is now. The name includes the modification time and length of the document, so that once the document is changed the active
+     * resource names change too, and the next {@linkplain #configurationChanged() configuration change} reads it again rather than keeping the package opened from its earlier content.
      *
-     * @param resourceName the path to the zip file resource.
-     * @param classLoader the class loader to use when loading resources.
-     * @return a list of specs, may be empty if the version did not exist.
+     * @param file the document.
+     * @return the resource name.
      */
     @NotNull
-    private List<SwaggerSpec> loadSpecsFromZip(final String resourceName, final ClassLoader classLoader) {
-        final InputStream resource = classLoader.getResourceAsStream(resourceName);
-        if (resource == null) {
-            return Collections.emptyList();
+    static String getSpecFileResourceName(@NotNull final File file) {
+        return SPEC_FILE_PREFIX + file.lastModified() + ':' + file.length() + ':' + file.getPath();
+    }
+
+    /**
+     * Estimates the heap retained by a list of specs.
+     * <p>
+     * The estimate counts the models and properties of the specs, not the strings they refer to, which are mostly interned. As models are shared between versions, the estimate is of the size
+     * the specs would have if no other version were loaded.
+     *
+     * @param specs the specs.
+     * @return the approximate size in bytes.
+     */
+    static long estimateSize(@NotNull final List<SwaggerSpec> specs) {
+        final Set<Model> models = Collections.newSetFromMap(new IdentityHashMap<>());
+        long size = 0;
+        for (final SwaggerSpec spec : specs) {
+            size += SPEC_SIZE_ESTIMATE;
+            for (final Model model : spec.getModels().values()) {
+                if (models.add(model)) {
+                    size += MODEL_SIZE_ESTIMATE + (long) PROPERTY_SIZE_ESTIMATE * model.getProperties().size();
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Determines whether the package opened for a resource name is out of date with its source. Only the specs served by a cluster can change under the same name: bundled specs never change, and
+     * the name of a local document is stamped with its modification time. A cluster is asked conditionally, so this is cheap unless its specs have changed, but it blocks for as long as the
+     * cluster takes to respond.
+     *
+     * @param resourceName the path to the spec resources, excluding the file extension.
+     * @return {@code true} if the package should be opened again.
+     */
+    static boolean isPackageStale(@NotNull final String resourceName) {
+        if (!resourceName.startsWith(CLUSTER_PREFIX)) {
+            return false;
+        }
+        final String context = resourceName.substring(CLUSTER_PREFIX.length());
+        try {
+            return ClusterSchemaSource.getInstance().hasChanged(ClusterEndpoint.forContext(context));
+        } catch (final IOException e) {
+            logger.warn("Unable to read kubeconfig context {}.", context, e);
+            return false;
         }
-        try (ZipInputStream resourceStream = new ZipInputStream(resource)) {
-            final List<SwaggerSpec> specs = new ArrayList<>();
+    }
+
+    /**
+     * Load specs from a zip file, parsing its entries in parallel.
+     *
+     * @param zipStream the stream containing the zip file; it is closed once read.
+     * @return a list of specs, in the order of their entries within the zip file.
+     */
+    @NotNull
+    static List<SwaggerSpec> loadSpecsFromZip(@NotNull final InputStream zipStream) {
+        return loadSpecsFromZip(zipStream, PARSE_POOL);
+    }
+
+    /**
+     * Load specs from a zip file. The entries are inflated one after another, as a zip stream can only be read sequentially, and then parsed in parallel on the given pool.
+     *
+     * @param zipStream the stream containing the zip file; it is closed once read.
+     * @param pool the pool on which to parse the entries.
+     * @return a list of specs, in the order of their entries within the zip file.
+     */
+    @NotNull
+    static List<SwaggerSpec> loadSpecsFromZip(@NotNull final InputStream zipStream, @NotNull final ForkJoinPool pool) {
+        final List<byte[]> entries = new ArrayList<>();
+        try (ZipInputStream resourceStream = new ZipInputStream(zipStream)) {
             ZipEntry entry;
             while ((entry = resourceStream.getNextEntry()) != null) {
                 if (entry.getName().endsWith("json")) {
-                    final SwaggerSpec parsedSpec = SwaggerSpec.loadFrom(new InputStreamReader(resourceStream, StandardCharsets.UTF_8));
-                    if (parsedSpec != null) {
-                        specs.add(parsedSpec);
-                    }
+                    entries.add(FileUtil.loadBytes(resourceStream));
                 }
             }
-            return specs;
         } catch (final IOException e) {
             throw new RuntimeException("Error reading Swagger resource.", e);
         }
+        final SwaggerSpecReader specReader = new SwaggerSpecReader();
+        return pool.submit(() -> entries.parallelStream().map(bytes -> parseSpec(specReader, bytes)).filter(Objects::nonNull).collect(Collectors.toList())).join();
+    }
+
+    /**
+     * Open the package for a particular version from a bundled snapshot or zip file. A precompiled snapshot of the specs is used if one was bundled; otherwise the specs are read from the zip file of
+     * Swagger JSON.
+     *
+     * @param resourceName the path to the spec resources, excluding the file extension.
+     * @param modelInterner table used to share models that are identical to those of a version already loaded.
+     * @return the package, which is empty if the version did not exist.
+     */
+    @NotNull
+    static SpecPackage openPackage(@NotNull final String resourceName, @NotNull final ModelInterner modelInterner) {
+        if (resourceName.startsWith(SPEC_FILE_PREFIX)) {
+            return openSpecFile(getSpecFile(resourceName), SchemaCache.getInstance(), modelInterner);
+        }
+        if (resourceName.startsWith(CLUSTER_PREFIX)) {
+            final SpecPackage clusterPackage = openClusterPackage(resourceName.substring(CLUSTER_PREFIX.length()), modelInterner);
+            // Fall back to the bundled specs so that a cluster that has never been reached still gets completion for the built-in resources
+            if (clusterPackage != null) {
+                return clusterPackage;
+            }
+            final String defaultResourceName = getResourceName(new ApiPackage(true, null), SpecCatalog.KUBERNETES);
+            return defaultResourceName != null ? openPackage(defaultResourceName, modelInterner) : SpecPackage.EMPTY;
+        }
+        final ClassLoader classLoader = ModelLoader.class.getClassLoader();
+        final InputStream snapshot = classLoader.getResourceAsStream(resourceName + SpecSnapshotReader.SNAPSHOT_EXTENSION);
+        if (snapshot != null) {
+            try (InputStream snapshotStream = snapshot) {
+                return new SnapshotSpecPackage(SpecSnapshotReader.open(snapshotStream), modelInterner);
+            } catch (final IOException e) {
+                throw new RuntimeException("Error reading spec snapshot.", e);
+            }
+        }
+        final InputStream resource = classLoader.getResourceAsStream(resourceName + ".zip");
+        if (resource == null) {
+            return SpecPackage.EMPTY;
+        }
+        try {
+            return ZipSpecPackage.open(resource, PARSE_POOL, modelInterner);
+        } catch (final IOException e) {
+            throw new RuntimeException("Error reading Swagger resource.", e);
+        }
+    }
+
+    /**
+     * Open the package for the specs served by the cluster of a kubeconfig context, downloading them if they have changed since they were last downloaded.
+     *
+     * @param context the name of the kubeconfig context.
+     * @param modelInterner table used to share models that are identical to those of a version already loaded.
+     * @return the package, or {@code null} if the context could not be resolved, or the cluster could not be reached and its specs have not been downloaded before.
+     */
+    @Nullable
+    private static SpecPackage openClusterPackage(@NotNull final String context, @NotNull final ModelInterner modelInterner) {
+        final ClusterEndpoint endpoint;
+        try {
+            endpoint = ClusterEndpoint.forContext(context);
+        } catch (final IOException e) {
+            logger.warn("Unable to read kubeconfig context {}.", context, e);
+            return null;
+        }
+        return ClusterSchemaSource.getInstance().open(endpoint, modelInterner);
+    }
+
+    /**
+     * Open the package for a local OpenAPI v2 document, reading it from the schema cache if the same document has been read before.
+     *
+     * @param file the document.
+     * @param schemaCache the cache of parsed schemas.
+     * @param modelInterner table used to share models that are identical to those of a version already loaded.
+     * @return the package, which is empty if the document could not be read.
+     */
+    @NotNull
+    static SpecPackage openSpecFile(@NotNull final File file, @NotNull final SchemaCache schemaCache, @NotNull final ModelInterner modelInterner) {
+        try {
+            final byte[] content = Files.readAllBytes(file.toPath());
+            return schemaCache.open(OpenApiSpecReader.CACHE_KIND, content, OpenApiSpecReader::read, modelInterner);
+        } catch (final IOException | IllegalStateException e) {
+            // A missing or malformed document is the user's to fix, so fall back to no specs rather than failing every lookup
+            logger.warn("Unable to read OpenAPI spec {}.", file, e);
+            return SpecPackage.EMPTY;
+        }
+    }
+
+    /**
+     * Parses a single spec from the content of a zip entry.
+     *
+     * @param specReader the reader to use.
+     * @param bytes the content of the entry.
+     * @return the spec, or {@code null} if the entry was empty.
+     */
+    @Nullable
+    private static SwaggerSpec parseSpec(@NotNull final SwaggerSpecReader specReader, @NotNull final byte[] bytes) {
+        try {
+            return specReader.read(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8));
+        } catch (final IOException e) {
+            throw new RuntimeException("Error reading Swagger resource.", e);
+        }
+    }
+
+    /**
+     * Acquires a reference to the snapshot of a Kubernetes version chosen in place of the configured one, together with the configured OpenShift version. Every caller choosing the same version
+     * shares the same snapshot, which is only built on the first call to {@link #loadSnapshot(SharedSnapshot)}. Once every reference has been {@linkplain #releaseSnapshot(SharedSnapshot) released},
+     * the versions of the snapshot begin their grace period before eviction, unless they are otherwise in use.
+     * <p>
+     * This never blocks, as it does not open any packages.
+     *
+     * @param kubernetesVersion the bundled Kubernetes version; the default version is used if it is not bundled.
+     * @return the shared snapshot, which must be released once no longer needed.
+     */
+    @NotNull
+    SharedSnapshot acquireSnapshot(@NotNull final String kubernetesVersion) {
+        final List<String> resourceNames = new ArrayList<>(2);
+        Optional.ofNullable(getResourceName(new ApiPackage(true, kubernetesVersion), SpecCatalog.KUBERNETES)).ifPresent(resourceNames::add);
+        Optional.ofNullable(getResourceName(configState.getOpenshiftPackage(), SpecCatalog.OPENSHIFT)).ifPresent(resourceNames::add);
+        synchronized (snapshotLock) {
+            final SharedSnapshot sharedSnapshot = sharedSnapshots.computeIfAbsent(resourceNames, SharedSnapshot::new);
+            sharedSnapshot.referenceCount++;
+            return sharedSnapshot;
+        }
+    }
+
+    /**
+     * Gets the names of the spec resources for each package enabled in the active configuration. A local OpenAPI v2 document or, failing that, a cluster, if configured, takes the place of the
+     * bundled Kubernetes specs.
+     *
+     * @return the resource names, excluding the file extension; the name of a local document is {@linkplain #getSpecFileResourceName(File) stamped} with its modification time and length, and that of a cluster is its kubeconfig context
+     * prefixed by {@link #CLUSTER_PREFIX}.
+     */
+    @NotNull
+    private List<String> getActiveResourceNames() {
+        final List<String> resourceNames = new ArrayList<>(2);
+        final String kubernetesSpecFile = configState.getKubernetesSpecFile();
+        final String kubernetesClusterContext = configState.getKubernetesClusterContext();
+        if (configState.getKubernetesPackage().getEnabled() && kubernetesSpecFile != null && !kubernetesSpecFile.isEmpty()) {
+            resourceNames.add(getSpecFileResourceName(new File(kubernetesSpecFile)));
+        } else if (configState.getKubernetesPackage().getEnabled() && kubernetesClusterContext != null && !kubernetesClusterContext.isEmpty()) {
+            resourceNames.add(CLUSTER_PREFIX + kubernetesClusterContext);
+        } else {
+            Optional.ofNullable(getResourceName(configState.getKubernetesPackage(), SpecCatalog.KUBERNETES)).ifPresent(resourceNames::add);
+        }
+        Optional.ofNullable(getResourceName(configState.getOpenshiftPackage(), SpecCatalog.OPENSHIFT)).ifPresent(resourceNames::add);
+        return resourceNames;
+    }
+
+    /**
+     * Removes a version from the cache.
+     *
+     * @param resourceName the path to the spec resources of the version, excluding the file extension.
+     */
+    private void evict(@NotNull final String resourceName) {
+        final CompletableFuture<SpecPackage> load = cachedPackages.remove(resourceName);
+        lastActiveTimes.remove(resourceName);
+        if (load != null && load.isDone() && !load.isCompletedExceptionally()) {
+            logger.info("Evicted specs {} (approximately {} KiB).", resourceName, estimateSize(load.join().getLoadedSpecs()) / 1024);
+        }
+    }
+
+    /**
+     * Evicts the versions that have not been part of the active configuration or a shared snapshot for at least the {@linkplain #EVICTION_GRACE_PERIOD_MILLIS grace period}.
+     *
+     * @param now the current time, in milliseconds since the epoch.
+     */
+    void evictUnusedSpecs(final long now) {
+        final Set<String> resourceNamesInUse = getResourceNamesInUse();
+        for (final String resourceName : cachedPackages.keySet()) {
+            if (!resourceNamesInUse.contains(resourceName) && now - lastActiveTimes.getOrDefault(resourceName, 0L) >= EVICTION_GRACE_PERIOD_MILLIS) {
+                evict(resourceName);
+            }
+        }
+    }
+
+    /**
+     * Gets the versions that are currently cached, along with the approximate heap each retains.
+     *
+     * @return a map of resource names to the approximate size in bytes of the specs loaded so far, for each version that has been opened.
+     */
+    @NotNull
+    Map<String, Long> getCachedSpecSizes() {
+        final Map<String, Long> sizes = new TreeMap<>();
+        cachedPackages.forEach((resourceName, load) -> {
+            if (load.isDone() && !load.isCompletedExceptionally()) {
+                sizes.put(resourceName, estimateSize(load.join().getLoadedSpecs()));
+            }
+        });
+        return sizes;
+    }
+
+    /**
+     * Gets the snapshot of the active configuration, building it if it has not been built since the configuration last changed. Building the snapshot opens its packages if they have not been
+     * already, so this may block for some time; however, opening a package only reads its index, not its specs.
+     *
+     * @return the snapshot.
+     */
+    @NotNull
+    SchemaSnapshot getActiveSnapshot() {
+        final SchemaSnapshot snapshot = activeSnapshot;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        while (true) {
+            final int startRefreshCount = refreshCount;
+            final List<String> resourceNames = getActiveResourceNames();
+            final SchemaSnapshot newSnapshot = new SchemaSnapshot(resourceNames, getPackages(resourceNames));
+            synchronized (snapshotLock) {
+                if (activeSnapshot != null) {
+                    return activeSnapshot;
+                }
+                // Only publish if neither the configuration nor its packages changed while the packages were being opened; otherwise build again
+                if (resourceNames.equals(getActiveResourceNames()) && startRefreshCount == refreshCount) {
+                    activeSnapshot = newSnapshot;
+                    return newSnapshot;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the snapshot of the active configuration, only if it has been built already. This never blocks, and costs a single volatile read.
+     *
+     * @return the snapshot, or {@code null} if it has not been built since the configuration last changed.
+     */
+    @Nullable
+    SchemaSnapshot getLoadedActiveSnapshot() {
+        return activeSnapshot;
+    }
+
+    /**
+     * Notifies the loader that the configuration, or the local document it names, has changed. If the change affects which packages are active, the active snapshot is discarded so that it is
+     * rebuilt on next use, and the versions that are no longer active begin their grace period before eviction.
+     */
+    void configurationChanged() {
+        synchronized (snapshotLock) {
+            final SchemaSnapshot snapshot = activeSnapshot;
+            if (snapshot == null) {
+                return;
+            }
+            final List<String> resourceNames = getActiveResourceNames();
+            if (!snapshot.getResourceNames().equals(resourceNames)) {
+                activeSnapshot = null;
+                logger.info("Discarded snapshot of {} with a path cache hit rate of {}%.", snapshot.getResourceNames(), Math.round(snapshot.getPathCache().getHitRate() * 100));
+                final long now = System.currentTimeMillis();
+                for (final String resourceName : snapshot.getResourceNames()) {
+                    if (!resourceNames.contains(resourceName)) {
+                        lastActiveTimes.put(resourceName, now);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the names of the spec resources that are part of the active configuration or of a shared snapshot that is still referenced.
+     *
+     * @return the resource names.
+     */
+    @NotNull
+    private Set<String> getResourceNamesInUse() {
+        final Set<String> resourceNames = new HashSet<>(getActiveResourceNames());
+        synchronized (snapshotLock) {
+            sharedSnapshots.keySet().forEach(resourceNames::addAll);
+        }
+        return resourceNames;
+    }
+
+    /**
+     * Gets a shared snapshot, building it if it has not been built already. Building the snapshot opens its packages if they have not been already, so this may block for some time.
+     *
+     * @param sharedSnapshot the shared snapshot, as {@linkplain #acquireSnapshot(String) acquired}.
+     * @return the snapshot.
+     */
+    @NotNull
+    SchemaSnapshot loadSnapshot(@NotNull final SharedSnapshot sharedSnapshot) {
+        final SchemaSnapshot snapshot = sharedSnapshot.snapshot;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        final SchemaSnapshot newSnapshot = new SchemaSnapshot(sharedSnapshot.resourceNames, getPackages(sharedSnapshot.resourceNames));
+        synchronized (sharedSnapshot) {
+            if (sharedSnapshot.snapshot == null) {
+                sharedSnapshot.snapshot = newSnapshot;
+            }
+            return sharedSnapshot.snapshot;
+        }
+    }
+
+    /**
+     * Gets the packages for the given resources, opening them if they have not been already.
+     *
+     * @param resourceNames the paths to the spec resources, excluding the file extension.
+     * @return the packages, in the same order.
+     */
+    @NotNull
+    private List<SpecPackage> getPackages(@NotNull final List<String> resourceNames) {
+        final List<SpecPackage> packages = new ArrayList<>(resourceNames.size());
+        for (final String resourceName : resourceNames) {
+            packages.add(openPackageWithCache(resourceName));
+        }
+        return packages;
+    }
+
+    /**
+     * Revalidates the packages of the active snapshot against their sources. Each package that is out of date is removed from the cache and the active snapshot is discarded, so that it is rebuilt
+     * from the current specs on next use. This may block while sources are consulted, so must not be called on the event dispatch thread.
+     *
+     * @return {@code true} if any package was out of date.
+     */
+    boolean refreshActivePackages() {
+        final SchemaSnapshot snapshot = activeSnapshot;
+        if (snapshot == null) {
+            return false;
+        }
+        final List<String> staleResourceNames = snapshot.getResourceNames().stream().filter(stalePackages).collect(Collectors.toList());
+        if (staleResourceNames.isEmpty()) {
+            return false;
+        }
+        synchronized (snapshotLock) {
+            staleResourceNames.forEach(cachedPackages::remove);
+            refreshCount++;
+            if (activeSnapshot == snapshot) {
+                activeSnapshot = null;
+            }
+        }
+        logger.info("Discarded specs {} as their source has changed.", staleResourceNames);
+        return true;
+    }
+
+    /**
+     * Evicts every version that is not part of the active configuration or a shared snapshot, regardless of when it was last used. This is intended to be called when memory is low.
+     */
+    void releaseInactiveSpecs() {
+        final Set<String> resourceNamesInUse = getResourceNamesInUse();
+        for (final String resourceName : cachedPackages.keySet()) {
+            if (!resourceNamesInUse.contains(resourceName)) {
+                evict(resourceName);
+            }
+        }
+    }
+
+    /**
+     * Releases a reference to a shared snapshot. Once its last reference is released, the snapshot is discarded, and those of its versions that are not otherwise in use begin their grace period
+     * before eviction.
+     *
+     * @param sharedSnapshot the shared snapshot, as {@linkplain #acquireSnapshot(String) acquired}.
+     */
+    void releaseSnapshot(@NotNull final SharedSnapshot sharedSnapshot) {
+        synchronized (snapshotLock) {
+            if (--sharedSnapshot.referenceCount > 0) {
+                return;
+            }
+            sharedSnapshots.remove(sharedSnapshot.resourceNames, sharedSnapshot);
+        }
+        final Set<String> resourceNamesInUse = getResourceNamesInUse();
+        final long now = System.currentTimeMillis();
+        for (final String resourceName : sharedSnapshot.resourceNames) {
+            if (!resourceNamesInUse.contains(resourceName)) {
+                lastActiveTimes.put(resourceName, now);
+            }
+        }
+    }
+
+    /**
+     * Open the package for a particular version, using a cached value if possible. If another thread is already opening the same version, this waits for it to finish rather than opening it again.
+     *
+     * @param resourceName the path to the spec resources, excluding the file extension.
+     * @return the package, which is empty if the version did not exist.
+     */
+    @NotNull
+    private SpecPackage openPackageWithCache(final String resourceName) {
+        final CompletableFuture<SpecPackage> newLoad = new CompletableFuture<>();
+        final CompletableFuture<SpecPackage> existingLoad = cachedPackages.putIfAbsent(resourceName, newLoad);
+        if (existingLoad != null) {
+            try {
+                return existingLoad.join();
+            } catch (final CompletionException e) {
+                throw new RuntimeException("Error loading specs for " + resourceName + ".", e.getCause());
+            }
+        }
+        try {
+            final SpecPackage specPackage = packageSource.apply(resourceName, modelInterner);
+            newLoad.complete(specPackage);
+            return specPackage;
+        } catch (final RuntimeException | Error e) {
+            // Do not keep the failure, so that a later request can try again
+            cachedPackages.remove(resourceName, newLoad);
+            newLoad.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * A snapshot of a Kubernetes version chosen in place of the configured one, shared between everything that chose the same version and counting the references held to it.
+     */
+    static final class SharedSnapshot {
+
+        /** The names of the spec resources of the snapshot. */
+        private final List<String> resourceNames;
+
+        /** The number of references held; guarded by the snapshot lock of the loader. */
+        private int referenceCount;
+
+        /** The snapshot, or {@code null} if it has not been built yet. */
+        private volatile SchemaSnapshot snapshot;
+
+        /**
+         * Creates a shared snapshot with no references.
+         *
+         * @param resourceNames the names of the spec resources of the snapshot.
+         */
+        private SharedSnapshot(@NotNull final List<String> resourceNames) {
+            this.resourceNames = Collections.unmodifiableList(resourceNames);
+        }
+
+        /**
+         * Gets the snapshot, only if it has been built already. This never blocks.
+         *
+         * @return the snapshot, or {@code null} if it has not been built yet.
+         */
+        @Nullable
+        SchemaSnapshot getLoadedSnapshot() {
+            return snapshot;
+        }
+
+        /**
+         * Gets the names of the spec resources of the snapshot.
+         *
+         * @return the resource names, excluding the file extension.
+         */
+        @NotNull
+        List<String> getResourceNames() {
+            return resourceNames;
+        }
     }
 }
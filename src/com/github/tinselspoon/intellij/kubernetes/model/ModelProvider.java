@@ -1,18 +1,42 @@
 package com.github.tinselspoon.intellij.kubernetes.model;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.github.tinselspoon.intellij.kubernetes.ResourceTypeKey;
+import com.github.tinselspoon.intellij.kubernetes.config.ConfigState;
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
+import com.intellij.concurrency.JobScheduler;
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectManager;
+import com.intellij.openapi.util.LowMemoryWatcher;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
 
 /**
  * Provides information on the schema of Kubernetes resources.
@@ -22,231 +46,393 @@ public class ModelProvider {
     /** Singleton instance. */
     public static final ModelProvider INSTANCE = new ModelProvider();
 
+    /** Logger. */
+    private static final Logger logger = LoggerFactory.getLogger(ModelProvider.class);
+
     private final ModelLoader modelLoader = new ModelLoader();
 
-    /** The specs currently loaded. */
-    private List<SwaggerSpec> specs;
+    /** Releases the specs of inactive versions when the IDE is low on memory; held so that it remains registered. */
+    private final LowMemoryWatcher lowMemoryWatcher = LowMemoryWatcher.register(modelLoader::releaseInactiveSpecs);
+
+    /** Whether a background revalidation of the packages of the active snapshot is currently scheduled or running. */
+    private final AtomicBoolean backgroundRefreshScheduled = new AtomicBoolean();
+
+    /** Whether a background build of the active snapshot is currently scheduled or running. */
+    private final AtomicBoolean backgroundLoadScheduled = new AtomicBoolean();
+
+    /** The shared snapshots whose background build is currently scheduled or running. */
+    private final Set<ModelLoader.SharedSnapshot> backgroundSharedLoads = ConcurrentHashMap.newKeySet();
+
+    /** The failure of the last build of the active snapshot, kept until the configuration changes so that lookups do not keep starting builds that are bound to fail again. */
+    private final AtomicReference<RuntimeException> activeLoadFailure = new AtomicReference<>();
+
+    /** The shared snapshots whose build has failed, which are not built again until the configuration changes. */
+    private final Set<ModelLoader.SharedSnapshot> failedSharedLoads = ConcurrentHashMap.newKeySet();
+
+    /** The request to watch the configured local document for changes made outside the IDE, or {@code null} if none is configured; guarded by the monitor of this provider. */
+    private LocalFileSystem.WatchRequest specFileWatchRequest;
 
     /** Singleton private constructor. */
     private ModelProvider() {
+        final Application application = ApplicationManager.getApplication();
+        if (application != null) {
+            // The configuration names a local document by path, so its content is only read again if the change is noticed here
+            application.getMessageBus().connect().subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+                @Override
+                public void after(@NotNull final List<? extends VFileEvent> events) {
+                    final String specFilePath = getSpecFilePath();
+                    if (specFilePath != null && events.stream().anyMatch(event -> FileUtil.pathsEqual(event.getPath(), specFilePath))) {
+                        configurationChanged();
+                    }
+                }
+
+                @Override
+                public void before(@NotNull final List<? extends VFileEvent> events) {
+                    // Nothing to do until the change has been applied
+                }
+            });
+            watchSpecFile();
+            // The specs served by a cluster change as custom resources and aggregated APIs are installed, without the configuration changing
+            JobScheduler.getScheduler().scheduleWithFixedDelay(this::refreshInBackground, ModelLoader.REFRESH_INTERVAL_MILLIS, ModelLoader.REFRESH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Gets the path of the local document named by the configuration.
+     *
+     * @return the system-independent path of the document, or {@code null} if none is configured.
+     */
+    @Nullable
+    private static String getSpecFilePath() {
+        final String specFile = ServiceManager.getService(ConfigState.class).getKubernetesSpecFile();
+        return specFile == null || specFile.isEmpty() ? null : FileUtil.toSystemIndependentName(specFile);
+    }
+
+    /**
+     * Notifies the provider that the configuration, or the local document it names, has changed, so that subsequent lookups use the newly selected versions. Versions that are no longer selected are evicted once their grace period
+     * has passed. The specs of a configured cluster are revalidated too, so that applying the settings picks up changes made to the cluster.
+     */
+    public void configurationChanged() {
+        watchSpecFile();
+        modelLoader.configurationChanged();
+        refreshInBackground();
+        activeLoadFailure.set(null);
+        failedSharedLoads.clear();
+        // The shared snapshots of directories with their own Kubernetes version also hold the configured OpenShift version, so must be resolved again
+        for (final Project project : ProjectManager.getInstance().getOpenProjects()) {
+            if (!project.isDisposed()) {
+                KubernetesVersionResolver.getInstance(project).invalidate();
+            }
+        }
+        scheduleEviction();
+        restartHighlighting();
     }
 
     /**
      * Find the model that governs the property described by navigating from the base model of the {@link ResourceTypeKey} through the properties given in the {@code path}.
      *
+     * @param context the element for which the search is made, whose file determines the Kubernetes version and whose project's custom resource definitions are also searched; or {@code null}
+     * to search only the built-in specs of the configured version.
      * @param resourceTypeKey the resource at which to begin the search.
      * @param path a series of properties to navigate through, may be empty to return the root model of the {@code ResourceTypeKey}.
      * @return the model, or {@code null} if one cannot be found.
      */
     @Nullable
-    public Model findModel(final ResourceTypeKey resourceTypeKey, final List<String> path) {
-        final SwaggerSpec spec = getSpec(resourceTypeKey);
-        final String search = modelIdFromResourceKey(resourceTypeKey);
-        if (spec != null) {
-            Model model = spec.getModels().get(search);
-            for (final String target : path) {
-                if (model != null) {
-                    final Property property = model.getProperties().get(target);
-                    if (property != null) {
-                        if (property.getRef() != null) {
-                            // Look up the ref for the referenced object
-                            model = spec.getModels().get(property.getRef());
-                            continue;
-                        } else if (property.getType() == FieldType.ARRAY && property.getItems() != null && property.getItems().getRef() != null) {
-                            // Look up the ref for the array items
-                            model = spec.getModels().get(property.getItems().getRef());
-                            continue;
-                        }
-                    }
-                    model = null;
-                }
-            }
-            return model;
-        }
-        return null;
+    public Model findModel(@Nullable final PsiElement context, final ResourceTypeKey resourceTypeKey, final List<String> path) {
+        final ResourceSchema resource = getResource(context, resourceTypeKey);
+        return resource != null ? resource.findModel(path) : null;
     }
 
     /**
      * Find the properties that may exist as children of the property described by navigating from the base model of the {@link ResourceTypeKey} through the properties given in the {@code path}.
      *
+     * @param context the element for which the search is made, whose file determines the Kubernetes version and whose project's custom resource definitions are also searched; or {@code null}
+     * to search only the built-in specs of the configured version.
      * @param resourceTypeKey the resource at which to begin the search.
      * @param path a series of properties to navigate through, may be empty to return the properties that may be defined on the root of the {@code ResourceTypeKey}.
      * @return the map of property names to property specifications, may be empty if none can be found.
      */
     @NotNull
-    public Map<String, Property> findProperties(final ResourceTypeKey resourceTypeKey, final List<String> path) {
-        final SwaggerSpec spec = getSpec(resourceTypeKey);
-        if (spec != null) {
-            return findProperties(spec, resourceTypeKey, path);
-        }
-        return Collections.emptyMap();
+    public Map<String, Property> findProperties(@Nullable final PsiElement context, final ResourceTypeKey resourceTypeKey, final List<String> path) {
+        final ResourceSchema resource = getResource(context, resourceTypeKey);
+        return resource != null ? resource.findProperties(path) : Collections.emptyMap();
     }
 
     /**
-     * Suggest a set of values for the "apiVersion" field.
+     * Gets the versions of specs currently held in memory, for diagnostic purposes.
      *
-     * @return all possible API versions.
+     * @return a map of the resource name of each cached version to the approximate heap it retains, in bytes.
      */
     @NotNull
-    public Set<String> suggestApiVersions() {
-        return getSpecs().stream().map(SwaggerSpec::getApiVersion).filter(v -> v != null && !"".equals(v)).collect(Collectors.toSet());
+    public Map<String, Long> getCachedSpecSizes() {
+        return modelLoader.getCachedSpecSizes();
     }
 
     /**
-     * Suggest a set of values for the "kind" field.
+     * Gets the proportion of paths within resources that were resolved from the path cache of the active configuration, for diagnostic purposes.
      *
-     * @param apiVersion the API version for which kinds will be returned; if null, then kinds for all API versions will be returned.
-     * @return a set of possible kinds.
+     * @return the hit rate between 0 and 1, or 0 if the active snapshot has not been built or no paths have been resolved.
      */
-    public Set<ResourceTypeKey> suggestKinds(@Nullable final String apiVersion) {
-        final Stream<SwaggerSpec> applicableSpecs;
-        if (apiVersion == null) {
-            applicableSpecs = getSpecs().stream();
-        } else {
-            applicableSpecs = getSpecs().stream().filter(s -> apiVersion.equals(s.getApiVersion()));
-        }
-
-        // Make a map of kinds to apiVersions - this is not the final data structure we want but is helpful for when we preserve only the most recent API version for a particular kind
-        // TODO This does assume that no two API groups will declare the same kind - currently this doesn't happen but the Kubernetes API structure does allow for it
-        Map<String, String> typeKeys = new HashMap<>();
-        // Suggest any resource that appears as a return type from an API request
-        applicableSpecs.forEach(s -> {
-            final Set<String> apiTypes = new HashSet<>();
-            final Set<String> models = new HashSet<>();
-            for (final Api api : s.getApis()) {
-                for (final ApiOperation operation : api.getOperations()) {
-                    if ("POST".equals(operation.getMethod())) {
-                        apiTypes.add(operation.getType());
-                    }
-                }
-
-            }
-            for (final Model model : s.getModels().values()) {
-                models.add(model.getId());
-            }
-            // Make sure all API types have an associated model, otherwise there isn't much point in suggesting them as we can't offer anything useful
-            apiTypes.retainAll(models);
-            for (final String apiType : apiTypes) {
-                String kind = stripModelIdPrefix(apiType);
-                // Only keep the "highest" API version for a kind to ensure we are using the latest version available
-                typeKeys.merge(kind, s.getApiVersion(), (a, b) -> ApiVersionComparator.INSTANCE.compare(a, b) > 0 ? a : b);
-            }
-        });
-
-        // Convert map of type keys to ResourceTypeKey objects
-        return typeKeys.entrySet().stream().map(e -> new ResourceTypeKey(e.getValue(), e.getKey())).collect(Collectors.toSet());
+    public double getPathCacheHitRate() {
+        final SchemaSnapshot snapshot = modelLoader.getLoadedActiveSnapshot();
+        return snapshot != null ? snapshot.getPathCache().getHitRate() : 0;
     }
 
     /**
-     * Gets the child properties of the given {@link Property}. This is done by resolving the property's {@link Property#getRef() ref} to a model and obtaining the properties defined there.
+     * Gets the loader of the specs.
      *
-     * @param spec the spec to search for references in.
-     * @param property the property to obtain children for; if {@code null} an empty map is returned.
-     * @return the child properties, or an empty map if no properties could be resolved - e.g. if the property has no ref or the model referenced does not exist.
+     * @return the loader.
      */
     @NotNull
-    private Map<String, Property> findChildProperties(@NotNull final SwaggerSpec spec, @Nullable final Property property) {
-        if (property != null) {
-            if (property.getRef() != null) {
-                // Look up the ref for the referenced object
-                return getModelProperties(spec, property.getRef());
-            } else if (property.getType() == FieldType.ARRAY && property.getItems() != null && property.getItems().getRef() != null) {
-                // Look up the ref for the array items
-                return getModelProperties(spec, property.getItems().getRef());
+    ModelLoader getModelLoader() {
+        return modelLoader;
+    }
+
+    /**
+     * Builds the schema snapshot for the active configuration, blocking until its packages are open. Subsequent lookups will then be answered without waiting for the packages, although the specs
+     * for each API version are still only loaded when first used, in the background.
+     * <p>
+     * If building fails, the failure is logged and no further attempt is made, either here or by lookups, until the configuration changes.
+     * <p>
+     * This should not be called on the event dispatch thread.
+     */
+    public void preload() {
+        if (activeLoadFailure.get() != null) {
+            return;
+        }
+        try {
+            modelLoader.getActiveSnapshot();
+        } catch (final RuntimeException e) {
+            if (activeLoadFailure.compareAndSet(null, e)) {
+                logger.error("Unable to load the Kubernetes schemas; they will not be loaded again until the configuration changes.", e);
             }
         }
-        return Collections.emptyMap();
+    }
+
+    /** Schedules the eviction of the versions that are no longer in use, once their grace period has passed. */
+    void scheduleEviction() {
+        JobScheduler.getScheduler().schedule(() -> modelLoader.evictUnusedSpecs(System.currentTimeMillis()), ModelLoader.EVICTION_GRACE_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
     }
 
     /**
-     * Find the properties that may exist as children of the property described by navigating from the base model of the {@link ResourceTypeKey} through the properties given in the {@code path}.
+     * Suggest a set of values for the "apiVersion" field.
      *
-     * @param spec the spec to search within.
-     * @param resourceTypeKey the resource at which to begin the search.
-     * @param path a series of properties to navigate through, may be empty to return the properties that may be defined on the root of the {@code ResourceTypeKey}.
-     * @return the map of property names to property specifications, may be empty if none can be found.
+     * @param context the element being completed, whose file determines the Kubernetes version and whose project's custom resource definitions also supply API versions; or {@code null} to
+     * suggest only those of the built-in specs of the configured version.
+     * @param kind the kind of the resource, if known; the API versions of every group that serves it are then suggested in order of preference. If {@code null} or not a known kind, all API
+     * versions are suggested, in API version order.
+     * @return the possible API versions.
      */
     @NotNull
-    private Map<String, Property> findProperties(final SwaggerSpec spec, final ResourceTypeKey resourceTypeKey, final List<String> path) {
-        final String search = modelIdFromResourceKey(resourceTypeKey);
-        final Model startingModel = spec.getModels().get(search);
-        if (startingModel != null) {
-            Map<String, Property> properties = startingModel.getProperties();
-            for (final String targetKey : path) {
-                final Property property = properties.get(targetKey);
-                properties = findChildProperties(spec, property);
+    public List<String> suggestApiVersions(@Nullable final PsiElement context, @Nullable final String kind) {
+        final SchemaSnapshot snapshot = getSnapshot(context);
+        final Set<ResourceTypeKey> customResourceKeys = context != null ? CustomResourceIndex.getResourceKeys(context.getProject()) : Collections.emptySet();
+        if (kind != null) {
+            final List<String> kindApiVersions = snapshot.suggestApiVersions(kind);
+            final List<String> customApiVersions = customResourceKeys.stream().filter(key -> kind.equals(key.getKind())).map(ResourceTypeKey::getApiVersion).collect(Collectors.toList());
+            if (!customApiVersions.isEmpty()) {
+                final Set<String> allApiVersions = new LinkedHashSet<>(kindApiVersions);
+                allApiVersions.addAll(customApiVersions);
+                return new ArrayList<>(allApiVersions);
+            } else if (!kindApiVersions.isEmpty()) {
+                return kindApiVersions;
             }
-            return properties;
         }
-        return Collections.emptyMap();
+        final List<String> apiVersions = snapshot.suggestApiVersions();
+        if (customResourceKeys.isEmpty()) {
+            return apiVersions;
+        }
+        final Set<String> allApiVersions = new TreeSet<>(ApiVersionComparator.INSTANCE);
+        allApiVersions.addAll(apiVersions);
+        customResourceKeys.forEach(key -> allApiVersions.add(key.getApiVersion()));
+        return new ArrayList<>(allApiVersions);
     }
 
     /**
-     * Gets the properties for the model with the specified ID.
+     * Suggest a set of values for the "kind" field.
      *
-     * @param spec the spec to search within.
-     * @param modelId the model ID.
-     * @return the model properties, or an empty map if a model with the specified ID cannot be located.
+     * @param context the element being completed, whose file determines the Kubernetes version and whose project's custom resource definitions also supply kinds; or {@code null} to suggest
+     * only those of the built-in specs of the configured version.
+     * @param apiVersion the API version for which kinds will be returned; if null, then kinds for all API versions will be returned, each at the highest version of every group that serves it.
+     * @return a set of possible kinds, which must not be modified.
      */
     @NotNull
-    private Map<String, Property> getModelProperties(final SwaggerSpec spec, final String modelId) {
-        return spec.getModels().values().stream().filter(m -> modelId.equals(m.getId())).map(Model::getProperties).findAny().orElse(Collections.emptyMap());
+    public Set<ResourceTypeKey> suggestKinds(@Nullable final PsiElement context, @Nullable final String apiVersion) {
+        final Set<ResourceTypeKey> kinds = getSnapshot(context).suggestKinds(apiVersion);
+        final Set<ResourceTypeKey> customResourceKeys = context != null ? CustomResourceIndex.getResourceKeys(context.getProject()) : Collections.emptySet();
+        if (customResourceKeys.isEmpty()) {
+            return kinds;
+        }
+        // Custom resources are suggested at every version defined, rather than only at the highest version as for built-in kinds
+        final Set<ResourceTypeKey> allKinds = new HashSet<>(kinds);
+        customResourceKeys.stream().filter(key -> apiVersion == null || apiVersion.equals(key.getApiVersion())).forEach(allKinds::add);
+        return allKinds;
     }
 
     /**
-     * Gets the {@link SwaggerSpec} that contains a definition for the given resource key.
+     * Gets the schema of a resource, consulting the custom resource definitions of the project only if the resource is not defined by the built-in specs.
      *
-     * @param resourceTypeKey the resource key to search for.
-     * @return the corresponding spec, or {@code null} if one cannot be found.
+     * @param context the element for which the schema is needed, whose file determines the Kubernetes version and whose project's custom resource definitions are searched; or {@code null} to
+     * search only the built-in specs of the configured version.
+     * @param resourceTypeKey the resource.
+     * @return the schema, or {@code null} if no spec defines the resource.
      */
     @Nullable
-    private SwaggerSpec getSpec(@NotNull final ResourceTypeKey resourceTypeKey) {
-        final String apiVersion = resourceTypeKey.getApiVersion();
-        final String modelId = modelIdFromResourceKey(resourceTypeKey);
-        return getSpecs().stream().filter(s -> apiVersion.equals(s.getApiVersion()) && s.getModels().containsKey(modelId)).findAny().orElse(null);
+    private ResourceSchema getResource(@Nullable final PsiElement context, @NotNull final ResourceTypeKey resourceTypeKey) {
+        final ResourceSchema resource = getResource(getSnapshot(context), resourceTypeKey);
+        return resource != null || context == null ? resource : CustomResourceIndex.getResource(context.getProject(), resourceTypeKey);
     }
 
     /**
-     * Get a set of loaded {@link SwaggerSpec}s, initialising if necessary.
+     * Gets the schema of a resource from a snapshot.
+     * <p>
+     * Like {@link #getSnapshot()}, this never blocks, as it is called from completion and annotators. If the spec for the resource's API version has not been loaded yet, loading is started in
+     * the background and {@code null} is returned in the meantime; highlighting is restarted once loading completes. If loading fails, the failure is logged and {@code null} is returned for the
+     * life of the snapshot. In unit test mode the spec is loaded synchronously so that results are deterministic.
      *
-     * @return the swagger specs.
+     * @param snapshot the snapshot.
+     * @param resourceTypeKey the resource.
+     * @return the schema, or {@code null} if no spec defines the resource or its spec is still being loaded.
      */
-    @NotNull
-    private List<SwaggerSpec> getSpecs() {
-        return modelLoader.getActiveSpecs();
+    @Nullable
+    private ResourceSchema getResource(@NotNull final SchemaSnapshot snapshot, @NotNull final ResourceTypeKey resourceTypeKey) {
+        final String apiVersion = resourceTypeKey.getApiVersion();
+        if (apiVersion == null || snapshot.isSpecLoaded(apiVersion)) {
+            return snapshot.getLoadedResource(resourceTypeKey);
+        }
+        final Application application = ApplicationManager.getApplication();
+        if (application.isUnitTestMode()) {
+            return snapshot.getResource(resourceTypeKey);
+        }
+        final CompletableFuture<SwaggerSpec> load = snapshot.loadSpecInBackground(apiVersion, application::executeOnPooledThread);
+        if (load != null) {
+            load.whenComplete((spec, e) -> {
+                if (e != null) {
+                    logger.error("Unable to load the Kubernetes schema of {}; it will not be loaded again while the same specs are active.", apiVersion, e);
+                } else {
+                    restartHighlighting();
+                }
+            });
+        }
+        return null;
     }
 
     /**
-     * Generates the model ID from the specified {@link ResourceTypeKey}.
+     * Get the {@link SchemaSnapshot} for an element: that of the Kubernetes version chosen for the directory of its file, if there is one, or otherwise that of the active configuration.
      * <p>
-     * This is achieved by concatenating the "version" part (e.g. {@code v1} in {@code batch/v1}) of the resource key {@linkplain ResourceTypeKey#apiVersion API version}, a dot, and the {@linkplain
-     * ResourceTypeKey#getKind() kind}.
+     * As for the active configuration, this never blocks waiting for packages to open. If the snapshot of a chosen version has not been built yet, building is started in the background and an
+     * empty snapshot is returned in the meantime; if building fails, an empty snapshot is returned until the configuration changes.
      *
-     * @param resourceTypeKey the resource type key.
-     * @return the model ID.
+     * @param context the element, or {@code null} to use the active configuration.
+     * @return the snapshot, may be empty if it is still being built.
      */
     @NotNull
-    private String modelIdFromResourceKey(final ResourceTypeKey resourceTypeKey) {
-        String resourceApiVersion = resourceTypeKey.getApiVersion();
-        if (resourceApiVersion.indexOf('/') > -1) {
-            resourceApiVersion = resourceApiVersion.substring(resourceApiVersion.indexOf('/') + 1);
+    private SchemaSnapshot getSnapshot(@Nullable final PsiElement context) {
+        final PsiFile file = context != null ? context.getContainingFile() : null;
+        final ModelLoader.SharedSnapshot sharedSnapshot = file != null ? KubernetesVersionResolver.getInstance(file.getProject()).getSnapshot(file) : null;
+        if (sharedSnapshot == null) {
+            return getSnapshot();
+        }
+        final SchemaSnapshot snapshot = sharedSnapshot.getLoadedSnapshot();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        final Application application = ApplicationManager.getApplication();
+        if (application.isUnitTestMode()) {
+            return modelLoader.loadSnapshot(sharedSnapshot);
         }
-        return resourceApiVersion + "." + resourceTypeKey.getKind();
+        if (!failedSharedLoads.contains(sharedSnapshot) && backgroundSharedLoads.add(sharedSnapshot)) {
+            application.executeOnPooledThread(() -> {
+                try {
+                    modelLoader.loadSnapshot(sharedSnapshot);
+                } catch (final RuntimeException e) {
+                    if (failedSharedLoads.add(sharedSnapshot)) {
+                        logger.error("Unable to load the Kubernetes schemas of {}; they will not be loaded again until the configuration changes.", sharedSnapshot.getResourceNames(), e);
+                    }
+                } finally {
+                    backgroundSharedLoads.remove(sharedSnapshot);
+                }
+                restartHighlighting();
+            });
+        }
+        return SchemaSnapshot.EMPTY;
     }
 
     /**
-     * Removes the API version prefix from a model identifier.
+     * Get the {@link SchemaSnapshot} of the active configuration.
+     * <p>
+     * This never blocks waiting for packages to open, as it is called from completion and annotators. If the snapshot has not been built yet, building is started in the background and an empty
+     * snapshot is returned in the meantime; highlighting is restarted once building completes. If building fails, an empty snapshot is returned until the configuration changes, rather than building
+     * again on every lookup. In unit test mode the snapshot is built synchronously so that results are deterministic.
      *
-     * @param modelId the model ID to clean.
-     * @return the cleaned model ID.
+     * @return the snapshot, may be empty if it is still being built.
      */
     @NotNull
-    private String stripModelIdPrefix(@NotNull final String modelId) {
-        final int dot = modelId.indexOf('.');
-        if (dot > -1) {
-            return modelId.substring(dot + 1);
-        } else {
-            return modelId;
+    private SchemaSnapshot getSnapshot() {
+        final SchemaSnapshot snapshot = modelLoader.getLoadedActiveSnapshot();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        final Application application = ApplicationManager.getApplication();
+        if (application.isUnitTestMode()) {
+            return modelLoader.getActiveSnapshot();
+        }
+        if (activeLoadFailure.get() == null && backgroundLoadScheduled.compareAndSet(false, true)) {
+            application.executeOnPooledThread(() -> {
+                try {
+                    preload();
+                } finally {
+                    backgroundLoadScheduled.set(false);
+                }
+                restartHighlighting();
+            });
+        }
+        return SchemaSnapshot.EMPTY;
+    }
+
+    /** Revalidates the packages of the active snapshot against their sources on a pooled thread, restarting highlighting if any had changed so that the new specs are used. */
+    private void refreshInBackground() {
+        if (!backgroundRefreshScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            final boolean refreshed;
+            try {
+                refreshed = modelLoader.refreshActivePackages();
+            } finally {
+                backgroundRefreshScheduled.set(false);
+            }
+            if (refreshed) {
+                activeLoadFailure.set(null);
+                restartHighlighting();
+            }
+        });
+    }
+
+    /** Restart highlighting in all open projects, so that annotations are recalculated once specs become available. */
+    private void restartHighlighting() {
+        for (final Project project : ProjectManager.getInstance().getOpenProjects()) {
+            if (!project.isDisposed()) {
+                DaemonCodeAnalyzer.getInstance(project).restart();
+            }
+        }
+    }
+
+    /** Watches the local document named by the configuration, if any, so that changes made to it outside the IDE are reported to the virtual file system listener. */
+    private synchronized void watchSpecFile() {
+        final LocalFileSystem fileSystem = LocalFileSystem.getInstance();
+        final String specFilePath = getSpecFilePath();
+        if (specFileWatchRequest != null) {
+            if (specFileWatchRequest.getRootPath().equals(specFilePath)) {
+                return;
+            }
+            fileSystem.removeWatchedRoot(specFileWatchRequest);
+            specFileWatchRequest = null;
+        }
+        if (specFilePath != null) {
+            specFileWatchRequest = fileSystem.addRootToWatch(specFilePath, false);
+            // Only files known to the virtual file system produce events, and refreshing may not be done on the event dispatch thread
+            ApplicationManager.getApplication().executeOnPooledThread(() -> fileSystem.refreshAndFindFileByPath(specFilePath));
         }
     }
 
@@ -0,0 +1,483 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Streaming reader for the single-file OpenAPI v2 ({@code swagger.json}) document published by Kubernetes 1.10 and later, converting it into the same {@link SwaggerSpec} structures as the Swagger 1.2
+ * specs of earlier versions.
+ * <p>
+ * The document is read in a single pass without building a tree of it; only definitions and the group, version and kind of each creatable resource are kept. It is then split into one spec per API
+ * version, containing the root models of the resources of that API version along with every definition they refer to, directly or indirectly:
+ * <ul>
+ * <li>Models are keyed, and refer to each other, by their full definition name, such as {@code io.k8s.api.apps.v1.Deployment}. Definition names are unique across the document, whereas the
+ * short names used by Swagger 1.2 are not.</li>
+ * <li>The root model of each kind is additionally keyed by the short name {@code <version>.<kind>}, such as {@code v1.Deployment}, under which resources are looked up.</li>
+ * <li>Each kind that may be created through the API is recorded as the type of a {@code POST} operation, as in Swagger 1.2.</li>
+ * </ul>
+ */
+final class OpenApiSpecReader {
+
+    /** The kind under which OpenAPI v2 documents are held in the {@link SchemaCache}. */
+    static final String CACHE_KIND = "openapi-v2";
+
+    /** The prefix of a {@code $ref} to a definition within the same document. */
+    private static final String DEFINITION_REF_PREFIX = "#/definitions/";
+
+    /** The extension giving the group, version and kind of a definition or operation. */
+    private static final String GROUP_VERSION_KIND_EXTENSION = "x-kubernetes-group-version-kind";
+
+    /** The table through which the descriptions that have been read are added to the {@link DescriptionStore}. */
+    private final DescriptionStore.Table descriptionTable = DescriptionStore.getInstance().newTable();
+
+    /** Table of strings that have been read, used to share a single instance of each distinct value. */
+    private final Map<String, String> internedStrings = new HashMap<>();
+
+    /** The models read from the document, by definition name. */
+    private final Map<String, Model> definitions = new HashMap<>();
+
+    /** The root definitions of each API version, mapping the short name of each kind to its definition name. */
+    private final Map<String, Map<String, String>> rootDefinitions = new TreeMap<>();
+
+    /** The short names of the kinds that may be created through the API, by API version. */
+    private final Map<String, Set<String>> creatableKinds = new HashMap<>();
+
+    /** Private constructor; use {@link #read(Reader)}. */
+    private OpenApiSpecReader() {
+    }
+
+    /**
+     * Reads an OpenAPI v2 document held in memory.
+     *
+     * @param content the document JSON, encoded in UTF-8.
+     * @return one spec for each API version that has resources, in order of API version.
+     * @throws IOException if the document is not well formed.
+     */
+    @NotNull
+    static List<SwaggerSpec> read(@NotNull final byte[] content) throws IOException {
+        return read(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads an OpenAPI v2 document.
+     *
+     * @param reader the reader supplying the document JSON; it is not closed.
+     * @return one spec for each API version that has resources, in order of API version.
+     * @throws IOException if the document could not be read or is not well formed.
+     */
+    @NotNull
+    static List<SwaggerSpec> read(@NotNull final Reader reader) throws IOException {
+        final OpenApiSpecReader specReader = new OpenApiSpecReader();
+        final JsonReader in = new JsonReader(reader);
+        in.setLenient(true);
+        specReader.readDocument(in);
+        return specReader.buildSpecs();
+    }
+
+    /**
+     * Gets the API version for a group and version.
+     *
+     * @param group the API group, which is empty for the core group.
+     * @param version the version.
+     * @return the API version.
+     */
+    @NotNull
+    private static String toApiVersion(@Nullable final String group, @NotNull final String version) {
+        return group == null || group.isEmpty() ? version : group + "/" + version;
+    }
+
+    /**
+     * Reads a {@link FieldType} from its name in the document.
+     *
+     * @param name the name of the type.
+     * @return the field type, or {@code null} if the name is {@code null} or not recognised.
+     */
+    @Nullable
+    private static FieldType toFieldType(@Nullable final String name) {
+        if (name != null) {
+            for (final FieldType fieldType : FieldType.values()) {
+                if (fieldType.toString().equals(name)) {
+                    return fieldType;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads a string value.
+     *
+     * @param in the JSON reader.
+     * @return the string, or {@code null} if the value was {@code null}.
+     * @throws IOException if the value could not be read.
+     */
+    @Nullable
+    private static String readString(@NotNull final JsonReader in) throws IOException {
+        return skipNull(in) ? null : in.nextString();
+    }
+
+    /**
+     * Consumes the next value if it is {@code null}.
+     *
+     * @param in the JSON reader.
+     * @return {@code true} if a {@code null} value was consumed, {@code false} if the next value is not {@code null}.
+     * @throws IOException if the value could not be read.
+     */
+    private static boolean skipNull(@NotNull final JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds a definition to the models of a spec, along with every definition it refers to that has not been added already.
+     *
+     * @param definitionName the name of the definition.
+     * @param models the models of the spec, keyed by definition name.
+     */
+    private void addWithReferences(@NotNull final String definitionName, @NotNull final Map<String, Model> models) {
+        final Deque<String> pending = new ArrayDeque<>();
+        pending.add(definitionName);
+        while (!pending.isEmpty()) {
+            final String name = pending.remove();
+            final Model model = definitions.get(name);
+            if (model == null || models.containsKey(name)) {
+                continue;
+            }
+            models.put(name, model);
+            for (final Property property : model.getProperties().values()) {
+                if (property.getRef() != null) {
+                    pending.add(property.getRef());
+                }
+                if (property.getItems() != null && property.getItems().getRef() != null) {
+                    pending.add(property.getItems().getRef());
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits the definitions that have been read into one spec per API version.
+     *
+     * @return the specs, in order of API version.
+     */
+    @NotNull
+    private List<SwaggerSpec> buildSpecs() {
+        final List<SwaggerSpec> specs = new ArrayList<>(rootDefinitions.size());
+        for (final Map.Entry<String, Map<String, String>> entry : rootDefinitions.entrySet()) {
+            final SwaggerSpec spec = new SwaggerSpec();
+            spec.setApiVersion(intern(entry.getKey()));
+
+            final Map<String, Model> models = new TreeMap<>();
+            for (final String definitionName : entry.getValue().values()) {
+                addWithReferences(definitionName, models);
+            }
+            for (final Map.Entry<String, String> root : entry.getValue().entrySet()) {
+                spec.getModels().put(root.getKey(), definitions.get(root.getValue()));
+            }
+            spec.getModels().putAll(models);
+
+            final Api api = new Api();
+            for (final String kind : creatableKinds.getOrDefault(entry.getKey(), Collections.emptySet())) {
+                if (entry.getValue().containsKey(kind)) {
+                    final ApiOperation operation = new ApiOperation();
+                    operation.setMethod("POST");
+                    operation.setType(kind);
+                    api.getOperations().add(operation);
+                }
+            }
+            spec.getApis().add(api);
+            specs.add(spec);
+        }
+        return specs;
+    }
+
+    /**
+     * Interns a string.
+     *
+     * @param value the string, may be {@code null}.
+     * @return the shared instance equal to {@code value}, or {@code null} if {@code value} was {@code null}.
+     */
+    @Nullable
+    private String intern(@Nullable final String value) {
+        if (value == null) {
+            return null;
+        }
+        final String existing = internedStrings.putIfAbsent(value, value);
+        return existing == null ? value : existing;
+    }
+
+    /**
+     * Reads the items of an array property.
+     *
+     * @param in the JSON reader.
+     * @return the items.
+     * @throws IOException if the items could not be read.
+     */
+    @NotNull
+    private ArrayItems readArrayItems(@NotNull final JsonReader in) throws IOException {
+        final ArrayItems items = new ArrayItems();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "$ref":
+                    items.setRef(readRef(in));
+                    break;
+                case "type":
+                    items.setType(toFieldType(readString(in)));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return items;
+    }
+
+    /**
+     * Reads the definitions of the document.
+     *
+     * @param in the JSON reader.
+     * @throws IOException if the definitions could not be read.
+     */
+    private void readDefinitions(@NotNull final JsonReader in) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            final String definitionName = intern(in.nextName());
+            final Model model = new Model();
+            model.setId(definitionName);
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "description":
+                        model.setDescription(descriptionTable, descriptionTable.add(readString(in)));
+                        break;
+                    case "required":
+                        if (skipNull(in)) {
+                            break;
+                        }
+                        in.beginArray();
+                        while (in.hasNext()) {
+                            model.getRequiredProperties().add(intern(readString(in)));
+                        }
+                        in.endArray();
+                        break;
+                    case "properties":
+                        if (skipNull(in)) {
+                            break;
+                        }
+                        in.beginObject();
+                        while (in.hasNext()) {
+                            final String name = intern(in.nextName());
+                            model.getProperties().put(name, readProperty(in));
+                        }
+                        in.endObject();
+                        break;
+                    case GROUP_VERSION_KIND_EXTENSION:
+                        for (final String[] groupVersionKind : readGroupVersionKinds(in)) {
+                            final String apiVersion = toApiVersion(groupVersionKind[0], groupVersionKind[1]);
+                            rootDefinitions.computeIfAbsent(apiVersion, v -> new TreeMap<>()).put(intern(groupVersionKind[1] + "." + groupVersionKind[2]), definitionName);
+                        }
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            definitions.put(definitionName, model);
+        }
+        in.endObject();
+    }
+
+    /**
+     * Reads the top level of the document, keeping only its paths and definitions.
+     *
+     * @param in the JSON reader.
+     * @throws IOException if the document could not be read.
+     */
+    private void readDocument(@NotNull final JsonReader in) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "definitions":
+                    if (!skipNull(in)) {
+                        readDefinitions(in);
+                    }
+                    break;
+                case "paths":
+                    if (!skipNull(in)) {
+                        readPaths(in);
+                    }
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+    }
+
+    /**
+     * Reads the value of the {@value #GROUP_VERSION_KIND_EXTENSION} extension, which is a single object on an operation but an array of objects on a definition.
+     *
+     * @param in the JSON reader.
+     * @return the group, version and kind of each object that has a version and kind.
+     * @throws IOException if the value could not be read.
+     */
+    @NotNull
+    private List<String[]> readGroupVersionKinds(@NotNull final JsonReader in) throws IOException {
+        final List<String[]> groupVersionKinds = new ArrayList<>(1);
+        if (in.peek() == JsonToken.BEGIN_ARRAY) {
+            in.beginArray();
+            while (in.hasNext()) {
+                readGroupVersionKind(in, groupVersionKinds);
+            }
+            in.endArray();
+        } else {
+            readGroupVersionKind(in, groupVersionKinds);
+        }
+        return groupVersionKinds;
+    }
+
+    /**
+     * Reads a single group, version and kind object.
+     *
+     * @param in the JSON reader.
+     * @param groupVersionKinds the list to add the group, version and kind to, if the object has a version and kind.
+     * @throws IOException if the object could not be read.
+     */
+    private void readGroupVersionKind(@NotNull final JsonReader in, @NotNull final List<String[]> groupVersionKinds) throws IOException {
+        if (skipNull(in)) {
+            return;
+        }
+        final String[] groupVersionKind = new String[3];
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "group":
+                    groupVersionKind[0] = readString(in);
+                    break;
+                case "version":
+                    groupVersionKind[1] = readString(in);
+                    break;
+                case "kind":
+                    groupVersionKind[2] = readString(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        if (groupVersionKind[1] != null && groupVersionKind[2] != null) {
+            groupVersionKinds.add(groupVersionKind);
+        }
+    }
+
+    /**
+     * Reads the paths of the document, keeping only the kinds that may be created by each {@code POST} operation.
+     *
+     * @param in the JSON reader.
+     * @throws IOException if the paths could not be read.
+     */
+    private void readPaths(@NotNull final JsonReader in) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            in.nextName();
+            if (skipNull(in)) {
+                continue;
+            }
+            in.beginObject();
+            while (in.hasNext()) {
+                if ("post".equals(in.nextName()) && !skipNull(in)) {
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        if (GROUP_VERSION_KIND_EXTENSION.equals(in.nextName())) {
+                            for (final String[] groupVersionKind : readGroupVersionKinds(in)) {
+                                final String apiVersion = toApiVersion(groupVersionKind[0], groupVersionKind[1]);
+                                creatableKinds.computeIfAbsent(apiVersion, v -> new LinkedHashSet<>()).add(intern(groupVersionKind[1] + "." + groupVersionKind[2]));
+                            }
+                        } else {
+                            in.skipValue();
+                        }
+                    }
+                    in.endObject();
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+        }
+        in.endObject();
+    }
+
+    /**
+     * Reads a property.
+     *
+     * @param in the JSON reader.
+     * @return the property.
+     * @throws IOException if the property could not be read.
+     */
+    @NotNull
+    private Property readProperty(@NotNull final JsonReader in) throws IOException {
+        final Property property = new Property();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "description":
+                    property.setDescription(descriptionTable, descriptionTable.add(readString(in)));
+                    break;
+                case "$ref":
+                    property.setRef(readRef(in));
+                    break;
+                case "type":
+                    property.setType(toFieldType(readString(in)));
+                    break;
+                case "items":
+                    if (!skipNull(in)) {
+                        property.setItems(readArrayItems(in));
+                    }
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return property;
+    }
+
+    /**
+     * Reads a {@code $ref}, converting it to the name of the definition it refers to.
+     *
+     * @param in the JSON reader.
+     * @return the definition name, or {@code null} if the value was {@code null}.
+     * @throws IOException if the value could not be read.
+     */
+    @Nullable
+    private String readRef(@NotNull final JsonReader in) throws IOException {
+        final String ref = readString(in);
+        if (ref != null && ref.startsWith(DEFINITION_REF_PREFIX)) {
+            return intern(ref.substring(DEFINITION_REF_PREFIX.length()));
+        }
+        return intern(ref);
+    }
+}
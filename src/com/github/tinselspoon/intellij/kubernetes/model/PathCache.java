@@ -0,0 +1,151 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Memoizes the models found by navigating from the root model of a resource through a path of properties.
+ * <p>
+ * The annotators and completion resolve the same prefixes, such as {@code spec.template.spec.containers}, for every key of every file. The cache is a trie of path segments for each resource, each
+ * node holding the model its path resolves to, so resolving a path reuses the nodes already resolved for its prefixes and only resolves the remaining segments. Each {@link SchemaSnapshot} has its
+ * own cache, so the cache is discarded along with the snapshot when the configuration changes; likewise the custom resources of a project share a cache that is discarded along with their
+ * schemas.
+ * <p>
+ * The number of nodes is bounded; once the bound is reached the cache is cleared, and its hit rate so far is logged.
+ */
+final class PathCache {
+
+    /** The default maximum number of nodes held. */
+    static final int DEFAULT_CAPACITY = 50_000;
+
+    /** The logger. */
+    private static final Logger logger = LoggerFactory.getLogger(PathCache.class);
+
+    /** The root node of each resource, keyed by the identity of its schema. */
+    private final Map<ResourceSchema, Node> roots = new ConcurrentHashMap<>();
+
+    /** The maximum number of nodes held. */
+    private final int capacity;
+
+    /** The approximate number of nodes held. */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /** The number of paths resolved entirely from cached nodes. */
+    private final LongAdder hits = new LongAdder();
+
+    /** The number of paths for which at least one segment had to be resolved. */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Creates a cache.
+     *
+     * @param capacity the maximum number of nodes held.
+     */
+    PathCache(final int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Gets the proportion of paths that were resolved entirely from cached nodes.
+     *
+     * @return the hit rate between 0 and 1, or 0 if no paths have been resolved.
+     */
+    double getHitRate() {
+        final long hitCount = hits.sum();
+        final long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Gets the approximate number of nodes held.
+     *
+     * @return the number of nodes.
+     */
+    int getSize() {
+        return size.get();
+    }
+
+    /**
+     * Finds the model that a path within a resource resolves to, resolving and caching the segments that have not been resolved before.
+     *
+     * @param resource the resource.
+     * @param path a series of properties to navigate through from the root model of the resource.
+     * @return the model, or {@code null} if the path does not resolve to one.
+     */
+    @Nullable
+    Model resolve(@NotNull final ResourceSchema resource, @NotNull final List<String> path) {
+        Node node = roots.get(resource);
+        if (node == null) {
+            if (!reserve()) {
+                misses.increment();
+                return resource.resolve(resource.getRootModel(), path, 0);
+            }
+            node = roots.computeIfAbsent(resource, r -> new Node(r.getRootModel()));
+        }
+        boolean hit = true;
+        for (int i = 0; i < path.size() && node.model != null; i++) {
+            final String segment = path.get(i);
+            Node child = node.children.get(segment);
+            if (child == null) {
+                hit = false;
+                if (!reserve()) {
+                    misses.increment();
+                    return resource.resolve(node.model, path, i);
+                }
+                final Model parent = node.model;
+                child = node.children.computeIfAbsent(segment, s -> new Node(resource.step(parent, s)));
+            }
+            node = child;
+        }
+        (hit ? hits : misses).increment();
+        return node.model;
+    }
+
+    /**
+     * Reserves room for a new node, clearing the cache first if it is full.
+     *
+     * @return {@code true} if room was reserved; {@code false} if the cache was cleared, in which case the node should not be added.
+     */
+    private boolean reserve() {
+        if (size.incrementAndGet() <= capacity) {
+            return true;
+        }
+        synchronized (roots) {
+            if (size.get() > capacity) {
+                logger.info("Path cache reached {} nodes with a hit rate of {}%; clearing.", capacity, Math.round(getHitRate() * 100));
+                roots.clear();
+                size.set(0);
+            }
+        }
+        return false;
+    }
+
+    /** A node of the trie, for a single path. */
+    private static final class Node {
+
+        /** The child node for each segment following this path that has been resolved. */
+        private final Map<String, Node> children;
+
+        /** The model that the path resolves to, or {@code null} if it does not resolve to one. */
+        private final Model model;
+
+        /**
+         * Creates a node.
+         *
+         * @param model the model that the path resolves to, or {@code null} if it does not resolve to one.
+         */
+        private Node(@Nullable final Model model) {
+            this.model = model;
+            // A path that resolves to no model has no children worth caching
+            this.children = model != null ? new ConcurrentHashMap<>(4) : null;
+        }
+    }
+}
@@ -1,32 +1,55 @@
 package com.github.tinselspoon.intellij.kubernetes.model;
 
-import com.google.gson.annotations.SerializedName;
+import java.util.Objects;
 
 /**
  * Schema definition of a property.
  */
 public class Property {
 
-    /** A description of this property. */
-    private String description;
+    /** The ID of a description of this property within the {@link DescriptionStore}. */
+    private int descriptionId = DescriptionStore.NO_DESCRIPTION;
+
+    /** The table through which the description was added, which keeps it in the {@link DescriptionStore}; {@code null} if there is no description. */
+    private DescriptionStore.Table descriptionTable;
 
     /** For properties that are arrays, describes the items that may appear in the array ({@code null} otherwise). */
     private ArrayItems items;
 
     /** The model ID which describes the possible child properties of this property, or {@code null} if not applicable. */
-    @SerializedName("$ref")
     private String ref;
 
     /** The type of this property. Should not be set if {@link #getRef() ref} is populated. */
     private FieldType type;
 
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final Property that = (Property) o;
+        return descriptionId == that.descriptionId && Objects.equals(items, that.items) && Objects.equals(ref, that.ref) && type == that.type;
+    }
+
     /**
      * Gets a description of this property.
      *
      * @return the description.
      */
     public String getDescription() {
-        return description;
+        return DescriptionStore.getInstance().get(descriptionId);
+    }
+
+    /**
+     * Gets the ID of the description within the {@link DescriptionStore}.
+     *
+     * @return the description ID, or {@link DescriptionStore#NO_DESCRIPTION} if there is no description.
+     */
+    int getDescriptionId() {
+        return descriptionId;
     }
 
     /**
@@ -56,13 +79,34 @@ public class Property {
         return type;
     }
 
+    @Override
+    public int hashCode() {
+        return Objects.hash(descriptionId, items, ref, type);
+    }
+
     /**
      * Sets a description of this property.
      *
      * @param description the new description.
      */
     public void setDescription(final String description) {
-        this.description = description;
+        if (description == null) {
+            setDescription(null, DescriptionStore.NO_DESCRIPTION);
+        } else {
+            final DescriptionStore.Table table = DescriptionStore.getInstance().newTable();
+            setDescription(table, table.add(description));
+        }
+    }
+
+    /**
+     * Sets the description of this property to one already added to the {@link DescriptionStore}.
+     *
+     * @param descriptionTable the table the description was added through; may be {@code null} if there is no description.
+     * @param descriptionId the ID of the description, or {@link DescriptionStore#NO_DESCRIPTION} for none.
+     */
+    void setDescription(final DescriptionStore.Table descriptionTable, final int descriptionId) {
+        this.descriptionTable = descriptionTable;
+        this.descriptionId = descriptionId;
     }
 
     /**
@@ -0,0 +1,248 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A read-only map of property names to properties, into which the properties of a {@link Model} are frozen once it has been loaded.
+ * <p>
+ * A model typically has fewer than 20 properties and is never modified after loading, so rather than a hash table of entry objects the map is a single array of alternating names and properties,
+ * addressed by the hash code of the name with linear probing, alongside an array of the hash codes of the names. As the map is never resized, the arrays are sized once for its properties at a load
+ * factor of at most one half. A lookup probes the array of hash codes, and only compares the name held in a slot whose hash code matches, so that probing past other names, or past the end of
+ * a cluster for a name the map does not have, never reads the names themselves. Iteration is in the order of the array.
+ */
+final class PropertyMap extends AbstractMap<String, Property> {
+
+    /** The map with no properties. */
+    static final PropertyMap EMPTY = new PropertyMap(new Object[2], new int[1], 0);
+
+    /** The names and properties, each name at an even index followed by its property; the number of slots is a power of two. */
+    private final Object[] table;
+
+    /** The hash code of the name in each slot as given by {@link #hashOf(Object)}, or 0 for an empty slot. */
+    private final int[] hashes;
+
+    /** The number of properties. */
+    private final int size;
+
+    /** The view of the entries, created on first use. */
+    private Set<Entry<String, Property>> entrySet;
+
+    /** The index of the names used by completion, created on first use. */
+    private PropertyNameIndex nameIndex;
+
+    /**
+     * Creates a map.
+     *
+     * @param table the names and properties, each name at an even index followed by its property.
+     * @param hashes the hash code of the name in each slot.
+     * @param size the number of properties.
+     */
+    private PropertyMap(@NotNull final Object[] table, @NotNull final int[] hashes, final int size) {
+        this.table = table;
+        this.hashes = hashes;
+        this.size = size;
+    }
+
+    /**
+     * Copies a map of properties into a read-only map, interning its names and properties.
+     *
+     * @param map the map to copy.
+     * @param nameInterner the function giving the canonical instance of a name.
+     * @param propertyInterner the function giving the canonical instance of a property.
+     * @return the read-only map.
+     */
+    @NotNull
+    static PropertyMap copyOf(@NotNull final Map<String, Property> map, @NotNull final UnaryOperator<String> nameInterner, @NotNull final UnaryOperator<Property> propertyInterner) {
+        if (map.isEmpty()) {
+            return EMPTY;
+        }
+        final int slots = slotsFor(map.size());
+        final Object[] table = new Object[slots * 2];
+        final int[] hashes = new int[slots];
+        map.forEach((name, property) -> {
+            final String canonicalName = nameInterner.apply(name);
+            final int hash = hashOf(canonicalName);
+            int slot = slotFor(hash, slots);
+            while (hashes[slot] != 0) {
+                slot = (slot + 1) & (slots - 1);
+            }
+            table[slot * 2] = canonicalName;
+            table[slot * 2 + 1] = propertyInterner.apply(property);
+            hashes[slot] = hash;
+        });
+        return new PropertyMap(table, hashes, map.size());
+    }
+
+    /**
+     * Gets the hash code of a name as held in the array of hash codes, where 0 marks an empty slot.
+     *
+     * @param name the name.
+     * @return the hash code of the name, or 1 if its hash code is 0.
+     */
+    private static int hashOf(@NotNull final Object name) {
+        final int hash = name.hashCode();
+        return hash != 0 ? hash : 1;
+    }
+
+    /**
+     * Gets the slot at which to start probing for a name.
+     *
+     * @param hash the hash code of the name.
+     * @param slots the number of slots.
+     * @return the slot.
+     */
+    private static int slotFor(final int hash, final int slots) {
+        // Spread the high bits downwards, as the table is small and many names share a prefix
+        return (hash ^ (hash >>> 16)) & (slots - 1);
+    }
+
+    /**
+     * Gets the number of slots of a map of a given size: the smallest power of two that keeps the load factor at most one half, so that probing for a name the map does not have usually ends
+     * within a slot or two.
+     *
+     * @param size the number of properties, which must be at least 1.
+     * @return the number of slots.
+     */
+    static int slotsFor(final int size) {
+        return Integer.highestOneBit(size * 2 - 1) << 1;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @NotNull
+    @Override
+    public Set<Entry<String, Property>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    @Override
+    public void forEach(@NotNull final BiConsumer<? super String, ? super Property> action) {
+        for (int i = 0; i < table.length; i += 2) {
+            if (table[i] != null) {
+                action.accept((String) table[i], (Property) table[i + 1]);
+            }
+        }
+    }
+
+    @Nullable
+    @Override
+    public Property get(final Object key) {
+        final int index = indexOf(key);
+        return index >= 0 ? (Property) table[index + 1] : null;
+    }
+
+    /**
+     * Gets the index of the names used by completion, creating it on first use. As the map is read-only the index is never out of date, and as the index is immutable it may be created by more
+     * than one thread at once.
+     *
+     * @return the name index.
+     */
+    @NotNull
+    PropertyNameIndex getNameIndex() {
+        PropertyNameIndex index = nameIndex;
+        if (index == null) {
+            index = new PropertyNameIndex(keySet());
+            nameIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Finds the slot holding a name.
+     *
+     * @param key the name.
+     * @return the index of the name within the table, or -1 if the map has no such name.
+     */
+    private int indexOf(@Nullable final Object key) {
+        if (key == null) {
+            return -1;
+        }
+        final int hash = hashOf(key);
+        final int mask = hashes.length - 1;
+        int slot = slotFor(hash, hashes.length);
+        int slotHash;
+        while ((slotHash = hashes[slot]) != 0) {
+            if (slotHash == hash) {
+                final Object name = table[slot * 2];
+                if (name == key || name.equals(key)) {
+                    return slot * 2;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /** The view of the entries of the map. */
+    private final class EntrySet extends AbstractSet<Entry<String, Property>> {
+
+        @NotNull
+        @Override
+        public Iterator<Entry<String, Property>> iterator() {
+            return new Iterator<Entry<String, Property>>() {
+                /** The index of the next name within the table, or the length of the table if there are no more. */
+                private int next = advance(0);
+
+                /**
+                 * Finds the next occupied slot.
+                 *
+                 * @param from the index at which to start.
+                 * @return the index of the name in the slot, or the length of the table if there are no more.
+                 */
+                private int advance(final int from) {
+                    int index = from;
+                    while (index < table.length && table[index] == null) {
+                        index += 2;
+                    }
+                    return index;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next < table.length;
+                }
+
+                @Override
+                public Entry<String, Property> next() {
+                    if (next >= table.length) {
+                        throw new NoSuchElementException();
+                    }
+                    final int index = next;
+                    next = advance(index + 2);
+                    return new SimpleImmutableEntry<>((String) table[index], (Property) table[index + 1]);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Index of the property names of a model by the first letter of each of their words, used to find the names a completion prefix may match without considering every property of the model.
+ * <p>
+ * Completion matches a prefix either against the start of a name or, with camel humps and middle matching, against the starts of its words, so {@code cP} and {@code port} both match {@code
+ * containerPort}. In every case the first character of the prefix matches the first character of some word of the name, ignoring case. The index therefore maps each character to the names having a
+ * word that starts with it; the candidates it gives are a superset of the names the prefix matches, from which the completion matcher makes the final choice.
+ * <p>
+ * A word starts at the beginning of the name, at an upper case letter, at a digit following a non-digit, and after any other character that is not a letter or digit, such as {@code -} or {@code .}.
+ */
+final class PropertyNameIndex {
+
+    /** Every name, in alphabetical order ignoring case. */
+    private final List<String> names;
+
+    /** The names having a word starting with each character, in lower case, in alphabetical order ignoring case. */
+    private final Map<Character, List<String>> namesByWordStart = new HashMap<>();
+
+    /**
+     * Creates an index.
+     *
+     * @param names the property names.
+     */
+    PropertyNameIndex(@NotNull final Collection<String> names) {
+        final String[] sortedNames = names.toArray(new String[names.size()]);
+        Arrays.sort(sortedNames, String.CASE_INSENSITIVE_ORDER);
+        this.names = Collections.unmodifiableList(Arrays.asList(sortedNames));
+        for (final String name : sortedNames) {
+            for (int i = 0; i < name.length(); i++) {
+                if (isWordStart(name, i)) {
+                    final List<String> wordNames = namesByWordStart.computeIfAbsent(Character.toLowerCase(name.charAt(i)), c -> new ArrayList<>(1));
+                    // A name with several words starting with the same character is listed once
+                    if (wordNames.isEmpty() || wordNames.get(wordNames.size() - 1) != name) {
+                        wordNames.add(name);
+                    }
+                }
+            }
+        }
+        namesByWordStart.replaceAll((c, wordNames) -> Collections.unmodifiableList(wordNames));
+    }
+
+    /**
+     * Gets whether a character of a name starts a word.
+     *
+     * @param name the name.
+     * @param index the index of the character.
+     * @return {@code true} if a word starts at the character; otherwise, {@code false}.
+     */
+    private static boolean isWordStart(@NotNull final String name, final int index) {
+        if (index == 0) {
+            return true;
+        }
+        final char c = name.charAt(index);
+        final char previous = name.charAt(index - 1);
+        return Character.isUpperCase(c) || Character.isDigit(c) && !Character.isDigit(previous) || Character.isLetterOrDigit(c) && !Character.isLetterOrDigit(previous);
+    }
+
+    /**
+     * Finds the names that a completion prefix may match.
+     *
+     * @param prefix the prefix typed so far.
+     * @return the names having a word starting with the first character of the prefix, ignoring case, or every name if the prefix is empty or does not start with a letter or digit, such as a
+     * {@code *} wildcard. The names are in alphabetical order ignoring case.
+     */
+    @NotNull
+    List<String> findCandidates(@NotNull final String prefix) {
+        if (prefix.isEmpty() || !Character.isLetterOrDigit(prefix.charAt(0))) {
+            return names;
+        }
+        return namesByWordStart.getOrDefault(Character.toLowerCase(prefix.charAt(0)), Collections.emptyList());
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.util.Comparator;
+
+/**
+ * Implementation of a {@link Comparator} for release version strings of the bundled packages, e.g. {@code 1.9} or {@code 3.6}.
+ * <p>
+ * Versions are compared component by component, numerically where both components are numbers, so that {@code 1.10} is after {@code 1.9}. A version that is a prefix of another is considered to
+ * be before it. Components that are not numbers fall back to simple lexicographic comparison.
+ */
+final class ReleaseVersionComparator implements Comparator<String> {
+
+    /** Singleton instance. */
+    static final ReleaseVersionComparator INSTANCE = new ReleaseVersionComparator();
+
+    /** Private constructor for singleton instance. */
+    private ReleaseVersionComparator() {
+    }
+
+    @Override
+    public int compare(final String o1, final String o2) {
+        final String[] partsOne = o1.split("\\.");
+        final String[] partsTwo = o2.split("\\.");
+        for (int i = 0; i < Math.min(partsOne.length, partsTwo.length); i++) {
+            int result;
+            try {
+                result = Long.compare(Long.parseLong(partsOne[i]), Long.parseLong(partsTwo[i]));
+            } catch (final NumberFormatException e) {
+                result = partsOne[i].compareTo(partsTwo[i]);
+            }
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(partsOne.length, partsTwo.length);
+    }
+}
@@ -0,0 +1,162 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.github.tinselspoon.intellij.kubernetes.ResourceTypeKey;
+
+/**
+ * The schema of a single type of resource: the spec that defines it and its root model, from which the models and properties at any path within the resource are found by following the {@linkplain
+ * ModelGraph resolved references} of the spec.
+ * <p>
+ * A {@link SchemaSnapshot} indexes the resources of each API version as its spec is loaded, so that finding the schema of a resource is a single hash lookup on its {@link ResourceTypeKey}.
+ */
+final class ResourceSchema {
+
+    /** The spec defining the resource, within which references are resolved. */
+    private final SwaggerSpec spec;
+
+    /** The root model of the resource. */
+    private final Model rootModel;
+
+    /** The resolved references of the spec. */
+    private final ModelGraph graph;
+
+    /** The cache of resolved paths, or {@code null} if paths are resolved afresh on each call. */
+    private final PathCache pathCache;
+
+    /**
+     * Creates a resource schema.
+     *
+     * @param spec the spec defining the resource.
+     * @param rootModel the root model of the resource, defined by the {@code spec}.
+     * @param graph the resolved references of the {@code spec}.
+     * @param pathCache the cache of resolved paths, or {@code null} if paths should be resolved afresh on each call.
+     */
+    ResourceSchema(@NotNull final SwaggerSpec spec, @NotNull final Model rootModel, @NotNull final ModelGraph graph, @Nullable final PathCache pathCache) {
+        this.spec = spec;
+        this.rootModel = rootModel;
+        this.graph = graph;
+        this.pathCache = pathCache;
+    }
+
+    /**
+     * Finds the schema of a resource within a spec that is not part of a snapshot, such as one converted from a custom resource definition. The references of the spec are resolved on each call,
+     * so the caller should keep the schema for as long as the spec is current.
+     *
+     * @param spec the spec to search; if {@code null}, no schema is found.
+     * @param resourceTypeKey the resource.
+     * @param pathCache the cache of resolved paths, or {@code null} if paths should be resolved afresh on each call.
+     * @return the schema, or {@code null} if the spec does not define the resource.
+     */
+    @Nullable
+    static ResourceSchema find(@Nullable final SwaggerSpec spec, @NotNull final ResourceTypeKey resourceTypeKey, @Nullable final PathCache pathCache) {
+        if (spec == null) {
+            return null;
+        }
+        final Model rootModel = spec.getModels().get(modelIdFromResourceKey(resourceTypeKey));
+        return rootModel != null ? new ResourceSchema(spec, rootModel, ModelGraph.link(spec), pathCache) : null;
+    }
+
+    /**
+     * Gets the prefix of the IDs of the root models of resources within an API version: the "version" part (e.g. {@code v1} in {@code batch/v1}) of the API version followed by a dot.
+     *
+     * @param apiVersion the API version.
+     * @return the model ID prefix.
+     */
+    @NotNull
+    static String modelIdPrefix(@NotNull final String apiVersion) {
+        return apiVersion.substring(apiVersion.indexOf('/') + 1) + ".";
+    }
+
+    /**
+     * Generates the model ID from the specified {@link ResourceTypeKey}.
+     * <p>
+     * This is achieved by concatenating the {@linkplain #modelIdPrefix(String) model ID prefix} of the resource key {@linkplain ResourceTypeKey#getApiVersion() API version} and the {@linkplain
+     * ResourceTypeKey#getKind() kind}.
+     *
+     * @param resourceTypeKey the resource type key.
+     * @return the model ID.
+     */
+    @NotNull
+    private static String modelIdFromResourceKey(@NotNull final ResourceTypeKey resourceTypeKey) {
+        return modelIdPrefix(resourceTypeKey.getApiVersion()) + resourceTypeKey.getKind();
+    }
+
+    /**
+     * Find the model that governs the property described by navigating from the root model through the properties given in the {@code path}.
+     *
+     * @param path a series of properties to navigate through, may be empty to return the root model.
+     * @return the model, or {@code null} if one cannot be found.
+     */
+    @Nullable
+    Model findModel(@NotNull final List<String> path) {
+        return pathCache != null ? pathCache.resolve(this, path) : resolve(rootModel, path, 0);
+    }
+
+    /**
+     * Find the properties that may exist as children of the property described by navigating from the root model through the properties given in the {@code path}.
+     *
+     * @param path a series of properties to navigate through, may be empty to return the properties that may be defined on the root of the resource.
+     * @return the map of property names to property specifications, may be empty if none can be found.
+     */
+    @NotNull
+    Map<String, Property> findProperties(@NotNull final List<String> path) {
+        final Model model = findModel(path);
+        return model != null ? model.getProperties() : Collections.emptyMap();
+    }
+
+    /**
+     * Gets the root model of the resource.
+     *
+     * @return the root model.
+     */
+    @NotNull
+    Model getRootModel() {
+        return rootModel;
+    }
+
+    /**
+     * Gets the spec defining the resource.
+     *
+     * @return the spec.
+     */
+    @NotNull
+    SwaggerSpec getSpec() {
+        return spec;
+    }
+
+    /**
+     * Resolves part of a path without consulting the cache.
+     *
+     * @param model the model at which to begin.
+     * @param path a series of properties to navigate through.
+     * @param start the index within the {@code path} of the first property to navigate through from the {@code model}.
+     * @return the model, or {@code null} if one cannot be found.
+     */
+    @Nullable
+    Model resolve(@NotNull final Model model, @NotNull final List<String> path, final int start) {
+        Model current = model;
+        for (int i = start; i < path.size() && current != null; i++) {
+            current = step(current, path.get(i));
+        }
+        return current;
+    }
+
+    /**
+     * Navigates from a model through a single property.
+     *
+     * @param model the model.
+     * @param propertyName the name of the property of the model.
+     * @return the model the property refers to, or {@code null} if the model has no such property or the property does not refer to a model.
+     */
+    @Nullable
+    Model step(@NotNull final Model model, @NotNull final String propertyName) {
+        final Property property = model.getProperties().get(propertyName);
+        return property != null ? graph.getTarget(property) : null;
+    }
+}
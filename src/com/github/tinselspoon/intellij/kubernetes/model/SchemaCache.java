@@ -0,0 +1,268 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.intellij.openapi.application.PathManager;
+
+/**
+ * Persistent cache of parsed schemas, so that a schema that is not bundled with the plugin, such as one supplied by the user, only has to be parsed once rather than on every start of the IDE.
+ * <p>
+ * Each schema is cached as a {@linkplain SpecSnapshotWriter snapshot} in a file named after a hash of the schema's source content, so an entry can never be out of date with respect to its source;
+ * a changed source simply has a different name. Each file ends with a trailer recording the cache format version and a checksum of the snapshot. An entry that is corrupt or was written in an
+ * older format is deleted and rebuilt from the source.
+ * <p>
+ * As every changed source adds an entry, the cache keeps only the {@linkplain #MAX_ENTRIES most recently used} entries. The time an entry was last used is recorded as the modification time of its
+ * file, which is updated whenever the entry is read, and the least recently used entries are deleted whenever a new one is written.
+ */
+final class SchemaCache {
+
+    /** Marker at the start of the trailer of every cache file. */
+    static final int TRAILER_MAGIC = 0x4B38534B;
+
+    /** The version of the cache format; must be incremented whenever a parser changes the specs it produces, as well as when the layout of the trailer changes. */
+    static final int FORMAT_VERSION = 1;
+
+    /** The number of entries kept by the cache of the IDE; enough for the clusters and spec files of several projects. */
+    static final int MAX_ENTRIES = 16;
+
+    /** The size of the trailer: the marker, format version, snapshot length and checksum. */
+    private static final int TRAILER_SIZE = 4 + 4 + 4 + 8;
+
+    /** The logger. */
+    private static final Logger logger = LoggerFactory.getLogger(SchemaCache.class);
+
+    /** Singleton instance, created on first use. */
+    private static SchemaCache instance;
+
+    /** The directory holding the cache files. */
+    private final File directory;
+
+    /** The number of entries kept; older entries are deleted. */
+    private final int maxEntries;
+
+    /**
+     * Creates a cache.
+     *
+     * @param directory the directory holding the cache files; it is created when first written to.
+     * @param maxEntries the number of most recently used entries to keep.
+     */
+    SchemaCache(@NotNull final File directory, final int maxEntries) {
+        this.directory = directory;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Gets the singleton instance, which keeps its files within the IDE system directory.
+     *
+     * @return the schema cache.
+     */
+    @NotNull
+    static synchronized SchemaCache getInstance() {
+        if (instance == null) {
+            instance = new SchemaCache(new File(PathManager.getSystemPath(), "kubernetes-schemas"), MAX_ENTRIES);
+        }
+        return instance;
+    }
+
+    /**
+     * Computes a checksum of part of an array.
+     *
+     * @param content the array.
+     * @param length the number of bytes from the start of the array to include.
+     * @return the checksum.
+     */
+    private static long checksum(@NotNull final byte[] content, final int length) {
+        final CRC32 crc = new CRC32();
+        crc.update(content, 0, length);
+        return crc.getValue();
+    }
+
+    /**
+     * Computes the key under which a schema is cached.
+     *
+     * @param kind the kind of the schema, identifying the parser for its content.
+     * @param content the source content of the schema.
+     * @return the key.
+     */
+    @NotNull
+    static String getKey(@NotNull final String kind, @NotNull final byte[] content) {
+        final byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported.", e);
+        }
+        final StringBuilder key = new StringBuilder(kind.length() + 1 + digest.length * 2).append(kind).append('-');
+        for (final byte b : digest) {
+            key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Opens a package of specs parsed from the given content, reading it from the cache if it was parsed before, or otherwise parsing it and adding it to the cache.
+     * <p>
+     * A failure to write to the cache is logged but does not prevent the package being opened. Writing an entry deletes the least recently used entries beyond the number kept.
+     *
+     * @param kind the kind of the schema, identifying the parser for its content; used to distinguish the same content read by different parsers.
+     * @param content the source content of the schema.
+     * @param parser the parser for the content.
+     * @param modelInterner table used to share identical models with the specs of other packages.
+     * @return the package.
+     * @throws IOException if the content could not be parsed.
+     */
+    @NotNull
+    SpecPackage open(@NotNull final String kind, @NotNull final byte[] content, @NotNull final Parser parser, @NotNull final ModelInterner modelInterner) throws IOException {
+        final File file = new File(directory, getKey(kind, content) + SpecSnapshotReader.SNAPSHOT_EXTENSION);
+        SpecSnapshotReader snapshotReader = read(file);
+        if (snapshotReader == null) {
+            final ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+            SpecSnapshotWriter.write(parser.parse(content), snapshot);
+            final byte[] snapshotBytes = snapshot.toByteArray();
+            try {
+                write(file, snapshotBytes);
+                prune(file);
+            } catch (final IOException e) {
+                logger.warn("Unable to write schema cache entry {}.", file, e);
+            }
+            snapshotReader = SpecSnapshotReader.open(snapshotBytes, snapshotBytes.length);
+        } else if (!file.setLastModified(System.currentTimeMillis())) {
+            // The entry is still usable, but may be pruned before entries that were used less recently
+            logger.debug("Unable to record use of schema cache entry {}.", file);
+        }
+        return new SnapshotSpecPackage(snapshotReader, modelInterner);
+    }
+
+    /**
+     * Deletes the least recently used entries beyond the number kept.
+     *
+     * @param written the entry just written, which is never deleted.
+     */
+    private void prune(@NotNull final File written) {
+        final File[] files = directory.listFiles((dir, name) -> name.endsWith(SpecSnapshotReader.SNAPSHOT_EXTENSION));
+        if (files == null || files.length <= maxEntries) {
+            return;
+        }
+        final long[] lastUsedTimes = new long[files.length];
+        final Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            lastUsedTimes[i] = files[i].equals(written) ? Long.MAX_VALUE : files[i].lastModified();
+            order[i] = i;
+        }
+        // Most recently used first; each time is read once, as another IDE instance may be using the same directory
+        Arrays.sort(order, (a, b) -> Long.compare(lastUsedTimes[b], lastUsedTimes[a]));
+        for (int i = maxEntries; i < order.length; i++) {
+            final File file = files[order[i]];
+            if (file.delete()) {
+                logger.info("Pruned schema cache entry {}.", file);
+            } else {
+                logger.warn("Unable to delete schema cache entry {}.", file);
+            }
+        }
+    }
+
+    /**
+     * Reads a cache file, deleting it if it is not valid.
+     *
+     * @param file the cache file.
+     * @return the reader for the cached snapshot, or {@code null} if there is no valid entry.
+     */
+    @Nullable
+    private SpecSnapshotReader read(@NotNull final File file) {
+        final byte[] content;
+        try {
+            content = Files.readAllBytes(file.toPath());
+        } catch (final NoSuchFileException e) {
+            return null;
+        } catch (final IOException e) {
+            logger.warn("Unable to read schema cache entry {}.", file, e);
+            return null;
+        }
+        try {
+            if (content.length < TRAILER_SIZE) {
+                throw new IOException("Truncated trailer.");
+            }
+            final ByteBuffer trailer = ByteBuffer.wrap(content, content.length - TRAILER_SIZE, TRAILER_SIZE);
+            if (trailer.getInt() != TRAILER_MAGIC) {
+                throw new IOException("Not a schema cache entry.");
+            }
+            final int formatVersion = trailer.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported schema cache format version " + formatVersion + ".");
+            }
+            final int length = trailer.getInt();
+            if (length != content.length - TRAILER_SIZE || trailer.getLong() != checksum(content, length)) {
+                throw new IOException("Checksum mismatch.");
+            }
+            return SpecSnapshotReader.open(content, length);
+        } catch (final IOException e) {
+            logger.info("Discarding schema cache entry {}: {}", file, e.getMessage());
+            if (!file.delete()) {
+                logger.warn("Unable to delete schema cache entry {}.", file);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Writes a cache file. The file is written under a temporary name and then moved into place, so that a reader never sees a partially written entry.
+     *
+     * @param file the cache file.
+     * @param snapshot the snapshot to cache.
+     * @throws IOException if the file could not be written.
+     */
+    private void write(@NotNull final File file, @NotNull final byte[] snapshot) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+            throw new IOException("Unable to create directory " + directory + ".");
+        }
+        final ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+        trailer.putInt(TRAILER_MAGIC).putInt(FORMAT_VERSION).putInt(snapshot.length).putLong(checksum(snapshot, snapshot.length));
+        final File tempFile = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            try (OutputStream out = Files.newOutputStream(tempFile.toPath())) {
+                out.write(snapshot);
+                out.write(trailer.array());
+            }
+            try {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    /** Parses the source content of a schema into specs. */
+    @FunctionalInterface
+    interface Parser {
+
+        /**
+         * Parses the source content of a schema.
+         *
+         * @param content the source content.
+         * @return the specs.
+         * @throws IOException if the content could not be parsed.
+         */
+        @NotNull
+        List<SwaggerSpec> parse(@NotNull byte[] content) throws IOException;
+    }
+}
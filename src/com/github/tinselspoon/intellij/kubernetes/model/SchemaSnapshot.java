@@ -0,0 +1,358 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.github.tinselspoon.intellij.kubernetes.ResourceTypeKey;
+
+/**
+ * The schema of a single configuration: the packages that were active and the specs merged from them.
+ * <p>
+ * A snapshot is built once for each configuration and then published by the {@link ModelLoader}, so that lookups need only read the current snapshot rather than consult the configuration on
+ * every call. The set of packages never changes once built; the merged spec for each API version is loaded on first use, without holding any lock, and then kept for the life of the snapshot.
+ */
+final class SchemaSnapshot {
+
+    /** A snapshot of a configuration with no packages enabled. */
+    static final SchemaSnapshot EMPTY = new SchemaSnapshot(Collections.emptyList(), Collections.emptyList());
+
+    /** Orders the API versions that serve a kind by preference: the core group before named groups, named groups by name, and the highest version of each group first. */
+    private static final Comparator<ApiVersion> PREFERENCE_ORDER = Comparator.comparing(ApiVersion::getGroup).thenComparing(Comparator.reverseOrder());
+
+    /** Placeholder recorded for an API version that no package has a spec for, as a concurrent map cannot hold {@code null}. */
+    private static final SwaggerSpec NO_SPEC = new SwaggerSpec();
+
+    /** The names of the resources of the packages, in order of precedence. */
+    private final List<String> resourceNames;
+
+    /** The packages, in order of precedence. */
+    private final List<SpecPackage> packages;
+
+    /** Every API version for which a package has a spec, in API version order. */
+    private final List<String> apiVersions;
+
+    /** The kinds of resource returned by the operations of each API version. */
+    private final Map<String, Set<ResourceTypeKey>> kindsByApiVersion;
+
+    /** Every API version, across all groups, that returns each kind of resource, in {@linkplain #PREFERENCE_ORDER order of preference}. */
+    private final Map<String, List<String>> apiVersionsByKind;
+
+    /** Every kind of resource in each group that returns it, at the highest version of the group. */
+    private final Set<ResourceTypeKey> latestKinds;
+
+    /** The load of the merged spec for each API version that has been requested, which completes with {@link #NO_SPEC} if there is none. */
+    private final Map<String, CompletableFuture<SwaggerSpec>> specLoads = new ConcurrentHashMap<>();
+
+    /** The schema of each resource defined by the merged specs loaded so far, keyed by API version and kind. */
+    private final Map<ResourceTypeKey, ResourceSchema> resources = new ConcurrentHashMap<>();
+
+    /** The cache of paths resolved within the resources of the snapshot. */
+    private final PathCache pathCache = new PathCache(PathCache.DEFAULT_CAPACITY);
+
+    /**
+     * Creates a snapshot.
+     *
+     * @param resourceNames the names of the resources of the packages, in order of precedence.
+     * @param packages the packages, in the same order.
+     */
+    SchemaSnapshot(@NotNull final List<String> resourceNames, @NotNull final List<SpecPackage> packages) {
+        this.resourceNames = Collections.unmodifiableList(new ArrayList<>(resourceNames));
+        this.packages = Collections.unmodifiableList(new ArrayList<>(packages));
+        // Build the suggestion tables once, so that completion only reads them; suggest any resource that appears as a return type from an API request and has an associated model, as recorded
+        // by the index
+        final Set<ApiVersion> allApiVersions = new TreeSet<>();
+        final Map<String, Set<ResourceTypeKey>> kinds = new HashMap<>();
+        final Map<String, Set<ApiVersion>> kindApiVersions = new HashMap<>();
+        for (final SpecPackage specPackage : packages) {
+            for (final SpecIndexEntry entry : specPackage.getIndex()) {
+                final ApiVersion apiVersion = ApiVersion.intern(entry.getApiVersion());
+                if (apiVersion == null) {
+                    continue;
+                }
+                if (!entry.getApiVersion().isEmpty()) {
+                    allApiVersions.add(apiVersion);
+                }
+                for (final String resourceType : entry.getResourceTypes()) {
+                    final String kind = stripModelIdPrefix(resourceType);
+                    kinds.computeIfAbsent(entry.getApiVersion(), v -> new HashSet<>()).add(new ResourceTypeKey(apiVersion, kind));
+                    kindApiVersions.computeIfAbsent(kind, k -> new TreeSet<>(PREFERENCE_ORDER)).add(apiVersion);
+                }
+            }
+        }
+        apiVersions = Collections.unmodifiableList(allApiVersions.stream().map(ApiVersion::toString).collect(Collectors.toList()));
+        kinds.replaceAll((apiVersion, apiVersionKinds) -> Collections.unmodifiableSet(apiVersionKinds));
+        kindsByApiVersion = kinds;
+        // The same kind may be served by several groups, such as Role by rbac.authorization.k8s.io and by the OpenShift core group, so keep the highest version of each group
+        final Map<String, List<String>> versionsByKind = new HashMap<>();
+        final Set<ResourceTypeKey> latest = new HashSet<>();
+        kindApiVersions.forEach((kind, versions) -> {
+            versionsByKind.put(kind, Collections.unmodifiableList(versions.stream().map(ApiVersion::toString).collect(Collectors.toList())));
+            String previousGroup = null;
+            for (final ApiVersion apiVersion : versions) {
+                if (!apiVersion.getGroup().equals(previousGroup)) {
+                    latest.add(new ResourceTypeKey(apiVersion, kind));
+                    previousGroup = apiVersion.getGroup();
+                }
+            }
+        });
+        apiVersionsByKind = versionsByKind;
+        latestKinds = Collections.unmodifiableSet(latest);
+    }
+
+    /**
+     * Removes the API version prefix from a model identifier.
+     *
+     * @param modelId the model ID to clean.
+     * @return the cleaned model ID.
+     */
+    @NotNull
+    private static String stripModelIdPrefix(@NotNull final String modelId) {
+        final int dot = modelId.indexOf('.');
+        if (dot > -1) {
+            return modelId.substring(dot + 1);
+        } else {
+            return modelId;
+        }
+    }
+
+    /**
+     * Find the model that governs the property described by navigating from the base model of the {@link ResourceTypeKey} through the properties given in the {@code path}.
+     *
+     * @param resourceTypeKey the resource at which to begin the search.
+     * @param path a series of properties to navigate through, may be empty to return the root model of the {@code ResourceTypeKey}.
+     * @return the model, or {@code null} if one cannot be found.
+     */
+    @Nullable
+    Model findModel(final ResourceTypeKey resourceTypeKey, final List<String> path) {
+        final ResourceSchema resource = getResource(resourceTypeKey);
+        return resource != null ? resource.findModel(path) : null;
+    }
+
+    /**
+     * Find the properties that may exist as children of the property described by navigating from the base model of the {@link ResourceTypeKey} through the properties given in the {@code path}.
+     *
+     * @param resourceTypeKey the resource at which to begin the search.
+     * @param path a series of properties to navigate through, may be empty to return the properties that may be defined on the root of the {@code ResourceTypeKey}.
+     * @return the map of property names to property specifications, may be empty if none can be found.
+     */
+    @NotNull
+    Map<String, Property> findProperties(final ResourceTypeKey resourceTypeKey, final List<String> path) {
+        final ResourceSchema resource = getResource(resourceTypeKey);
+        return resource != null ? resource.findProperties(path) : Collections.emptyMap();
+    }
+
+    /**
+     * Gets the packages of the snapshot.
+     *
+     * @return the packages, in order of precedence.
+     */
+    @NotNull
+    List<SpecPackage> getPackages() {
+        return packages;
+    }
+
+    /**
+     * Gets the cache of paths resolved within the resources of the snapshot.
+     *
+     * @return the cache.
+     */
+    @NotNull
+    PathCache getPathCache() {
+        return pathCache;
+    }
+
+    /**
+     * Gets the schema of a resource, loading the spec for the resource's API version if it has not been already; if another thread is loading it, this waits for that load to finish. Once the spec
+     * has been loaded, finding any resource of the API version is a single hash lookup.
+     * <p>
+     * As this may block for some time, lookups made from completion and annotators should instead use {@link #getLoadedResource(ResourceTypeKey)} and {@link #loadSpecInBackground(String, Executor)}.
+     *
+     * @param resourceTypeKey the resource key to search for.
+     * @return the schema, or {@code null} if no spec defines the resource.
+     */
+    @Nullable
+    ResourceSchema getResource(@NotNull final ResourceTypeKey resourceTypeKey) {
+        final ResourceSchema resource = resources.get(resourceTypeKey);
+        if (resource != null || resourceTypeKey.getApiVersion() == null) {
+            return resource;
+        }
+        getSpec(resourceTypeKey.getApiVersion());
+        return resources.get(resourceTypeKey);
+    }
+
+    /**
+     * Gets the schema of a resource, only if the spec for the resource's API version has been loaded already. This never blocks.
+     *
+     * @param resourceTypeKey the resource key to search for.
+     * @return the schema, or {@code null} if no spec defines the resource or the spec has not been loaded yet.
+     */
+    @Nullable
+    ResourceSchema getLoadedResource(@NotNull final ResourceTypeKey resourceTypeKey) {
+        return resources.get(resourceTypeKey);
+    }
+
+    /**
+     * Gets the names of the resources of the packages of the snapshot.
+     *
+     * @return the resource names excluding the file extension, in order of precedence.
+     */
+    @NotNull
+    List<String> getResourceNames() {
+        return resourceNames;
+    }
+
+    /**
+     * Gets the merged spec for an API version across all packages, loading it if it has not been already; if another thread is loading it, this waits for that load to finish.
+     * <p>
+     * The specs of the packages are {@linkplain SpecMerger merged} so that the API version has a single spec, with Kubernetes models taking precedence over those re-declared by OpenShift.
+     *
+     * @param apiVersion the API version.
+     * @return the spec, or {@code null} if no package has a spec for the API version.
+     */
+    @Nullable
+    SwaggerSpec getSpec(@NotNull final String apiVersion) {
+        CompletableFuture<SwaggerSpec> load = specLoads.get(apiVersion);
+        if (load == null) {
+            final CompletableFuture<SwaggerSpec> newLoad = new CompletableFuture<>();
+            load = specLoads.putIfAbsent(apiVersion, newLoad);
+            if (load == null) {
+                load = newLoad;
+                startLoad(apiVersion, newLoad, Runnable::run);
+            }
+        }
+        final SwaggerSpec merged;
+        try {
+            merged = load.join();
+        } catch (final CompletionException e) {
+            throw new RuntimeException("Error loading spec for " + apiVersion + ".", e.getCause());
+        }
+        return merged == NO_SPEC ? null : merged;
+    }
+
+    /**
+     * Checks whether the merged spec for an API version has been loaded, or has failed to load. This never blocks.
+     *
+     * @param apiVersion the API version.
+     * @return {@code true} if loading has finished, in which case {@link #getLoadedResource(ResourceTypeKey)} finds every resource of the API version.
+     */
+    boolean isSpecLoaded(@NotNull final String apiVersion) {
+        final CompletableFuture<SwaggerSpec> load = specLoads.get(apiVersion);
+        return load != null && load.isDone();
+    }
+
+    /**
+     * Starts loading the merged spec for an API version on an executor, unless it has been loaded or is being loaded already. This never blocks.
+     *
+     * @param apiVersion the API version.
+     * @param executor the executor on which to load the spec.
+     * @return the load, if this call started it; {@code null} if the spec has been loaded or is being loaded already.
+     */
+    @Nullable
+    CompletableFuture<SwaggerSpec> loadSpecInBackground(@NotNull final String apiVersion, @NotNull final Executor executor) {
+        final CompletableFuture<SwaggerSpec> newLoad = new CompletableFuture<>();
+        if (specLoads.putIfAbsent(apiVersion, newLoad) != null) {
+            return null;
+        }
+        startLoad(apiVersion, newLoad, executor);
+        return newLoad;
+    }
+
+    /**
+     * Merges the specs of every package for an API version, resolves its references and indexes the resources it defines. The resources are indexed before the load of the spec completes, so that
+     * any thread that sees the load finished also sees its resources.
+     *
+     * @param apiVersion the API version.
+     * @return the merged spec, or {@link #NO_SPEC} if no package has a spec for the API version.
+     */
+    @NotNull
+    private SwaggerSpec mergeSpec(@NotNull final String apiVersion) {
+        final List<SwaggerSpec> specs = new ArrayList<>();
+        for (final SpecPackage specPackage : packages) {
+            specs.addAll(specPackage.getSpecs(apiVersion));
+        }
+        final SwaggerSpec merged = specs.isEmpty() ? NO_SPEC : SpecMerger.merge(specs).get(0);
+        final ModelGraph graph = ModelGraph.link(merged);
+        final String modelIdPrefix = ResourceSchema.modelIdPrefix(apiVersion);
+        merged.getModels().forEach((modelId, model) -> {
+            if (modelId.startsWith(modelIdPrefix)) {
+                resources.put(new ResourceTypeKey(apiVersion, modelId.substring(modelIdPrefix.length())), new ResourceSchema(merged, model, graph, pathCache));
+            }
+        });
+        return merged;
+    }
+
+    /**
+     * Loads the merged spec for an API version on an executor, completing a load that has been recorded for it. No lock is held while loading, so that loading one API version never delays
+     * lookups of another.
+     * <p>
+     * A load that fails is kept, so that lookups do not keep starting loads that are bound to fail again; the failure is reported to every caller that waits for the spec.
+     *
+     * @param apiVersion the API version.
+     * @param load the load recorded for the API version, which this call alone completes.
+     * @param executor the executor on which to load the spec.
+     */
+    private void startLoad(@NotNull final String apiVersion, @NotNull final CompletableFuture<SwaggerSpec> load, @NotNull final Executor executor) {
+        try {
+            executor.execute(() -> {
+                try {
+                    load.complete(mergeSpec(apiVersion));
+                } catch (final RuntimeException | Error e) {
+                    load.completeExceptionally(e);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            // Nothing was started, so let a later request try again
+            specLoads.remove(apiVersion, load);
+            load.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Suggest a set of values for the "apiVersion" field. The values are computed when the snapshot is built.
+     *
+     * @return all possible API versions, in API version order.
+     */
+    @NotNull
+    List<String> suggestApiVersions() {
+        return apiVersions;
+    }
+
+    /**
+     * Suggest a set of values for the "apiVersion" field of a resource of a given kind. The values are computed when the snapshot is built.
+     *
+     * @param kind the kind of the resource.
+     * @return the API versions of every group that serves the kind, in order of preference: the core group first, then named groups by name, and the highest version of each group first; empty
+     * if the kind is not known.
+     */
+    @NotNull
+    List<String> suggestApiVersions(@NotNull final String kind) {
+        return apiVersionsByKind.getOrDefault(kind, Collections.emptyList());
+    }
+
+    /**
+     * Suggest a set of values for the "kind" field. The values are computed when the snapshot is built.
+     *
+     * @param apiVersion the API version for which kinds will be returned; if null, then kinds for all API versions will be returned, each at the highest version of every group that defines it.
+     * @return a set of possible kinds, which must not be modified.
+     */
+    @NotNull
+    Set<ResourceTypeKey> suggestKinds(@Nullable final String apiVersion) {
+        return apiVersion == null ? latestKinds : kindsByApiVersion.getOrDefault(apiVersion, Collections.emptySet());
+    }
+}
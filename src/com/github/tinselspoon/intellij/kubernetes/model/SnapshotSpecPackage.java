@@ -0,0 +1,29 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link SpecPackage} backed by a precompiled snapshot. The index is read from the snapshot's directory, so opening the package does not decode any spec.
+ */
+final class SnapshotSpecPackage extends SpecPackage {
+
+    /** The reader for the snapshot. */
+    private final SpecSnapshotReader snapshotReader;
+
+    /**
+     * Creates a package.
+     *
+     * @param snapshotReader the reader for the snapshot.
+     * @param modelInterner table used to share identical models with the specs of other packages.
+     */
+    SnapshotSpecPackage(@NotNull final SpecSnapshotReader snapshotReader, @NotNull final ModelInterner modelInterner) {
+        super(snapshotReader.getIndex(), modelInterner);
+        this.snapshotReader = snapshotReader;
+    }
+
+    @NotNull
+    @Override
+    protected SwaggerSpec readSpec(final int position) {
+        return snapshotReader.readSpec(position);
+    }
+}
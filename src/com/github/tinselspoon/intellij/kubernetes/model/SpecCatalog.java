@@ -0,0 +1,309 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Catalog of the spec archives bundled with the plugin, listing each version of each package along with the API versions and number of models it holds and whether it is the default version.
+ * <p>
+ * The catalog is generated from the archives at build time by {@link SpecSnapshotWriter#main(String[])}, and is read once, so that the available versions need not be listed in code and choosing a
+ * version never requires probing for a resource that may not exist. The default version of each package is the latest by {@linkplain ReleaseVersionComparator release version ordering}.
+ */
+public final class SpecCatalog {
+
+    /** The name of the Kubernetes package. */
+    public static final String KUBERNETES = "kubernetes";
+
+    /** The name of the OpenShift package. */
+    public static final String OPENSHIFT = "openshift";
+
+    /** The directory within the classpath holding the bundled spec resources. */
+    static final String RESOURCE_DIRECTORY = "com/github/tinselspoon/intellij/kubernetes/";
+
+    /** The file name of the catalog, within the {@linkplain #RESOURCE_DIRECTORY resource directory}. */
+    static final String CATALOG_FILE_NAME = "spec-catalog.json";
+
+    /** Regex matching the names of bundled spec archives, capturing the package name and version. */
+    static final Pattern ARCHIVE_NAME_REGEX = Pattern.compile("(?<package>kubernetes|openshift)-(?<version>.+)\\.zip");
+
+    /** Singleton instance, read on first use. */
+    private static SpecCatalog instance;
+
+    /** The versions of each package, latest first. */
+    private final Map<String, List<Entry>> packages;
+
+    /**
+     * Creates a catalog.
+     *
+     * @param packages the versions of each package, in any order.
+     */
+    private SpecCatalog(@NotNull final Map<String, List<Entry>> packages) {
+        final Map<String, List<Entry>> sortedPackages = new TreeMap<>();
+        packages.forEach((name, entries) -> {
+            final List<Entry> sortedEntries = new ArrayList<>(entries);
+            sortedEntries.sort(Comparator.comparing((Entry e) -> e.version, ReleaseVersionComparator.INSTANCE).reversed());
+            sortedPackages.put(name, Collections.unmodifiableList(sortedEntries));
+        });
+        this.packages = Collections.unmodifiableMap(sortedPackages);
+    }
+
+    /**
+     * Builds a catalog of the spec archives within a directory, marking the latest version of each package as the default.
+     *
+     * @param directory the directory containing the spec archives.
+     * @return the catalog.
+     * @throws IOException if an archive could not be read.
+     */
+    @NotNull
+    static SpecCatalog build(@NotNull final File directory) throws IOException {
+        final File[] archives = directory.listFiles((dir, name) -> ARCHIVE_NAME_REGEX.matcher(name).matches());
+        if (archives == null) {
+            throw new IOException("Not a directory: " + directory);
+        }
+        final Map<String, List<Entry>> packages = new TreeMap<>();
+        for (final File archive : archives) {
+            final Matcher matcher = ARCHIVE_NAME_REGEX.matcher(archive.getName());
+            if (!matcher.matches()) {
+                continue;
+            }
+            final List<SwaggerSpec> specs;
+            try (InputStream in = new FileInputStream(archive)) {
+                specs = ModelLoader.loadSpecsFromZip(in);
+            }
+            final Entry entry = new Entry();
+            entry.version = matcher.group("version");
+            entry.resource = archive.getName().substring(0, archive.getName().length() - ".zip".length());
+            final TreeSet<String> apiVersions = new TreeSet<>(ApiVersionComparator.INSTANCE);
+            for (final SwaggerSpec spec : specs) {
+                if (spec.getApiVersion() != null && !spec.getApiVersion().isEmpty()) {
+                    apiVersions.add(spec.getApiVersion());
+                }
+                entry.modelCount += spec.getModels().size();
+            }
+            entry.apiVersions = new ArrayList<>(apiVersions);
+            packages.computeIfAbsent(matcher.group("package"), p -> new ArrayList<>()).add(entry);
+        }
+        final SpecCatalog catalog = new SpecCatalog(packages);
+        catalog.packages.values().forEach(entries -> entries.get(0).isDefault = true);
+        return catalog;
+    }
+
+    /**
+     * Gets the catalog of the bundled spec archives, reading it on first use.
+     *
+     * @return the catalog.
+     * @throws IllegalStateException if the catalog was not bundled or could not be read, which means the plugin was not built correctly.
+     */
+    @NotNull
+    public static synchronized SpecCatalog getInstance() {
+        if (instance == null) {
+            try (InputStream in = SpecCatalog.class.getClassLoader().getResourceAsStream(RESOURCE_DIRECTORY + CATALOG_FILE_NAME)) {
+                if (in == null) {
+                    throw new IllegalStateException("The spec catalog was not bundled.");
+                }
+                instance = read(new InputStreamReader(in, StandardCharsets.UTF_8));
+            } catch (final IOException e) {
+                throw new IllegalStateException("Unable to read the spec catalog.", e);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Creates the Gson instance used to read and write catalogs.
+     *
+     * @return the Gson instance.
+     */
+    @NotNull
+    private static Gson createGson() {
+        return new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+    }
+
+    /**
+     * Reads a catalog.
+     *
+     * @param reader the reader supplying the catalog JSON; it is not closed.
+     * @return the catalog.
+     * @throws IOException if the catalog is not well formed.
+     */
+    @NotNull
+    static SpecCatalog read(@NotNull final Reader reader) throws IOException {
+        final Map<String, List<Entry>> packages;
+        try {
+            packages = createGson().fromJson(reader, new TypeToken<Map<String, List<Entry>>>() {
+            }.getType());
+        } catch (final JsonParseException e) {
+            throw new IOException("Unable to parse the spec catalog.", e);
+        }
+        return new SpecCatalog(packages != null ? packages : Collections.emptyMap());
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return packages.equals(((SpecCatalog) o).packages);
+    }
+
+    /**
+     * Finds the catalog entry for a version of a package.
+     *
+     * @param packageName the name of the package.
+     * @param version the version, or {@code null} for the default version.
+     * @return the entry, or {@code null} if the package or version is not bundled.
+     */
+    @Nullable
+    Entry find(@NotNull final String packageName, @Nullable final String version) {
+        for (final Entry entry : packages.getOrDefault(packageName, Collections.emptyList())) {
+            if (version == null ? entry.isDefault : version.equals(entry.version)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the bundled versions of a package.
+     *
+     * @param packageName the name of the package.
+     * @return the versions, latest first; empty if the package is not bundled.
+     */
+    @NotNull
+    public List<String> getVersions(@NotNull final String packageName) {
+        final List<String> versions = new ArrayList<>();
+        packages.getOrDefault(packageName, Collections.emptyList()).forEach(entry -> versions.add(entry.version));
+        return versions;
+    }
+
+    @Override
+    public int hashCode() {
+        return packages.hashCode();
+    }
+
+    /**
+     * Writes the catalog.
+     *
+     * @param writer the writer to write the catalog JSON to; it is not closed.
+     * @throws IOException if the catalog could not be written.
+     */
+    void write(@NotNull final Writer writer) throws IOException {
+        createGson().toJson(packages, writer);
+        writer.write('\n');
+        writer.flush();
+    }
+
+    /** The catalog entry for a single version of a package. */
+    static final class Entry {
+
+        /** The API versions defined by the specs of the version, in API version order. */
+        private List<String> apiVersions = new ArrayList<>();
+
+        /** Whether this is the default version of its package, used when no version is chosen. */
+        @SerializedName("default")
+        private boolean isDefault;
+
+        /** The total number of models defined by the specs of the version. */
+        private int modelCount;
+
+        /** The name of the resources of the version within the {@linkplain #RESOURCE_DIRECTORY resource directory}, excluding the file extension. */
+        private String resource;
+
+        /** The version. */
+        private String version;
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Entry that = (Entry) o;
+            return isDefault == that.isDefault && modelCount == that.modelCount && Objects.equals(apiVersions, that.apiVersions) && Objects.equals(resource, that.resource)
+                   && Objects.equals(version, that.version);
+        }
+
+        /**
+         * Gets the API versions defined by the specs of the version.
+         *
+         * @return the API versions, in API version order.
+         */
+        @NotNull
+        List<String> getApiVersions() {
+            return apiVersions;
+        }
+
+        /**
+         * Gets the total number of models defined by the specs of the version.
+         *
+         * @return the model count.
+         */
+        int getModelCount() {
+            return modelCount;
+        }
+
+        /**
+         * Gets the path to the resources of the version within the classpath.
+         *
+         * @return the path, excluding the file extension.
+         */
+        @NotNull
+        String getResourceName() {
+            return RESOURCE_DIRECTORY + resource;
+        }
+
+        /**
+         * Gets the version.
+         *
+         * @return the version.
+         */
+        @NotNull
+        String getVersion() {
+            return version;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(apiVersions, isDefault, modelCount, resource, version);
+        }
+
+        /**
+         * Gets whether this is the default version of its package.
+         *
+         * @return {@code true} if this is the default version; otherwise, {@code false}.
+         */
+        boolean isDefault() {
+            return isDefault;
+        }
+    }
+}
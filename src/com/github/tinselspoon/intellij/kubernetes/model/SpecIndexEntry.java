@@ -0,0 +1,111 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Describes a single spec within a {@link SpecPackage}, so that the spec can be found without loading it.
+ */
+final class SpecIndexEntry {
+
+    /** The API version the spec applies to. */
+    private final String apiVersion;
+
+    /** The IDs of the models the spec defines. */
+    private final Set<String> modelIds;
+
+    /** The model IDs of the resources that may be created through the spec's APIs, i.e. the types of its POST operations for which it defines a model. */
+    private final Set<String> resourceTypes;
+
+    /**
+     * Creates an index entry.
+     *
+     * @param apiVersion the API version the spec applies to.
+     * @param modelIds the IDs of the models the spec defines.
+     * @param resourceTypes the model IDs of the resources that may be created through the spec's APIs.
+     */
+    SpecIndexEntry(@Nullable final String apiVersion, @NotNull final Set<String> modelIds, @NotNull final Set<String> resourceTypes) {
+        this.apiVersion = apiVersion;
+        this.modelIds = Collections.unmodifiableSet(modelIds);
+        this.resourceTypes = Collections.unmodifiableSet(resourceTypes);
+    }
+
+    /**
+     * Creates the index entry describing a spec that has already been loaded.
+     *
+     * @param spec the spec.
+     * @return the index entry.
+     */
+    @NotNull
+    static SpecIndexEntry of(@NotNull final SwaggerSpec spec) {
+        final Set<String> modelIds = new HashSet<>();
+        for (final Map.Entry<String, Model> model : spec.getModels().entrySet()) {
+            modelIds.add(model.getKey());
+            if (model.getValue().getId() != null) {
+                modelIds.add(model.getValue().getId());
+            }
+        }
+        final Set<String> resourceTypes = new HashSet<>();
+        for (final Api api : spec.getApis()) {
+            for (final ApiOperation operation : api.getOperations()) {
+                if ("POST".equals(operation.getMethod()) && modelIds.contains(operation.getType())) {
+                    resourceTypes.add(operation.getType());
+                }
+            }
+        }
+        return new SpecIndexEntry(spec.getApiVersion(), modelIds, resourceTypes);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final SpecIndexEntry that = (SpecIndexEntry) o;
+        return Objects.equals(apiVersion, that.apiVersion) && modelIds.equals(that.modelIds) && resourceTypes.equals(that.resourceTypes);
+    }
+
+    /**
+     * Gets the API version the spec applies to.
+     *
+     * @return the API version.
+     */
+    @Nullable
+    String getApiVersion() {
+        return apiVersion;
+    }
+
+    /**
+     * Gets the IDs of the models the spec defines.
+     *
+     * @return the model IDs.
+     */
+    @NotNull
+    Set<String> getModelIds() {
+        return modelIds;
+    }
+
+    /**
+     * Gets the model IDs of the resources that may be created through the spec's APIs, i.e. the types of its POST operations for which it defines a model.
+     *
+     * @return the resource types.
+     */
+    @NotNull
+    Set<String> getResourceTypes() {
+        return resourceTypes;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(apiVersion, modelIds, resourceTypes);
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Merges the specs of several packages into a single spec per API version.
+ * <p>
+ * The OpenShift specs re-declare many of the core Kubernetes models, such as {@code v1.ObjectMeta} and {@code v1.PodSpec}, under the same API version. Merging ensures each model is held and
+ * searched only once. Where the same model ID is declared more than once within an API version, the first declaration takes precedence; packages should therefore be given in order of precedence,
+ * i.e. Kubernetes before OpenShift, so that the Kubernetes version chosen in the configuration governs the core models.
+ */
+final class SpecMerger {
+
+    /** Static class private constructor. */
+    private SpecMerger() {
+    }
+
+    /**
+     * Merges specs into a single spec per API version.
+     *
+     * @param specs the specs to merge, in order of precedence.
+     * @return the merged specs, in the order in which each API version was first encountered.
+     */
+    @NotNull
+    static List<SwaggerSpec> merge(@NotNull final List<SwaggerSpec> specs) {
+        final Map<String, SwaggerSpec> specsByApiVersion = new LinkedHashMap<>();
+        for (final SwaggerSpec spec : specs) {
+            final SwaggerSpec merged = specsByApiVersion.computeIfAbsent(spec.getApiVersion(), apiVersion -> {
+                final SwaggerSpec newSpec = new SwaggerSpec();
+                newSpec.setApiVersion(apiVersion);
+                return newSpec;
+            });
+            for (final Api api : spec.getApis()) {
+                if (!merged.getApis().contains(api)) {
+                    merged.getApis().add(api);
+                }
+            }
+            for (final Map.Entry<String, Model> entry : spec.getModels().entrySet()) {
+                merged.getModels().putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+        return new ArrayList<>(specsByApiVersion.values());
+    }
+}
@@ -0,0 +1,159 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The specs of a single version of a package, such as Kubernetes 1.9, which are loaded individually on first use.
+ * <p>
+ * A package is opened by reading only its {@linkplain #getIndex() index}, which records the API version and models of each spec. A spec is then loaded when it is first requested by API version,
+ * so that a document that only uses one API group does not pay for parsing every group in the package. Swagger 1.2 specs are self-contained, so every model a spec refers to is loaded with it.
+ * <p>
+ * Each spec is loaded at most once at a time; concurrent requests for the same spec wait for a single load, and a load that fails is not kept so that it can be retried.
+ */
+abstract class SpecPackage {
+
+    /** An empty package, for versions that do not exist. */
+    static final SpecPackage EMPTY = new SpecPackage(Collections.emptyList(), new ModelInterner()) {
+        @NotNull
+        @Override
+        protected SwaggerSpec readSpec(final int position) {
+            throw new IndexOutOfBoundsException("Empty package.");
+        }
+    };
+
+    /** The index of the specs within the package, in order. */
+    private final List<SpecIndexEntry> index;
+
+    /** Table used to share identical models with the specs of other packages. */
+    private final ModelInterner modelInterner;
+
+    /** The loads of each spec that has been requested, by position within the index. */
+    private final AtomicReferenceArray<CompletableFuture<SwaggerSpec>> loads;
+
+    /**
+     * Creates a package.
+     *
+     * @param index the index of the specs within the package, in order.
+     * @param modelInterner table used to share identical models with the specs of other packages.
+     */
+    SpecPackage(@NotNull final List<SpecIndexEntry> index, @NotNull final ModelInterner modelInterner) {
+        this.index = Collections.unmodifiableList(index);
+        this.modelInterner = modelInterner;
+        this.loads = new AtomicReferenceArray<>(index.size());
+    }
+
+    /**
+     * Gets the index of the specs within the package.
+     *
+     * @return the index entries, in order.
+     */
+    @NotNull
+    List<SpecIndexEntry> getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets the specs that have been loaded so far.
+     *
+     * @return the loaded specs.
+     */
+    @NotNull
+    List<SwaggerSpec> getLoadedSpecs() {
+        final List<SwaggerSpec> specs = new ArrayList<>();
+        for (int i = 0; i < loads.length(); i++) {
+            final CompletableFuture<SwaggerSpec> load = loads.get(i);
+            if (load != null && load.isDone() && !load.isCompletedExceptionally()) {
+                specs.add(load.join());
+            }
+        }
+        return specs;
+    }
+
+    /**
+     * Gets the specs for an API version, loading them if they have not been already.
+     *
+     * @param apiVersion the API version.
+     * @return the specs, in package order; empty if the package has no spec for the API version.
+     */
+    @NotNull
+    List<SwaggerSpec> getSpecs(@Nullable final String apiVersion) {
+        final List<SwaggerSpec> specs = new ArrayList<>();
+        for (int i = 0; i < index.size(); i++) {
+            final String entryApiVersion = index.get(i).getApiVersion();
+            if (apiVersion == null ? entryApiVersion == null : apiVersion.equals(entryApiVersion)) {
+                specs.add(getSpec(i));
+            }
+        }
+        return specs;
+    }
+
+    /**
+     * Gets every spec in the package, loading those that have not been already.
+     *
+     * @return the specs, in package order.
+     */
+    @NotNull
+    List<SwaggerSpec> getAllSpecs() {
+        final List<SwaggerSpec> specs = new ArrayList<>(index.size());
+        for (int i = 0; i < index.size(); i++) {
+            specs.add(getSpec(i));
+        }
+        return specs;
+    }
+
+    /**
+     * Gets a spec, loading it if it has not been already. If another thread is already loading the spec, this waits for that load to finish rather than starting another.
+     *
+     * @param position the position of the spec within the index.
+     * @return the spec.
+     */
+    @NotNull
+    private SwaggerSpec getSpec(final int position) {
+        final CompletableFuture<SwaggerSpec> newLoad = new CompletableFuture<>();
+        if (!loads.compareAndSet(position, null, newLoad)) {
+            final CompletableFuture<SwaggerSpec> existingLoad = loads.get(position);
+            if (existingLoad != null) {
+                try {
+                    return existingLoad.join();
+                } catch (final CompletionException e) {
+                    throw new RuntimeException("Error loading spec for " + index.get(position).getApiVersion() + ".", e.getCause());
+                }
+            }
+            // The previous load failed and was discarded in the meantime, so try again
+            return getSpec(position);
+        }
+        try {
+            final SwaggerSpec spec = modelInterner.internSpec(readSpec(position));
+            newLoad.complete(spec);
+            return spec;
+        } catch (final IOException e) {
+            loads.compareAndSet(position, newLoad, null);
+            newLoad.completeExceptionally(e);
+            throw new RuntimeException("Error reading spec for " + index.get(position).getApiVersion() + ".", e);
+        } catch (final RuntimeException | Error e) {
+            // Do not keep the failure, so that a later request can try again
+            loads.compareAndSet(position, newLoad, null);
+            newLoad.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a spec from the package.
+     *
+     * @param position the position of the spec within the index.
+     * @return the spec.
+     * @throws IOException if the spec could not be read.
+     */
+    @NotNull
+    protected abstract SwaggerSpec readSpec(int position) throws IOException;
+}
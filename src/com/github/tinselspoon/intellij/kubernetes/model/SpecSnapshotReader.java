@@ -0,0 +1,326 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.intellij.openapi.util.io.FileUtil;
+
+/**
+ * Reads a precompiled binary snapshot of a set of {@link SwaggerSpec}s, as produced by {@link SpecSnapshotWriter}.
+ * <p>
+ * A snapshot consists of a header, a table of every distinct string used within the specs, a directory giving the {@linkplain SpecIndexEntry index entry} and location of each spec, and then the
+ * specs themselves, whose models and properties refer to strings by their index within the string table. The whole snapshot is read into memory in one go, but each spec is only decoded when it is
+ * requested, and strings are only decoded when a spec that uses them is. This is considerably cheaper than inflating and binding the equivalent Swagger JSON.
+ * <p>
+ * Descriptions are kept in a separate table at the end of the snapshot, which is added to the {@link DescriptionStore} as soon as the snapshot is opened; only the part of the snapshot before the
+ * descriptions is kept in memory afterwards.
+ */
+final class SpecSnapshotReader {
+
+    /** The extension given to snapshot resources, which otherwise share the name of the archive they were generated from. */
+    static final String SNAPSHOT_EXTENSION = ".snapshot";
+
+    /** Marker at the start of every snapshot, to guard against reading an unrelated file. */
+    static final int MAGIC = 0x4B38534E;
+
+    /** The version of the snapshot format; must be incremented whenever the layout written by {@link SpecSnapshotWriter} changes. */
+    static final int FORMAT_VERSION = 3;
+
+    /** The size of the header: the marker, the format version, and the position of the description table. */
+    static final int HEADER_SIZE = 12;
+
+    /** Index written in place of a string or description table reference when the string is {@code null}. */
+    static final int NULL_INDEX = -1;
+
+    /** The content of the snapshot. */
+    private final ByteBuffer buffer;
+
+    /** The position of each string within the snapshot, by string table index. */
+    private final int[] stringPositions;
+
+    /** Strings that have been decoded, by string table index. */
+    private final String[] strings;
+
+    /** The ID of each description within the {@link DescriptionStore}, by description table index. */
+    private final int[] descriptionIds;
+
+    /** The table through which the descriptions were added, which keeps them in the {@link DescriptionStore} while any spec read from the snapshot is in use. */
+    private final DescriptionStore.Table descriptionTable;
+
+    /** The index entry of each spec. */
+    private final List<SpecIndexEntry> index;
+
+    /** The position of each spec within the snapshot, in index order. */
+    private final int[] specPositions;
+
+    /**
+     * Reads the header, string table positions and directory of a snapshot, and adds its descriptions to the {@link DescriptionStore}.
+     *
+     * @param content the content of the snapshot, positioned at its start.
+     * @throws IOException if the content is not a snapshot in the current format.
+     */
+    private SpecSnapshotReader(@NotNull final ByteBuffer content) throws IOException {
+        if (content.remaining() < HEADER_SIZE || content.getInt() != MAGIC) {
+            throw new IOException("Not a spec snapshot.");
+        }
+        final int formatVersion = content.getInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported spec snapshot format version " + formatVersion + ".");
+        }
+        final int descriptionsPosition = content.getInt();
+
+        content.position(descriptionsPosition);
+        descriptionIds = new int[content.getInt()];
+        descriptionTable = DescriptionStore.getInstance().newTable();
+        for (int i = 0; i < descriptionIds.length; i++) {
+            final byte[] bytes = new byte[content.getInt()];
+            content.get(bytes);
+            descriptionIds[i] = descriptionTable.addEncoded(bytes);
+        }
+
+        // Keep only the string table, directory and specs, so that the descriptions are not held twice
+        buffer = ByteBuffer.wrap(Arrays.copyOf(content.array(), descriptionsPosition));
+        buffer.position(HEADER_SIZE);
+
+        stringPositions = new int[buffer.getInt()];
+        strings = new String[stringPositions.length];
+        for (int i = 0; i < stringPositions.length; i++) {
+            stringPositions[i] = buffer.position();
+            buffer.position(buffer.position() + 4 + buffer.getInt(buffer.position()));
+        }
+
+        final int specCount = buffer.getInt();
+        final List<SpecIndexEntry> entries = new ArrayList<>(specCount);
+        final int[] relativePositions = new int[specCount];
+        for (int i = 0; i < specCount; i++) {
+            final String apiVersion = readString(buffer);
+            relativePositions[i] = buffer.getInt();
+            final Set<String> modelIds = readStringSet(buffer);
+            final Set<String> resourceTypes = readStringSet(buffer);
+            entries.add(new SpecIndexEntry(apiVersion, modelIds, resourceTypes));
+        }
+        final int bodiesPosition = buffer.position();
+        specPositions = new int[specCount];
+        for (int i = 0; i < specCount; i++) {
+            specPositions[i] = bodiesPosition + relativePositions[i];
+        }
+        index = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Opens a snapshot, reading its directory but not yet any of its specs.
+     *
+     * @param inputStream the stream to read; it is read fully but not closed.
+     * @return the reader for the snapshot.
+     * @throws IOException if the stream could not be read, or does not contain a snapshot in the current format.
+     */
+    @NotNull
+    static SpecSnapshotReader open(@NotNull final InputStream inputStream) throws IOException {
+        final byte[] content = FileUtil.loadBytes(inputStream);
+        return open(content, content.length);
+    }
+
+    /**
+     * Opens a snapshot held in memory, reading its directory but not yet any of its specs.
+     *
+     * @param content the array holding the snapshot, which begins at its start; it is not kept once the snapshot has been opened.
+     * @param length the length of the snapshot, which may be less than that of the array.
+     * @return the reader for the snapshot.
+     * @throws IOException if the content is not a snapshot in the current format.
+     */
+    @NotNull
+    static SpecSnapshotReader open(@NotNull final byte[] content, final int length) throws IOException {
+        try {
+            return new SpecSnapshotReader(ByteBuffer.wrap(content, 0, length));
+        } catch (final BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+            throw new IOException("Truncated spec snapshot.", e);
+        }
+    }
+
+    /**
+     * Reads every spec in a snapshot from the given stream.
+     *
+     * @param inputStream the stream to read; it is read fully but not closed.
+     * @return the specs contained in the snapshot.
+     * @throws IOException if the stream could not be read, or does not contain a snapshot in the current format.
+     */
+    @NotNull
+    static List<SwaggerSpec> read(@NotNull final InputStream inputStream) throws IOException {
+        final SpecSnapshotReader reader = open(inputStream);
+        final List<SwaggerSpec> specs = new ArrayList<>(reader.getIndex().size());
+        for (int i = 0; i < reader.getIndex().size(); i++) {
+            specs.add(reader.readSpec(i));
+        }
+        return specs;
+    }
+
+    /**
+     * Reads a {@link FieldType} stored as its ordinal.
+     *
+     * @param buffer the buffer to read from.
+     * @return the field type, or {@code null} if none was stored.
+     */
+    @Nullable
+    private static FieldType readFieldType(@NotNull final ByteBuffer buffer) {
+        final byte ordinal = buffer.get();
+        return ordinal < 0 ? null : FieldType.values()[ordinal];
+    }
+
+    /**
+     * Gets the index entry of each spec in the snapshot.
+     *
+     * @return the index entries, in order.
+     */
+    @NotNull
+    List<SpecIndexEntry> getIndex() {
+        return index;
+    }
+
+    /**
+     * Decodes a string from the string table.
+     *
+     * @param stringIndex the index of the string.
+     * @return the string.
+     */
+    @NotNull
+    private String decodeString(final int stringIndex) {
+        final int position = stringPositions[stringIndex];
+        return new String(buffer.array(), position + 4, buffer.getInt(position), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a reference into the description table.
+     *
+     * @param buffer the buffer to read from.
+     * @return the ID of the description within the {@link DescriptionStore}, or {@link DescriptionStore#NO_DESCRIPTION} if a null reference was stored.
+     */
+    private int readDescription(@NotNull final ByteBuffer buffer) {
+        final int descriptionIndex = buffer.getInt();
+        return descriptionIndex == NULL_INDEX ? DescriptionStore.NO_DESCRIPTION : descriptionIds[descriptionIndex];
+    }
+
+    /**
+     * Reads a single {@link Model}.
+     *
+     * @param buffer the buffer to read from.
+     * @return the model.
+     */
+    @NotNull
+    private Model readModel(@NotNull final ByteBuffer buffer) {
+        final Model model = new Model();
+        model.setId(readString(buffer));
+        model.setDescription(descriptionTable, readDescription(buffer));
+        final int requiredCount = buffer.getInt();
+        for (int i = 0; i < requiredCount; i++) {
+            model.getRequiredProperties().add(readString(buffer));
+        }
+        final int propertyCount = buffer.getInt();
+        for (int i = 0; i < propertyCount; i++) {
+            final String name = readString(buffer);
+            model.getProperties().put(name, readProperty(buffer));
+        }
+        return model;
+    }
+
+    /**
+     * Reads a single {@link Property}.
+     *
+     * @param buffer the buffer to read from.
+     * @return the property.
+     */
+    @NotNull
+    private Property readProperty(@NotNull final ByteBuffer buffer) {
+        final Property property = new Property();
+        property.setDescription(descriptionTable, readDescription(buffer));
+        property.setRef(readString(buffer));
+        property.setType(readFieldType(buffer));
+        if (buffer.get() != 0) {
+            final ArrayItems items = new ArrayItems();
+            items.setRef(readString(buffer));
+            items.setType(readFieldType(buffer));
+            property.setItems(items);
+        }
+        return property;
+    }
+
+    /**
+     * Reads a single {@link SwaggerSpec}. Specs may be read concurrently.
+     *
+     * @param position the position of the spec within the {@linkplain #getIndex() index}.
+     * @return the spec.
+     */
+    @NotNull
+    SwaggerSpec readSpec(final int position) {
+        final ByteBuffer specBuffer = buffer.duplicate();
+        specBuffer.position(specPositions[position]);
+        final SwaggerSpec spec = new SwaggerSpec();
+        spec.setApiVersion(readString(specBuffer));
+        final int apiCount = specBuffer.getInt();
+        for (int i = 0; i < apiCount; i++) {
+            final Api api = new Api();
+            final int operationCount = specBuffer.getInt();
+            for (int j = 0; j < operationCount; j++) {
+                final ApiOperation operation = new ApiOperation();
+                operation.setMethod(readString(specBuffer));
+                operation.setType(readString(specBuffer));
+                api.getOperations().add(operation);
+            }
+            spec.getApis().add(api);
+        }
+        final int modelCount = specBuffer.getInt();
+        for (int i = 0; i < modelCount; i++) {
+            final String key = readString(specBuffer);
+            spec.getModels().put(key, readModel(specBuffer));
+        }
+        return spec;
+    }
+
+    /**
+     * Reads a reference into the string table. The string is decoded on first use and shared thereafter.
+     *
+     * @param buffer the buffer to read from.
+     * @return the referenced string, or {@code null} if a null reference was stored.
+     */
+    @Nullable
+    private String readString(@NotNull final ByteBuffer buffer) {
+        final int stringIndex = buffer.getInt();
+        if (stringIndex == NULL_INDEX) {
+            return null;
+        }
+        // Strings are immutable, so a race here at worst decodes the same string twice
+        String string = strings[stringIndex];
+        if (string == null) {
+            string = decodeString(stringIndex);
+            strings[stringIndex] = string;
+        }
+        return string;
+    }
+
+    /**
+     * Reads a set of strings, stored as a count followed by references into the string table.
+     *
+     * @param buffer the buffer to read from.
+     * @return the set of strings.
+     */
+    @NotNull
+    private Set<String> readStringSet(@NotNull final ByteBuffer buffer) {
+        final int count = buffer.getInt();
+        final Set<String> set = new HashSet<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            set.add(readString(buffer));
+        }
+        return set;
+    }
+}
@@ -0,0 +1,260 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Writes a set of {@link SwaggerSpec}s into the compact binary snapshot format understood by {@link SpecSnapshotReader}.
+ * <p>
+ * The snapshots are bundled alongside the spec archives they are generated from. Whenever an archive or the snapshot format changes, run {@link #main(String[])} on the resource directory to
+ * regenerate them; {@code SpecSnapshotTest} fails while any bundled snapshot is stale.
+ */
+final class SpecSnapshotWriter {
+
+    /** Map of strings to their index within the string table, in order of first use. */
+    private final Map<String, Integer> stringTable = new LinkedHashMap<>();
+
+    /** Map of descriptions to their index within the description table, in order of first use. */
+    private final Map<String, Integer> descriptionTable = new LinkedHashMap<>();
+
+    /** Private constructor; use {@link #write(List, OutputStream)}. */
+    private SpecSnapshotWriter() {
+    }
+
+    /**
+     * Generates a snapshot for every spec archive within a directory, along with the {@link SpecCatalog} of the archives. Each snapshot is written next to its archive, with the {@code .zip}
+     * extension replaced by {@link SpecSnapshotReader#SNAPSHOT_EXTENSION}.
+     *
+     * @param args a single argument giving the directory containing the spec archives.
+     * @throws IOException if an archive could not be read or a snapshot could not be written.
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: SpecSnapshotWriter <spec archive directory>");
+            System.exit(1);
+        }
+        final File[] archives = new File(args[0]).listFiles((dir, name) -> SpecCatalog.ARCHIVE_NAME_REGEX.matcher(name).matches());
+        if (archives == null) {
+            throw new IOException("Not a directory: " + args[0]);
+        }
+        for (final File archive : archives) {
+            final String archiveName = archive.getName();
+            final File snapshot = new File(archive.getParentFile(), archiveName.substring(0, archiveName.length() - ".zip".length()) + SpecSnapshotReader.SNAPSHOT_EXTENSION);
+            try (InputStream in = new FileInputStream(archive); OutputStream out = new BufferedOutputStream(new FileOutputStream(snapshot))) {
+                write(ModelLoader.loadSpecsFromZip(in), out);
+            }
+        }
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(new File(args[0], SpecCatalog.CATALOG_FILE_NAME)), StandardCharsets.UTF_8)) {
+            SpecCatalog.build(new File(args[0])).write(out);
+        }
+    }
+
+    /**
+     * Writes the given specs as a snapshot.
+     *
+     * @param specs the specs to write.
+     * @param outputStream the stream to write to; it is flushed but not closed.
+     * @throws IOException if the snapshot could not be written.
+     */
+    static void write(@NotNull final List<SwaggerSpec> specs, @NotNull final OutputStream outputStream) throws IOException {
+        new SpecSnapshotWriter().writeSnapshot(specs, outputStream);
+    }
+
+    /**
+     * Writes a {@link FieldType} as its ordinal.
+     *
+     * @param out the stream to write to.
+     * @param fieldType the field type, may be {@code null}.
+     * @throws IOException if the value could not be written.
+     */
+    private static void writeFieldType(@NotNull final DataOutputStream out, @Nullable final FieldType fieldType) throws IOException {
+        out.writeByte(fieldType == null ? -1 : fieldType.ordinal());
+    }
+
+    /**
+     * Gets the string table index of a string, adding it to the table if it is not already present.
+     *
+     * @param string the string, may be {@code null}.
+     * @return the index of the string, or {@link SpecSnapshotReader#NULL_INDEX} for {@code null}.
+     */
+    private int indexOf(@Nullable final String string) {
+        if (string == null) {
+            return SpecSnapshotReader.NULL_INDEX;
+        }
+        return stringTable.computeIfAbsent(string, s -> stringTable.size());
+    }
+
+    /**
+     * Writes a reference to a description, adding the description to the description table if required.
+     *
+     * @param out the stream to write to.
+     * @param description the description to write, may be {@code null}.
+     * @throws IOException if the reference could not be written.
+     */
+    private void writeDescription(@NotNull final DataOutputStream out, @Nullable final String description) throws IOException {
+        out.writeInt(description == null ? SpecSnapshotReader.NULL_INDEX : descriptionTable.computeIfAbsent(description, d -> descriptionTable.size()));
+    }
+
+    /**
+     * Writes a single {@link Model}.
+     *
+     * @param out the stream to write to.
+     * @param model the model to write.
+     * @throws IOException if the model could not be written.
+     */
+    private void writeModel(@NotNull final DataOutputStream out, @NotNull final Model model) throws IOException {
+        writeString(out, model.getId());
+        writeDescription(out, model.getDescription());
+        out.writeInt(model.getRequiredProperties().size());
+        for (final String requiredProperty : model.getRequiredProperties()) {
+            writeString(out, requiredProperty);
+        }
+        out.writeInt(model.getProperties().size());
+        for (final Entry<String, Property> property : model.getProperties().entrySet()) {
+            writeString(out, property.getKey());
+            writeProperty(out, property.getValue());
+        }
+    }
+
+    /**
+     * Writes a single {@link Property}.
+     *
+     * @param out the stream to write to.
+     * @param property the property to write.
+     * @throws IOException if the property could not be written.
+     */
+    private void writeProperty(@NotNull final DataOutputStream out, @NotNull final Property property) throws IOException {
+        writeDescription(out, property.getDescription());
+        writeString(out, property.getRef());
+        writeFieldType(out, property.getType());
+        final ArrayItems items = property.getItems();
+        out.writeBoolean(items != null);
+        if (items != null) {
+            writeString(out, items.getRef());
+            writeFieldType(out, items.getType());
+        }
+    }
+
+    /**
+     * Writes the complete snapshot. The specs and the directory are written first into buffers so that the string table is fully populated before being written ahead of them. The descriptions
+     * are written last, and their position is written in the header, so that a reader can find them without decoding any spec and need not keep them once read.
+     *
+     * @param specs the specs to write.
+     * @param outputStream the stream to write to.
+     * @throws IOException if the snapshot could not be written.
+     */
+    private void writeSnapshot(@NotNull final List<SwaggerSpec> specs, @NotNull final OutputStream outputStream) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final DataOutputStream bodyOut = new DataOutputStream(body);
+        final int[] specPositions = new int[specs.size()];
+        for (int i = 0; i < specs.size(); i++) {
+            specPositions[i] = bodyOut.size();
+            writeSpec(bodyOut, specs.get(i));
+        }
+        bodyOut.flush();
+
+        final ByteArrayOutputStream directory = new ByteArrayOutputStream();
+        final DataOutputStream directoryOut = new DataOutputStream(directory);
+        directoryOut.writeInt(specs.size());
+        for (int i = 0; i < specs.size(); i++) {
+            final SpecIndexEntry indexEntry = SpecIndexEntry.of(specs.get(i));
+            writeString(directoryOut, indexEntry.getApiVersion());
+            directoryOut.writeInt(specPositions[i]);
+            writeStringSet(directoryOut, indexEntry.getModelIds());
+            writeStringSet(directoryOut, indexEntry.getResourceTypes());
+        }
+        directoryOut.flush();
+
+        final ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        final DataOutputStream stringsOut = new DataOutputStream(strings);
+        stringsOut.writeInt(stringTable.size());
+        for (final String string : stringTable.keySet()) {
+            final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            stringsOut.writeInt(bytes.length);
+            stringsOut.write(bytes);
+        }
+        stringsOut.flush();
+
+        final DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(SpecSnapshotReader.MAGIC);
+        out.writeInt(SpecSnapshotReader.FORMAT_VERSION);
+        out.writeInt(SpecSnapshotReader.HEADER_SIZE + strings.size() + directory.size() + body.size());
+        strings.writeTo(out);
+        directory.writeTo(out);
+        body.writeTo(out);
+        out.writeInt(descriptionTable.size());
+        for (final String description : descriptionTable.keySet()) {
+            final byte[] bytes = description.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes a single {@link SwaggerSpec}.
+     *
+     * @param out the stream to write to.
+     * @param spec the spec to write.
+     * @throws IOException if the spec could not be written.
+     */
+    private void writeSpec(@NotNull final DataOutputStream out, @NotNull final SwaggerSpec spec) throws IOException {
+        writeString(out, spec.getApiVersion());
+        out.writeInt(spec.getApis().size());
+        for (final Api api : spec.getApis()) {
+            out.writeInt(api.getOperations().size());
+            for (final ApiOperation operation : api.getOperations()) {
+                writeString(out, operation.getMethod());
+                writeString(out, operation.getType());
+            }
+        }
+        out.writeInt(spec.getModels().size());
+        for (final Entry<String, Model> model : spec.getModels().entrySet()) {
+            writeString(out, model.getKey());
+            writeModel(out, model.getValue());
+        }
+    }
+
+    /**
+     * Writes a reference to a string, adding the string to the string table if required.
+     *
+     * @param out the stream to write to.
+     * @param string the string to write, may be {@code null}.
+     * @throws IOException if the reference could not be written.
+     */
+    private void writeString(@NotNull final DataOutputStream out, @Nullable final String string) throws IOException {
+        out.writeInt(indexOf(string));
+    }
+
+    /**
+     * Writes a set of strings as a count followed by references to each string.
+     *
+     * @param out the stream to write to.
+     * @param strings the strings to write.
+     * @throws IOException if the strings could not be written.
+     */
+    private void writeStringSet(@NotNull final DataOutputStream out, @NotNull final Set<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (final String string : strings) {
+            writeString(out, string);
+        }
+    }
+}
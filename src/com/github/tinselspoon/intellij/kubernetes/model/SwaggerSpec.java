@@ -1,12 +1,10 @@
 package com.github.tinselspoon.intellij.kubernetes.model;
 
-import java.io.Reader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-
-import com.google.gson.Gson;
+import java.util.Objects;
 
 /**
  * Represents a complete Swagger 1.2 specification.
@@ -22,9 +20,16 @@ class SwaggerSpec {
     /** The model definitions. */
     private final Map<String, Model> models = new HashMap<>();
 
-    public static SwaggerSpec loadFrom(final Reader reader) {
-        final Gson gson = new Gson();
-        return gson.fromJson(reader, SwaggerSpec.class);
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final SwaggerSpec that = (SwaggerSpec) o;
+        return Objects.equals(apiVersion, that.apiVersion) && apis.equals(that.apis) && models.equals(that.models);
     }
 
     /**
@@ -54,6 +59,11 @@ class SwaggerSpec {
         return models;
     }
 
+    @Override
+    public int hashCode() {
+        return Objects.hash(apiVersion, apis, models);
+    }
+
     /**
      * Sets the API version this specification applies to.
      *
@@ -0,0 +1,427 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Streaming reader for Swagger 1.2 specifications.
+ * <p>
+ * Only the parts of a spec that are used by the plugin are read; everything else, such as operation parameters and response messages, is skipped without being materialised. Strings that are
+ * repeated across models and specs, such as model IDs, {@code $ref} targets and property names, are interned within the reader so that each distinct value is held once. A single reader may therefore
+ * be used for all the specs of a package, including from several threads at once.
+ */
+final class SwaggerSpecReader {
+
+    /** The table through which the descriptions that have been read are added to the {@link DescriptionStore}. */
+    private final DescriptionStore.Table descriptionTable = DescriptionStore.getInstance().newTable();
+
+    /** Table of strings that have been read, used to share a single instance of each distinct value. */
+    private final Map<String, String> internedStrings = new ConcurrentHashMap<>();
+
+    /**
+     * Reads a {@link FieldType} from its name in the spec.
+     *
+     * @param name the name of the type.
+     * @return the field type, or {@code null} if the name is {@code null} or not recognised.
+     */
+    @Nullable
+    private static FieldType toFieldType(@Nullable final String name) {
+        if (name != null) {
+            for (final FieldType fieldType : FieldType.values()) {
+                if (fieldType.toString().equals(name)) {
+                    return fieldType;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates a JSON reader, checking that there is some input to read.
+     *
+     * @param reader the reader supplying the JSON.
+     * @return the JSON reader, or {@code null} if the input was empty.
+     * @throws IOException if the input could not be read.
+     */
+    @Nullable
+    private static JsonReader createJsonReader(@NotNull final Reader reader) throws IOException {
+        final JsonReader in = new JsonReader(reader);
+        in.setLenient(true);
+        try {
+            in.peek();
+        } catch (final EOFException e) {
+            // Some specs in the bundled archives are empty
+            return null;
+        }
+        return in;
+    }
+
+    /**
+     * Reads a string value.
+     *
+     * @param in the JSON reader.
+     * @return the string, or {@code null} if the value was {@code null}.
+     * @throws IOException if the value could not be read.
+     */
+    @Nullable
+    private static String readString(@NotNull final JsonReader in) throws IOException {
+        return skipNull(in) ? null : in.nextString();
+    }
+
+    /**
+     * Consumes the next value if it is {@code null}.
+     *
+     * @param in the JSON reader.
+     * @return {@code true} if a {@code null} value was consumed, {@code false} if the next value is not {@code null}.
+     * @throws IOException if the value could not be read.
+     */
+    private static boolean skipNull(@NotNull final JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads a spec.
+     *
+     * @param reader the reader supplying the spec JSON; it is not closed.
+     * @return the spec, or {@code null} if the input was empty.
+     * @throws IOException if the spec could not be read or is not well formed.
+     */
+    @Nullable
+    SwaggerSpec read(@NotNull final Reader reader) throws IOException {
+        final JsonReader in = createJsonReader(reader);
+        return in == null ? null : readSpec(in);
+    }
+
+    /**
+     * Reads only the information needed to index a spec, skipping its properties and descriptions. This is considerably cheaper than {@linkplain #read(Reader) reading} the whole spec.
+     *
+     * @param reader the reader supplying the spec JSON; it is not closed.
+     * @return the index entry for the spec, or {@code null} if the input was empty.
+     * @throws IOException if the spec could not be read or is not well formed.
+     */
+    @Nullable
+    SpecIndexEntry readIndexEntry(@NotNull final Reader reader) throws IOException {
+        final JsonReader in = createJsonReader(reader);
+        if (in == null) {
+            return null;
+        }
+        String apiVersion = null;
+        final Set<String> modelIds = new HashSet<>();
+        final Set<String> postTypes = new HashSet<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "apiVersion":
+                    apiVersion = readInternedString(in);
+                    break;
+                case "apis":
+                    if (skipNull(in)) {
+                        break;
+                    }
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        for (final ApiOperation operation : readApi(in).getOperations()) {
+                            if ("POST".equals(operation.getMethod())) {
+                                postTypes.add(operation.getType());
+                            }
+                        }
+                    }
+                    in.endArray();
+                    break;
+                case "models":
+                    if (skipNull(in)) {
+                        break;
+                    }
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        modelIds.add(intern(in.nextName()));
+                        readModelId(in, modelIds);
+                    }
+                    in.endObject();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        postTypes.retainAll(modelIds);
+        return new SpecIndexEntry(apiVersion, modelIds, postTypes);
+    }
+
+    /**
+     * Interns a string.
+     *
+     * @param value the string, may be {@code null}.
+     * @return the shared instance equal to {@code value}, or {@code null} if {@code value} was {@code null}.
+     */
+    @Nullable
+    private String intern(@Nullable final String value) {
+        if (value == null) {
+            return null;
+        }
+        final String existing = internedStrings.putIfAbsent(value, value);
+        return existing == null ? value : existing;
+    }
+
+    /**
+     * Reads an API, keeping only its operations.
+     *
+     * @param in the JSON reader.
+     * @return the API.
+     * @throws IOException if the API could not be read.
+     */
+    @NotNull
+    private Api readApi(@NotNull final JsonReader in) throws IOException {
+        final Api api = new Api();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "operations":
+                    if (skipNull(in)) {
+                        break;
+                    }
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        api.getOperations().add(readApiOperation(in));
+                    }
+                    in.endArray();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return api;
+    }
+
+    /**
+     * Reads an API operation, keeping only its method and type.
+     *
+     * @param in the JSON reader.
+     * @return the operation.
+     * @throws IOException if the operation could not be read.
+     */
+    @NotNull
+    private ApiOperation readApiOperation(@NotNull final JsonReader in) throws IOException {
+        final ApiOperation operation = new ApiOperation();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "method":
+                    operation.setMethod(readInternedString(in));
+                    break;
+                case "type":
+                    operation.setType(readInternedString(in));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return operation;
+    }
+
+    /**
+     * Reads the items of an array property.
+     *
+     * @param in the JSON reader.
+     * @return the items.
+     * @throws IOException if the items could not be read.
+     */
+    @NotNull
+    private ArrayItems readArrayItems(@NotNull final JsonReader in) throws IOException {
+        final ArrayItems items = new ArrayItems();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "$ref":
+                    items.setRef(readInternedString(in));
+                    break;
+                case "type":
+                    items.setType(toFieldType(readString(in)));
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return items;
+    }
+
+    /**
+     * Reads a string value, and interns it.
+     *
+     * @param in the JSON reader.
+     * @return the interned string, or {@code null} if the value was {@code null}.
+     * @throws IOException if the value could not be read.
+     */
+    @Nullable
+    private String readInternedString(@NotNull final JsonReader in) throws IOException {
+        return intern(readString(in));
+    }
+
+    /**
+     * Reads a model.
+     *
+     * @param in the JSON reader.
+     * @return the model.
+     * @throws IOException if the model could not be read.
+     */
+    @NotNull
+    private Model readModel(@NotNull final JsonReader in) throws IOException {
+        final Model model = new Model();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    model.setId(readInternedString(in));
+                    break;
+                case "description":
+                    model.setDescription(descriptionTable, descriptionTable.add(readString(in)));
+                    break;
+                case "required":
+                    if (skipNull(in)) {
+                        break;
+                    }
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        model.getRequiredProperties().add(readInternedString(in));
+                    }
+                    in.endArray();
+                    break;
+                case "properties":
+                    if (skipNull(in)) {
+                        break;
+                    }
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        final String name = intern(in.nextName());
+                        model.getProperties().put(name, readProperty(in));
+                    }
+                    in.endObject();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return model;
+    }
+
+    /**
+     * Reads only the ID of a model, skipping the rest of it.
+     *
+     * @param in the JSON reader.
+     * @param modelIds the set to add the ID to, if the model has one.
+     * @throws IOException if the model could not be read.
+     */
+    private void readModelId(@NotNull final JsonReader in, @NotNull final Set<String> modelIds) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("id".equals(in.nextName())) {
+                final String id = readInternedString(in);
+                if (id != null) {
+                    modelIds.add(id);
+                }
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+    }
+
+    /**
+     * Reads a property.
+     *
+     * @param in the JSON reader.
+     * @return the property.
+     * @throws IOException if the property could not be read.
+     */
+    @NotNull
+    private Property readProperty(@NotNull final JsonReader in) throws IOException {
+        final Property property = new Property();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "description":
+                    property.setDescription(descriptionTable, descriptionTable.add(readString(in)));
+                    break;
+                case "$ref":
+                    property.setRef(readInternedString(in));
+                    break;
+                case "type":
+                    property.setType(toFieldType(readString(in)));
+                    break;
+                case "items":
+                    if (!skipNull(in)) {
+                        property.setItems(readArrayItems(in));
+                    }
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return property;
+    }
+
+    /**
+     * Reads a complete spec, keeping only its API version, APIs and models.
+     *
+     * @param in the JSON reader.
+     * @return the spec.
+     * @throws IOException if the spec could not be read.
+     */
+    @NotNull
+    private SwaggerSpec readSpec(@NotNull final JsonReader in) throws IOException {
+        final SwaggerSpec spec = new SwaggerSpec();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "apiVersion":
+                    spec.setApiVersion(readInternedString(in));
+                    break;
+                case "apis":
+                    if (skipNull(in)) {
+                        break;
+                    }
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        spec.getApis().add(readApi(in));
+                    }
+                    in.endArray();
+                    break;
+                case "models":
+                    if (skipNull(in)) {
+                        break;
+                    }
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        final String key = intern(in.nextName());
+                        spec.getModels().put(key, readModel(in));
+                    }
+                    in.endObject();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return spec;
+    }
+}
@@ -0,0 +1,129 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.intellij.openapi.util.io.FileUtil;
+
+/**
+ * A {@link SpecPackage} backed by a zip file of Swagger JSON, with one spec per entry.
+ * <p>
+ * The zip file is kept in memory in its compressed form. It is indexed when opened by scanning each entry for its API version and model IDs, without materialising its properties or descriptions;
+ * an entry is only fully parsed when its spec is first requested.
+ */
+final class ZipSpecPackage extends SpecPackage {
+
+    /** The compressed content of the zip file. */
+    private final byte[] zipBytes;
+
+    /** The names of the zip entries holding each spec, in index order. */
+    private final List<String> entryNames;
+
+    /** Reader used to parse specs, shared so that strings are interned across all the specs of the package. */
+    private final SwaggerSpecReader specReader;
+
+    /**
+     * Creates a package.
+     *
+     * @param zipBytes the compressed content of the zip file.
+     * @param entryNames the names of the zip entries holding each spec, in index order.
+     * @param index the index of the specs.
+     * @param specReader reader used to parse specs.
+     * @param modelInterner table used to share identical models with the specs of other packages.
+     */
+    private ZipSpecPackage(@NotNull final byte[] zipBytes, @NotNull final List<String> entryNames, @NotNull final List<SpecIndexEntry> index, @NotNull final SwaggerSpecReader specReader,
+                           @NotNull final ModelInterner modelInterner) {
+        super(index, modelInterner);
+        this.zipBytes = zipBytes;
+        this.entryNames = entryNames;
+        this.specReader = specReader;
+    }
+
+    /**
+     * Opens a package from a zip file, indexing its entries in parallel on the given pool.
+     *
+     * @param zipStream the stream containing the zip file; it is closed once read.
+     * @param pool the pool on which to index the entries.
+     * @param modelInterner table used to share identical models with the specs of other packages.
+     * @return the package.
+     * @throws IOException if the zip file could not be read.
+     */
+    @NotNull
+    static ZipSpecPackage open(@NotNull final InputStream zipStream, @NotNull final ForkJoinPool pool, @NotNull final ModelInterner modelInterner) throws IOException {
+        final byte[] zipBytes;
+        try (InputStream in = zipStream) {
+            zipBytes = FileUtil.loadBytes(in);
+        }
+        final List<String> names = new ArrayList<>();
+        final List<byte[]> contents = new ArrayList<>();
+        try (ZipInputStream resourceStream = new ZipInputStream(new ByteArrayInputStream(zipBytes))) {
+            ZipEntry entry;
+            while ((entry = resourceStream.getNextEntry()) != null) {
+                if (entry.getName().endsWith("json")) {
+                    names.add(entry.getName());
+                    contents.add(FileUtil.loadBytes(resourceStream));
+                }
+            }
+        }
+
+        final SwaggerSpecReader specReader = new SwaggerSpecReader();
+        final SpecIndexEntry[] entries = pool.submit(() -> contents.parallelStream().map(bytes -> indexEntry(specReader, bytes)).toArray(SpecIndexEntry[]::new)).join();
+
+        // Empty entries do not hold a spec, so are left out of the index
+        final List<String> entryNames = new ArrayList<>();
+        final List<SpecIndexEntry> index = new ArrayList<>();
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i] != null) {
+                entryNames.add(names.get(i));
+                index.add(entries[i]);
+            }
+        }
+        return new ZipSpecPackage(zipBytes, entryNames, index, specReader, modelInterner);
+    }
+
+    /**
+     * Indexes the content of a single zip entry.
+     *
+     * @param specReader the reader to use.
+     * @param bytes the content of the entry.
+     * @return the index entry, or {@code null} if the entry was empty.
+     */
+    @Nullable
+    private static SpecIndexEntry indexEntry(@NotNull final SwaggerSpecReader specReader, @NotNull final byte[] bytes) {
+        try {
+            return specReader.readIndexEntry(new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8));
+        } catch (final IOException e) {
+            throw new RuntimeException("Error reading Swagger resource.", e);
+        }
+    }
+
+    @NotNull
+    @Override
+    protected SwaggerSpec readSpec(final int position) throws IOException {
+        final String entryName = entryNames.get(position);
+        try (ZipInputStream resourceStream = new ZipInputStream(new ByteArrayInputStream(zipBytes))) {
+            ZipEntry entry;
+            while ((entry = resourceStream.getNextEntry()) != null) {
+                if (entry.getName().equals(entryName)) {
+                    final SwaggerSpec spec = specReader.read(new InputStreamReader(resourceStream, StandardCharsets.UTF_8));
+                    if (spec == null) {
+                        throw new IOException("Zip entry " + entryName + " no longer contains a spec.");
+                    }
+                    return spec;
+                }
+            }
+        }
+        throw new IOException("Zip entry " + entryName + " not found.");
+    }
+}
@@ -27,6 +27,11 @@ public class CodeInsightAnnotatorTest extends LightCodeInsightFixtureTestCase {
         myFixture.checkHighlighting();
     }
 
+    public void testCustomResource() {
+        myFixture.configureByFiles("CustomResource.yml", "CustomResourceDefinition.yml");
+        myFixture.checkHighlighting();
+    }
+
     public void testPropertyNotInModel() {
         myFixture.configureByFile("PropertyNotInModel.yml");
         myFixture.checkHighlighting();
@@ -1,7 +1,16 @@
 package com.github.tinselspoon.intellij.kubernetes;
 
+import com.intellij.codeInsight.lookup.LookupElement;
+import com.intellij.codeInsight.lookup.LookupElementPresentation;
+import com.intellij.codeInsight.lookup.LookupManager;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
 import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -27,6 +36,35 @@ public class CompletionTest extends LightCodeInsightFixtureTestCase {
         assertContainsElements(strings, "v1", "batch/v1");
     }
 
+    public void testCompletingApiVersionInApiVersionOrder() {
+        // GIVEN a file containing just the apiVersion field
+        myFixture.configureByFiles("CompletingApiVersionInEmptyFile.yml");
+
+        // WHEN activating completion with the caret at the apiVersion field
+        myFixture.completeBasic();
+        final List<String> strings = myFixture.getLookupElementStrings();
+
+        // THEN we should see the core group first, then the other groups by name, each from its oldest version to its newest
+        assertNotNull(strings);
+        assertEquals("v1", strings.get(0));
+        assertTrue(strings.indexOf("apps/v1beta1") < strings.indexOf("apps/v1beta2"));
+        assertTrue(strings.indexOf("apps/v1beta2") < strings.indexOf("apps/v1"));
+        assertTrue(strings.indexOf("apps/v1") < strings.indexOf("batch/v1"));
+    }
+
+    public void testCompletingApiVersionWhenKindPresentOrdersByPreference() {
+        // GIVEN a file containing a prefilled kind field served by several groups
+        myFixture.configureByFiles("CompletingApiVersionWithExistingKind.yml");
+
+        // WHEN activating completion with the caret at the apiVersion field
+        myFixture.completeBasic();
+        final List<String> strings = myFixture.getLookupElementStrings();
+
+        // THEN we should see only the versions serving the kind, by group and then from the newest version of each group
+        assertNotNull(strings);
+        assertEquals(Arrays.asList("apps/v1", "apps/v1beta2", "apps/v1beta1", "extensions/v1beta1"), strings);
+    }
+
     public void testCompletingBooleanValue() {
         // GIVEN a file containing a Pod
         myFixture.configureByFiles("CompletingBooleanValue.yml");
@@ -40,6 +78,43 @@ public class CompletionTest extends LightCodeInsightFixtureTestCase {
         assertSameElements(strings, "true", "false");
     }
 
+    public void testCompletingCustomResourceProperties() {
+        // GIVEN a custom resource, with its definition in another file of the project
+        myFixture.configureByFiles("CompletingCustomResourceProperties.yml", "CustomResourceDefinition.yml");
+
+        // WHEN activating completion with the caret under the 'spec' property
+        myFixture.completeBasic();
+        final List<String> strings = myFixture.getLookupElementStrings();
+
+        // THEN we should see the fields declared by the schema of the definition
+        assertNotNull(strings);
+        assertSameElements(strings, "cronSpec", "replicas");
+    }
+
+    public void testCompletingCustomResourcePropertiesAfterDefinitionChanged() {
+        // GIVEN a custom resource whose properties have already been completed once
+        final PsiFile[] files = myFixture.configureByFiles("CompletingCustomResourceProperties.yml", "CustomResourceDefinition.yml");
+        myFixture.completeBasic();
+        assertSameElements(myFixture.getLookupElementStrings(), "cronSpec", "replicas");
+        LookupManager.getInstance(getProject()).hideActiveLookup();
+
+        // WHEN a property is renamed in the definition
+        final Document definition = PsiDocumentManager.getInstance(getProject()).getDocument(files[1]);
+        assertNotNull(definition);
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+            definition.setText(definition.getText().replace("replicas:", "parallelism:"));
+            PsiDocumentManager.getInstance(getProject()).commitDocument(definition);
+        });
+
+        // AND activating completion again
+        myFixture.completeBasic();
+        final List<String> strings = myFixture.getLookupElementStrings();
+
+        // THEN we should see the fields of the changed definition
+        assertNotNull(strings);
+        assertSameElements(strings, "cronSpec", "parallelism");
+    }
+
     public void testCompletingInsideComment() {
         // GIVEN a file containing a Pod
         myFixture.configureByFiles("CompletingInsideComment.yml");
@@ -65,6 +140,27 @@ public class CompletionTest extends LightCodeInsightFixtureTestCase {
         assertContainsElements(strings, "Pod", "Deployment", "Job");
     }
 
+    public void testCompletingKindServedBySeveralGroups() {
+        // GIVEN a file containing just the kind field
+        myFixture.configureByFiles("CompletingKindInEmptyFile.yml");
+
+        // WHEN activating completion with the caret at the kind field
+        myFixture.completeBasic();
+        final LookupElement[] elements = myFixture.getLookupElements();
+
+        // THEN a kind served by several groups should be suggested once for each group, at the newest version of the group
+        assertNotNull(elements);
+        final List<String> deploymentApiVersions = new ArrayList<>();
+        for (final LookupElement element : elements) {
+            if ("Deployment".equals(element.getLookupString())) {
+                final LookupElementPresentation presentation = new LookupElementPresentation();
+                element.renderElement(presentation);
+                deploymentApiVersions.add(presentation.getTypeText());
+            }
+        }
+        assertSameElements(deploymentApiVersions, "apps/v1", "extensions/v1beta1");
+    }
+
     public void testCompletingKindWhenApiVersionPresentFiltersTheList() {
         // GIVEN a file containing a prefilled apiVersion field
         myFixture.configureByFiles("CompletingKindWithExistingApiVersion.yml");
@@ -94,6 +190,32 @@ public class CompletionTest extends LightCodeInsightFixtureTestCase {
         assertContainsElements(strings, "message", "phase", "reason");
     }
 
+    public void testCompletingPropertiesWithEmptyPrefix() {
+        // GIVEN a file containing a Pod
+        myFixture.configureByFiles("CompletingPropertiesWithEmptyPrefix.yml");
+
+        // WHEN activating completion with the caret under the 'spec' property, before anything is typed
+        myFixture.completeBasic();
+        final List<String> strings = myFixture.getLookupElementStrings();
+
+        // THEN we should see the fields of the spec whatever letter they start with
+        assertNotNull(strings);
+        assertContainsElements(strings, "activeDeadlineSeconds", "containers", "hostNetwork", "nodeSelector", "restartPolicy", "volumes");
+    }
+
+    public void testCompletingPropertiesWithPrefix() {
+        // GIVEN a file containing a Pod, with part of a property name typed under the 'spec' property
+        myFixture.configureByFiles("CompletingPropertiesWithPrefix.yml");
+
+        // WHEN activating completion with the caret at the end of the partial name
+        myFixture.completeBasic();
+        final List<String> strings = myFixture.getLookupElementStrings();
+
+        // THEN we should see only the fields that the typed text is a prefix of
+        assertNotNull(strings);
+        assertSameElements(strings, "hostAliases", "hostIPC", "hostNetwork", "hostPID", "hostname");
+    }
+
     public void testCompletingRegularValue() {
         // GIVEN a file containing a Pod
         myFixture.configureByFiles("CompletingRegularValue.yml");
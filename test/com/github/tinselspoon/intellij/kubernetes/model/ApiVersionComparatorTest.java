@@ -42,6 +42,8 @@ public class ApiVersionComparatorTest {
                              new Object[] { "v1alpha2", "v1beta1" },
                              // second iteration of beta should be before an earlier beta
                              new Object[] { "v1beta1", "v1beta2" },
+                             // iterations are compared numerically
+                             new Object[] { "v1beta2", "v1beta10" },
                              // same minor version in a previous major version should be before a later major version
                              new Object[] { "v1beta1", "v2beta1" },
                              // beta in previous major version should be before later stable major version
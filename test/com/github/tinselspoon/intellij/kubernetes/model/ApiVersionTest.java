@@ -0,0 +1,74 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.tinselspoon.intellij.kubernetes.ResourceTypeKey;
+
+/**
+ * Unit test for the {@link ApiVersion}.
+ */
+public class ApiVersionTest {
+
+    /** Test that versions named by the specs are interned, and that keys built from separately read strings share the same version. */
+    @Test
+    public void testInterning() {
+        final ApiVersion apps = ApiVersion.intern("apps/v1beta2");
+        assertSame(apps, ApiVersion.intern(new String("apps/v1beta2")));
+        assertSame(apps, ApiVersion.of(new String("apps/v1beta2")));
+        assertEquals("apps/v1beta2", apps.toString());
+        assertNull(ApiVersion.of(null));
+
+        final ResourceTypeKey deployment = new ResourceTypeKey(new String("apps/v1beta2"), "Deployment");
+        assertSame(apps, deployment.getParsedApiVersion());
+        assertEquals(new ResourceTypeKey(apps, "Deployment"), deployment);
+        assertEquals(new ResourceTypeKey(apps, "Deployment").hashCode(), deployment.hashCode());
+        assertNull(new ResourceTypeKey((String) null, "Deployment").getApiVersion());
+    }
+
+    /** Test that a version not named by the specs, such as one being typed, is not retained, but is equal to the same version interned later. */
+    @Test
+    public void testOtherVersionsNotInterned() {
+        final ApiVersion typed = ApiVersion.of("example.com/v1be");
+        assertNotSame(typed, ApiVersion.of("example.com/v1be"));
+        assertEquals(typed, ApiVersion.of("example.com/v1be"));
+        assertEquals(typed, ApiVersion.intern("example.com/v1be"));
+        assertEquals(typed.hashCode(), ApiVersion.intern("example.com/v1be").hashCode());
+    }
+
+    /** Test that versions are ordered by group, major version, stage and stage number, falling back to the text for versions not in the conventional format. */
+    @Test
+    public void testOrder() {
+        final List<String> ordered = Arrays.asList("v1alpha1", "v1beta1", "v1beta2", "v1beta10", "v1", "v2", "apps/v1beta1", "apps/v1", "rbac.authorization.k8s.io/v1");
+        final List<ApiVersion> versions = new ArrayList<>();
+        for (final String apiVersion : ordered) {
+            versions.add(ApiVersion.of(apiVersion));
+        }
+        Collections.shuffle(versions);
+        Collections.sort(versions);
+        final List<String> sorted = new ArrayList<>();
+        versions.forEach(version -> sorted.add(version.toString()));
+        assertEquals(ordered, sorted);
+
+        assertEquals("apps", ApiVersion.of("apps/v1").getGroup());
+        assertEquals("", ApiVersion.of("v1").getGroup());
+        // Versions written differently but parsed the same are still distinct
+        assertNotEquals(0, ApiVersion.of("v01").compareTo(ApiVersion.of("v1")));
+        assertNotEquals(ApiVersion.of("v01"), ApiVersion.of("v1"));
+        // Versions not in the conventional format are compared as text
+        assertTrue(ApiVersion.of("v1beta").compareTo(ApiVersion.of("v1")) > 0);
+        assertTrue(ApiVersion.of("/v1").compareTo(ApiVersion.of("v1")) < 0);
+        assertTrue(ApiVersion.of("v99999999999").compareTo(ApiVersion.of("v2")) > 0);
+    }
+}
@@ -0,0 +1,192 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.tinselspoon.intellij.kubernetes.ResourceTypeKey;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Unit test for the {@link ClusterSchemaSource}, against a stub API server.
+ */
+public class ClusterSchemaSourceTest {
+
+    /** The ETag the stub server initially gives its document. */
+    private static final String ETAG = "\"1a2b3c\"";
+
+    /** The bearer token the stub server requires. */
+    private static final String TOKEN = "secret-token";
+
+    /** Directory for the downloaded documents and the schema cache. */
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /** The {@code If-None-Match} header of each request received by the stub server, or {@code null} where none was sent. */
+    private final List<String> conditions = new ArrayList<>();
+
+    /** The document served by the stub server. */
+    private volatile String document = OpenApiSpecReaderTest.DOCUMENT_JSON;
+
+    /** The ETag the stub server gives its document. */
+    private volatile String etag = ETAG;
+
+    /** The stub API server. */
+    private HttpServer server;
+
+    /**
+     * Creates an endpoint for the stub server, with the credentials it requires.
+     *
+     * @return the endpoint.
+     */
+    private ClusterEndpoint createEndpoint() {
+        return new ClusterEndpoint("http://localhost:" + server.getAddress().getPort() + "/", "Bearer " + TOKEN, null, false);
+    }
+
+    /**
+     * Creates a source over the test directory, as a restarted IDE would.
+     *
+     * @return the source.
+     */
+    private ClusterSchemaSource createSource() {
+        return new ClusterSchemaSource(temporaryFolder.getRoot(), new SchemaCache(new File(temporaryFolder.getRoot(), "cache"), SchemaCache.MAX_ENTRIES));
+    }
+
+    /** Starts a stub server that serves the test document gzipped, or {@code 304 Not Modified} to a request bearing its ETag. */
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(ClusterSchemaSource.OPENAPI_PATH, exchange -> {
+            final String condition = exchange.getRequestHeaders().getFirst("If-None-Match");
+            synchronized (conditions) {
+                conditions.add(condition);
+            }
+            if (!("Bearer " + TOKEN).equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                exchange.sendResponseHeaders(401, -1);
+            } else if (etag.equals(condition)) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                exchange.getResponseHeaders().set("ETag", etag);
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream out = new GZIPOutputStream(exchange.getResponseBody())) {
+                    out.write(document.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+    }
+
+    /** Stops the stub server. */
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    /** Test that a document is reported as changed only once the server serves a different one from that last opened. */
+    @Test
+    public void testChangedDocumentDetected() {
+        final ClusterSchemaSource source = createSource();
+        final ClusterEndpoint endpoint = createEndpoint();
+        assertNotNull(source.open(endpoint, new ModelInterner()));
+        assertFalse(source.hasChanged(endpoint));
+
+        document = OpenApiSpecReaderTest.DOCUMENT_JSON + "\n";
+        etag = "\"4d5e6f\"";
+        assertTrue(source.hasChanged(endpoint));
+        assertNotNull(source.open(endpoint, new ModelInterner()));
+        assertFalse(source.hasChanged(endpoint));
+        assertEquals(Arrays.asList(null, ETAG, ETAG, "\"4d5e6f\"", "\"4d5e6f\""), conditions);
+    }
+
+    /** Test that the output of a command is collected once it finishes. */
+    @Test
+    public void testCommandOutput() throws IOException {
+        assumeTrue(new File("/bin/sh").canExecute());
+        final byte[] output = ClusterEndpoint.runCommand(Arrays.asList("/bin/sh", "-c", "echo kubeconfig"), 10, TimeUnit.SECONDS);
+        assertEquals("kubeconfig\n", new String(output, StandardCharsets.UTF_8));
+    }
+
+    /** Test that a command that does not finish is abandoned once the timeout elapses. */
+    @Test
+    public void testCommandTimeout() {
+        assumeTrue(new File("/bin/sh").canExecute());
+        final long startTime = System.nanoTime();
+        try {
+            ClusterEndpoint.runCommand(Arrays.asList("/bin/sh", "-c", "sleep 10"), 200, TimeUnit.MILLISECONDS);
+            fail("Expected the command to time out");
+        } catch (final IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Timed out"));
+        }
+        assertTrue(System.nanoTime() - startTime < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    /** Test that a second download is a conditional request, answered from the document already held. */
+    @Test
+    public void testConditionalRequestReusesDocument() throws IOException {
+        final byte[] document = createSource().fetch(createEndpoint());
+        assertArrayEquals(OpenApiSpecReaderTest.DOCUMENT_JSON.getBytes(StandardCharsets.UTF_8), document);
+        assertArrayEquals(document, createSource().fetch(createEndpoint()));
+        assertEquals(Arrays.asList(null, ETAG), conditions);
+    }
+
+    /** Test that the endpoint of a context is read from a kubeconfig. */
+    @Test
+    public void testEndpointFromKubeConfig() throws IOException {
+        final String kubeConfig = "{\"current-context\": \"dev\", \"contexts\": [{\"name\": \"dev\", \"context\": {\"cluster\": \"dev-cluster\", \"user\": \"dev-user\"}},"
+                                  + "{\"name\": \"prod\", \"context\": {\"cluster\": \"prod-cluster\", \"user\": \"prod-user\"}}],"
+                                  + "\"clusters\": [{\"name\": \"dev-cluster\", \"cluster\": {\"server\": \"https://dev.example.com/\", \"insecure-skip-tls-verify\": true}},"
+                                  + "{\"name\": \"prod-cluster\", \"cluster\": {\"server\": \"https://prod.example.com\"}}],"
+                                  + "\"users\": [{\"name\": \"dev-user\", \"user\": {\"token\": \"abc\"}}, {\"name\": \"prod-user\", \"user\": {\"username\": \"admin\", \"password\": \"pw\"}}]}";
+        final ClusterEndpoint dev = ClusterEndpoint.fromKubeConfig(new StringReader(kubeConfig), null);
+        assertEquals("https://dev.example.com", dev.getServer());
+        assertEquals("Bearer abc", dev.getAuthorization());
+        final ClusterEndpoint prod = ClusterEndpoint.fromKubeConfig(new StringReader(kubeConfig), "prod");
+        assertEquals("https://prod.example.com", prod.getServer());
+        assertEquals("Basic YWRtaW46cHc=", prod.getAuthorization());
+    }
+
+    /** Test that the document downloaded previously is used when the server cannot be reached, and that nothing is found if there is none. */
+    @Test
+    public void testOfflineUsesDownloadedDocument() throws IOException {
+        final ClusterEndpoint endpoint = createEndpoint();
+        server.stop(0);
+        assertNull(createSource().open(endpoint, new ModelInterner()));
+
+        setUp();
+        final ClusterEndpoint reachableEndpoint = createEndpoint();
+        assertNotNull(createSource().open(reachableEndpoint, new ModelInterner()));
+        server.stop(0);
+
+        final SpecPackage specPackage = createSource().open(reachableEndpoint, new ModelInterner());
+        assertNotNull(specPackage);
+        final SchemaSnapshot snapshot = new SchemaSnapshot(Collections.singletonList(ModelLoader.CLUSTER_PREFIX + "test"), Collections.singletonList(specPackage));
+        assertTrue(snapshot.findProperties(new ResourceTypeKey("apps/v1", "Deployment"), Collections.singletonList("spec")).containsKey("replicas"));
+    }
+}
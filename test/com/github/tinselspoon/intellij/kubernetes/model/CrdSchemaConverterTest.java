@@ -0,0 +1,105 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.github.tinselspoon.intellij.kubernetes.ResourceTypeKey;
+import com.google.gson.Gson;
+
+/**
+ * Unit test for the {@link CrdSchemaConverter}.
+ */
+public class CrdSchemaConverterTest {
+
+    /** A custom resource definition declaring a single schema for all versions, as in {@code apiextensions.k8s.io/v1beta1}. */
+    private static final String SHARED_SCHEMA_CRD = "{\"apiVersion\": \"apiextensions.k8s.io/v1beta1\", \"kind\": \"CustomResourceDefinition\","
+                                                    + "\"metadata\": {\"name\": \"crontabs.stable.example.com\"},"
+                                                    + "\"spec\": {\"group\": \"stable.example.com\", \"version\": \"v1\", \"names\": {\"kind\": \"CronTab\", \"plural\": \"crontabs\"},"
+                                                    + "\"validation\": {\"openAPIV3Schema\": {\"properties\": {\"spec\": {\"required\": [\"cronSpec\"], \"properties\": {"
+                                                    + "\"cronSpec\": {\"type\": \"string\", \"description\": \"The schedule.\"},"
+                                                    + "\"replicas\": {\"type\": \"integer\"},"
+                                                    + "\"port\": {\"x-kubernetes-int-or-string\": true},"
+                                                    + "\"commands\": {\"type\": \"array\", \"items\": {\"type\": \"string\"}},"
+                                                    + "\"volumes\": {\"type\": \"array\", \"items\": {\"type\": \"object\", \"properties\": {\"name\": {\"type\": \"string\"}}}}}}}}}}}";
+
+    /** A custom resource definition declaring a schema for each version, as in {@code apiextensions.k8s.io/v1}. */
+    private static final String VERSIONED_SCHEMA_CRD = "{\"apiVersion\": \"apiextensions.k8s.io/v1\", \"kind\": \"CustomResourceDefinition\","
+                                                       + "\"spec\": {\"group\": \"stable.example.com\", \"names\": {\"kind\": \"CronTab\"}, \"versions\": ["
+                                                       + "{\"name\": \"v1beta1\", \"schema\": {\"openAPIV3Schema\": {\"properties\": {\"legacy\": {\"type\": \"boolean\"}}}}},"
+                                                       + "{\"name\": \"v1\", \"schema\": {\"openAPIV3Schema\": {\"properties\": {\"current\": {\"type\": \"boolean\"}}}}}]}}";
+
+    /** The resource defined at version {@code v1}. */
+    private static final ResourceTypeKey CRON_TAB = new ResourceTypeKey("stable.example.com/v1", "CronTab");
+
+    /**
+     * Converts a custom resource definition given as JSON, which is equivalent to the YAML form.
+     *
+     * @param json the definition.
+     * @return the converted specs.
+     */
+    private static Map<ResourceTypeKey, SwaggerSpec> convert(final String json) {
+        return CrdSchemaConverter.convert(new Gson().fromJson(json, Map.class));
+    }
+
+    /** Test that a schema declared once applies to the version, and that nested objects and arrays of objects become models that can be navigated to. */
+    @Test
+    public void testConvertSharedSchema() {
+        final Map<ResourceTypeKey, SwaggerSpec> specs = convert(SHARED_SCHEMA_CRD);
+        assertEquals(Collections.singleton(CRON_TAB), specs.keySet());
+        final SwaggerSpec spec = specs.get(CRON_TAB);
+        assertEquals(Collections.singleton("v1.CronTab"), SpecIndexEntry.of(spec).getResourceTypes());
+
+        final Map<String, Property> rootProperties = ResourceSchema.find(spec, CRON_TAB, null).findProperties(Collections.emptyList());
+        assertEquals(FieldType.STRING, rootProperties.get("apiVersion").getType());
+        assertEquals(FieldType.OBJECT, rootProperties.get("metadata").getType());
+
+        final Model cronTabSpec = ResourceSchema.find(spec, CRON_TAB, null).findModel(Collections.singletonList("spec"));
+        assertNotNull(cronTabSpec);
+        assertEquals(Collections.singletonList("cronSpec"), cronTabSpec.getRequiredProperties());
+        assertEquals("The schedule.", cronTabSpec.getProperties().get("cronSpec").getDescription());
+        assertEquals(FieldType.INTEGER, cronTabSpec.getProperties().get("replicas").getType());
+        assertNull(cronTabSpec.getProperties().get("port").getType());
+        assertEquals(FieldType.STRING, cronTabSpec.getProperties().get("commands").getItems().getType());
+
+        final List<String> volumesPath = Arrays.asList("spec", "volumes");
+        assertEquals(FieldType.STRING, ResourceSchema.find(spec, CRON_TAB, null).findProperties(volumesPath).get("name").getType());
+    }
+
+    /** Test that each version with its own schema gets its own spec. */
+    @Test
+    public void testConvertVersionedSchemas() {
+        final Map<ResourceTypeKey, SwaggerSpec> specs = convert(VERSIONED_SCHEMA_CRD);
+        assertEquals(2, specs.size());
+        assertTrue(ResourceSchema.find(specs.get(CRON_TAB), CRON_TAB, null).findProperties(Collections.emptyList()).containsKey("current"));
+        final ResourceTypeKey legacyCronTab = new ResourceTypeKey("stable.example.com/v1beta1", "CronTab");
+        assertTrue(ResourceSchema.find(specs.get(legacyCronTab), legacyCronTab, null).findProperties(Collections.emptyList()).containsKey("legacy"));
+    }
+
+    /** Test that documents other than custom resource definitions are ignored. */
+    @Test
+    public void testOtherKindsAreIgnored() {
+        assertTrue(convert("{\"apiVersion\": \"v1\", \"kind\": \"Pod\", \"spec\": {\"group\": \"x\", \"names\": {\"kind\": \"Y\"}}}").isEmpty());
+        assertTrue(convert("{\"kind\": \"CustomResourceDefinition\", \"spec\": {\"version\": \"v1\"}}").isEmpty());
+    }
+
+    /** Test that converted specs survive the snapshot format in which the index stores them. */
+    @Test
+    public void testSpecsRoundTripThroughSnapshot() throws IOException {
+        final SwaggerSpec spec = convert(SHARED_SCHEMA_CRD).get(CRON_TAB);
+        final ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        SpecSnapshotWriter.write(Collections.singletonList(spec), snapshot);
+        assertEquals(Collections.singletonList(spec), SpecSnapshotReader.read(new ByteArrayInputStream(snapshot.toByteArray())));
+    }
+}
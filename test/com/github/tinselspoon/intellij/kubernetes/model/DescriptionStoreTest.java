@@ -0,0 +1,327 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import static com.github.tinselspoon.intellij.kubernetes.model.ModelTestUtil.loadSnapshot;
+import static com.github.tinselspoon.intellij.kubernetes.model.ModelTestUtil.loadSpecs;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+/**
+ * Unit test for the {@link DescriptionStore}.
+ */
+public class DescriptionStoreTest {
+
+    /** Approximate size in bytes of the header and fields of a {@link String} and its backing array on a 64-bit JVM with compressed references. */
+    private static final int STRING_OVERHEAD = 24 + 16;
+
+    /**
+     * Approximate size in bytes of the heap used by the store for each description: an element of each of the arrays indexed by ID, the entry of the table of hashes at its maximum load factor of
+     * one half, and the entry recording the ID in the table it was added through.
+     */
+    private static final int STORE_OVERHEAD = (8 + 8 + 4 + 4) + 2 * (8 + 4 + 1) + 4;
+
+    /** The length below which descriptions are not searched for among reachable objects, as short ones such as "Name." may legitimately occur within other strings. */
+    private static final int SEARCHED_DESCRIPTION_LENGTH = 40;
+
+    /**
+     * Adds descriptions through a new table that is not reachable once this method returns.
+     *
+     * @param descriptions the descriptions to add.
+     * @return the IDs of the descriptions.
+     */
+    private static int[] addThroughUnreachableTable(final String... descriptions) {
+        final DescriptionStore.Table table = DescriptionStore.getInstance().newTable();
+        return Arrays.stream(descriptions).mapToInt(table::add).toArray();
+    }
+
+    /**
+     * Estimate the retained heap size of a string.
+     *
+     * @param string the string.
+     * @return the size in bytes, allowing two bytes per character.
+     */
+    private static long estimateStringSize(final String string) {
+        final long size = STRING_OVERHEAD + 2L * string.length();
+        // Round up to the 8-byte object alignment
+        return (size + 7) & ~7;
+    }
+
+    /**
+     * Finds every string and byte array reachable from an object. Fields are followed for the classes of the model, whereas the JDK's collections, maps and byte buffers are followed through their
+     * public API; the {@link DescriptionStore} itself is not followed, as it legitimately holds descriptions that have not yet been written to its file.
+     *
+     * @param root the object to start from.
+     * @param strings the collection to add the strings found to.
+     * @param byteArrays the collection to add the byte arrays found to.
+     */
+    private static void findReachable(final Object root, final Collection<String> strings, final Collection<byte[]> byteArrays) throws IllegalAccessException {
+        final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Deque<Object> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            final Object object = pending.pop();
+            if (!visited.add(object) || object instanceof DescriptionStore) {
+                continue;
+            }
+            final List<Object> referents = new ArrayList<>();
+            if (object instanceof String) {
+                strings.add((String) object);
+            } else if (object instanceof byte[]) {
+                byteArrays.add((byte[]) object);
+            } else if (object instanceof Object[]) {
+                referents.addAll(Arrays.asList((Object[]) object));
+            } else if (isModelClass(object.getClass())) {
+                for (Class<?> type = object.getClass(); isModelClass(type); type = type.getSuperclass()) {
+                    for (final Field field : type.getDeclaredFields()) {
+                        if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive()) {
+                            field.setAccessible(true);
+                            referents.add(field.get(object));
+                        }
+                    }
+                }
+            } else if (object instanceof Map) {
+                referents.addAll(((Map<?, ?>) object).keySet());
+                referents.addAll(((Map<?, ?>) object).values());
+            } else if (object instanceof Collection) {
+                referents.addAll((Collection<?>) object);
+            } else if (object instanceof ByteBuffer && ((ByteBuffer) object).hasArray()) {
+                referents.add(((ByteBuffer) object).array());
+            }
+            referents.stream().filter(Objects::nonNull).forEach(pending::push);
+        }
+    }
+
+    /**
+     * Gets the description of every model and property in some specs.
+     *
+     * @param specs the specs.
+     * @return the descriptions, once for each model or property that has one.
+     */
+    private static List<String> getDescriptions(final List<SwaggerSpec> specs) {
+        final List<String> descriptions = new ArrayList<>();
+        for (final SwaggerSpec spec : specs) {
+            for (final Model model : spec.getModels().values()) {
+                if (model.getDescriptionId() != DescriptionStore.NO_DESCRIPTION) {
+                    descriptions.add(model.getDescription());
+                }
+                for (final Property property : model.getProperties().values()) {
+                    if (property.getDescriptionId() != DescriptionStore.NO_DESCRIPTION) {
+                        descriptions.add(property.getDescription());
+                    }
+                }
+            }
+        }
+        return descriptions;
+    }
+
+    /**
+     * Determines whether a class belongs to the model, rather than being one of the JDK's.
+     *
+     * @param type the class.
+     * @return {@code true} if the class is in the package of the model.
+     */
+    private static boolean isModelClass(final Class<?> type) {
+        return type.getName().startsWith(DescriptionStore.class.getPackage().getName() + ".");
+    }
+
+    /**
+     * Reads every spec from a snapshot.
+     *
+     * @param reader the reader for the snapshot.
+     * @return the specs.
+     */
+    private static List<SwaggerSpec> readSpecs(final SpecSnapshotReader reader) {
+        return IntStream.range(0, reader.getIndex().size()).mapToObj(reader::readSpec).collect(Collectors.toList());
+    }
+
+    /**
+     * Runs the garbage collector and releases the descriptions of unreachable tables until a condition holds.
+     *
+     * @param condition the condition to wait for.
+     */
+    private static void releaseUnreachableTablesUntil(final BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            System.gc();
+            Thread.sleep(10);
+            DescriptionStore.getInstance().releaseUnreachableTables();
+        }
+        assertTrue("Expected unreachable tables to be released.", condition.getAsBoolean());
+    }
+
+    /** Test that once enough descriptions have been released the file is compacted, and that the descriptions still in use can be read afterwards. */
+    @Test
+    public void testCompactedOnceReleased() throws InterruptedException {
+        final DescriptionStore store = DescriptionStore.getInstance();
+        final DescriptionStore.Table table = store.newTable();
+        final int keptId = table.add("Description kept while compacting.");
+        final long sizeBefore = store.getSize();
+        final String padding = String.join("", Collections.nCopies(10_000, "released "));
+        addThroughUnreachableTable(IntStream.range(0, 40).mapToObj(i -> "Released description " + i + padding).toArray(String[]::new));
+        assertTrue(store.getSize() > sizeBefore + 40 * padding.length());
+
+        releaseUnreachableTablesUntil(() -> store.getSize() <= sizeBefore);
+        assertEquals("Description kept while compacting.", store.get(keptId));
+        assertEquals(keptId, table.add("Description kept while compacting."));
+    }
+
+    /** Test that descriptions added from several threads at once are each stored once and read back intact, including those large enough to bypass the write buffer. */
+    @Test
+    public void testConcurrentAdd() throws InterruptedException, ExecutionException {
+        final DescriptionStore store = DescriptionStore.getInstance();
+        final List<String> descriptions = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            descriptions.add("Concurrently added description " + i + (i % 500 == 0 ? String.join("", Collections.nCopies(10_000, "long ")) : ""));
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final DescriptionStore.Table table = store.newTable();
+            final List<Future<List<Integer>>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                results.add(executor.submit(() -> descriptions.stream().map(table::add).collect(Collectors.toList())));
+            }
+            final List<Integer> ids = results.get(0).get();
+            for (final Future<List<Integer>> result : results) {
+                assertEquals(ids, result.get());
+            }
+            assertEquals(descriptions.size(), new HashSet<>(ids).size());
+            for (int i = 0; i < descriptions.size(); i++) {
+                assertEquals(descriptions.get(i), store.get(ids.get(i)));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /** Test that a stored description can be read back by its ID. */
+    @Test
+    public void testDescriptionRoundTrip() {
+        final DescriptionStore store = DescriptionStore.getInstance();
+        final int id = store.newTable().add("Standard object's metadata \u2013 with non-ASCII text.");
+        assertEquals("Standard object's metadata \u2013 with non-ASCII text.", store.get(id));
+    }
+
+    /**
+     * Test that no object reachable from the specs, or from the reader of the snapshot they were read from, holds the text of a description, whether as a string or as encoded bytes within an array
+     * such as the buffer of the snapshot. Specs parsed from Swagger JSON are checked as well as those read from a snapshot.
+     */
+    @Test
+    public void testDescriptionsNotHeld() throws IOException, IllegalAccessException {
+        final SpecSnapshotReader reader = SpecSnapshotReader.open(loadSnapshot("kubernetes-1.9"), loadSnapshot("kubernetes-1.9").length);
+        final List<SwaggerSpec> snapshotSpecs = readSpecs(reader);
+        final List<SwaggerSpec> parsedSpecs = loadSpecs("openshift-3.6");
+
+        final Set<String> descriptions = new HashSet<>(getDescriptions(snapshotSpecs));
+        descriptions.addAll(getDescriptions(parsedSpecs));
+        descriptions.removeIf(description -> description.length() < SEARCHED_DESCRIPTION_LENGTH);
+        assertTrue("Expected the specs to have descriptions.", descriptions.size() > 1000);
+
+        final Set<String> strings = new HashSet<>();
+        final List<byte[]> byteArrays = new ArrayList<>();
+        findReachable(Arrays.asList(reader, snapshotSpecs, parsedSpecs), strings, byteArrays);
+        assertTrue("Expected the buffer of the snapshot to be reachable.", byteArrays.stream().anyMatch(array -> array.length > 100_000));
+        final List<String> encodedArrays = byteArrays.stream().map(array -> new String(array, StandardCharsets.ISO_8859_1)).collect(Collectors.toList());
+        for (final String description : descriptions) {
+            assertFalse("Description held as a string: " + description, strings.contains(description));
+            final String encodedDescription = new String(description.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+            for (final String encodedArray : encodedArrays) {
+                assertFalse("Description held in a byte array: " + description, encodedArray.contains(encodedDescription));
+            }
+        }
+    }
+
+    /** Test that identical descriptions share an ID and different descriptions do not. */
+    @Test
+    public void testIdenticalDescriptionsShareId() {
+        final DescriptionStore.Table table = DescriptionStore.getInstance().newTable();
+        final int first = table.add("Spec defines the behavior of a pod.");
+        final int second = DescriptionStore.getInstance().newTable().add("Spec defines the behavior of a pod.");
+        final int third = table.add("Spec defines the behavior of a service.");
+        assertEquals(first, second);
+        assertNotEquals(first, third);
+    }
+
+    /** Test that a missing description is represented without touching the store. */
+    @Test
+    public void testNullDescription() {
+        final DescriptionStore store = DescriptionStore.getInstance();
+        assertEquals(DescriptionStore.NO_DESCRIPTION, store.newTable().add(null));
+        assertNull(store.get(DescriptionStore.NO_DESCRIPTION));
+    }
+
+    /** Test that a description is released once no table that added it is reachable, and not before. */
+    @Test
+    public void testReleasedWhenTablesUnreachable() throws InterruptedException {
+        final DescriptionStore store = DescriptionStore.getInstance();
+        final int releasedId = addThroughUnreachableTable("Description only added through an unreachable table.")[0];
+        final DescriptionStore.Table table = store.newTable();
+        final int sharedId = table.add("Description added through a reachable and an unreachable table.");
+        assertEquals(sharedId, addThroughUnreachableTable("Description added through a reachable and an unreachable table.")[0]);
+        assertEquals(2, store.getReferenceCount(sharedId));
+
+        releaseUnreachableTablesUntil(() -> store.getReferenceCount(sharedId) == 1);
+        assertEquals(0, store.getReferenceCount(releasedId));
+        assertEquals("Description added through a reachable and an unreachable table.", store.get(sharedId));
+        assertEquals(sharedId, table.add("Description added through a reachable and an unreachable table."));
+    }
+
+    /**
+     * Measure the heap retained by the descriptions of Kubernetes 1.9 plus OpenShift 3.6, compared with holding them as strings. Parsing the Swagger JSON produces a separate string for each
+     * description of each model and property, and a snapshot that kept its descriptions in its retained buffer would hold their encoded bytes as well; in the store, each distinct description costs
+     * only its entries in the store's tables, and the retained buffer of a snapshot ends where its descriptions begin.
+     */
+    @Test
+    public void testRetainedSizeSavedForKubernetesAndOpenshift() throws IOException {
+        long referenceCount = 0;
+        long distinctCount = 0;
+        long stringBytes = 0;
+        long snapshotBytes = 0;
+        long retainedSnapshotBytes = 0;
+        for (final String archiveName : Arrays.asList("kubernetes-1.9", "openshift-3.6")) {
+            for (final String description : getDescriptions(loadSpecs(archiveName))) {
+                referenceCount++;
+                stringBytes += estimateStringSize(description);
+            }
+            final byte[] snapshot = loadSnapshot(archiveName);
+            distinctCount += new HashSet<>(getDescriptions(readSpecs(SpecSnapshotReader.open(snapshot, snapshot.length)))).size();
+            snapshotBytes += snapshot.length;
+            // The retained buffer is the part of the snapshot before the position of the description table, given in the header
+            retainedSnapshotBytes += ByteBuffer.wrap(snapshot).getInt(SpecSnapshotReader.HEADER_SIZE - 4);
+        }
+        final long storeBytes = distinctCount * STORE_OVERHEAD;
+
+        System.out.println("Kubernetes 1.9 + OpenShift 3.6: " + referenceCount + " descriptions (" + distinctCount + " distinct) would retain approximately " + stringBytes / 1024
+                + " KiB as strings, but retain approximately " + storeBytes / 1024 + " KiB in the description store; snapshots retain " + retainedSnapshotBytes / 1024 + " KiB of their "
+                + snapshotBytes / 1024 + " KiB.");
+        assertTrue("Expected descriptions to account for megabytes of heap.", stringBytes - storeBytes > 2 * 1024 * 1024);
+        assertTrue("Expected the descriptions to make up a large part of each snapshot.", snapshotBytes - retainedSnapshotBytes > 300 * 1024);
+    }
+}
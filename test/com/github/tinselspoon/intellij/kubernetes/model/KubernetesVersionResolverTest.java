@@ -0,0 +1,196 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.roots.ProjectRootManager;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase;
+
+/**
+ * Unit tests for the {@link KubernetesVersionResolver}.
+ */
+public class KubernetesVersionResolverTest extends LightCodeInsightFixtureTestCase {
+
+    /**
+     * Gets the names of the spec resources chosen for a file.
+     *
+     * @param file the file.
+     * @return the Kubernetes resource name, or {@code null} if the file uses the configured version.
+     */
+    private String getKubernetesResourceName(final PsiFile file) {
+        final ModelLoader.SharedSnapshot snapshot = getResolver().getSnapshot(file);
+        return snapshot != null ? snapshot.getResourceNames().get(0) : null;
+    }
+
+    /**
+     * Gets the resolver of the project.
+     *
+     * @return the resolver.
+     */
+    private KubernetesVersionResolver getResolver() {
+        return KubernetesVersionResolver.getInstance(getProject());
+    }
+
+    /**
+     * Replaces the content of a file and saves it, as if edited in the IDE.
+     *
+     * @param file the file.
+     * @param text the new content.
+     */
+    private void setText(final PsiFile file, final String text) {
+        final Document document = PsiDocumentManager.getInstance(getProject()).getDocument(file);
+        assertNotNull(document);
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+            document.setText(text);
+            FileDocumentManager.getInstance().saveDocument(document);
+        });
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            // The project is shared between tests, so release what this test resolved
+            getResolver().invalidate();
+        } finally {
+            super.tearDown();
+        }
+    }
+
+    public void testEmptyMarkerUsesConfiguredVersion() {
+        // GIVEN a directory with a marker naming no version, within one that names a version
+        myFixture.addFileToProject("team/.kubernetes-version", "1.7");
+        myFixture.addFileToProject("team/legacy/.kubernetes-version", "# Use the configured version\n");
+        final PsiFile file = myFixture.addFileToProject("team/legacy/deployment.yml", "kind: Deployment");
+
+        // WHEN resolving the version of a file in the directory
+        // THEN the configured version is used
+        assertNull(getKubernetesResourceName(file));
+    }
+
+    public void testInvalidateReleasesSnapshot() {
+        // GIVEN a file whose version has been resolved
+        myFixture.addFileToProject("team/.kubernetes-version", "1.7");
+        final PsiFile file = myFixture.addFileToProject("team/deployment.yml", "kind: Deployment");
+        final ModelLoader.SharedSnapshot snapshot = getResolver().getSnapshot(file);
+        assertNotNull(snapshot);
+
+        // WHEN the resolver is invalidated
+        getResolver().invalidate();
+
+        // THEN its reference was released, so the version is resolved to a new shared snapshot
+        final ModelLoader.SharedSnapshot resolvedAgain = getResolver().getSnapshot(file);
+        assertNotNull(resolvedAgain);
+        assertNotSame(snapshot, resolvedAgain);
+        assertEquals(snapshot.getResourceNames(), resolvedAgain.getResourceNames());
+    }
+
+    public void testMarkerChangeInvalidates() {
+        // GIVEN a file whose version has been resolved
+        final PsiFile marker = myFixture.addFileToProject("team/.kubernetes-version", "1.7");
+        final PsiFile file = myFixture.addFileToProject("team/app/deployment.yml", "kind: Deployment");
+        assertEquals("kubernetes-1.7", getKubernetesResourceName(file));
+
+        // WHEN the marker in an ancestor directory is changed
+        setText(marker, "1.8");
+
+        // THEN the new version is resolved
+        assertEquals("kubernetes-1.8", getKubernetesResourceName(file));
+    }
+
+    public void testMarkerInAncestorDirectory() {
+        // GIVEN a marker, with comments, naming a patch release in an ancestor directory of a file
+        myFixture.addFileToProject("team/.kubernetes-version", "# The version of the production cluster\n\nv1.7.4\n");
+        final PsiFile file = myFixture.addFileToProject("team/app/deployment.yml", "kind: Deployment");
+
+        // WHEN resolving the version of the file
+        // THEN the minor version named by the marker is used
+        assertEquals("kubernetes-1.7", getKubernetesResourceName(file));
+    }
+
+    public void testMarkerOutsideContentRootIgnored() {
+        // GIVEN a marker in the directory containing the content root of a file
+        final PsiFile file = myFixture.addFileToProject("team/deployment.yml", "kind: Deployment");
+        final VirtualFile contentRoot = ProjectRootManager.getInstance(getProject()).getFileIndex().getContentRootForFile(file.getVirtualFile());
+        assertNotNull(contentRoot);
+        final VirtualFile marker = WriteCommandAction.runWriteCommandAction(getProject(), (Computable<VirtualFile>) () -> {
+            try {
+                final VirtualFile outsideMarker = contentRoot.getParent().createChildData(this, KubernetesVersionResolver.MARKER_FILE_NAME);
+                VfsUtil.saveText(outsideMarker, "1.7");
+                return outsideMarker;
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        try {
+            // WHEN resolving the version of the file
+            // THEN the marker is not found, so the configured version is used
+            assertNull(getResolver().getSnapshot(file));
+        } finally {
+            WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+                try {
+                    marker.delete(this);
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    public void testNoMarkerUsesConfiguredVersion() {
+        final PsiFile file = myFixture.addFileToProject("team/deployment.yml", "kind: Deployment");
+        assertNull(getResolver().getSnapshot(file));
+    }
+
+    public void testRenamingAncestorDirectoryInvalidates() {
+        // GIVEN a file whose version has been resolved
+        myFixture.addFileToProject("team/.kubernetes-version", "1.7");
+        final PsiFile file = myFixture.addFileToProject("team/app/deployment.yml", "kind: Deployment");
+        final ModelLoader.SharedSnapshot snapshot = getResolver().getSnapshot(file);
+        assertNotNull(snapshot);
+
+        // WHEN the directory of the file is renamed
+        myFixture.renameElement(file.getContainingDirectory(), "service");
+
+        // THEN the version is resolved again
+        assertNotSame(snapshot, getResolver().getSnapshot(file));
+    }
+
+    public void testResolvedOncePerDirectory() {
+        // GIVEN two files in a directory with a marker
+        myFixture.addFileToProject("team/.kubernetes-version", "1.7");
+        final PsiFile deployment = myFixture.addFileToProject("team/deployment.yml", "kind: Deployment");
+        final PsiFile service = myFixture.addFileToProject("team/service.yml", "kind: Service");
+        final ModelLoader.SharedSnapshot snapshot = getResolver().getSnapshot(deployment);
+
+        // WHEN resolving the version of each
+        // THEN the version resolved for the directory is reused
+        assertNotNull(snapshot);
+        assertSame(snapshot, getResolver().getSnapshot(deployment));
+        assertSame(snapshot, getResolver().getSnapshot(service));
+    }
+
+    public void testUnrelatedChangesKeepCache() {
+        // GIVEN a file whose version has been resolved
+        myFixture.addFileToProject("team/.kubernetes-version", "1.7");
+        final PsiFile file = myFixture.addFileToProject("team/deployment.yml", "kind: Deployment");
+        final ModelLoader.SharedSnapshot snapshot = getResolver().getSnapshot(file);
+        assertNotNull(snapshot);
+
+        // WHEN files are edited, and a marker and directories are added and renamed, outside the directories resolved
+        setText(file, "kind: Service");
+        myFixture.addFileToProject("other/.kubernetes-version", "1.8");
+        final PsiFile otherFile = myFixture.addFileToProject("other/nested/service.yml", "kind: Service");
+        myFixture.renameElement(otherFile.getContainingDirectory(), "renamed");
+
+        // THEN the version resolved is kept
+        assertSame(snapshot, getResolver().getSnapshot(file));
+    }
+}
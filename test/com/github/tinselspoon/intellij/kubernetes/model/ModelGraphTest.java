@@ -0,0 +1,85 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import com.github.tinselspoon.intellij.kubernetes.config.ApiPackage;
+import com.github.tinselspoon.intellij.kubernetes.config.ConfigState;
+
+/**
+ * Unit test for the {@link ModelGraph}.
+ */
+public class ModelGraphTest {
+
+    /**
+     * Creates a model.
+     *
+     * @param id the model ID.
+     * @return the model.
+     */
+    private static Model createModel(final String id) {
+        final Model model = new Model();
+        model.setId(id);
+        return model;
+    }
+
+    /** Test that the bundled Kubernetes specs have no dangling references, and that those of the bundled OpenShift specs are reported. */
+    @Test
+    public void testBundledSpecs() {
+        final ConfigState configState = new ConfigState();
+        configState.setKubernetesPackage(new ApiPackage(true, null));
+        final SchemaSnapshot kubernetes = new ModelLoader(configState, ModelLoader::openPackage).getActiveSnapshot();
+        for (final String apiVersion : kubernetes.suggestApiVersions()) {
+            assertEquals(apiVersion, Collections.emptySet(), ModelGraph.link(kubernetes.getSpec(apiVersion)).getDanglingRefs());
+        }
+
+        configState.setOpenshiftPackage(new ApiPackage(true, null));
+        final SchemaSnapshot openshift = new ModelLoader(configState, ModelLoader::openPackage).getActiveSnapshot();
+        assertEquals(new HashSet<>(Arrays.asList("time.Duration", "v1.Image.dockerImageSignatures")), ModelGraph.link(openshift.getSpec("v1")).getDanglingRefs());
+    }
+
+    /** Test that direct and array item references resolve to their models, and that a reference to a missing model is reported. */
+    @Test
+    public void testLink() {
+        final SwaggerSpec spec = new SwaggerSpec();
+        spec.setApiVersion("v1");
+        final Model pod = createModel("v1.Pod");
+        final Model podSpec = createModel("v1.PodSpec");
+        final Model container = createModel("v1.Container");
+        spec.getModels().put(pod.getId(), pod);
+        spec.getModels().put(podSpec.getId(), podSpec);
+        spec.getModels().put(container.getId(), container);
+
+        final Property specProperty = new Property();
+        specProperty.setRef("v1.PodSpec");
+        pod.getProperties().put("spec", specProperty);
+        final Property statusProperty = new Property();
+        statusProperty.setRef("v1.PodStatus");
+        pod.getProperties().put("status", statusProperty);
+        final ArrayItems containerItems = new ArrayItems();
+        containerItems.setRef("v1.Container");
+        final Property containersProperty = new Property();
+        containersProperty.setType(FieldType.ARRAY);
+        containersProperty.setItems(containerItems);
+        podSpec.getProperties().put("containers", containersProperty);
+        final Property hostnameProperty = new Property();
+        hostnameProperty.setType(FieldType.STRING);
+        podSpec.getProperties().put("hostname", hostnameProperty);
+
+        final ModelGraph graph = ModelGraph.link(spec);
+        assertSame(podSpec, graph.getTarget(specProperty));
+        assertSame(container, graph.getTarget(containersProperty));
+        assertNull(graph.getTarget(statusProperty));
+        assertNull(graph.getTarget(hostnameProperty));
+        assertEquals(Collections.singleton("v1.PodStatus"), graph.getDanglingRefs());
+        assertTrue(ModelGraph.link(new SwaggerSpec()).getDanglingRefs().isEmpty());
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import static com.github.tinselspoon.intellij.kubernetes.model.ModelTestUtil.loadSpecs;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Unit test for the {@link ModelInterner}.
+ */
+public class ModelInternerTest {
+
+    /**
+     * Counts the distinct model instances within some specs.
+     *
+     * @param specs the specs.
+     * @return the number of distinct instances.
+     */
+    private static int countDistinctModels(final List<SwaggerSpec> specs) {
+        final Set<Model> models = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (final SwaggerSpec spec : specs) {
+            models.addAll(spec.getModels().values());
+        }
+        return models.size();
+    }
+
+    /**
+     * Finds a model within a list of specs.
+     *
+     * @param specs the specs to search.
+     * @param apiVersion the API version of the spec.
+     * @param modelId the model ID.
+     * @return the model, or {@code null} if not found.
+     */
+    private static Model findModel(final List<SwaggerSpec> specs, final String apiVersion, final String modelId) {
+        return specs.stream().filter(s -> apiVersion.equals(s.getApiVersion())).map(s -> s.getModels().get(modelId)).filter(m -> m != null).findFirst().orElse(null);
+    }
+
+    /** Test that identical models loaded separately are replaced by a single instance. */
+    @Test
+    public void testIdenticalModelsShared() {
+        final ModelInterner interner = new ModelInterner();
+        final List<SwaggerSpec> first = interner.internSpecs(loadSpecs("kubernetes-1.9"));
+        final List<SwaggerSpec> second = interner.internSpecs(loadSpecs("kubernetes-1.9"));
+
+        assertEquals(first, second);
+        assertSame(findModel(first, "v1", "v1.ObjectMeta"), findModel(second, "v1", "v1.ObjectMeta"));
+        assertEquals(countDistinctModels(first), countDistinctModels(concat(first, second)));
+    }
+
+    /** Test that interning does not change the content of the specs. */
+    @Test
+    public void testInterningPreservesSpecs() {
+        final List<SwaggerSpec> interned = new ModelInterner().internSpecs(loadSpecs("kubernetes-1.8"));
+        assertEquals(loadSpecs("kubernetes-1.8"), interned);
+    }
+
+    /** Test that holding consecutive versions shares the models that did not change between them, and only those. */
+    @Test
+    public void testModelsSharedBetweenVersions() {
+        final ModelInterner interner = new ModelInterner();
+        final List<SwaggerSpec> kubernetes17 = interner.internSpecs(loadSpecs("kubernetes-1.7"));
+        final List<SwaggerSpec> kubernetes18 = interner.internSpecs(loadSpecs("kubernetes-1.8"));
+
+        assertSame(findModel(kubernetes17, "v1", "v1.ObjectMeta"), findModel(kubernetes18, "v1", "v1.ObjectMeta"));
+
+        // The container changed between the versions, so each version must keep its own
+        final Model container17 = findModel(kubernetes17, "v1", "v1.Container");
+        final Model container18 = findModel(kubernetes18, "v1", "v1.Container");
+        assertNotEquals(container17, container18);
+        assertNotSame(container17, container18);
+    }
+
+    /**
+     * Concatenates two lists of specs.
+     *
+     * @param first the first list.
+     * @param second the second list.
+     * @return a new list containing the specs of both.
+     */
+    private static List<SwaggerSpec> concat(final List<SwaggerSpec> first, final List<SwaggerSpec> second) {
+        final List<SwaggerSpec> specs = new ArrayList<>(first);
+        specs.addAll(second);
+        return specs;
+    }
+
+}
@@ -0,0 +1,302 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import static com.github.tinselspoon.intellij.kubernetes.model.ModelTestUtil.loadSpecs;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.tinselspoon.intellij.kubernetes.config.ApiPackage;
+import com.github.tinselspoon.intellij.kubernetes.config.ConfigState;
+
+/**
+ * Unit test for the {@link ModelLoader}.
+ */
+public class ModelLoaderTest {
+
+    /** Temporary folder for local documents. */
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /** The prefix of the resource names of the bundled specs. */
+    private static final String RESOURCE_PREFIX = "com/github/tinselspoon/intellij/kubernetes/";
+
+    /** The number of threads to use when testing concurrent loading. */
+    private static final int THREAD_COUNT = 16;
+
+    /**
+     * Creates a configuration with both Kubernetes and OpenShift enabled at their default versions.
+     *
+     * @return the configuration.
+     */
+    private static ConfigState createConfigState() {
+        final ConfigState configState = new ConfigState();
+        configState.setKubernetesPackage(new ApiPackage(true, null));
+        configState.setOpenshiftPackage(new ApiPackage(true, null));
+        return configState;
+    }
+
+    /** Test that many threads requesting the same spec at once cause each archive to be opened exactly once, and all receive the same spec. */
+    @Test
+    public void testConcurrentLoadsAreSingleFlight() throws Exception {
+        final Map<String, AtomicInteger> loadCounts = new ConcurrentHashMap<>();
+        final ModelLoader modelLoader = new ModelLoader(createConfigState(), (resourceName, modelInterner) -> {
+            loadCounts.computeIfAbsent(resourceName, r -> new AtomicInteger()).incrementAndGet();
+            return ModelLoader.openPackage(resourceName, modelInterner);
+        });
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<SwaggerSpec>> results = new ArrayList<>();
+            for (int i = 0; i < THREAD_COUNT; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    SwaggerSpec spec = null;
+                    for (int j = 0; j < 10; j++) {
+                        spec = modelLoader.getActiveSnapshot().getSpec("v1");
+                    }
+                    return spec;
+                }));
+            }
+            start.countDown();
+            final SwaggerSpec first = results.get(0).get();
+            for (final Future<SwaggerSpec> result : results) {
+                assertSame(first, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(2, loadCounts.size());
+        for (final Map.Entry<String, AtomicInteger> entry : loadCounts.entrySet()) {
+            assertEquals("Load count for " + entry.getKey(), 1, entry.getValue().get());
+        }
+    }
+
+    /** Test that the active snapshot is kept while the configuration is unchanged, and replaced once a change selects different versions. */
+    @Test
+    public void testConfigurationChangeReplacesSnapshot() {
+        final ConfigState configState = new ConfigState();
+        final ModelLoader modelLoader = new ModelLoader(configState, ModelLoader::openPackage);
+        assertNull(modelLoader.getLoadedActiveSnapshot());
+        final SchemaSnapshot snapshot = modelLoader.getActiveSnapshot();
+        assertSame(snapshot, modelLoader.getLoadedActiveSnapshot());
+
+        configState.setKubernetesPackage(new ApiPackage(true, "1.9"));
+        modelLoader.configurationChanged();
+        assertSame(snapshot, modelLoader.getLoadedActiveSnapshot());
+
+        configState.setKubernetesPackage(new ApiPackage(true, "1.8"));
+        modelLoader.configurationChanged();
+        assertNull(modelLoader.getLoadedActiveSnapshot());
+        final SchemaSnapshot newSnapshot = modelLoader.getActiveSnapshot();
+        assertEquals(Collections.singletonList(RESOURCE_PREFIX + "kubernetes-1.8"), newSnapshot.getResourceNames());
+        assertSame(newSnapshot, modelLoader.getLoadedActiveSnapshot());
+    }
+
+    /** Test that a failed load is not cached, so that a later request loads the specs again. */
+    @Test
+    public void testFailedLoadIsRetried() {
+        final AtomicInteger attempts = new AtomicInteger();
+        final ConfigState configState = new ConfigState();
+        final ModelLoader modelLoader = new ModelLoader(configState, (resourceName, modelInterner) -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("Simulated failure.");
+            }
+            return ModelLoader.openPackage(resourceName, modelInterner);
+        });
+
+        try {
+            modelLoader.getActiveSnapshot();
+            fail("Expected the first load to fail.");
+        } catch (final IllegalStateException e) {
+            // Expected
+        }
+        assertNull(modelLoader.getLoadedActiveSnapshot());
+        assertFalse(modelLoader.getActiveSnapshot().getPackages().get(0).getIndex().isEmpty());
+        assertEquals(2, attempts.get());
+    }
+
+    /** Test that a version that is no longer active is kept for the grace period and then evicted. */
+    @Test
+    public void testInactiveVersionEvictedAfterGracePeriod() {
+        final ConfigState configState = new ConfigState();
+        configState.setKubernetesPackage(new ApiPackage(true, "1.8"));
+        final ModelLoader modelLoader = new ModelLoader(configState, ModelLoader::openPackage);
+        modelLoader.getActiveSnapshot().getSpec("v1");
+        configState.setKubernetesPackage(new ApiPackage(true, "1.9"));
+        modelLoader.configurationChanged();
+        modelLoader.getActiveSnapshot().getSpec("v1");
+        assertEquals(2, modelLoader.getCachedSpecSizes().size());
+
+        final long now = System.currentTimeMillis();
+        modelLoader.evictUnusedSpecs(now);
+        assertTrue(modelLoader.getCachedSpecSizes().containsKey(RESOURCE_PREFIX + "kubernetes-1.8"));
+
+        modelLoader.evictUnusedSpecs(now + ModelLoader.EVICTION_GRACE_PERIOD_MILLIS);
+        final Map<String, Long> cachedSpecSizes = modelLoader.getCachedSpecSizes();
+        assertEquals(Collections.singleton(RESOURCE_PREFIX + "kubernetes-1.9"), cachedSpecSizes.keySet());
+        assertTrue(cachedSpecSizes.get(RESOURCE_PREFIX + "kubernetes-1.9") > 0);
+    }
+
+    /** Test that requesting the spec for one API version loads only that API version's specs from the package. */
+    @Test
+    public void testLoadsOnlyRequestedApiVersion() {
+        final ConfigState configState = new ConfigState();
+        final ModelLoader modelLoader = new ModelLoader(configState, ModelLoader::openPackage);
+        final SchemaSnapshot snapshot = modelLoader.getActiveSnapshot();
+        final SpecPackage specPackage = snapshot.getPackages().get(0);
+        assertTrue(specPackage.getLoadedSpecs().isEmpty());
+
+        final SwaggerSpec spec = snapshot.getSpec("apps/v1beta2");
+        assertNotNull(spec);
+        assertTrue(spec.getModels().containsKey("v1beta2.Deployment"));
+        final List<SwaggerSpec> loadedSpecs = specPackage.getLoadedSpecs();
+        assertFalse(loadedSpecs.isEmpty());
+        for (final SwaggerSpec loadedSpec : loadedSpecs) {
+            assertEquals("apps/v1beta2", loadedSpec.getApiVersion());
+        }
+        assertTrue(loadedSpecs.size() < specPackage.getIndex().size());
+        assertSame(spec, snapshot.getSpec("apps/v1beta2"));
+        assertNull(snapshot.getSpec("nonexistent/v1"));
+    }
+
+    /** Test that parsing entries in parallel yields the same specs, in the same order, as parsing them sequentially. */
+    @Test
+    public void testParallelLoadPreservesOrder() {
+        final ForkJoinPool sequentialPool = new ForkJoinPool(1);
+        final ForkJoinPool parallelPool = new ForkJoinPool(4);
+        try {
+            assertEquals(loadSpecs("kubernetes-1.9", sequentialPool), loadSpecs("kubernetes-1.9", parallelPool));
+        } finally {
+            sequentialPool.shutdown();
+            parallelPool.shutdown();
+        }
+    }
+
+    /** Test that releasing memory drops every inactive version immediately, but keeps the active one. */
+    @Test
+    public void testReleaseInactiveSpecs() {
+        final ConfigState configState = createConfigState();
+        final ModelLoader modelLoader = new ModelLoader(configState, ModelLoader::openPackage);
+        modelLoader.getActiveSnapshot().getSpec("v1");
+        configState.setOpenshiftPackage(new ApiPackage(false, null));
+        modelLoader.configurationChanged();
+        final SchemaSnapshot activeSnapshot = modelLoader.getActiveSnapshot();
+
+        modelLoader.releaseInactiveSpecs();
+        assertEquals(Collections.singleton(RESOURCE_PREFIX + "kubernetes-1.9"), modelLoader.getCachedSpecSizes().keySet());
+        assertSame(activeSnapshot, modelLoader.getLoadedActiveSnapshot());
+    }
+
+    /** Test that a version chosen in place of the configured one is shared by everything choosing it, and kept until its last reference is released and its grace period has passed. */
+    @Test
+    public void testSharedSnapshotsAreReferenceCounted() {
+        final ConfigState configState = new ConfigState();
+        final ModelLoader modelLoader = new ModelLoader(configState, ModelLoader::openPackage);
+        modelLoader.getActiveSnapshot().getSpec("v1");
+        final ModelLoader.SharedSnapshot first = modelLoader.acquireSnapshot("1.7");
+        final ModelLoader.SharedSnapshot second = modelLoader.acquireSnapshot("1.7");
+        assertSame(first, second);
+        assertNull(first.getLoadedSnapshot());
+        final SchemaSnapshot snapshot = modelLoader.loadSnapshot(first);
+        assertSame(snapshot, modelLoader.loadSnapshot(second));
+        assertSame(snapshot, second.getLoadedSnapshot());
+        assertEquals(Collections.singletonList(RESOURCE_PREFIX + "kubernetes-1.7"), snapshot.getResourceNames());
+        assertNotNull(snapshot.getSpec("v1"));
+
+        final long now = System.currentTimeMillis();
+        modelLoader.releaseSnapshot(first);
+        modelLoader.evictUnusedSpecs(now + 2 * ModelLoader.EVICTION_GRACE_PERIOD_MILLIS);
+        modelLoader.releaseInactiveSpecs();
+        assertTrue(modelLoader.getCachedSpecSizes().containsKey(RESOURCE_PREFIX + "kubernetes-1.7"));
+
+        modelLoader.releaseSnapshot(second);
+        modelLoader.evictUnusedSpecs(now);
+        assertTrue(modelLoader.getCachedSpecSizes().containsKey(RESOURCE_PREFIX + "kubernetes-1.7"));
+        modelLoader.evictUnusedSpecs(System.currentTimeMillis() + ModelLoader.EVICTION_GRACE_PERIOD_MILLIS);
+        assertEquals(Collections.singleton(RESOURCE_PREFIX + "kubernetes-1.9"), modelLoader.getCachedSpecSizes().keySet());
+        assertNotSame(first, modelLoader.acquireSnapshot("1.7"));
+    }
+
+    /** Test that changing the local document named by the configuration replaces the active snapshot with one built from the new content, although the configuration itself is unchanged. */
+    @Test
+    public void testSpecFileChangeReplacesSnapshot() throws IOException {
+        final File file = temporaryFolder.newFile("swagger.json");
+        Files.write(file.toPath(), "{}".getBytes(StandardCharsets.UTF_8));
+        final ConfigState configState = createConfigState();
+        configState.setKubernetesSpecFile(file.getPath());
+        final List<String> openedResourceNames = new ArrayList<>();
+        final ModelLoader modelLoader = new ModelLoader(configState, (resourceName, modelInterner) -> {
+            openedResourceNames.add(resourceName);
+            return SpecPackage.EMPTY;
+        });
+        final SchemaSnapshot snapshot = modelLoader.getActiveSnapshot();
+
+        // Being notified while the document is unchanged keeps the snapshot
+        modelLoader.configurationChanged();
+        assertSame(snapshot, modelLoader.getLoadedActiveSnapshot());
+
+        Files.write(file.toPath(), "{\"swagger\": \"2.0\"}".getBytes(StandardCharsets.UTF_8));
+        modelLoader.configurationChanged();
+        assertNull(modelLoader.getLoadedActiveSnapshot());
+        modelLoader.getActiveSnapshot();
+        final List<String> specFileResourceNames = openedResourceNames.stream().filter(name -> name.startsWith(ModelLoader.SPEC_FILE_PREFIX)).collect(Collectors.toList());
+        assertEquals(2, specFileResourceNames.size());
+        assertNotEquals(specFileResourceNames.get(0), specFileResourceNames.get(1));
+        assertTrue(specFileResourceNames.get(1).endsWith(":" + file.getPath()));
+    }
+
+    /** Test that refreshing keeps the active snapshot while its packages are current, and replaces a package once its source reports that it has changed. */
+    @Test
+    public void testStalePackageRefreshed() {
+        final Map<String, AtomicInteger> loadCounts = new ConcurrentHashMap<>();
+        final Set<String> staleResourceNames = ConcurrentHashMap.newKeySet();
+        final ModelLoader modelLoader = new ModelLoader(createConfigState(), (resourceName, modelInterner) -> {
+            loadCounts.computeIfAbsent(resourceName, r -> new AtomicInteger()).incrementAndGet();
+            return ModelLoader.openPackage(resourceName, modelInterner);
+        }, staleResourceNames::remove);
+        assertFalse(modelLoader.refreshActivePackages());
+        final SchemaSnapshot snapshot = modelLoader.getActiveSnapshot();
+        assertFalse(modelLoader.refreshActivePackages());
+        assertSame(snapshot, modelLoader.getLoadedActiveSnapshot());
+
+        final String kubernetesResourceName = snapshot.getResourceNames().get(0);
+        staleResourceNames.add(kubernetesResourceName);
+        assertTrue(modelLoader.refreshActivePackages());
+        assertNull(modelLoader.getLoadedActiveSnapshot());
+        final SchemaSnapshot newSnapshot = modelLoader.getActiveSnapshot();
+        assertEquals(snapshot.getResourceNames(), newSnapshot.getResourceNames());
+        assertNotSame(snapshot.getPackages().get(0), newSnapshot.getPackages().get(0));
+        assertSame(snapshot.getPackages().get(1), newSnapshot.getPackages().get(1));
+        assertEquals(2, loadCounts.get(kubernetesResourceName).get());
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import static org.junit.Assert.assertNotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.intellij.openapi.util.io.FileUtil;
+
+/**
+ * Static methods for tests of the model.
+ */
+class ModelTestUtil {
+
+    /**
+     * Load the specs from a bundled archive.
+     *
+     * @param archiveName the name of the archive, excluding the extension.
+     * @return the specs.
+     */
+    @NotNull
+    static List<SwaggerSpec> loadSpecs(@NotNull final String archiveName) {
+        return ModelLoader.loadSpecsFromZip(openArchive(archiveName));
+    }
+
+    /**
+     * Load the specs from a bundled archive, parsing them in the given pool.
+     *
+     * @param archiveName the name of the archive, excluding the extension.
+     * @param pool the pool in which to parse the specs.
+     * @return the specs.
+     */
+    @NotNull
+    static List<SwaggerSpec> loadSpecs(@NotNull final String archiveName, @NotNull final ForkJoinPool pool) {
+        return ModelLoader.loadSpecsFromZip(openArchive(archiveName), pool);
+    }
+
+    /**
+     * Load the content of a bundled snapshot.
+     *
+     * @param archiveName the name of the archive the snapshot was generated from, excluding the extension.
+     * @return the content of the snapshot.
+     * @throws IOException if the snapshot could not be read.
+     */
+    @NotNull
+    static byte[] loadSnapshot(@NotNull final String archiveName) throws IOException {
+        try (InputStream in = ModelTestUtil.class.getClassLoader().getResourceAsStream(SpecCatalog.RESOURCE_DIRECTORY + archiveName + SpecSnapshotReader.SNAPSHOT_EXTENSION)) {
+            assertNotNull("Unable to find snapshot " + archiveName + ".", in);
+            return FileUtil.loadBytes(in);
+        }
+    }
+
+    /**
+     * Opens a bundled archive.
+     *
+     * @param archiveName the name of the archive, excluding the extension.
+     * @return the stream of the archive.
+     */
+    @NotNull
+    static InputStream openArchive(@NotNull final String archiveName) {
+        final InputStream zipStream = ModelTestUtil.class.getClassLoader().getResourceAsStream(SpecCatalog.RESOURCE_DIRECTORY + archiveName + ".zip");
+        assertNotNull("Unable to find archive " + archiveName + ".", zipStream);
+        return zipStream;
+    }
+}
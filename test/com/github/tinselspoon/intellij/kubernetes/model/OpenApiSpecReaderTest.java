@@ -0,0 +1,115 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.tinselspoon.intellij.kubernetes.ResourceTypeKey;
+
+/**
+ * Unit test for the {@link OpenApiSpecReader}.
+ */
+public class OpenApiSpecReaderTest {
+
+    /** A small OpenAPI v2 document in the form served by Kubernetes, with a creatable resource in each of two API versions that share a metadata definition. */
+    static final String DOCUMENT_JSON = "{\"swagger\": \"2.0\", \"info\": {\"title\": \"Kubernetes\", \"version\": \"v1.10.0\"},"
+                                                + "\"paths\": {\"/apis/apps/v1/namespaces/{namespace}/deployments\": {"
+                                                + "\"get\": {\"x-kubernetes-action\": \"list\", \"x-kubernetes-group-version-kind\": {\"group\": \"apps\", \"kind\": \"Deployment\", \"version\": \"v1\"}},"
+                                                + "\"post\": {\"x-kubernetes-action\": \"post\", \"x-kubernetes-group-version-kind\": {\"group\": \"apps\", \"kind\": \"Deployment\", \"version\": \"v1\"}},"
+                                                + "\"parameters\": [{\"name\": \"namespace\", \"in\": \"path\"}]}},"
+                                                + "\"definitions\": {"
+                                                + "\"io.k8s.api.apps.v1.Deployment\": {\"description\": \"A deployment.\", \"properties\": {"
+                                                + "\"metadata\": {\"$ref\": \"#/definitions/io.k8s.apimachinery.pkg.apis.meta.v1.ObjectMeta\"},"
+                                                + "\"spec\": {\"$ref\": \"#/definitions/io.k8s.api.apps.v1.DeploymentSpec\"}},"
+                                                + "\"x-kubernetes-group-version-kind\": [{\"group\": \"apps\", \"kind\": \"Deployment\", \"version\": \"v1\"}]},"
+                                                + "\"io.k8s.api.apps.v1.DeploymentSpec\": {\"required\": [\"selector\"], \"properties\": {"
+                                                + "\"replicas\": {\"type\": \"integer\", \"format\": \"int32\"},"
+                                                + "\"selector\": {\"type\": \"object\", \"additionalProperties\": {\"type\": \"string\"}}}},"
+                                                + "\"io.k8s.api.core.v1.Pod\": {\"properties\": {"
+                                                + "\"metadata\": {\"$ref\": \"#/definitions/io.k8s.apimachinery.pkg.apis.meta.v1.ObjectMeta\"},"
+                                                + "\"containers\": {\"type\": \"array\", \"items\": {\"$ref\": \"#/definitions/io.k8s.api.core.v1.Container\"}}},"
+                                                + "\"x-kubernetes-group-version-kind\": [{\"group\": \"\", \"kind\": \"Pod\", \"version\": \"v1\"}]},"
+                                                + "\"io.k8s.api.core.v1.Container\": {\"properties\": {\"image\": {\"type\": \"string\"}}},"
+                                                + "\"io.k8s.apimachinery.pkg.apis.meta.v1.ObjectMeta\": {\"properties\": {\"name\": {\"type\": \"string\", \"description\": \"The name.\"}}}}}";
+
+    /** Directory for files used by tests. */
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Reads the test document.
+     *
+     * @return the specs.
+     * @throws IOException if the document could not be read.
+     */
+    private static List<SwaggerSpec> readDocument() throws IOException {
+        return OpenApiSpecReader.read(new StringReader(DOCUMENT_JSON));
+    }
+
+    /** Test that a missing document gives an empty package rather than failing. */
+    @Test
+    public void testMissingFileIsEmpty() {
+        final SpecPackage specPackage = ModelLoader.openSpecFile(new File(temporaryFolder.getRoot(), "missing.json"), new SchemaCache(temporaryFolder.getRoot(), SchemaCache.MAX_ENTRIES), new ModelInterner());
+        assertSame(SpecPackage.EMPTY, specPackage);
+    }
+
+    /** Test that resources in the document can be looked up through a schema snapshot, as the model provider does. */
+    @Test
+    public void testResourcesCanBeResolved() throws IOException {
+        final File file = temporaryFolder.newFile("swagger.json");
+        Files.write(file.toPath(), DOCUMENT_JSON.getBytes(StandardCharsets.UTF_8));
+        final SpecPackage specPackage = ModelLoader.openSpecFile(file, new SchemaCache(temporaryFolder.newFolder("cache"), SchemaCache.MAX_ENTRIES), new ModelInterner());
+        final SchemaSnapshot snapshot = new SchemaSnapshot(Collections.singletonList(ModelLoader.getSpecFileResourceName(file)), Collections.singletonList(specPackage));
+
+        final ResourceTypeKey deployment = new ResourceTypeKey("apps/v1", "Deployment");
+        assertTrue(snapshot.findProperties(deployment, Collections.singletonList("spec")).containsKey("replicas"));
+        final Model metadata = snapshot.findModel(deployment, Collections.singletonList("metadata"));
+        assertNotNull(metadata);
+        assertEquals("The name.", metadata.getProperties().get("name").getDescription());
+        assertTrue(snapshot.findProperties(new ResourceTypeKey("v1", "Pod"), Arrays.asList("containers")).containsKey("image"));
+        assertEquals(Collections.singleton(deployment), snapshot.suggestKinds("apps/v1"));
+        assertEquals(Collections.emptySet(), snapshot.suggestKinds("v1"));
+    }
+
+    /** Test that the document is split into a spec per API version, holding only the definitions reachable from that version's resources. */
+    @Test
+    public void testSplitByApiVersion() throws IOException {
+        final List<SwaggerSpec> specs = readDocument();
+        assertEquals(2, specs.size());
+
+        final SwaggerSpec apps = specs.get(0);
+        assertEquals("apps/v1", apps.getApiVersion());
+        assertEquals(Arrays.asList("io.k8s.api.apps.v1.Deployment", "io.k8s.api.apps.v1.DeploymentSpec", "io.k8s.apimachinery.pkg.apis.meta.v1.ObjectMeta", "v1.Deployment"),
+                     apps.getModels().keySet().stream().sorted().collect(Collectors.toList()));
+        final Model deployment = apps.getModels().get("v1.Deployment");
+        assertSame(apps.getModels().get("io.k8s.api.apps.v1.Deployment"), deployment);
+        assertEquals("io.k8s.api.apps.v1.Deployment", deployment.getId());
+        assertEquals("io.k8s.api.apps.v1.DeploymentSpec", deployment.getProperties().get("spec").getRef());
+        assertEquals(Collections.singleton("v1.Deployment"), SpecIndexEntry.of(apps).getResourceTypes());
+
+        final SwaggerSpec core = specs.get(1);
+        assertEquals("v1", core.getApiVersion());
+        final Property containers = core.getModels().get("v1.Pod").getProperties().get("containers");
+        assertEquals(FieldType.ARRAY, containers.getType());
+        assertEquals("io.k8s.api.core.v1.Container", containers.getItems().getRef());
+        assertTrue(core.getModels().containsKey("io.k8s.api.core.v1.Container"));
+        assertFalse(core.getModels().containsKey("io.k8s.api.apps.v1.DeploymentSpec"));
+        assertSame(apps.getModels().get("io.k8s.apimachinery.pkg.apis.meta.v1.ObjectMeta"), core.getModels().get("io.k8s.apimachinery.pkg.apis.meta.v1.ObjectMeta"));
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.tinselspoon.intellij.kubernetes.ResourceTypeKey;
+import com.github.tinselspoon.intellij.kubernetes.config.ApiPackage;
+import com.github.tinselspoon.intellij.kubernetes.config.ConfigState;
+
+/**
+ * Unit test for the {@link PathCache}.
+ */
+public class PathCacheTest {
+
+    /** A path from a deployment to the containers of its pod template. */
+    private static final List<String> CONTAINERS_PATH = Arrays.asList("spec", "template", "spec", "containers");
+
+    /**
+     * Gets the schema of a deployment from the default Kubernetes version, with its own path cache.
+     *
+     * @param pathCache the path cache to use.
+     * @return the schema.
+     */
+    private static ResourceSchema createDeploymentSchema(final PathCache pathCache) {
+        final ConfigState configState = new ConfigState();
+        configState.setKubernetesPackage(new ApiPackage(true, null));
+        final SchemaSnapshot snapshot = new ModelLoader(configState, ModelLoader::openPackage).getActiveSnapshot();
+        final SwaggerSpec spec = snapshot.getSpec("apps/v1beta2");
+        return new ResourceSchema(spec, spec.getModels().get("v1beta2.Deployment"), ModelGraph.link(spec), pathCache);
+    }
+
+    /** Test that the cache is cleared once full, continuing to resolve paths correctly. */
+    @Test
+    public void testBoundedSize() {
+        final PathCache pathCache = new PathCache(3);
+        final ResourceSchema deployment = createDeploymentSchema(pathCache);
+        assertEquals("v1.Container", deployment.findModel(CONTAINERS_PATH).getId());
+        assertTrue(pathCache.getSize() <= 3);
+        assertEquals("v1.Container", deployment.findModel(CONTAINERS_PATH).getId());
+        assertEquals("v1.PodTemplateSpec", deployment.findModel(Arrays.asList("spec", "template")).getId());
+    }
+
+    /** Test that a path is resolved to the same model as without the cache, and that a deeper path reuses its prefix. */
+    @Test
+    public void testResolve() {
+        final PathCache pathCache = new PathCache(PathCache.DEFAULT_CAPACITY);
+        final ResourceSchema deployment = createDeploymentSchema(pathCache);
+        final ResourceSchema uncached = createDeploymentSchema(null);
+
+        final Model podSpec = deployment.findModel(Arrays.asList("spec", "template", "spec"));
+        assertEquals("v1.PodSpec", podSpec.getId());
+        assertEquals(0, pathCache.getHitRate(), 0);
+        final int size = pathCache.getSize();
+
+        // The containers path adds only one node to those resolved for its prefix
+        assertEquals(uncached.findModel(CONTAINERS_PATH), deployment.findModel(CONTAINERS_PATH));
+        assertEquals(size + 1, pathCache.getSize());
+        assertSame(podSpec, deployment.findModel(Arrays.asList("spec", "template", "spec")));
+        assertEquals(1 / 3.0, pathCache.getHitRate(), 0.001);
+
+        assertSame(deployment.getRootModel(), deployment.findModel(Collections.emptyList()));
+        assertNull(deployment.findModel(Arrays.asList("spec", "nonexistent", "child")));
+        assertEquals(uncached.findProperties(CONTAINERS_PATH), deployment.findProperties(CONTAINERS_PATH));
+        assertTrue(deployment.findProperties(Collections.singletonList("nonexistent")).isEmpty());
+    }
+
+    /** Test that each snapshot has its own cache, so a new snapshot starts afresh. */
+    @Test
+    public void testSnapshotsHaveSeparateCaches() {
+        final ConfigState configState = new ConfigState();
+        final ModelLoader modelLoader = new ModelLoader(configState, ModelLoader::openPackage);
+        final SchemaSnapshot snapshot = modelLoader.getActiveSnapshot();
+        final ResourceTypeKey deployment = new ResourceTypeKey("apps/v1beta2", "Deployment");
+        snapshot.findModel(deployment, CONTAINERS_PATH);
+        snapshot.findModel(deployment, CONTAINERS_PATH);
+        assertEquals(0.5, snapshot.getPathCache().getHitRate(), 0);
+
+        configState.setKubernetesPackage(new ApiPackage(true, "1.8"));
+        modelLoader.configurationChanged();
+        assertEquals(0, modelLoader.getActiveSnapshot().getPathCache().getSize());
+    }
+}
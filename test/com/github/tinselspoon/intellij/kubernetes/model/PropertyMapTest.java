@@ -0,0 +1,165 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import static com.github.tinselspoon.intellij.kubernetes.model.ModelTestUtil.loadSpecs;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import org.junit.Test;
+
+/**
+ * Unit test for the {@link PropertyMap}.
+ */
+public class PropertyMapTest {
+
+    /** The size of an array header, in the layout of a 64-bit JVM with compressed references. */
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    /** The size of a {@link HashMap}, excluding its table and entries. */
+    private static final int HASH_MAP_BYTES = 48;
+
+    /** The size of an entry of a {@link HashMap}: a header, the hash code, and references to the key, the value and the next entry. */
+    private static final int HASH_MAP_ENTRY_BYTES = 32;
+
+    /** The size of a {@link PropertyMap}, excluding its arrays. */
+    private static final int PROPERTY_MAP_BYTES = 40;
+
+    /** The size of a reference. */
+    private static final int REFERENCE_BYTES = 4;
+
+    /**
+     * Creates a property of a given type.
+     *
+     * @param type the type.
+     * @return the property.
+     */
+    private static Property createProperty(final FieldType type) {
+        final Property property = new Property();
+        property.setType(type);
+        return property;
+    }
+
+    /**
+     * Gets the size of an array, rounded up to the alignment of objects.
+     *
+     * @param elementBytes the total size of the elements.
+     * @return the size in bytes.
+     */
+    private static long arrayBytes(final long elementBytes) {
+        return (ARRAY_HEADER_BYTES + elementBytes + 7) / 8 * 8;
+    }
+
+    /**
+     * Gets the size of the table of a {@link HashMap} copied from another map, which is the smallest power of two holding the entries at a load factor of three quarters.
+     *
+     * @param size the number of entries.
+     * @return the number of buckets.
+     */
+    private static int hashMapCapacity(final int size) {
+        final int minimumCapacity = (int) (size / 0.75f + 1.0f);
+        return Integer.highestOneBit(minimumCapacity - 1) << 1;
+    }
+
+    /**
+     * Loads and interns the bundled specs of a version, and gets the distinct property maps of their models.
+     *
+     * @return the property maps.
+     */
+    private static List<Map<String, Property>> loadPropertyMaps() {
+        final List<SwaggerSpec> specs = new ModelInterner().internSpecs(loadSpecs("kubernetes-1.9"));
+        final Set<Model> models = Collections.newSetFromMap(new IdentityHashMap<>());
+        specs.forEach(spec -> models.addAll(spec.getModels().values()));
+        final List<Map<String, Property>> maps = new ArrayList<>();
+        models.forEach(model -> maps.add(model.getProperties()));
+        return maps;
+    }
+
+    /** Test that a copy holds the same properties as the map it was copied from, including names with the same hash code, and cannot be modified. */
+    @Test
+    public void testCopyOf() {
+        final Map<String, Property> source = new HashMap<>();
+        source.put("Aa", createProperty(FieldType.STRING));
+        source.put("BB", createProperty(FieldType.INTEGER));
+        source.put("spec", createProperty(FieldType.OBJECT));
+        source.put("status", createProperty(FieldType.ARRAY));
+        final PropertyMap copy = PropertyMap.copyOf(source, UnaryOperator.identity(), UnaryOperator.identity());
+
+        assertEquals(source, copy);
+        assertEquals(copy, source);
+        assertEquals(source.hashCode(), copy.hashCode());
+        assertEquals(source.keySet(), copy.keySet());
+        for (final Map.Entry<String, Property> entry : source.entrySet()) {
+            assertSame(entry.getValue(), copy.get(new String(entry.getKey())));
+            assertTrue(copy.containsKey(entry.getKey()));
+        }
+        assertNull(copy.get("metadata"));
+        assertNull(copy.get(1));
+        assertFalse(copy.containsKey(null));
+        assertSame(PropertyMap.EMPTY, PropertyMap.copyOf(Collections.emptyMap(), UnaryOperator.identity(), UnaryOperator.identity()));
+
+        try {
+            copy.put("metadata", createProperty(FieldType.OBJECT));
+            throw new AssertionError("Expected the map to be read-only");
+        } catch (final UnsupportedOperationException e) {
+            assertEquals(4, copy.size());
+        }
+    }
+
+    /**
+     * Test that the frozen property maps of a version are smaller than hash maps of the same properties. The sizes are computed from the layout of a 64-bit JVM with compressed references, rather
+     * than measured, so that they do not depend on the garbage collector.
+     */
+    @Test
+    public void testFrozenMapsSmallerThanHashMaps() {
+        long hashMapBytes = 0;
+        long frozenBytes = 0;
+        for (final Map<String, Property> map : loadPropertyMaps()) {
+            final int size = map.size();
+            if (size == 0) {
+                // Every empty model shares the empty map
+                hashMapBytes += HASH_MAP_BYTES;
+            } else {
+                hashMapBytes += HASH_MAP_BYTES + arrayBytes((long) REFERENCE_BYTES * hashMapCapacity(size)) + (long) HASH_MAP_ENTRY_BYTES * size;
+                final int slots = PropertyMap.slotsFor(size);
+                frozenBytes += PROPERTY_MAP_BYTES + arrayBytes(2L * REFERENCE_BYTES * slots) + arrayBytes((long) Integer.BYTES * slots);
+            }
+        }
+        assertTrue(frozenBytes + " bytes frozen, " + hashMapBytes + " bytes as hash maps", frozenBytes < hashMapBytes);
+    }
+
+    /** Test that the models of a loaded spec are frozen, with their property names interned. */
+    @Test
+    public void testLoadedModelsFrozen() {
+        final List<Map<String, Property>> maps = loadPropertyMaps();
+        final Map<String, String> names = new HashMap<>();
+        for (final Map<String, Property> map : maps) {
+            assertTrue(map instanceof PropertyMap);
+            for (final String name : map.keySet()) {
+                assertSame(name, names.computeIfAbsent(name, n -> n));
+            }
+        }
+    }
+
+    /** Test that a name whose hash code is 0 can be found, although a hash code of 0 marks an empty slot. */
+    @Test
+    public void testNameWithZeroHashCode() {
+        final Map<String, Property> source = new HashMap<>();
+        source.put("", createProperty(FieldType.STRING));
+        source.put("spec", createProperty(FieldType.OBJECT));
+        final PropertyMap copy = PropertyMap.copyOf(source, UnaryOperator.identity(), UnaryOperator.identity());
+        assertEquals(source, copy);
+        assertSame(source.get(""), copy.get(new String("")));
+        assertNull(copy.get("status"));
+    }
+}
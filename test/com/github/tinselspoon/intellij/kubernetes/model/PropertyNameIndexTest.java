@@ -0,0 +1,66 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import org.junit.Test;
+
+import com.github.tinselspoon.intellij.kubernetes.config.ApiPackage;
+import com.github.tinselspoon.intellij.kubernetes.config.ConfigState;
+
+/**
+ * Unit test for the {@link PropertyNameIndex}.
+ */
+public class PropertyNameIndexTest {
+
+    /** Property names of a container, in an arbitrary order. */
+    private static final List<String> NAMES = Arrays.asList("volumeMounts", "image", "containerPort", "hostPort", "imagePullPolicy", "env", "x-kubernetes-int-or-string", "tcp6Address");
+
+    /** Test that an empty prefix, or one not starting with a letter or digit, gives every name in alphabetical order. */
+    @Test
+    public void testAllNames() {
+        final PropertyNameIndex index = new PropertyNameIndex(NAMES);
+        final List<String> sortedNames = Arrays.asList("containerPort", "env", "hostPort", "image", "imagePullPolicy", "tcp6Address", "volumeMounts", "x-kubernetes-int-or-string");
+        assertEquals(sortedNames, index.findCandidates(""));
+        assertEquals(sortedNames, index.findCandidates("*port"));
+        assertTrue(new PropertyNameIndex(Collections.emptyList()).findCandidates("a").isEmpty());
+    }
+
+    /** Test that names are found by the first letter of any of their words, ignoring case. */
+    @Test
+    public void testFindCandidates() {
+        final PropertyNameIndex index = new PropertyNameIndex(NAMES);
+        assertEquals(Arrays.asList("image", "imagePullPolicy", "x-kubernetes-int-or-string"), index.findCandidates("im"));
+        assertEquals(Arrays.asList("containerPort", "hostPort", "imagePullPolicy"), index.findCandidates("P"));
+        assertEquals(Arrays.asList("containerPort", "hostPort", "imagePullPolicy"), index.findCandidates("port"));
+        assertEquals(Collections.singletonList("containerPort"), index.findCandidates("cP"));
+        assertEquals(Collections.singletonList("tcp6Address"), index.findCandidates("6"));
+        assertEquals(Collections.singletonList("x-kubernetes-int-or-string"), index.findCandidates("k"));
+        assertTrue(index.findCandidates("z").isEmpty());
+    }
+
+    /** Test that the index of a loaded model is created once and finds the names that completion may match. */
+    @Test
+    public void testLoadedModel() {
+        final ConfigState configState = new ConfigState();
+        configState.setKubernetesPackage(new ApiPackage(true, null));
+        final Model container = new ModelLoader(configState, ModelLoader::openPackage).getActiveSnapshot().getSpec("v1").getModels().get("v1.Container");
+        assertSame(container.findPropertyNames("p"), container.findPropertyNames("P"));
+        assertEquals(container.getProperties().size(), container.findPropertyNames("").size());
+        assertTrue(container.findPropertyNames("p").containsAll(Arrays.asList("ports", "imagePullPolicy")));
+        assertTrue(container.findPropertyNames("p").size() < container.getProperties().size());
+
+        // A model that is not frozen is indexed afresh
+        final Model model = new Model();
+        model.getProperties().put("hostPort", new Property());
+        assertEquals(Collections.singletonList("hostPort"), model.findPropertyNames("p"));
+        model.freeze(UnaryOperator.identity(), UnaryOperator.identity());
+        assertEquals(Collections.singletonList("hostPort"), model.findPropertyNames("p"));
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import static com.github.tinselspoon.intellij.kubernetes.model.ModelTestUtil.openArchive;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.intellij.openapi.util.io.FileUtil;
+
+/**
+ * Unit test for the {@link SchemaCache}.
+ */
+public class SchemaCacheTest {
+
+    /** The kind given to schemas in tests. */
+    private static final String KIND = "swagger-1.2-zip";
+
+    /** Directory for the cache files. */
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /** The number of times a schema has been parsed. */
+    private final AtomicInteger parseCount = new AtomicInteger();
+
+    /** The source content of the schema used in tests. */
+    private byte[] content;
+
+    /** Parser that counts how many times it is called. */
+    private final SchemaCache.Parser parser = bytes -> {
+        parseCount.incrementAndGet();
+        return ModelLoader.loadSpecsFromZip(new ByteArrayInputStream(bytes));
+    };
+
+    /**
+     * Gets the single cache file within the cache directory.
+     *
+     * @return the cache file.
+     */
+    private File getCacheFile() {
+        final File[] files = temporaryFolder.getRoot().listFiles();
+        assertEquals(1, files.length);
+        return files[0];
+    }
+
+    /**
+     * Opens the schema used in tests through a new cache over the cache directory, as a restarted IDE would, and reads all of its specs.
+     *
+     * @return the specs.
+     * @throws IOException if the schema could not be parsed.
+     */
+    private List<SwaggerSpec> openAll() throws IOException {
+        return new SchemaCache(temporaryFolder.getRoot(), SchemaCache.MAX_ENTRIES).open(KIND, content, parser, new ModelInterner()).getAllSpecs();
+    }
+
+    /** Reads the schema used in tests. */
+    @Before
+    public void setUp() throws IOException {
+        try (InputStream in = openArchive("openshift-3.6")) {
+            content = FileUtil.loadBytes(in);
+        }
+    }
+
+    /** Test that a corrupt entry is discarded and rebuilt. */
+    @Test
+    public void testCorruptEntryIsRebuilt() throws IOException {
+        final List<SwaggerSpec> specs = openAll();
+        try (RandomAccessFile file = new RandomAccessFile(getCacheFile(), "rw")) {
+            file.seek(file.length() / 2);
+            final int b = file.read();
+            file.seek(file.length() / 2);
+            file.write(b ^ 0xff);
+        }
+        assertEquals(specs, openAll());
+        assertEquals(2, parseCount.get());
+        assertEquals(specs, openAll());
+        assertEquals(2, parseCount.get());
+    }
+
+    /** Test that a schema is parsed once, and read from the cache by later instances. */
+    @Test
+    public void testEntryIsReused() throws IOException {
+        final List<SwaggerSpec> specs = openAll();
+        final List<SwaggerSpec> cachedSpecs = openAll();
+        assertEquals(1, parseCount.get());
+        assertEquals(specs, cachedSpecs);
+        assertTrue(getCacheFile().getName().startsWith(KIND + "-"));
+    }
+
+    /** Test that the least recently used entries beyond the number kept are deleted when an entry is written, and that reading an entry counts as using it. */
+    @Test
+    public void testLeastRecentlyUsedEntriesPruned() throws IOException {
+        final SchemaCache cache = new SchemaCache(temporaryFolder.getRoot(), 2);
+        cache.open("first", content, parser, new ModelInterner());
+        cache.open("second", content, parser, new ModelInterner());
+        final File first = new File(temporaryFolder.getRoot(), SchemaCache.getKey("first", content) + SpecSnapshotReader.SNAPSHOT_EXTENSION);
+        final File second = new File(temporaryFolder.getRoot(), SchemaCache.getKey("second", content) + SpecSnapshotReader.SNAPSHOT_EXTENSION);
+        final long now = System.currentTimeMillis();
+        assertTrue(first.setLastModified(now - 2 * 3_600_000L));
+        assertTrue(second.setLastModified(now - 3_600_000L));
+
+        // Reading the first entry makes the second the least recently used
+        cache.open("first", content, parser, new ModelInterner());
+        cache.open("third", content, parser, new ModelInterner());
+        assertEquals(3, parseCount.get());
+        assertTrue(first.exists());
+        assertFalse(second.exists());
+        assertEquals(2, temporaryFolder.getRoot().listFiles().length);
+    }
+
+    /** Test that an entry written in another format version is discarded and rebuilt. */
+    @Test
+    public void testStaleEntryIsRebuilt() throws IOException {
+        openAll();
+        try (RandomAccessFile file = new RandomAccessFile(getCacheFile(), "rw")) {
+            // The format version follows the marker at the start of the trailer
+            file.seek(file.length() - 16);
+            file.writeInt(SchemaCache.FORMAT_VERSION + 1);
+        }
+        openAll();
+        assertEquals(2, parseCount.get());
+    }
+}
@@ -0,0 +1,146 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+import com.github.tinselspoon.intellij.kubernetes.ResourceTypeKey;
+import com.github.tinselspoon.intellij.kubernetes.config.ApiPackage;
+import com.github.tinselspoon.intellij.kubernetes.config.ConfigState;
+
+/**
+ * Unit test for the {@link SchemaSnapshot}.
+ */
+public class SchemaSnapshotTest {
+
+    /** The resource used in tests. */
+    private static final ResourceTypeKey DEPLOYMENT = new ResourceTypeKey("apps/v1beta2", "Deployment");
+
+    /** A path from a deployment to the containers of its pod template. */
+    private static final List<String> CONTAINERS_PATH = Arrays.asList("spec", "template", "spec", "containers");
+
+    /**
+     * Creates a loader with both Kubernetes and OpenShift enabled at their default versions.
+     *
+     * @return the loader.
+     */
+    private static ModelLoader createModelLoader() {
+        final ConfigState configState = new ConfigState();
+        configState.setKubernetesPackage(new ApiPackage(true, null));
+        configState.setOpenshiftPackage(new ApiPackage(true, null));
+        return new ModelLoader(configState, ModelLoader::openPackage);
+    }
+
+    /**
+     * Finds the root model of a resource as lookups did before resources were indexed, by building its model ID and checking the spec of its API version.
+     *
+     * @param snapshot the snapshot to search.
+     * @param resourceTypeKey the resource.
+     * @return the root model, or {@code null} if it cannot be found.
+     */
+    private static Model findRootModelBySearch(final SchemaSnapshot snapshot, final ResourceTypeKey resourceTypeKey) {
+        String resourceApiVersion = resourceTypeKey.getApiVersion();
+        if (resourceApiVersion.indexOf('/') > -1) {
+            resourceApiVersion = resourceApiVersion.substring(resourceApiVersion.indexOf('/') + 1);
+        }
+        final String modelId = resourceApiVersion + "." + resourceTypeKey.getKind();
+        final SwaggerSpec spec = snapshot.getSpec(resourceTypeKey.getApiVersion());
+        return spec != null && spec.getModels().containsKey(modelId) ? spec.getModels().get(modelId) : null;
+    }
+
+    /** Test that models and properties are found by navigating from the root model of a resource. */
+    @Test
+    public void testFindModelAndProperties() {
+        final SchemaSnapshot snapshot = createModelLoader().getActiveSnapshot();
+        final Model podSpec = snapshot.findModel(DEPLOYMENT, Arrays.asList("spec", "template", "spec"));
+        assertNotNull(podSpec);
+        assertEquals("v1.PodSpec", podSpec.getId());
+        assertTrue(snapshot.findProperties(DEPLOYMENT, CONTAINERS_PATH).containsKey("image"));
+        assertTrue(snapshot.findProperties(DEPLOYMENT, Collections.singletonList("nonexistent")).isEmpty());
+        assertNull(snapshot.findModel(new ResourceTypeKey("apps/v1beta2", "Nonexistent"), Collections.emptyList()));
+        assertNull(snapshot.getResource(new ResourceTypeKey("apps/v1beta2", "ObjectMeta")));
+        assertEquals("v1.ObjectMeta", snapshot.getResource(new ResourceTypeKey("v1", "ObjectMeta")).getRootModel().getId());
+    }
+
+    /** Test that a kind served by several groups is suggested once for each group, and that its API versions are listed across groups in order of preference. */
+    @Test
+    public void testKindInSeveralGroups() {
+        final SchemaSnapshot snapshot = createModelLoader().getActiveSnapshot();
+        final Set<ResourceTypeKey> kinds = snapshot.suggestKinds(null);
+        assertTrue(kinds.contains(new ResourceTypeKey("v1", "Role")));
+        assertTrue(kinds.contains(new ResourceTypeKey("rbac.authorization.k8s.io/v1", "Role")));
+        assertFalse(kinds.contains(new ResourceTypeKey("rbac.authorization.k8s.io/v1beta1", "Role")));
+        assertTrue(kinds.contains(new ResourceTypeKey("apps/v1", "Deployment")));
+        assertTrue(kinds.contains(new ResourceTypeKey("extensions/v1beta1", "Deployment")));
+
+        assertEquals(Arrays.asList("v1", "events.k8s.io/v1beta1"), snapshot.suggestApiVersions("Event"));
+        assertEquals(Arrays.asList("apps/v1", "apps/v1beta2", "apps/v1beta1", "extensions/v1beta1"), snapshot.suggestApiVersions("Deployment"));
+        assertTrue(snapshot.suggestApiVersions("Nonexistent").isEmpty());
+
+        // Each group resolves to its own model
+        assertEquals("v1.Role", snapshot.getResource(new ResourceTypeKey("v1", "Role")).getRootModel().getId());
+        assertTrue(snapshot.findProperties(new ResourceTypeKey("rbac.authorization.k8s.io/v1", "Role"), Collections.emptyList()).containsKey("rules"));
+    }
+
+    /** Test that a spec loaded in the background is only loaded once, and that its resources are found without blocking once it has been. */
+    @Test
+    public void testLoadSpecInBackground() {
+        final SchemaSnapshot snapshot = createModelLoader().getActiveSnapshot();
+        final List<Runnable> tasks = new ArrayList<>();
+        final CompletableFuture<SwaggerSpec> load = snapshot.loadSpecInBackground(DEPLOYMENT.getApiVersion(), tasks::add);
+        assertNotNull(load);
+        assertNull(snapshot.loadSpecInBackground(DEPLOYMENT.getApiVersion(), tasks::add));
+        assertEquals(1, tasks.size());
+        assertFalse(snapshot.isSpecLoaded(DEPLOYMENT.getApiVersion()));
+        assertNull(snapshot.getLoadedResource(DEPLOYMENT));
+
+        tasks.get(0).run();
+        assertTrue(load.isDone());
+        assertTrue(snapshot.isSpecLoaded(DEPLOYMENT.getApiVersion()));
+        assertSame(load.join(), snapshot.getSpec(DEPLOYMENT.getApiVersion()));
+        assertEquals("v1beta2.Deployment", snapshot.getLoadedResource(DEPLOYMENT).getRootModel().getId());
+    }
+
+    /** Test that the resource index finds the same root model as building the model ID and searching the spec of the API version, as lookups once did. */
+    @Test
+    public void testResourceLookupMatchesSearch() {
+        final SchemaSnapshot snapshot = createModelLoader().getActiveSnapshot();
+        final ResourceTypeKey[] resources = {DEPLOYMENT, new ResourceTypeKey("v1", "Service"), new ResourceTypeKey("v1", "ConfigMap"), new ResourceTypeKey("v1", "DeploymentConfig")};
+        for (final ResourceTypeKey resource : resources) {
+            // Copy each key, as the annotators see a new key for every element
+            final ResourceTypeKey key = new ResourceTypeKey(new String(resource.getApiVersion()), new String(resource.getKind()));
+            assertSame(snapshot.getResource(key).getRootModel(), findRootModelBySearch(snapshot, key));
+        }
+    }
+
+    /** Test that kinds are suggested at the highest API version that defines them, that API versions without a group are suggested, and that suggestions are computed once. */
+    @Test
+    public void testSuggestions() {
+        final SchemaSnapshot snapshot = createModelLoader().getActiveSnapshot();
+        assertTrue(snapshot.suggestApiVersions().contains("v1"));
+        assertTrue(snapshot.suggestApiVersions().contains("apps/v1beta2"));
+        assertTrue(snapshot.suggestKinds(null).contains(new ResourceTypeKey("v1", "Pod")));
+        assertTrue(snapshot.suggestKinds("apps/v1beta1").contains(new ResourceTypeKey("apps/v1beta1", "Deployment")));
+        assertTrue(SchemaSnapshot.EMPTY.suggestKinds(null).isEmpty());
+
+        // The tables are built with the snapshot, so repeated completion reads the same instances
+        assertSame(snapshot.suggestApiVersions(), snapshot.suggestApiVersions());
+        assertSame(snapshot.suggestKinds(null), snapshot.suggestKinds(null));
+        assertSame(snapshot.suggestKinds("v1"), snapshot.suggestKinds("v1"));
+        final List<String> sortedApiVersions = new ArrayList<>(snapshot.suggestApiVersions());
+        sortedApiVersions.sort(ApiVersionComparator.INSTANCE);
+        assertEquals(sortedApiVersions, snapshot.suggestApiVersions());
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit test for the {@link SpecCatalog}.
+ */
+public class SpecCatalogTest {
+
+    /** Test that the bundled catalog is up to date with the bundled archives, so that it cannot silently go stale when an archive is added. */
+    @Test
+    public void testBundledCatalogMatchesArchives() throws IOException, URISyntaxException {
+        final File directory = new File(getClass().getClassLoader().getResource(SpecCatalog.RESOURCE_DIRECTORY + "kubernetes-1.9.zip").toURI()).getParentFile();
+        assertEquals(SpecCatalog.build(directory), SpecCatalog.getInstance());
+    }
+
+    /** Test that the default version is the latest one, and that versions are found by name. */
+    @Test
+    public void testFind() {
+        final SpecCatalog catalog = SpecCatalog.getInstance();
+        final SpecCatalog.Entry latest = catalog.find(SpecCatalog.KUBERNETES, null);
+        assertNotNull(latest);
+        assertTrue(latest.isDefault());
+        assertEquals("1.9", latest.getVersion());
+        assertEquals(SpecCatalog.RESOURCE_DIRECTORY + "kubernetes-1.9", latest.getResourceName());
+        assertTrue(latest.getApiVersions().contains("apps/v1beta2"));
+        assertTrue(latest.getModelCount() > 0);
+
+        assertEquals("openshift-3.6", catalog.find(SpecCatalog.OPENSHIFT, null).getResourceName().substring(SpecCatalog.RESOURCE_DIRECTORY.length()));
+        assertEquals("1.7", catalog.find(SpecCatalog.KUBERNETES, "1.7").getVersion());
+        assertNull(catalog.find(SpecCatalog.KUBERNETES, "0.1"));
+        assertNull(catalog.find("nonexistent", null));
+    }
+
+    /** Test that a catalog survives being written and read back. */
+    @Test
+    public void testRoundTrip() throws IOException {
+        final StringWriter writer = new StringWriter();
+        SpecCatalog.getInstance().write(writer);
+        assertEquals(SpecCatalog.getInstance(), SpecCatalog.read(new StringReader(writer.toString())));
+    }
+
+    /** Test that versions are listed latest first, comparing release numbers numerically. */
+    @Test
+    public void testVersionOrder() {
+        final List<String> versions = SpecCatalog.getInstance().getVersions(SpecCatalog.KUBERNETES);
+        assertEquals(Arrays.asList("1.9", "1.8", "1.7", "1.6", "1.5", "1.4", "1.3", "1.2"), versions);
+        assertTrue(ReleaseVersionComparator.INSTANCE.compare("1.10", "1.9") > 0);
+        assertTrue(ReleaseVersionComparator.INSTANCE.compare("3.6", "3.6.1") < 0);
+    }
+}
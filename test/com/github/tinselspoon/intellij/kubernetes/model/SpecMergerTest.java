@@ -0,0 +1,65 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import static com.github.tinselspoon.intellij.kubernetes.model.ModelTestUtil.loadSpecs;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+/**
+ * Unit test for the {@link SpecMerger}.
+ */
+public class SpecMergerTest {
+
+    /**
+     * Finds the spec for an API version.
+     *
+     * @param specs the specs to search.
+     * @param apiVersion the API version.
+     * @return the spec, or {@code null} if not found.
+     */
+    private static SwaggerSpec findSpec(final List<SwaggerSpec> specs, final String apiVersion) {
+        return specs.stream().filter(s -> apiVersion.equals(s.getApiVersion())).findFirst().orElse(null);
+    }
+
+    /** Test that Kubernetes and OpenShift specs are merged into one spec per API version, with Kubernetes models taking precedence. */
+    @Test
+    public void testKubernetesAndOpenshiftMerged() {
+        final List<SwaggerSpec> kubernetes = loadSpecs("kubernetes-1.9");
+        final List<SwaggerSpec> openshift = loadSpecs("openshift-3.6");
+        final List<SwaggerSpec> all = new ArrayList<>(kubernetes);
+        all.addAll(openshift);
+
+        final List<SwaggerSpec> merged = SpecMerger.merge(all);
+
+        final Set<String> apiVersions = all.stream().map(SwaggerSpec::getApiVersion).collect(Collectors.toSet());
+        assertEquals(apiVersions.size(), merged.size());
+
+        final SwaggerSpec v1 = findSpec(merged, "v1");
+        assertNotNull(v1);
+        assertSame(findSpec(kubernetes, "v1").getModels().get("v1.ObjectMeta"), v1.getModels().get("v1.ObjectMeta"));
+        assertSame(findSpec(openshift, "v1").getModels().get("v1.DeploymentConfig"), v1.getModels().get("v1.DeploymentConfig"));
+    }
+
+    /** Test that a single package is unchanged by merging, aside from the grouping of specs by API version. */
+    @Test
+    public void testSinglePackageModelsPreserved() {
+        final List<SwaggerSpec> kubernetes = loadSpecs("kubernetes-1.9");
+        final List<SwaggerSpec> merged = SpecMerger.merge(kubernetes);
+
+        for (final SwaggerSpec spec : kubernetes) {
+            final SwaggerSpec mergedSpec = merged.stream().filter(s -> Objects.equals(s.getApiVersion(), spec.getApiVersion())).findFirst().orElse(null);
+            assertNotNull(mergedSpec);
+            assertTrue(mergedSpec.getApis().containsAll(spec.getApis()));
+            assertTrue(mergedSpec.getModels().keySet().containsAll(spec.getModels().keySet()));
+        }
+    }
+}
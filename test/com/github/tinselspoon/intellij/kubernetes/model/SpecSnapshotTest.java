@@ -0,0 +1,95 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import static com.github.tinselspoon.intellij.kubernetes.model.ModelTestUtil.loadSpecs;
+import static com.github.tinselspoon.intellij.kubernetes.model.ModelTestUtil.openArchive;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Unit test for {@link SpecSnapshotWriter} and {@link SpecSnapshotReader}, ensuring a snapshot yields the same specs as parsing the original Swagger JSON.
+ */
+@RunWith(Parameterized.class)
+public class SpecSnapshotTest {
+
+    /** The name of the bundled spec archive to test, excluding the extension. */
+    @Parameter
+    public String archiveName;
+
+    /** Test cases; every bundled archive, so that no snapshot can go stale. */
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> params() {
+        final SpecCatalog catalog = SpecCatalog.getInstance();
+        return Stream.of(SpecCatalog.KUBERNETES, SpecCatalog.OPENSHIFT)
+                     .flatMap(packageName -> catalog.getVersions(packageName).stream().map(version -> new Object[] { packageName + "-" + version }))
+                     .collect(Collectors.toList());
+    }
+
+    /**
+     * Test that the bundled snapshot is exactly the one {@link SpecSnapshotWriter} generates from the bundled archive, so that a changed archive or snapshot format cannot silently leave a stale
+     * snapshot to be loaded in place of the archive. Run {@link SpecSnapshotWriter#main(String[])} on the resource directory to regenerate the snapshots.
+     */
+    @Test
+    public void testBundledSnapshotIsCurrent() throws IOException {
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        SpecSnapshotWriter.write(loadSpecs(archiveName), expected);
+
+        final ByteArrayOutputStream bundled = new ByteArrayOutputStream();
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(SpecCatalog.RESOURCE_DIRECTORY + archiveName + SpecSnapshotReader.SNAPSHOT_EXTENSION)) {
+            assertNotNull("No snapshot is bundled for " + archiveName + ".", in);
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) > -1) {
+                bundled.write(buffer, 0, read);
+            }
+        }
+        assertArrayEquals("The snapshot of " + archiveName + " is stale; regenerate it with SpecSnapshotWriter.", expected.toByteArray(), bundled.toByteArray());
+    }
+
+    /** Test that the index of both a snapshot and a zip package describes the specs it holds, without the specs needing to be read. */
+    @Test
+    public void testIndexMatchesSpecs() throws IOException {
+        final List<SwaggerSpec> jsonSpecs = loadSpecs(archiveName);
+        final List<SpecIndexEntry> expectedIndex = jsonSpecs.stream().map(SpecIndexEntry::of).collect(Collectors.toList());
+
+        final ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        SpecSnapshotWriter.write(jsonSpecs, snapshot);
+        assertEquals(expectedIndex, SpecSnapshotReader.open(new ByteArrayInputStream(snapshot.toByteArray())).getIndex());
+
+        final ZipSpecPackage zipPackage = ZipSpecPackage.open(openArchive(archiveName), ForkJoinPool.commonPool(), new ModelInterner());
+        assertEquals(expectedIndex, zipPackage.getIndex());
+        assertTrue(zipPackage.getLoadedSpecs().isEmpty());
+        assertEquals(jsonSpecs, zipPackage.getAllSpecs());
+    }
+
+    /** Test that writing the specs parsed from JSON to a snapshot and reading them back gives an identical graph of models and properties. */
+    @Test
+    public void testSnapshotMatchesJson() throws IOException {
+        final List<SwaggerSpec> jsonSpecs = loadSpecs(archiveName);
+        assertFalse("Expected specs to be loaded from " + archiveName + ".", jsonSpecs.isEmpty());
+
+        final ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        SpecSnapshotWriter.write(jsonSpecs, snapshot);
+        final List<SwaggerSpec> snapshotSpecs = SpecSnapshotReader.read(new ByteArrayInputStream(snapshot.toByteArray()));
+
+        assertEquals(jsonSpecs, snapshotSpecs);
+    }
+}
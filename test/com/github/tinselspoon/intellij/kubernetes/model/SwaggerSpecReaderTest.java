@@ -0,0 +1,79 @@
+package com.github.tinselspoon.intellij.kubernetes.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+/**
+ * Unit test for the {@link SwaggerSpecReader}.
+ */
+public class SwaggerSpecReaderTest {
+
+    /** A small spec exercising each of the fields that are read, along with some that are skipped. */
+    private static final String SPEC_JSON = "{\"swaggerVersion\": \"1.2\", \"apiVersion\": \"v1\", \"basePath\": \"https://example.com\","
+                                            + "\"apis\": [{\"path\": \"/api/v1/pods\", \"operations\": [{\"type\": \"v1.Pod\", \"method\": \"POST\", \"parameters\": [{\"name\": \"body\"}]}]}],"
+                                            + "\"models\": {\"v1.Pod\": {\"id\": \"v1.Pod\", \"description\": \"A pod.\", \"required\": [\"spec\"], \"properties\": {"
+                                            + "\"metadata\": {\"$ref\": \"v1.ObjectMeta\", \"description\": null},"
+                                            + "\"spec\": {\"type\": \"object\", \"format\": \"unknown\"},"
+                                            + "\"volumes\": {\"type\": \"array\", \"items\": {\"$ref\": \"v1.ObjectMeta\"}}}}}}";
+
+    /** Test that an empty document yields no spec. */
+    @Test
+    public void testEmptyDocument() throws IOException {
+        assertNull(new SwaggerSpecReader().read(new StringReader("\r\n")));
+    }
+
+    /** Test that the fields used by the plugin are read, and that others are skipped. */
+    @Test
+    public void testReadSpec() throws IOException {
+        final SwaggerSpec spec = new SwaggerSpecReader().read(new StringReader(SPEC_JSON));
+        assertNotNull(spec);
+        assertEquals("v1", spec.getApiVersion());
+
+        final ApiOperation operation = spec.getApis().get(0).getOperations().get(0);
+        assertEquals("POST", operation.getMethod());
+        assertEquals("v1.Pod", operation.getType());
+
+        final Model model = spec.getModels().get("v1.Pod");
+        assertEquals("v1.Pod", model.getId());
+        assertEquals("A pod.", model.getDescription());
+        assertEquals(Collections.singletonList("spec"), model.getRequiredProperties());
+        assertEquals(new HashSet<>(Arrays.asList("metadata", "spec", "volumes")), model.getProperties().keySet());
+
+        final Property metadata = model.getProperties().get("metadata");
+        assertEquals("v1.ObjectMeta", metadata.getRef());
+        assertNull(metadata.getDescription());
+        assertEquals(FieldType.OBJECT, model.getProperties().get("spec").getType());
+
+        final Property volumes = model.getProperties().get("volumes");
+        assertEquals(FieldType.ARRAY, volumes.getType());
+        assertEquals("v1.ObjectMeta", volumes.getItems().getRef());
+    }
+
+    /** Test that repeated strings are shared between specs read by the same reader. */
+    @Test
+    public void testStringsInterned() throws IOException {
+        final SwaggerSpecReader specReader = new SwaggerSpecReader();
+        final SwaggerSpec first = specReader.read(new StringReader(SPEC_JSON));
+        final SwaggerSpec second = specReader.read(new StringReader(SPEC_JSON));
+        assertNotNull(first);
+        assertNotNull(second);
+
+        final Model firstModel = first.getModels().get("v1.Pod");
+        final Model secondModel = second.getModels().get("v1.Pod");
+        assertSame(firstModel.getId(), secondModel.getId());
+        assertSame(firstModel.getProperties().get("metadata").getRef(), secondModel.getProperties().get("volumes").getItems().getRef());
+        assertFalse(firstModel.getRequiredProperties().isEmpty());
+        assertSame(firstModel.getRequiredProperties().get(0), secondModel.getRequiredProperties().get(0));
+    }
+}